@@ -0,0 +1,440 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-benchmarks for the codec hot paths, run from the command line.
+ * <p>
+ * Each benchmark runs for a number of warm-up iterations and then a number
+ * of measured iterations of fixed length, all on one thread. The report
+ * gives the mean and standard deviation of operations per second over the
+ * measured iterations and the bytes allocated per operation, read from the
+ * thread's allocation counter. Inputs are generated from a fixed seed for
+ * each combination of distribution, alphabet size and input size.
+ * </p>
+ * <p>
+ * Results can be saved as CSV and later used as a baseline. With a
+ * baseline, every benchmark that is slower than the baseline by more than
+ * the tolerance is flagged and the harness exits with status 1, so a
+ * change can be gated on it. The classes under test are in the default
+ * package, which JMH cannot generate code for, so this harness does the
+ * warm-up, timing and dead-code protection itself.
+ * </p>
+ * <pre>
+ * mvn -P bench compile
+ * java -cp target/classes:target/bench-classes HuffmanBenchmark -size 65536 -csv base.csv
+ * java -cp target/classes:target/bench-classes HuffmanBenchmark -size 65536 -baseline base.csv
+ * </pre>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanBenchmark {
+
+	/** Distribution of the generated symbols. */
+	enum Distribution {
+		/** Every symbol of the alphabet equally likely. */
+		UNIFORM,
+		/** Symbol k has weight 1 / (k + 1). */
+		ZIPF,
+		/** English letter and space frequencies; the alphabet size is ignored. */
+		ENGLISH
+	}
+
+	/** A benchmarked operation. */
+	interface Operation {
+		/**
+		 * Runs the operation once.
+		 * @return the result, which is kept so it cannot be optimized away
+		 */
+		Object run();
+	}
+
+	/** Letter frequencies of English text in percent, a to z, then space. */
+	private static final double[] ENGLISH = {
+		8.2, 1.5, 2.8, 4.3, 12.7, 2.2, 2.0, 6.1, 7.0, 0.15, 0.8, 4.0, 2.4,
+		6.7, 7.5, 1.9, 0.1, 6.0, 6.3, 9.1, 2.8, 1.0, 2.4, 0.15, 2.0, 0.07, 19.0
+	};
+
+	/** Receives every result so the JIT cannot drop the work. */
+	private static volatile Object sink;
+
+	/** Warm-up iterations per benchmark. */
+	private int warmups = 2;
+
+	/** Measured iterations per benchmark. */
+	private int iterations = 5;
+
+	/** Length of each iteration in milliseconds. */
+	private long millis = 500;
+
+	/** Input sizes in symbols. */
+	private int[] sizes = {1024, 65536, 1 << 20};
+
+	/** Alphabet sizes. */
+	private int[] alphabets = {16, 256};
+
+	/** Distributions to generate. */
+	private Distribution[] distributions = Distribution.values();
+
+	/** Only benchmarks whose id matches are run. */
+	private Pattern filter = Pattern.compile(".*");
+
+	/** File to write results to, or null. */
+	private String csv;
+
+	/** File to read baseline results from, or null. */
+	private String baseline;
+
+	/** Largest allowed slowdown against the baseline, in percent. */
+	private double tolerance = 10;
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args - the options; -help lists them
+	 * @throws IOException if a results file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		HuffmanBenchmark bench = new HuffmanBenchmark();
+		if(!bench.parse(args)) {
+			System.err.println("Usage: HuffmanBenchmark [-f <regex>] [-size <n,...>] [-alphabet <n,...>]");
+			System.err.println("         [-dist UNIFORM,ZIPF,ENGLISH] [-wi <n>] [-i <n>] [-r <ms>]");
+			System.err.println("         [-csv <file>] [-baseline <file>] [-tolerance <percent>]");
+			System.exit(2);
+		}
+		System.exit(bench.run() ? 0 : 1);
+	}
+
+	/**
+	 * Private helper that reads the options.
+	 * @param args - the options
+	 * @return false if the options are not valid
+	 */
+	private boolean parse(String[] args) {
+		try {
+			for(int i=0; i<args.length; i++) {
+				String option = args[i];
+				if(option.equals("-help") || i + 1 >= args.length) {
+					return false;
+				}
+				String value = args[++i];
+				switch(option) {
+				case "-f": filter = Pattern.compile(value); break;
+				case "-size": sizes = ints(value); break;
+				case "-alphabet": alphabets = ints(value); break;
+				case "-wi": warmups = Integer.parseInt(value); break;
+				case "-i": iterations = Integer.parseInt(value); break;
+				case "-r": millis = Long.parseLong(value); break;
+				case "-csv": csv = value; break;
+				case "-baseline": baseline = value; break;
+				case "-tolerance": tolerance = Double.parseDouble(value); break;
+				case "-dist":
+					String[] names = value.split(",");
+					distributions = new Distribution[names.length];
+					for(int j=0; j<names.length; j++) {
+						distributions[j] = Distribution.valueOf(names[j].trim().toUpperCase());
+					}
+					break;
+				default: return false;
+				}
+			}
+		} catch(IllegalArgumentException ex) {
+			return false;
+		}
+		return iterations > 0 && warmups >= 0 && millis > 0;
+	}
+
+	/**
+	 * Private helper that runs every selected benchmark and prints the report.
+	 * @return false if a benchmark regressed against the baseline
+	 * @throws IOException if a results file cannot be read or written
+	 */
+	private boolean run() throws IOException {
+		Map<String,Double> base = baseline == null ? new HashMap<String,Double>() : readBaseline(baseline);
+		PrintWriter out = csv == null ? null : new PrintWriter(csv, "UTF-8");
+		boolean passed = true;
+		System.out.printf("%-52s %14s %12s %12s %9s%n", "Benchmark", "ops/s", "error", "B/op", "vs base");
+		try {
+			for(Distribution distribution : distributions) {
+				int[] alphabetList = distribution == Distribution.ENGLISH ? new int[] {ENGLISH.length} : alphabets;
+				for(int alphabet : alphabetList) {
+					for(int size : sizes) {
+						String suffix = " " + distribution + "/" + alphabet + "/" + size;
+						for(Map.Entry<String,Operation> bench : benchmarks(distribution, alphabet, size).entrySet()) {
+							String id = bench.getKey() + suffix;
+							if(!filter.matcher(id).find()) {
+								continue;
+							}
+							double[] result = measure(bench.getValue());
+							String change = "";
+							Double reference = base.get(id);
+							if(reference != null && reference > 0) {
+								double delta = 100 * (result[0] / reference - 1);
+								change = String.format("%+8.1f%%", delta);
+								if(delta < -tolerance) {
+									change += " REGRESSION";
+									passed = false;
+								}
+							}
+							System.out.printf("%-52s %14.1f %12.1f %12.0f %s%n", id, result[0], result[1], result[2], change);
+							if(out != null) {
+								out.printf("%s,%.3f,%.3f,%.1f%n", id, result[0], result[1], result[2]);
+								out.flush();
+							}
+						}
+					}
+				}
+			}
+		} finally {
+			if(out != null) {
+				out.close();
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * Private helper that builds the benchmarks for one input.
+	 * @param distribution - the symbol distribution
+	 * @param alphabet - the alphabet size
+	 * @param size - the input size in symbols
+	 * @return the benchmarks by name, in report order
+	 */
+	private static Map<String,Operation> benchmarks(Distribution distribution, int alphabet, int size) {
+		final String text = generate(distribution, alphabet, size, new Random(size * 31L + alphabet));
+		final Map<Character,Double> table = FrequencyCounter.count(text).toTable();
+		final Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(table);
+		final StringOfBits bits = HuffmanCode.encode(text, code);
+		final boolean[] pattern = new boolean[bits.length()];
+		for(int i=0; i<pattern.length; i++) {
+			pattern[i] = bits.booleanAt(i);
+		}
+		final HuffmanTree tree = HuffmanCode.createHuffmanTree(table);
+		final CodeTable codeTable = new CodeTable(code);
+		final HuffmanDecoder decoder = new HuffmanDecoder(code);
+		final byte[] block = InterleavedCode.encode(text, code);
+		Map<String,Operation> benchmarks = new LinkedHashMap<String,Operation>();
+		benchmarks.put("createHuffmanCode(String)", new Operation() {
+			@Override
+			public Object run() {
+				return HuffmanCode.createHuffmanCode(text);
+			}
+		});
+		benchmarks.put("createHuffmanCode(Map)", new Operation() {
+			@Override
+			public Object run() {
+				return HuffmanCode.createHuffmanCode(table);
+			}
+		});
+		benchmarks.put("encode", new Operation() {
+			@Override
+			public Object run() {
+				return HuffmanCode.encode(text, code);
+			}
+		});
+		benchmarks.put("encode(table)", new Operation() {
+			@Override
+			public Object run() {
+				return HuffmanCode.encode(text, codeTable);
+			}
+		});
+		benchmarks.put("decode", new Operation() {
+			@Override
+			public Object run() {
+				return HuffmanCode.decode(bits, code);
+			}
+		});
+		benchmarks.put("decode(decoder)", new Operation() {
+			@Override
+			public Object run() {
+				return decoder.decode(bits);
+			}
+		});
+		benchmarks.put("decode(interleaved)", new Operation() {
+			@Override
+			public Object run() {
+				return InterleavedCode.decode(block, decoder);
+			}
+		});
+		benchmarks.put("StringOfBits.append", new Operation() {
+			@Override
+			public Object run() {
+				StringOfBits appended = new StringOfBits();
+				for(boolean bit : pattern) {
+					appended.append(bit);
+				}
+				return appended;
+			}
+		});
+		benchmarks.put("StringOfBits.intAt", new Operation() {
+			@Override
+			public Object run() {
+				int ones = 0;
+				for(int i=0; i<bits.length(); i++) {
+					ones += bits.intAt(i);
+				}
+				return ones;
+			}
+		});
+		for(final BinaryTree.Traversal order : BinaryTree.Traversal.values()) {
+			benchmarks.put("BinaryTree." + order.name().toLowerCase(), new Operation() {
+				@Override
+				public Object run() {
+					int nodes = 0;
+					for(Iterator<BinaryTree<HuffmanTreeNodeValues>> it = tree.iterator(order); it.hasNext(); it.next()) {
+						nodes++;
+					}
+					return nodes;
+				}
+			});
+		}
+		return benchmarks;
+	}
+
+	/**
+	 * Private helper that measures one benchmark.
+	 * @param operation - the operation
+	 * @return the mean and standard deviation of operations per second, and
+	 * bytes allocated per operation (-1 if the JVM cannot tell)
+	 */
+	private double[] measure(Operation operation) {
+		System.gc();
+		for(int i=0; i<warmups; i++) {
+			iterate(operation);
+		}
+		double[] rates = new double[iterations];
+		long allocated = 0;
+		long operations = 0;
+		for(int i=0; i<iterations; i++) {
+			long before = allocatedBytes();
+			long start = System.nanoTime();
+			long count = iterate(operation);
+			long elapsed = System.nanoTime() - start;
+			allocated += allocatedBytes() - before;
+			operations += count;
+			rates[i] = count * 1e9 / elapsed;
+		}
+		double mean = 0;
+		for(double rate : rates) {
+			mean += rate / iterations;
+		}
+		double variance = 0;
+		for(double rate : rates) {
+			variance += (rate - mean) * (rate - mean) / Math.max(1, iterations - 1);
+		}
+		double perOp = allocatedBytes() < 0 ? -1 : (double) allocated / operations;
+		return new double[] {mean, Math.sqrt(variance), perOp};
+	}
+
+	/**
+	 * Private helper that runs an operation repeatedly for one iteration.
+	 * @param operation - the operation
+	 * @return the number of times it ran
+	 */
+	private long iterate(Operation operation) {
+		long deadline = System.nanoTime() + millis * 1000000L;
+		long count = 0;
+		do {
+			sink = operation.run();
+			count++;
+		} while(System.nanoTime() < deadline);
+		return count;
+	}
+
+	/**
+	 * Private helper that reads the allocation counter of this thread.
+	 * @return the bytes allocated so far; -1 if the JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Private helper that generates input text.
+	 * @param distribution - the symbol distribution
+	 * @param alphabet - the alphabet size
+	 * @param size - the number of symbols
+	 * @param random - the source of randomness
+	 * @return the text
+	 */
+	private static String generate(Distribution distribution, int alphabet, int size, Random random) {
+		char[] symbols;
+		double[] weights;
+		if(distribution == Distribution.ENGLISH) {
+			symbols = "abcdefghijklmnopqrstuvwxyz ".toCharArray();
+			weights = ENGLISH;
+		} else {
+			symbols = new char[alphabet];
+			weights = new double[alphabet];
+			for(int k=0; k<alphabet; k++) {
+				symbols[k] = (char) ('!' + k);
+				weights[k] = distribution == Distribution.ZIPF ? 1.0 / (k + 1) : 1;
+			}
+		}
+		double[] cumulative = new double[weights.length];
+		double total = 0;
+		for(int k=0; k<weights.length; k++) {
+			total += weights[k];
+			cumulative[k] = total;
+		}
+		char[] text = new char[size];
+		for(int i=0; i<size; i++) {
+			int k = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+			text[i] = symbols[Math.min(k < 0 ? -k - 1 : k, symbols.length - 1)];
+		}
+		return new String(text);
+	}
+
+	/**
+	 * Private helper that reads results saved with -csv.
+	 * @param file - the results file
+	 * @return operations per second by benchmark id
+	 * @throws IOException if the file cannot be read
+	 */
+	private static Map<String,Double> readBaseline(String file) throws IOException {
+		Map<String,Double> results = new HashMap<String,Double>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				String[] fields = line.split(",");
+				if(fields.length >= 2) {
+					results.put(fields[0], Double.parseDouble(fields[1]));
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Private helper that parses a comma-separated list of integers.
+	 * @param value - the list
+	 * @return the integers
+	 * @throws NumberFormatException if an item is not an integer
+	 */
+	private static int[] ints(String value) throws NumberFormatException {
+		String[] items = value.split(",");
+		int[] result = new int[items.length];
+		for(int i=0; i<items.length; i++) {
+			result[i] = Integer.parseInt(items[i].trim());
+		}
+		return result;
+	}
+}
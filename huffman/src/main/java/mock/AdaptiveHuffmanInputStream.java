@@ -0,0 +1,253 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that decodes data written by
+ * {@link AdaptiveHuffmanOutputStream}.
+ * <p>
+ * The decoder keeps its own {@link AdaptiveHuffmanTree} and applies the
+ * same update after each symbol as the encoder did, so both always use the
+ * same code. Bits are read one at a time down the tree from a fixed-size
+ * buffer, and the data ends at the end-of-stream symbol; anything after it
+ * is left unread in the buffer. A sync marker written by a flush is
+ * skipped together with its padding.
+ * </p>
+ * <p>
+ * A multi-byte read returns early, once at least one byte has been decoded,
+ * rather than block on the underlying stream for more input, so a reader
+ * on a pipe or socket sees each byte as soon as its bits arrive.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class AdaptiveHuffmanInputStream extends InputStream {
+
+	/** Size of the buffer of encoded bytes. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Upper bound on the bits of one code, escaped symbols included. */
+	private static final int MAX_CODE_BITS = AdaptiveHuffmanTree.SYMBOLS + AdaptiveHuffmanTree.RAW_BITS;
+
+	/** The stream the encoded bytes are read from. */
+	private final InputStream in;
+
+	/** The model kept in step with the encoder. */
+	private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+
+	/** Buffer of encoded bytes. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** Index of the next unread byte in the buffer. */
+	private int pos;
+
+	/** Number of valid bytes in the buffer. */
+	private int limit;
+
+	/** The byte whose bits are being read. */
+	private int current;
+
+	/** Number of unread bits left in current. */
+	private int currentBits;
+
+	/** Number of bits decoded so far. */
+	private long bitsRead;
+
+	/** Whether the end-of-stream symbol has been decoded. */
+	private boolean finished;
+
+	/**
+	 * Creates a stream that decodes adaptively.
+	 * @param in - the stream of encoded bytes
+	 */
+	public AdaptiveHuffmanInputStream(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Decodes the next byte.
+	 * @return the next byte, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt or truncated
+	 */
+	@Override
+	public int read() throws IOException {
+		int symbol;
+		do {
+			symbol = decode();
+		} while(symbol == AdaptiveHuffmanTree.SYNC);
+		return symbol;
+	}
+
+	/**
+	 * Decodes up to <code>len</code> bytes, returning early rather than
+	 * block once at least one byte has been decoded.
+	 * @param b - the buffer into which the bytes are decoded
+	 * @param off - the index of the first byte to store
+	 * @param len - the maximum number of bytes to decode
+	 * @return the number of bytes decoded, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt or truncated
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(len == 0) {
+			return 0;
+		}
+		int n = 0;
+		while(n < len) {
+			if(n > 0 && currentBits + 8L * (limit - pos) < MAX_CODE_BITS && !canDecode()) {
+				break;
+			}
+			int symbol = decode();
+			if(symbol < 0) {
+				break;
+			}
+			if(symbol != AdaptiveHuffmanTree.SYNC) {
+				b[off + n++] = (byte) symbol;
+			}
+		}
+		return n == 0 ? -1 : n;
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns a snapshot of the current code tree.
+	 * @return the root of the snapshot
+	 * @see AdaptiveHuffmanTree#toHuffmanTree()
+	 */
+	public HuffmanTree toHuffmanTree() {
+		return tree.toHuffmanTree();
+	}
+
+	/**
+	 * Private helper that decodes the next symbol, skipping the padding
+	 * after a sync marker.
+	 * @return the next byte, SYNC after a sync marker, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt or truncated
+	 */
+	private int decode() throws IOException {
+		if(finished) {
+			return -1;
+		}
+		long start = bitsRead;
+		int node = tree.root();
+		while(tree.symbol(node) == AdaptiveHuffmanTree.INTERNAL) {
+			node = tree.child(node, readBit());
+		}
+		int symbol = tree.symbol(node);
+		if(symbol == AdaptiveHuffmanTree.ESCAPE) {
+			symbol = 0;
+			for(int i=0; i<AdaptiveHuffmanTree.RAW_BITS; i++) {
+				symbol = symbol << 1 | readBit();
+			}
+			if(symbol < AdaptiveHuffmanTree.EOS && tree.contains(symbol)) {
+				throw new IOException("Escaped symbol " + symbol + " already has a code at bit " + start);
+			}
+			if(symbol > AdaptiveHuffmanTree.SYNC) {
+				throw new IOException("Invalid symbol " + symbol + " at bit " + start);
+			}
+			if(symbol == AdaptiveHuffmanTree.SYNC) {
+				bitsRead += currentBits;
+				currentBits = 0;
+				return symbol;
+			}
+		}
+		if(symbol == AdaptiveHuffmanTree.EOS) {
+			finished = true;
+			return -1;
+		}
+		tree.update(symbol);
+		return symbol;
+	}
+
+	/**
+	 * Private helper that checks whether the next code can be decoded
+	 * without blocking, by walking the tree over the bits already buffered
+	 * or available from the underlying stream.
+	 * @return true if the whole of the next code can be read without blocking
+	 * @throws IOException if an I/O error occurs
+	 */
+	private boolean canDecode() throws IOException {
+		long used = 0;
+		int node = tree.root();
+		while(tree.symbol(node) == AdaptiveHuffmanTree.INTERNAL) {
+			int bit = peekBit(used++);
+			if(bit < 0) {
+				return false;
+			}
+			node = tree.child(node, bit);
+		}
+		return tree.symbol(node) != AdaptiveHuffmanTree.ESCAPE
+				|| peekBit(used + AdaptiveHuffmanTree.RAW_BITS - 1) >= 0;
+	}
+
+	/**
+	 * Private helper that returns a bit ahead of the next one without
+	 * consuming it, topping up the buffer only with bytes the underlying
+	 * stream reports as available.
+	 * @param ahead - the number of bits to look past the next one
+	 * @return the bit, 0 or 1, or -1 if it cannot be read without blocking
+	 * @throws IOException if an I/O error occurs
+	 */
+	private int peekBit(long ahead) throws IOException {
+		if(ahead < currentBits) {
+			return current >>> (currentBits - 1 - (int) ahead) & 1;
+		}
+		long bit = ahead - currentBits;
+		int index = pos + (int) (bit >>> 3);
+		if(index >= limit) {
+			int available = in.available();
+			if(available <= 0) {
+				return -1;
+			}
+			System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+			index -= pos;
+			limit -= pos;
+			pos = 0;
+			int n = in.read(buffer, limit, Math.min(available, buffer.length - limit));
+			if(n > 0) {
+				limit += n;
+			}
+			if(index >= limit) {
+				return -1;
+			}
+		}
+		return buffer[index] >>> (7 - (int) (bit & 7)) & 1;
+	}
+
+	/**
+	 * Private helper that reads the next bit, refilling the buffer as needed.
+	 * @return the bit, 0 or 1
+	 * @throws IOException if an I/O error occurs or the data ends before
+	 * the end-of-stream symbol
+	 */
+	private int readBit() throws IOException {
+		if(currentBits == 0) {
+			if(pos >= limit) {
+				int n;
+				do {
+					n = in.read(buffer, 0, buffer.length);
+				} while(n == 0);
+				if(n < 0) {
+					throw new EOFException("Truncated data at bit " + bitsRead);
+				}
+				pos = 0;
+				limit = n;
+			}
+			current = buffer[pos++] & 0xFF;
+			currentBits = 8;
+		}
+		bitsRead++;
+		return current >>> --currentBits & 1;
+	}
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that Huffman-encodes the bytes written to it in a single
+ * pass, with no codebook and no header.
+ * <p>
+ * Each byte is encoded with the current code of an
+ * {@link AdaptiveHuffmanTree}, which is then updated, so the code follows
+ * the data as it changes. A byte seen for the first time is sent as the
+ * escape code followed by the byte in 9 plain bits. Bits are packed most
+ * significant bit first through a fixed-size buffer.
+ * </p>
+ * <p>
+ * Closing the stream encodes the end-of-stream symbol and pads the final
+ * partial byte with zeros, so {@link AdaptiveHuffmanInputStream} can find
+ * the end of the data without a trailer. Since nothing depends on what has
+ * not been written yet, the stream suits pipes and sockets whose data
+ * cannot be buffered. When the last code ends inside a byte,
+ * {@link #flush()} completes that byte with the escape code, the plain
+ * value {@link AdaptiveHuffmanTree#SYNC} and zero padding, which the
+ * decoder skips, so everything written so far can be decoded at once.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class AdaptiveHuffmanOutputStream extends OutputStream {
+
+	/** Size of the encoded byte buffer. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The stream the encoded bytes are written to. */
+	private final OutputStream out;
+
+	/** The model shared in step with the decoder. */
+	private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+
+	/** Scratch space for the path of a leaf, one bit per byte. */
+	private final byte[] path = new byte[AdaptiveHuffmanTree.SYMBOLS];
+
+	/** Buffer of encoded bytes waiting to be written. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** Number of bytes used in the buffer. */
+	private int count;
+
+	/** Pending bits, right aligned; only the low accBits bits are used. */
+	private int acc;
+
+	/** Number of pending bits in acc, always less than 8 between writes. */
+	private int accBits;
+
+	/** Total number of encoded bits. */
+	private long totalBits;
+
+	/** Whether the stream has been closed. */
+	private boolean closed;
+
+	/**
+	 * Creates a stream that encodes adaptively.
+	 * @param out - the stream the encoded bytes are written to
+	 */
+	public AdaptiveHuffmanOutputStream(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Encodes one byte.
+	 * @param b - the byte to encode, in the low 8 bits
+	 * @throws IOException if an I/O error occurs or the stream is closed
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		encode(b & 0xFF);
+	}
+
+	/**
+	 * Encodes a range of bytes.
+	 * @param b - the bytes to encode
+	 * @param off - the index of the first byte
+	 * @param len - the number of bytes
+	 * @throws IOException if an I/O error occurs or the stream is closed
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		if(off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		for(int i=off; i<off+len; i++) {
+			encode(b[i] & 0xFF);
+		}
+	}
+
+	/**
+	 * Writes everything encoded so far to the underlying stream and flushes
+	 * it. An unfinished byte is completed with a sync marker and padding.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(!closed && accBits > 0) {
+			writePath(tree.escape());
+			writeRaw(AdaptiveHuffmanTree.SYNC);
+			if(accBits > 0) {
+				putByte(acc << (8 - accBits));
+				acc = 0;
+				accBits = 0;
+			}
+		}
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Encodes the end-of-stream symbol, pads the final partial byte and
+	 * closes the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			encode(AdaptiveHuffmanTree.EOS);
+			if(accBits > 0) {
+				putByte(acc << (8 - accBits));
+				accBits = 0;
+			}
+			flushBuffer();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of encoded bits written so far.
+	 * @return the number of encoded bits
+	 */
+	public long bitsWritten() {
+		return totalBits;
+	}
+
+	/**
+	 * Returns a snapshot of the current code tree.
+	 * @return the root of the snapshot
+	 * @see AdaptiveHuffmanTree#toHuffmanTree()
+	 */
+	public HuffmanTree toHuffmanTree() {
+		return tree.toHuffmanTree();
+	}
+
+	/**
+	 * Private helper that appends the code of one symbol and updates the tree.
+	 * @param symbol - the symbol, 0 to 256
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void encode(int symbol) throws IOException {
+		int leaf = tree.leaf(symbol);
+		if(leaf >= 0) {
+			writePath(leaf);
+		} else {
+			writePath(tree.escape());
+			writeRaw(symbol);
+		}
+		if(symbol != AdaptiveHuffmanTree.EOS) {
+			tree.update(symbol);
+		}
+	}
+
+	/**
+	 * Private helper that appends a value in RAW_BITS plain bits.
+	 * @param value - the value
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeRaw(int value) throws IOException {
+		for(int shift=AdaptiveHuffmanTree.RAW_BITS-1; shift>=0; shift--) {
+			writeBit(value >>> shift & 1);
+		}
+	}
+
+	/**
+	 * Private helper that appends the path from the root to a node.
+	 * @param node - the node
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writePath(int node) throws IOException {
+		int length = tree.path(node, path);
+		for(int i=0; i<length; i++) {
+			writeBit(path[i]);
+		}
+	}
+
+	/**
+	 * Private helper that appends one bit.
+	 * @param bit - the bit, 0 or 1
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeBit(int bit) throws IOException {
+		acc = acc << 1 | bit;
+		totalBits++;
+		if(++accBits == 8) {
+			putByte(acc);
+			acc = 0;
+			accBits = 0;
+		}
+	}
+
+	/**
+	 * Private helper that adds a byte to the buffer, writing the buffer out
+	 * when it is full.
+	 * @param b - the byte, in the low 8 bits
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void putByte(int b) throws IOException {
+		if(count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	/**
+	 * Private helper that writes the buffered bytes to the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void flushBuffer() throws IOException {
+		if(count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+import java.util.Arrays;
+
+/**
+ * An adaptive Huffman tree over the 256 byte values and an end-of-stream
+ * symbol, updated one symbol at a time with the FGK algorithm (Faller,
+ * Gallager and Knuth).
+ * <p>
+ * The tree starts as a single escape leaf of weight 0. The first time a
+ * symbol is seen it is sent as the code of the escape leaf followed by the
+ * symbol in {@link #RAW_BITS} plain bits, and the escape leaf is split into
+ * a new escape leaf and a leaf for the symbol. After each symbol the
+ * weights on the path from its leaf to the root are incremented, swapping
+ * nodes as needed to keep the sibling property, so the tree is always a
+ * Huffman tree for the counts seen so far. An encoder and a decoder that
+ * apply the same updates stay in step without any codebook being sent.
+ * </p>
+ * <p>
+ * Nodes live in parallel primitive arrays indexed by their FGK number:
+ * weights never decrease as the number grows, a parent always has a higher
+ * number than its children, and the root is the highest number. A node
+ * keeps its number when it is swapped, so a swap exchanges the contents of
+ * two slots and fixes the links into them. A left branch is a 0 bit and a
+ * right branch is a 1 bit. The tree never has more than 2 * 257 - 1 nodes,
+ * so memory use does not depend on the amount of data.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class AdaptiveHuffmanTree {
+
+	/** The end-of-stream symbol, one past the byte values. */
+	public static final int EOS = 256;
+
+	/** Number of symbols: the byte values and EOS. */
+	public static final int SYMBOLS = 257;
+
+	/** Number of plain bits sent after the escape code for a new symbol. */
+	public static final int RAW_BITS = 9;
+
+	/**
+	 * Plain value sent after the escape code to mark a flush; the bits up to
+	 * the next byte boundary are padding. It never gets a leaf.
+	 */
+	public static final int SYNC = 257;
+
+	/** Symbol of an internal node. */
+	static final int INTERNAL = -1;
+
+	/** Symbol of the escape leaf. */
+	static final int ESCAPE = -2;
+
+	/** Most nodes the tree can hold. */
+	private static final int CAPACITY = 2 * SYMBOLS - 1;
+
+	/** Number of the root. */
+	private static final int ROOT = CAPACITY - 1;
+
+	/** Left child of each node; -1 for leaves. */
+	private final int[] left = new int[CAPACITY];
+
+	/** Right child of each node; -1 for leaves. */
+	private final int[] right = new int[CAPACITY];
+
+	/** Parent of each node; -1 for the root. */
+	private final int[] parent = new int[CAPACITY];
+
+	/** Symbol of each node; INTERNAL or ESCAPE for the other kinds. */
+	private final int[] symbol = new int[CAPACITY];
+
+	/** Weight of each node; an internal node weighs as much as its children. */
+	private final long[] weight = new long[CAPACITY];
+
+	/** Leaf of each symbol; -1 if the symbol has not been seen. */
+	private final int[] leafOf = new int[SYMBOLS];
+
+	/** Number of the escape leaf; also the lowest number in use. */
+	private int escape = ROOT;
+
+	/**
+	 * Creates a tree holding only the escape leaf.
+	 */
+	public AdaptiveHuffmanTree() {
+		Arrays.fill(leafOf, -1);
+		left[ROOT] = -1;
+		right[ROOT] = -1;
+		parent[ROOT] = -1;
+		symbol[ROOT] = ESCAPE;
+	}
+
+	/**
+	 * Counts one more occurrence of a symbol and updates the tree.
+	 * @param s - the symbol, 0 to 256
+	 * @throws IllegalArgumentException if the symbol is out of range
+	 */
+	public void update(int s) throws IllegalArgumentException {
+		checkSymbol(s);
+		int node = leafOf[s];
+		if(node < 0) {
+			node = split(s);
+		}
+		while(true) {
+			int leader = node;
+			while(leader < ROOT && weight[leader + 1] == weight[node]) {
+				leader++;
+			}
+			if(leader == parent[node]) {
+				// Only the sibling of the escape leaf weighs as much as its parent.
+				leader--;
+			}
+			if(leader != node) {
+				swap(node, leader);
+				node = leader;
+			}
+			weight[node]++;
+			if(node == ROOT) {
+				return;
+			}
+			node = parent[node];
+		}
+	}
+
+	/**
+	 * Returns whether a symbol has been seen and so has a code of its own.
+	 * @param s - the symbol, 0 to 256
+	 * @return true if the symbol has a leaf
+	 * @throws IllegalArgumentException if the symbol is out of range
+	 */
+	public boolean contains(int s) throws IllegalArgumentException {
+		checkSymbol(s);
+		return leafOf[s] >= 0;
+	}
+
+	/**
+	 * Returns how many times a symbol has been counted.
+	 * @param s - the symbol, 0 to 256
+	 * @return the weight of the symbol's leaf; 0 if it has not been seen
+	 * @throws IllegalArgumentException if the symbol is out of range
+	 */
+	public long weight(int s) throws IllegalArgumentException {
+		checkSymbol(s);
+		return leafOf[s] < 0 ? 0 : weight[leafOf[s]];
+	}
+
+	/**
+	 * Returns the total number of symbols counted.
+	 * @return the weight of the root
+	 */
+	public long total() {
+		return weight[ROOT];
+	}
+
+	/**
+	 * Returns the current code of a symbol.
+	 * @param s - the symbol, 0 to 256
+	 * @return the code; null if the symbol has not been seen
+	 * @throws IllegalArgumentException if the symbol is out of range
+	 */
+	public StringOfBits code(int s) throws IllegalArgumentException {
+		checkSymbol(s);
+		return leafOf[s] < 0 ? null : codeOf(leafOf[s]);
+	}
+
+	/**
+	 * Returns the current code of the escape leaf, which is empty while no
+	 * symbol has been seen.
+	 * @return the escape code
+	 */
+	public StringOfBits escapeCode() {
+		return codeOf(escape);
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return CAPACITY - escape;
+	}
+
+	/**
+	 * Returns a snapshot of the tree as linked HuffmanTree nodes, with each
+	 * leaf's count as its frequency and its current code. The escape leaf
+	 * has a null symbol and frequency 0; EOS has the symbol (char) 256.
+	 * @return the root of the snapshot
+	 */
+	public HuffmanTree toHuffmanTree() {
+		HuffmanTree[] nodes = new HuffmanTree[CAPACITY];
+		for(int i=escape; i<CAPACITY; i++) {
+			if(symbol[i] == INTERNAL) {
+				nodes[i] = new HuffmanTree((double) weight[i], nodes[left[i]], nodes[right[i]]);
+			} else {
+				Character c = symbol[i] == ESCAPE ? null : (char) symbol[i];
+				nodes[i] = new HuffmanTree(c, (double) weight[i], codeOf(i));
+			}
+		}
+		return nodes[ROOT];
+	}
+
+	/**
+	 * Returns the root node.
+	 * @return the number of the root
+	 */
+	int root() {
+		return ROOT;
+	}
+
+	/**
+	 * Returns the escape leaf.
+	 * @return the number of the escape leaf
+	 */
+	int escape() {
+		return escape;
+	}
+
+	/**
+	 * Returns the leaf of a symbol.
+	 * @param s - the symbol, 0 to 256
+	 * @return the number of the leaf; -1 if the symbol has not been seen
+	 */
+	int leaf(int s) {
+		return leafOf[s];
+	}
+
+	/**
+	 * Returns the child of an internal node along a branch.
+	 * @param node - the internal node
+	 * @param bit - 0 for the left child, 1 for the right
+	 * @return the number of the child
+	 */
+	int child(int node, int bit) {
+		return bit == 0 ? left[node] : right[node];
+	}
+
+	/**
+	 * Returns the symbol of a node.
+	 * @param node - the node
+	 * @return the symbol of a leaf, or INTERNAL or ESCAPE
+	 */
+	int symbol(int node) {
+		return symbol[node];
+	}
+
+	/**
+	 * Writes the path from the root to a node, one bit per byte.
+	 * @param node - the node
+	 * @param path - receives the bits, root first; must hold the depth of
+	 * the node, which is never more than SYMBOLS
+	 * @return the number of bits
+	 */
+	int path(int node, byte[] path) {
+		int depth = 0;
+		for(int n=node; n!=ROOT; n=parent[n]) {
+			depth++;
+		}
+		for(int n=node, d=depth-1; n!=ROOT; n=parent[n], d--) {
+			path[d] = (byte) (right[parent[n]] == n ? 1 : 0);
+		}
+		return depth;
+	}
+
+	/**
+	 * Private helper that splits the escape leaf into a new escape leaf and
+	 * a leaf of weight 0 for a new symbol.
+	 * @param s - the new symbol
+	 * @return the number of the new symbol's leaf
+	 */
+	private int split(int s) {
+		int node = escape;
+		int leaf = node - 1;
+		int newEscape = node - 2;
+		symbol[node] = INTERNAL;
+		left[node] = newEscape;
+		right[node] = leaf;
+		for(int n : new int[] {leaf, newEscape}) {
+			left[n] = -1;
+			right[n] = -1;
+			parent[n] = node;
+			weight[n] = 0;
+		}
+		symbol[leaf] = s;
+		symbol[newEscape] = ESCAPE;
+		leafOf[s] = leaf;
+		escape = newEscape;
+		return leaf;
+	}
+
+	/**
+	 * Private helper that exchanges the subtrees in two slots of equal
+	 * weight. Each slot keeps its number and its parent.
+	 * @param a - the first node
+	 * @param b - the second node
+	 */
+	private void swap(int a, int b) {
+		int t = symbol[a];
+		symbol[a] = symbol[b];
+		symbol[b] = t;
+		t = left[a];
+		left[a] = left[b];
+		left[b] = t;
+		t = right[a];
+		right[a] = right[b];
+		right[b] = t;
+		relink(a);
+		relink(b);
+	}
+
+	/**
+	 * Private helper that points the links into a slot back at it after
+	 * its contents have moved.
+	 * @param node - the slot
+	 */
+	private void relink(int node) {
+		if(symbol[node] == INTERNAL) {
+			parent[left[node]] = node;
+			parent[right[node]] = node;
+		} else if(symbol[node] == ESCAPE) {
+			escape = node;
+		} else {
+			leafOf[symbol[node]] = node;
+		}
+	}
+
+	/**
+	 * Private helper that builds the code of a node.
+	 * @param node - the node
+	 * @return the path from the root to the node
+	 */
+	private StringOfBits codeOf(int node) {
+		byte[] bits = new byte[SYMBOLS];
+		int length = path(node, bits);
+		StringOfBits code = new StringOfBits();
+		for(int i=0; i<length; i++) {
+			code.appendBits(bits[i], 1);
+		}
+		return code;
+	}
+
+	/**
+	 * Private helper that checks a symbol is in range.
+	 * @param s - the symbol
+	 * @throws IllegalArgumentException if the symbol is out of range
+	 */
+	private static void checkSymbol(int s) throws IllegalArgumentException {
+		if(s < 0 || s >= SYMBOLS) {
+			throw new IllegalArgumentException("Symbol out of range: " + s);
+		}
+	}
+}
@@ -1,6 +1,15 @@
 // BinaryTree.java
 import java.util.List;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.BufferedOutputStream;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
@@ -49,6 +58,23 @@ import java.io.OutputStream;
  * <li><em>root</em> = any BinaryTree object</li>
  * <li><em>tree</em> = a BinaryTree with all its descendants</li>
  * </ul>
+ * <p>
+ * Traversals are lazy: {@link #iterator(Traversal)},
+ * {@link #spliterator(Traversal)} and {@link #stream(Traversal)} walk the
+ * tree with an explicit stack, so they start at once and use memory
+ * proportional to the height of the tree. The tree must not be modified
+ * while a traversal is in progress.
+ * </p>
+ * <p>
+ * With {@link #setStatisticsCaching(boolean)} a tree keeps the node count,
+ * leaf count and height of every subtree once computed, so repeated calls
+ * of {@link #numberOfNodes()}, {@link #numberOfLeaves()} and
+ * {@link #height()} take constant time. Each tree knows its parent, and
+ * replacing a child discards the cached values of the tree and its
+ * ancestors. A tree therefore has at most one parent: a tree that is
+ * already the child of another tree cannot be attached elsewhere until it
+ * is detached by replacing it in its parent.
+ * </p>
  * @param <V> the type of value stored in nodes of the tree
  * @author Dr. Jody Paul
  * @version CS390K 2015 (3)
@@ -56,6 +82,18 @@ import java.io.OutputStream;
 public class BinaryTree<V>
     implements Iterable<BinaryTree<V>>, java.io.Serializable {
 
+    /**
+     * The orders in which a traversal visits the subtrees of a tree.
+     */
+    public enum Traversal {
+        /** Root, then left subtree, then right subtree. */
+        PREORDER,
+        /** Left subtree, then root, then right subtree. */
+        INORDER,
+        /** Left subtree, then right subtree, then root. */
+        POSTORDER
+    }
+
     /** Default state save/restore file name. */
     public static final String SERIAL_FILENAME = "bt.ser";
 
@@ -86,6 +124,27 @@ public class BinaryTree<V>
      */
     private BinaryTree<V> rightChild;
 
+    /**
+     * The tree that has this tree as a child;
+     * <code>null</code> if this tree is a root.
+     */
+    private transient BinaryTree<V> parent;
+
+    /** Whether subtree statistics are cached for this tree. */
+    private transient boolean cachingStatistics;
+
+    /** Whether the cached statistics below are current. */
+    private transient boolean statisticsValid;
+
+    /** Cached number of nodes. */
+    private transient int cachedNodes;
+
+    /** Cached number of leaves. */
+    private transient int cachedLeaves;
+
+    /** Cached height. */
+    private transient int cachedHeight;
+
     /**
      * Constructs an empty tree.
      */
@@ -115,7 +174,8 @@ public class BinaryTree<V>
      * @param rightchild the right child of the root;
      *        <code>null</code> if no such child
      * @throws IllegalArgumentException
-     *         if <code>rootvalue</code> parameter is null
+     *         if <code>rootvalue</code> parameter is null,
+     *         or a child is already the child of another tree
      */
     public BinaryTree(final V rootvalue,
                             final BinaryTree<V> leftchild,
@@ -124,9 +184,13 @@ public class BinaryTree<V>
         if (rootvalue == null) {
             throw new IllegalArgumentException();
         }
+        checkAttachable(leftchild);
+        checkAttachable(rightchild);
         this.rootValue = rootvalue;
         this.leftChild = leftchild;
         this.rightChild = rightchild;
+        adopt(leftchild);
+        adopt(rightchild);
     }
 
     /**
@@ -144,6 +208,10 @@ public class BinaryTree<V>
      * @return the number of nodes
      */
     public int numberOfNodes() {
+        if (this.cachingStatistics && !isEmpty()) {
+            updateStatistics();
+            return this.cachedNodes;
+        }
         int numNodes = 0;
         if (this.rootValue != null) {
             numNodes++;
@@ -219,32 +287,48 @@ public class BinaryTree<V>
             throw new NullPointerException();
         }
         this.rootValue = value;
+        if (value == null) {
+            // The tree is now empty, which changes the statistics.
+            invalidateStatistics();
+        }
     }
 
     /**
      * Replaces the left child of the root of this tree.
      * @param child the new left child for this tree
      * @throws java.lang.NullPointerException if this tree is empty
+     * @throws IllegalArgumentException
+     *         if <code>child</code> is already the child of another tree
      */
     public void setLeftChild(final BinaryTree<V> child)
-        throws NullPointerException {
+        throws NullPointerException, IllegalArgumentException {
         if (isEmpty()) {
             throw new NullPointerException();
         }
+        checkAttachable(child);
+        release(this.leftChild);
         this.leftChild = child;
+        adopt(child);
+        invalidateStatistics();
     }
 
     /**
      * Replaces the right child of the root of this tree.
      * @param child the new right child for this tree
      * @throws java.lang.NullPointerException if this tree is empty
+     * @throws IllegalArgumentException
+     *         if <code>child</code> is already the child of another tree
      */
     public void setRightChild(final BinaryTree<V> child)
-        throws NullPointerException {
+        throws NullPointerException, IllegalArgumentException {
         if (isEmpty()) {
             throw new NullPointerException();
         }
+        checkAttachable(child);
+        release(this.rightChild);
         this.rightChild = child;
+        adopt(child);
+        invalidateStatistics();
     }
 
     /**
@@ -256,6 +340,10 @@ public class BinaryTree<V>
         if (isEmpty()) {
             throw new NullPointerException();
         }
+        if (this.cachingStatistics) {
+            updateStatistics();
+            return this.cachedLeaves;
+        }
         if (this.leftChild == null && this.rightChild == null) {
             return 1;
         }
@@ -286,6 +374,10 @@ public class BinaryTree<V>
         if (isEmpty()) {
             return -1;
         }
+        if (this.cachingStatistics) {
+            updateStatistics();
+            return this.cachedHeight;
+        }
         int maxChildHeight = -1;
         if (this.leftChild != null) {
             maxChildHeight = this.leftChild.height();
@@ -296,6 +388,29 @@ public class BinaryTree<V>
         return 1 + maxChildHeight;
     }
 
+    /**
+     * Turns caching of node count, leaf count and height on or off
+     *   for this tree and all its subtrees. Subtrees attached later
+     *   to a caching tree also cache.
+     * @param enabled <code>true</code> to cache statistics
+     */
+    public void setStatisticsCaching(final boolean enabled) {
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.PREORDER);
+             it.hasNext();) {
+            BinaryTree<V> node = it.next();
+            node.cachingStatistics = enabled;
+            node.statisticsValid = node.statisticsValid && enabled;
+        }
+    }
+
+    /**
+     * Indicates whether this tree caches its statistics.
+     * @return <code>true</code> if statistics are cached
+     */
+    public boolean isStatisticsCaching() {
+        return this.cachingStatistics;
+    }
+
     /**
      * Indicates whether some other object is "equal to" this one.
      * @param obj the reference object with which to compare
@@ -340,14 +455,9 @@ public class BinaryTree<V>
      */
     public List<V> preorderValues() {
         List<V> preorderV = new ArrayList<V>();
-        if (this.numberOfNodes() != 0) {
-            preorderV.add(this.getValue());
-            if (this.getLeftChild() != null) {
-                preorderV.addAll(this.getLeftChild().preorderValues());
-            }
-            if (this.getRightChild() != null) {
-                preorderV.addAll(this.getRightChild().preorderValues());
-            }
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.PREORDER);
+             it.hasNext();) {
+            preorderV.add(it.next().getValue());
         }
         return preorderV;
     }
@@ -359,14 +469,9 @@ public class BinaryTree<V>
      */
     public List<V> inorderValues() {
         List<V> inorderV = new ArrayList<V>();
-        if (this.numberOfNodes() != 0) {
-            if (this.getLeftChild() != null) {
-                inorderV.addAll(this.getLeftChild().inorderValues());
-            }
-            inorderV.add(this.getValue());
-            if (this.getRightChild() != null) {
-                inorderV.addAll(this.getRightChild().inorderValues());
-            }
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.INORDER);
+             it.hasNext();) {
+            inorderV.add(it.next().getValue());
         }
         return inorderV;
     }
@@ -378,14 +483,9 @@ public class BinaryTree<V>
      */
     public List<V> postorderValues() {
         List<V> postorderV = new ArrayList<V>();
-        if (this.numberOfNodes() != 0) {
-            if (this.getLeftChild() != null) {
-                postorderV.addAll(this.getLeftChild().postorderValues());
-            }
-            if (this.getRightChild() != null) {
-                postorderV.addAll(this.getRightChild().postorderValues());
-            }
-            postorderV.add(this.getValue());
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.POSTORDER);
+             it.hasNext();) {
+            postorderV.add(it.next().getValue());
         }
         return postorderV;
     }
@@ -397,14 +497,9 @@ public class BinaryTree<V>
      */
     public List<BinaryTree<V>> preorderSubtrees() {
         List<BinaryTree<V>> preorderList = new ArrayList<BinaryTree<V>>();
-        if (this.numberOfNodes() != 0) {
-            preorderList.add(this);
-            if (this.getLeftChild() != null) {
-                preorderList.addAll(this.getLeftChild().preorderSubtrees());
-            }
-            if (this.getRightChild() != null) {
-                preorderList.addAll(this.getRightChild().preorderSubtrees());
-            }
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.PREORDER);
+             it.hasNext();) {
+            preorderList.add(it.next());
         }
         return preorderList;
     }
@@ -416,14 +511,9 @@ public class BinaryTree<V>
      */
     public List<BinaryTree<V>> inorderSubtrees() {
         List<BinaryTree<V>> inorderList = new ArrayList<BinaryTree<V>>();
-        if (this.numberOfNodes() != 0) {
-            if (this.getLeftChild() != null) {
-                inorderList.addAll(this.getLeftChild().inorderSubtrees());
-            }
-            inorderList.add(this);
-            if (this.getRightChild() != null) {
-                inorderList.addAll(this.getRightChild().inorderSubtrees());
-            }
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.INORDER);
+             it.hasNext();) {
+            inorderList.add(it.next());
         }
         return inorderList;
     }
@@ -434,16 +524,10 @@ public class BinaryTree<V>
      * @return all subtrees in postorder
      */
     public List<BinaryTree<V>> postorderSubtrees() {
-        List<BinaryTree<V>> postorderList
-            = new ArrayList<BinaryTree<V>>();
-        if (this.numberOfNodes() != 0) {
-            if (this.getLeftChild() != null) {
-                postorderList.addAll(this.getLeftChild().postorderSubtrees());
-            }
-            if (this.getRightChild() != null) {
-                postorderList.addAll(this.getRightChild().postorderSubtrees());
-            }
-            postorderList.add(this);
+        List<BinaryTree<V>> postorderList = new ArrayList<BinaryTree<V>>();
+        for (Iterator<BinaryTree<V>> it = iterator(Traversal.POSTORDER);
+             it.hasNext();) {
+            postorderList.add(it.next());
         }
         return postorderList;
     }
@@ -469,12 +553,63 @@ public class BinaryTree<V>
     }
 
     /**
-     * Returns an iterator over the subtrees (nodes) of this tree.
+     * Returns an iterator over the subtrees (nodes) of this tree
+     *   in postorder.
      * @return an iterator over subtrees of this tree
      */
     @Override
     public java.util.Iterator<BinaryTree<V>> iterator() {
-        return this.postorderSubtrees().iterator();
+        return iterator(Traversal.POSTORDER);
+    }
+
+    /**
+     * Returns a lazy iterator over the subtrees (nodes) of this tree
+     *   in the given order; empty subtrees are skipped.
+     * @param order the traversal order
+     * @return an iterator over subtrees of this tree
+     */
+    public Iterator<BinaryTree<V>> iterator(final Traversal order) {
+        return new TraversalIterator<V>(this, order);
+    }
+
+    /**
+     * Returns a spliterator over the subtrees (nodes) of this tree
+     *   in postorder.
+     * @return a spliterator over subtrees of this tree
+     */
+    @Override
+    public Spliterator<BinaryTree<V>> spliterator() {
+        return spliterator(Traversal.POSTORDER);
+    }
+
+    /**
+     * Returns a lazy spliterator over the subtrees (nodes) of this tree
+     *   in the given order.
+     * @param order the traversal order
+     * @return a spliterator over subtrees of this tree
+     */
+    public Spliterator<BinaryTree<V>> spliterator(final Traversal order) {
+        return Spliterators.spliteratorUnknownSize(iterator(order),
+            Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+    }
+
+    /**
+     * Returns a sequential stream of the subtrees (nodes) of this tree
+     *   in postorder.
+     * @return a stream of subtrees of this tree
+     */
+    public Stream<BinaryTree<V>> stream() {
+        return stream(Traversal.POSTORDER);
+    }
+
+    /**
+     * Returns a lazy sequential stream of the subtrees (nodes)
+     *   of this tree in the given order.
+     * @param order the traversal order
+     * @return a stream of subtrees of this tree
+     */
+    public Stream<BinaryTree<V>> stream(final Traversal order) {
+        return StreamSupport.stream(spliterator(order), false);
     }
 
     /**
@@ -553,14 +688,20 @@ public class BinaryTree<V>
             try {
                 @SuppressWarnings("unchecked") // Accommodate type erasure.
                 BinaryTree<V> restored = (BinaryTree<V>) input.readObject();
-                // Use toString for quick check.
-                if (!this.toString().equals(restored.toString())) {
-                    success = false;
-                }
-                // Use compareTrees predicate for deeper check.
-                if (!compareTrees(this, restored)) {
-                    success = false;
-                }
+                // Cache heights so that compareTrees is linear.
+                boolean wasCaching = this.cachingStatistics;
+                setStatisticsCaching(true);
+                try {
+                    restored.setStatisticsCaching(true);
+                    // Use toString for quick check.
+                    if (!this.toString().equals(restored.toString())) {
+                        success = false;
+                    }
+                    // Use compareTrees predicate for deeper check.
+                    if (!compareTrees(this, restored)) {
+                        success = false;
+                    }
+                } finally { setStatisticsCaching(wasCaching); }
             } finally { input.close(); }
         } catch (ClassNotFoundException ex) {
             // System.err.println("save: restore-check Class not found. " + ex);
@@ -618,13 +759,158 @@ public class BinaryTree<V>
             // Invalid; BinaryTree<V>cannot be null.
             success = false;
         } else {
+            release(this.leftChild);
+            release(this.rightChild);
             this.rootValue = restored.rootValue;
             this.leftChild = restored.leftChild;
             this.rightChild = restored.rightChild;
+            adopt(this.leftChild);
+            adopt(this.rightChild);
+            invalidateStatistics();
         }
         return success;
     }
 
+    /**
+     * Brings the cached statistics of this non-empty tree up to date,
+     *   computing only the subtrees whose values are not current,
+     *   children before parents, with an explicit stack.
+     */
+    private void updateStatistics() {
+        if (this.statisticsValid) {
+            return;
+        }
+        Deque<BinaryTree<V>> stack = new ArrayDeque<BinaryTree<V>>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            BinaryTree<V> node = stack.peek();
+            boolean ready = true;
+            if (needsUpdate(node.leftChild)) {
+                stack.push(node.leftChild);
+                ready = false;
+            }
+            if (needsUpdate(node.rightChild)) {
+                stack.push(node.rightChild);
+                ready = false;
+            }
+            if (ready) {
+                stack.pop();
+                node.computeStatistics();
+            }
+        }
+    }
+
+    /**
+     * Tests whether a child must be brought up to date before its parent.
+     * @param child the child; may be null
+     * @return <code>true</code> if the child is non-empty and not current
+     */
+    private static boolean needsUpdate(final BinaryTree<?> child) {
+        return child != null && !child.isEmpty() && !child.statisticsValid;
+    }
+
+    /**
+     * Computes the statistics of this non-empty tree from the
+     *   current statistics of its children.
+     */
+    private void computeStatistics() {
+        int nodes = 1;
+        int leaves = 0;
+        int maxChildHeight = -1;
+        for (int side = 0; side < 2; side++) {
+            BinaryTree<V> child = side == 0 ? this.leftChild : this.rightChild;
+            if (child == null) {
+                continue;
+            }
+            if (child.isEmpty()) {
+                leaves++;
+            } else {
+                nodes += child.cachedNodes;
+                leaves += child.cachedLeaves;
+                maxChildHeight = Math.max(maxChildHeight, child.cachedHeight);
+            }
+        }
+        if (this.leftChild == null && this.rightChild == null) {
+            leaves = 1;
+        }
+        this.cachedNodes = nodes;
+        this.cachedLeaves = leaves;
+        this.cachedHeight = 1 + maxChildHeight;
+        this.statisticsValid = true;
+    }
+
+    /**
+     * Discards the cached statistics of this tree and its ancestors.
+     * Ancestors of a tree without current statistics never have
+     * current statistics, so the walk stops at the first such tree.
+     */
+    private void invalidateStatistics() {
+        for (BinaryTree<V> node = this;
+             node != null && node.statisticsValid;
+             node = node.parent) {
+            node.statisticsValid = false;
+        }
+    }
+
+    /**
+     * Verifies that a tree can become a child of this tree. The cached
+     *   statistics are kept current through a single parent link, so a
+     *   tree that already has another parent is refused.
+     * @param child the prospective child; may be null
+     * @throws IllegalArgumentException
+     *         if <code>child</code> is the child of another tree
+     */
+    private void checkAttachable(final BinaryTree<V> child)
+        throws IllegalArgumentException {
+        if (child != null && child.parent != null && child.parent != this) {
+            throw new IllegalArgumentException(
+                "Tree is already the child of another tree");
+        }
+    }
+
+    /**
+     * Makes this tree the parent of a new child and, if this tree
+     *   caches statistics, turns on caching for the child.
+     * @param child the new child; may be null
+     */
+    private void adopt(final BinaryTree<V> child) {
+        if (child == null) {
+            return;
+        }
+        child.parent = this;
+        if (this.cachingStatistics && !child.cachingStatistics) {
+            child.setStatisticsCaching(true);
+        }
+    }
+
+    /**
+     * Detaches a former child from this tree.
+     * @param child the former child; may be null
+     */
+    private void release(final BinaryTree<V> child) {
+        if (child != null && child.parent == this) {
+            child.parent = null;
+        }
+    }
+
+    /**
+     * Restores a tree from a stream and relinks the parent references,
+     *   which are not serialized.
+     * @param in the stream from which the tree is read
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if a class of the tree cannot be found
+     */
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (this.leftChild != null) {
+            this.leftChild.parent = this;
+        }
+        if (this.rightChild != null) {
+            this.rightChild.parent = this;
+        }
+    }
+
     /**
      * Utility that compares two trees for shape and contents.
      * This private method behaves like an equals predicate
@@ -676,4 +962,128 @@ public class BinaryTree<V>
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Iterator that walks a tree in a given order with an explicit stack.
+     * The stack holds at most two entries per level of the tree.
+     * @param <V> the type of value stored in nodes of the tree
+     */
+    private static final class TraversalIterator<V>
+        implements Iterator<BinaryTree<V>> {
+
+        /** The traversal order. */
+        private final Traversal order;
+
+        /** Pending subtrees; the top of the stack is at size - 1. */
+        private Object[] stack = new Object[16];
+
+        /** Whether each pending subtree has had its children pushed. */
+        private boolean[] expanded = new boolean[16];
+
+        /** Number of pending subtrees. */
+        private int size;
+
+        /**
+         * Starts a traversal.
+         * @param root the tree to traverse
+         * @param order the traversal order
+         */
+        TraversalIterator(final BinaryTree<V> root, final Traversal order) {
+            this.order = order;
+            if (order == Traversal.INORDER) {
+                pushLeftSpine(root);
+            } else {
+                push(root, false);
+            }
+        }
+
+        /**
+         * Indicates whether the traversal has more subtrees.
+         * @return <code>true</code> if there are more subtrees
+         */
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        /**
+         * Returns the next subtree in traversal order.
+         * @return the next subtree
+         * @throws NoSuchElementException if the traversal is finished
+         */
+        @Override
+        public BinaryTree<V> next() {
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            BinaryTree<V> node;
+            switch (order) {
+            case PREORDER:
+                node = pop();
+                push(node.rightChild, false);
+                push(node.leftChild, false);
+                return node;
+            case INORDER:
+                node = pop();
+                pushLeftSpine(node.rightChild);
+                return node;
+            default:
+                while (!expanded[size - 1]) {
+                    expanded[size - 1] = true;
+                    node = peek();
+                    push(node.rightChild, false);
+                    push(node.leftChild, false);
+                }
+                return pop();
+            }
+        }
+
+        /**
+         * Pushes a subtree and the chain of its left descendants.
+         * @param tree the subtree; ignored if null or empty
+         */
+        private void pushLeftSpine(final BinaryTree<V> tree) {
+            BinaryTree<V> node = tree;
+            while (node != null && !node.isEmpty()) {
+                push(node, false);
+                node = node.leftChild;
+            }
+        }
+
+        /**
+         * Pushes a subtree unless it is null or empty.
+         * @param tree the subtree
+         * @param isExpanded whether its children have been pushed
+         */
+        private void push(final BinaryTree<V> tree, final boolean isExpanded) {
+            if (tree == null || tree.isEmpty()) {
+                return;
+            }
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+                expanded = Arrays.copyOf(expanded, size * 2);
+            }
+            stack[size] = tree;
+            expanded[size++] = isExpanded;
+        }
+
+        /**
+         * Returns the top subtree without removing it.
+         * @return the top subtree
+         */
+        @SuppressWarnings("unchecked") // Only trees are pushed.
+        private BinaryTree<V> peek() {
+            return (BinaryTree<V>) stack[size - 1];
+        }
+
+        /**
+         * Removes and returns the top subtree.
+         * @return the top subtree
+         */
+        private BinaryTree<V> pop() {
+            BinaryTree<V> node = peek();
+            stack[--size] = null;
+            return node;
+        }
+    }
+}
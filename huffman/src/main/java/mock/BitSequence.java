@@ -0,0 +1,27 @@
+/**
+ * A read-only sequence of bits addressed by <code>long</code> indexes, so
+ * that it can be longer than 2^31 bits. Bits are numbered from 0, and a
+ * read returns them first bit most significant.
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public interface BitSequence {
+
+	/**
+	 * Returns the number of bits in the sequence.
+	 * @return the number of bits
+	 */
+	long bitLength();
+
+	/**
+	 * Returns <code>count</code> bits starting at <code>index</code> as the
+	 * low-order bits of a long, first bit most significant. Positions at or
+	 * past <code>bitLength()</code> read as zero.
+	 * @param index - the index of the first bit to read, not negative
+	 * @param count - the number of bits to read, 0 to 64
+	 * @return the requested bits, right aligned
+	 * @throws IndexOutOfBoundsException if index is negative
+	 * @throws IllegalArgumentException if count is not between 0 and 64
+	 */
+	long readBits(long index, int count) throws IndexOutOfBoundsException, IllegalArgumentException;
+}
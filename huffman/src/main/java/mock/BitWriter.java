@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * Collects bits through a 64-bit accumulator into a growable
+ * <code>long[]</code>.
+ * <p>
+ * Pending bits sit left aligned in the accumulator. Each write ORs the new
+ * bits in below them with one shift, and once the accumulator is full it
+ * is stored as a whole word and refilled with the bits that did not fit.
+ * Bits are stored most significant first, in the same layout as
+ * {@link StringOfBits}, so the result can be handed over without copying
+ * bit by bit.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class BitWriter {
+
+	/** Number of words allocated when no size is expected. */
+	private static final int INITIAL_WORDS = 16;
+
+	/** The full words written so far. */
+	private long[] words;
+
+	/** Number of full words in words. */
+	private int full;
+
+	/** Pending bits, left aligned; bits below the pending ones are zero. */
+	private long acc;
+
+	/** Number of pending bits in acc, 0 to 63. */
+	private int accBits;
+
+	/**
+	 * Creates an empty writer.
+	 */
+	public BitWriter() {
+		this(INITIAL_WORDS * 64);
+	}
+
+	/**
+	 * Creates an empty writer with room for a number of bits.
+	 * @param expectedBits - the number of bits expected; more may be written
+	 */
+	public BitWriter(long expectedBits) {
+		this.words = new long[(int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, (expectedBits + 63) >>> 6))];
+	}
+
+	/**
+	 * Appends the low-order <code>count</code> bits of <code>bits</code>,
+	 * most significant of those bits first.
+	 * @param bits - the bits to append, right aligned
+	 * @param count - the number of bits, 0 to 64
+	 */
+	public void write(long bits, int count) {
+		if(count < 64) {
+			bits &= (1L << count) - 1;
+		}
+		put(bits, count);
+	}
+
+	/**
+	 * Appends a bit string.
+	 * @param bits - the bits to append
+	 */
+	public void write(StringOfBits bits) {
+		int length = bits.length();
+		for(int i=0; i<length; i+=64) {
+			int n = Math.min(64, length - i);
+			put(bits.readBits(i, n), n);
+		}
+	}
+
+	/**
+	 * Returns the number of bits written.
+	 * @return the number of bits
+	 */
+	public long length() {
+		return 64L * full + accBits;
+	}
+
+	/**
+	 * Discards every bit written, keeping the storage for reuse.
+	 */
+	public void reset() {
+		Arrays.fill(words, 0, full, 0L);
+		full = 0;
+		acc = 0;
+		accBits = 0;
+	}
+
+	/**
+	 * Returns the bits written as a bit string.
+	 * @return a new bit string holding the bits
+	 * @throws IllegalStateException if more bits were written than a bit string can hold
+	 */
+	public StringOfBits toStringOfBits() throws IllegalStateException {
+		long length = length();
+		if(length > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many bits for a StringOfBits: " + length);
+		}
+		long[] copy = Arrays.copyOf(words, full + 1);
+		copy[full] = acc;
+		return new StringOfBits(copy, (int) length);
+	}
+
+	/**
+	 * Returns the bits written as bytes, most significant bit first, with
+	 * the final partial byte padded with zeros.
+	 * @return the bytes
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[(int) ((length() + 7) >>> 3)];
+		int b = 0;
+		for(int w=0; w<=full && b<bytes.length; w++) {
+			long word = w < full ? words[w] : acc;
+			for(int shift=56; shift>=0 && b<bytes.length; shift-=8) {
+				bytes[b++] = (byte) (word >>> shift);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Appends bits whose bits above <code>count</code> are already zero.
+	 * @param bits - the bits to append, right aligned
+	 * @param count - the number of bits, 0 to 64
+	 */
+	void put(long bits, int count) {
+		int free = 64 - accBits;
+		if(count < free) {
+			acc |= bits << (free - count);
+			accBits += count;
+			return;
+		}
+		int over = count - free;
+		acc |= bits >>> over;
+		if(full == words.length) {
+			words = Arrays.copyOf(words, full * 2);
+		}
+		words[full++] = acc;
+		acc = over == 0 ? 0 : bits << (64 - over);
+		accBits = over;
+	}
+}
@@ -0,0 +1,559 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compresses and decompresses files in fixed-size blocks that are encoded
+ * and decoded in parallel on a ForkJoinPool.
+ * <p>
+ * Every block is encoded independently into a byte-aligned region of the
+ * output, using either one code shared by the whole file or a code built
+ * from that block alone. The exact size of every encoded block is known
+ * from the block histograms before encoding starts, so all blocks are
+ * written concurrently into their own mapped regions. Blocks smaller than
+ * a few megabytes are handled in groups that share one mapping, so that
+ * tiny blocks do not each map a region of their own.
+ * </p>
+ * <p>
+ * A block file holds the magic bytes <code>HUFB</code>, the original length
+ * (8 bytes), the block size (4 bytes), the block count (4 bytes), a flag
+ * byte (1 if every block has its own code), the block index of payload bit
+ * counts (8 bytes per block), the code lengths (256 bytes, or 256 bytes per
+ * block) and then the block payloads in order. All numbers are big-endian.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class BlockFileCodec {
+
+	/** Magic bytes at the start of a block file. */
+	static final int MAGIC = 0x48554642;
+
+	/** Default block size. */
+	public static final int DEFAULT_BLOCK_SIZE = 4 << 20;
+
+	/** Size of the fixed part of the header. */
+	private static final int FIXED_HEADER_SIZE = 4 + 8 + 4 + 4 + 1;
+
+	/** Largest header, so that it can be built in one buffer. */
+	private static final long MAX_HEADER = Integer.MAX_VALUE - 8;
+
+	/** Input bytes handled by one task when blocks are smaller than this. */
+	private static final int GROUP_BYTES = 4 << 20;
+
+	/**
+	 * Compresses a file in blocks on the common pool, with one shared code.
+	 * @param source - the file to compress
+	 * @param target - the compressed file to create or replace
+	 * @return the size of the compressed file in bytes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static long compress(Path source, Path target) throws IOException {
+		return compress(source, target, DEFAULT_BLOCK_SIZE, false, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compresses a file in blocks.
+	 * @param source - the file to compress
+	 * @param target - the compressed file to create or replace
+	 * @param blockSize - the number of input bytes per block, 1 to 2^30
+	 * @param perBlockCodes - true to give every block its own code
+	 * @param pool - the pool that runs the block tasks
+	 * @return the size of the compressed file in bytes
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if blockSize is out of range or the file has
+	 * too many blocks for the block index
+	 */
+	public static long compress(Path source, Path target, final int blockSize, boolean perBlockCodes,
+			ForkJoinPool pool) throws IOException {
+		if(blockSize < 1 || blockSize > MappedFileCodec.CHUNK) {
+			throw new IllegalArgumentException("Block size out of range: " + blockSize);
+		}
+		final FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		try {
+			final long size = in.size();
+			final int blocks = blockCount(size, blockSize);
+			final boolean separate = perBlockCodes;
+			long header = headerSize(blocks, perBlockCodes ? blocks : 1);
+			if(header > MAX_HEADER) {
+				throw new IllegalArgumentException("Too many blocks for the block index: " + blocks);
+			}
+			// Code lengths go straight into the header rather than a table per block on the heap.
+			final ByteBuffer head = ByteBuffer.allocate((int) header);
+			final int perGroup = groupSize(blockSize);
+			final int groups = groupCount(blocks, perGroup);
+			final long[] bits = new long[blocks];
+			final long[][] groupCounts = new long[groups][];
+			runBlocks(pool, groups, new BlockTask() {
+				@Override
+				public void run(int group) throws IOException {
+					int first = group * perGroup;
+					int last = (int) Math.min(blocks, (long) first + perGroup);
+					ByteBuffer region = mapBlocks(in, size, blockSize, first, last);
+					if(!separate) {
+						groupCounts[group] = new long[256];
+						MappedFileCodec.countBytes(region, groupCounts[group]);
+						return;
+					}
+					for(int b=first; b<last; b++) {
+						long[] counts = new long[256];
+						MappedFileCodec.countBytes(blockSlice(region, size, blockSize, first, b), counts);
+						int[] lengths = MappedFileCodec.codeLengths(counts);
+						bits[b] = encodedBits(counts, lengths);
+						putLengths(head, tableOffset(blocks, b), lengths);
+					}
+				}
+			});
+			StringOfBits[] sharedCodes = null;
+			if(!perBlockCodes) {
+				long[] total = new long[256];
+				for(long[] counts : groupCounts) {
+					for(int b=0; b<256; b++) {
+						total[b] += counts[b];
+					}
+				}
+				final int[] lengths = MappedFileCodec.codeLengths(total);
+				putLengths(head, tableOffset(blocks, 0), lengths);
+				sharedCodes = MappedFileCodec.canonicalCodes(lengths);
+				if(perGroup == 1) {
+					for(int i=0; i<blocks; i++) {
+						bits[i] = encodedBits(groupCounts[i], lengths);
+					}
+				} else {
+					// Sizing each small block from its own counts would need a histogram per block.
+					runBlocks(pool, groups, new BlockTask() {
+						@Override
+						public void run(int group) throws IOException {
+							int first = group * perGroup;
+							int last = (int) Math.min(blocks, (long) first + perGroup);
+							ByteBuffer region = mapBlocks(in, size, blockSize, first, last);
+							for(int b=first; b<last; b++) {
+								bits[b] = encodedBits(blockSlice(region, size, blockSize, first, b), lengths);
+							}
+						}
+					});
+				}
+			}
+			final long[] offsets = new long[blocks];
+			long position = header;
+			for(int i=0; i<blocks; i++) {
+				offsets[i] = position;
+				position += (bits[i] + 7) / 8;
+			}
+			final StringOfBits[] shared = sharedCodes;
+			RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw");
+			try {
+				out.setLength(position);
+				final FileChannel channel = out.getChannel();
+				head.putInt(MAGIC).putLong(size).putInt(blockSize).putInt(blocks);
+				head.put((byte) (perBlockCodes ? 1 : 0));
+				for(int i=0; i<blocks; i++) {
+					head.putLong(bits[i]);
+				}
+				head.clear();
+				while(head.hasRemaining()) {
+					channel.write(head, head.position());
+				}
+				runBlocks(pool, groups, new BlockTask() {
+					@Override
+					public void run(int group) throws IOException {
+						int first = group * perGroup;
+						int last = (int) Math.min(blocks, (long) first + perGroup);
+						ByteBuffer region = mapBlocks(in, size, blockSize, first, last);
+						long outStart = offsets[first];
+						long outLength = offsets[last - 1] + (bits[last - 1] + 7) / 8 - outStart;
+						// A lone block with long codes may encode to more than one chunk.
+						MappedByteBuffer encoded = outLength <= MappedFileCodec.CHUNK
+								? channel.map(FileChannel.MapMode.READ_WRITE, outStart, outLength) : null;
+						for(int b=first; b<last; b++) {
+							long bytes = (bits[b] + 7) / 8;
+							MappedFileCodec.MappedWriter writer = encoded != null
+									? new MappedFileCodec.MappedWriter(slice(encoded, offsets[b] - outStart, bytes))
+									: new MappedFileCodec.MappedWriter(channel, offsets[b], bytes);
+							MappedFileCodec.encodeRange(blockSlice(region, size, blockSize, first, b), separate
+									? MappedFileCodec.canonicalCodes(tableLengths(head, tableOffset(blocks, b))) : shared,
+									writer);
+							writer.finish();
+						}
+						if(encoded != null) {
+							encoded.force();
+						}
+					}
+				});
+			} finally {
+				out.close();
+			}
+			return position;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decompresses a block file on the common pool.
+	 * @param source - the compressed file
+	 * @param target - the file to create or replace with the original data
+	 * @return the size of the original data in bytes
+	 * @throws IOException if an I/O error occurs or the file is not valid
+	 */
+	public static long decompress(Path source, Path target) throws IOException {
+		return decompress(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Decompresses a block file, decoding blocks in parallel.
+	 * @param source - the compressed file
+	 * @param target - the file to create or replace with the original data
+	 * @param pool - the pool that runs the block tasks
+	 * @return the size of the original data in bytes
+	 * @throws IOException if an I/O error occurs or the file is not valid
+	 */
+	public static long decompress(Path source, Path target, ForkJoinPool pool) throws IOException {
+		final FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		try {
+			if(in.size() < FIXED_HEADER_SIZE) {
+				throw new IOException("Not a block file");
+			}
+			ByteBuffer fixed = in.map(FileChannel.MapMode.READ_ONLY, 0, FIXED_HEADER_SIZE);
+			if(fixed.getInt() != MAGIC) {
+				throw new IOException("Not a block file");
+			}
+			final long size = fixed.getLong();
+			final int blockSize = fixed.getInt();
+			final int blocks = fixed.getInt();
+			boolean perBlockCodes = fixed.get() == 1;
+			int tables = perBlockCodes ? blocks : 1;
+			long header = headerSize(blocks, tables);
+			if(size < 0 || blockSize < 1 || blockSize > MappedFileCodec.CHUNK || blocks < 0
+					|| blocks != blockCount(size, blockSize) || header > MAX_HEADER || in.size() < header) {
+				throw new IOException("Block file header is corrupt");
+			}
+			final ByteBuffer index = in.map(FileChannel.MapMode.READ_ONLY, 0, header);
+			index.position(FIXED_HEADER_SIZE);
+			final long[] bits = new long[blocks];
+			final long[] offsets = new long[blocks];
+			long position = header;
+			for(int i=0; i<blocks; i++) {
+				bits[i] = index.getLong();
+				if(bits[i] < 0) {
+					throw new IOException("Block index is corrupt");
+				}
+				offsets[i] = position;
+				position += (bits[i] + 7) / 8;
+			}
+			if(position != in.size()) {
+				throw new IOException("Block file is truncated or corrupt");
+			}
+			final HuffmanDecoder shared = perBlockCodes ? null
+					: MappedFileCodec.decoderFor(tableLengths(index, tableOffset(blocks, 0)));
+			RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw");
+			try {
+				out.setLength(size);
+				final FileChannel channel = out.getChannel();
+				final int perGroup = groupSize(blockSize);
+				runBlocks(pool, groupCount(blocks, perGroup), new BlockTask() {
+					@Override
+					public void run(int group) throws IOException {
+						int first = group * perGroup;
+						int last = (int) Math.min(blocks, (long) first + perGroup);
+						long inStart = offsets[first];
+						long inLength = offsets[last - 1] + (bits[last - 1] + 7) / 8 - inStart;
+						ByteBuffer encoded = inLength <= MappedFileCodec.CHUNK
+								? in.map(FileChannel.MapMode.READ_ONLY, inStart, inLength) : null;
+						long start = (long) first * blockSize;
+						MappedByteBuffer decoded = channel.map(FileChannel.MapMode.READ_WRITE, start,
+								Math.min(size, (long) last * blockSize) - start);
+						for(int b=first; b<last; b++) {
+							long length = blockLength(size, blockSize, b);
+							long bytes = (bits[b] + 7) / 8;
+							MappedFileCodec.MappedReader reader = encoded != null
+									? new MappedFileCodec.MappedReader(slice(encoded, offsets[b] - inStart, bytes))
+									: new MappedFileCodec.MappedReader(in, offsets[b], bytes);
+							MappedFileCodec.MappedWriter writer = new MappedFileCodec.MappedWriter(
+									slice(decoded, (long) b * blockSize - start, length));
+							MappedFileCodec.decodeRange(reader, bits[b], length, shared != null ? shared
+									: MappedFileCodec.decoderFor(tableLengths(index, tableOffset(blocks, b))), writer);
+							writer.finish();
+						}
+						decoded.force();
+					}
+				});
+			} finally {
+				out.close();
+			}
+			return size;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns whether a file starts with the block file magic bytes.
+	 * @param source - the file to check
+	 * @return true if the file is a block file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static boolean isBlockFile(Path source) throws IOException {
+		FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		try {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			while(magic.hasRemaining() && in.read(magic) >= 0) {
+				// keep reading until four bytes or end of file
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the number of blocks in a file.
+	 * @param size - the file size
+	 * @param blockSize - the block size
+	 * @return the number of blocks
+	 * @throws IllegalArgumentException if there are more than Integer.MAX_VALUE blocks
+	 */
+	private static int blockCount(long size, int blockSize) {
+		long blocks = (size + blockSize - 1) / blockSize;
+		if(blocks > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many blocks: " + blocks);
+		}
+		return (int) blocks;
+	}
+
+	/**
+	 * Returns the number of input bytes in a block.
+	 * @param size - the file size
+	 * @param blockSize - the block size
+	 * @param block - the block number
+	 * @return the length of the block
+	 */
+	private static long blockLength(long size, int blockSize, int block) {
+		return Math.min(blockSize, size - (long) block * blockSize);
+	}
+
+	/**
+	 * Returns the size of the header of a block file, index and code
+	 * lengths included.
+	 * @param blocks - the number of blocks
+	 * @param tables - the number of code length tables
+	 * @return the header size in bytes
+	 */
+	private static long headerSize(int blocks, int tables) {
+		return FIXED_HEADER_SIZE + 8L * blocks + 256L * tables;
+	}
+
+	/**
+	 * Returns the number of blocks handled by one task. Small blocks are
+	 * grouped so that a group spans about GROUP_BYTES of input and shares
+	 * one mapping, rather than every block mapping its own regions.
+	 * @param blockSize - the block size
+	 * @return the number of blocks per group, at least 1
+	 */
+	private static int groupSize(int blockSize) {
+		return Math.max(1, GROUP_BYTES / blockSize);
+	}
+
+	/**
+	 * Returns the number of groups needed for a number of blocks.
+	 * @param blocks - the number of blocks
+	 * @param perGroup - the number of blocks per group
+	 * @return the number of groups
+	 */
+	private static int groupCount(int blocks, int perGroup) {
+		return (int) ((blocks + (long) perGroup - 1) / perGroup);
+	}
+
+	/**
+	 * Returns the number of bits a block encodes to.
+	 * @param counts - the count of each byte value in the block
+	 * @param lengths - the code length of each byte value
+	 * @return the number of encoded bits
+	 */
+	private static long encodedBits(long[] counts, int[] lengths) {
+		long bits = 0;
+		for(int b=0; b<256; b++) {
+			bits += counts[b] * lengths[b];
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the number of bits a region encodes to.
+	 * @param region - the bytes, which are consumed
+	 * @param lengths - the code length of each byte value
+	 * @return the number of encoded bits
+	 */
+	private static long encodedBits(ByteBuffer region, int[] lengths) {
+		long bits = 0;
+		while(region.hasRemaining()) {
+			bits += lengths[region.get() & 0xFF];
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the offset in the header of a table of code lengths.
+	 * @param blocks - the number of blocks
+	 * @param table - the table number
+	 * @return the offset of the table
+	 */
+	private static int tableOffset(int blocks, int table) {
+		return (int) (FIXED_HEADER_SIZE + 8L * blocks + 256L * table);
+	}
+
+	/**
+	 * Stores a table of code lengths in the header.
+	 * @param header - the header
+	 * @param offset - the offset of the table
+	 * @param lengths - the code length of each byte value
+	 */
+	private static void putLengths(ByteBuffer header, int offset, int[] lengths) {
+		for(int b=0; b<256; b++) {
+			header.put(offset + b, (byte) lengths[b]);
+		}
+	}
+
+	/**
+	 * Reads a table of code lengths from the header.
+	 * @param header - the header
+	 * @param offset - the offset of the table
+	 * @return the code length of each byte value
+	 */
+	private static int[] tableLengths(ByteBuffer header, int offset) {
+		int[] lengths = new int[256];
+		for(int b=0; b<256; b++) {
+			lengths[b] = header.get(offset + b) & 0xFF;
+		}
+		return lengths;
+	}
+
+	/**
+	 * Maps the input of a group of blocks.
+	 * @param channel - the uncompressed file
+	 * @param size - the file size
+	 * @param blockSize - the block size
+	 * @param first - the first block of the group
+	 * @param last - the block just past the end of the group
+	 * @return the mapped input of the group
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static MappedByteBuffer mapBlocks(FileChannel channel, long size, int blockSize, int first, int last)
+			throws IOException {
+		long start = (long) first * blockSize;
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, (long) last * blockSize) - start);
+	}
+
+	/**
+	 * Returns a view of one block of a mapped group.
+	 * @param region - the mapped group, starting at its first block
+	 * @param size - the file size
+	 * @param blockSize - the block size
+	 * @param first - the first block of the group
+	 * @param block - the block
+	 * @return the view, positioned at the start of the block
+	 */
+	private static ByteBuffer blockSlice(ByteBuffer region, long size, int blockSize, int first, int block) {
+		return slice(region, (long) (block - first) * blockSize, blockLength(size, blockSize, block));
+	}
+
+	/**
+	 * Returns a view of part of a mapped region, positioned at its start.
+	 * @param region - the region
+	 * @param offset - the offset of the part within the region
+	 * @param length - the length of the part
+	 * @return the view
+	 */
+	private static ByteBuffer slice(ByteBuffer region, long offset, long length) {
+		ByteBuffer view = region.duplicate();
+		view.position((int) offset);
+		view.limit((int) (offset + length));
+		return view;
+	}
+
+	/**
+	 * Runs a task for every group of blocks in a pool and waits for all of them.
+	 * @param pool - the pool
+	 * @param groups - the number of groups
+	 * @param task - the work for one group
+	 * @throws IOException if any block fails with an I/O error
+	 */
+	private static void runBlocks(ForkJoinPool pool, int groups, BlockTask task) throws IOException {
+		if(groups == 0) {
+			return;
+		}
+		try {
+			pool.invoke(new BlockRange(task, 0, groups));
+		} catch(UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	/**
+	 * The work done for a group of consecutive blocks.
+	 */
+	private interface BlockTask {
+
+		/**
+		 * Processes one group.
+		 * @param group - the group number
+		 * @throws IOException if an I/O error occurs
+		 */
+		void run(int group) throws IOException;
+	}
+
+	/**
+	 * Fork/join action that splits a range of block groups in half until a
+	 * single group is left.
+	 */
+	private static final class BlockRange extends RecursiveAction {
+
+		/** Serialization version indicator. */
+		private static final long serialVersionUID = 1L;
+
+		/** The work for one group. */
+		private final BlockTask task;
+
+		/** First group of the range. */
+		private final int from;
+
+		/** Group just past the end of the range. */
+		private final int to;
+
+		/**
+		 * Creates an action for a range of groups.
+		 * @param task - the work for one group
+		 * @param from - the first group
+		 * @param to - the group just past the end
+		 */
+		BlockRange(BlockTask task, int from, int to) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Processes the range, forking halves while it holds several groups.
+		 */
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				try {
+					task.run(from);
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BlockRange(task, from, middle), new BlockRange(task, middle, to));
+		}
+	}
+}
@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+/**
+ * Computes optimal Huffman code lengths without building a tree.
+ * <p>
+ * The weights are sorted in a primitive array with a heapsort, and the code
+ * lengths are then found in linear time and in place with the algorithm of
+ * Moffat and Katajainen ("In-Place Calculation of Minimum-Redundancy Codes",
+ * 1995): the first pass combines the two smallest items exactly as Huffman's
+ * algorithm does, reusing the array for parent links; the second pass turns
+ * the parent links into internal node depths; the third pass turns those
+ * into leaf depths. Only two arrays of the size of the alphabet are
+ * allocated, so alphabets of millions of symbols are cheap.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodeLengths {
+
+	/**
+	 * Computes the code length of every symbol. A single symbol gets
+	 * length 1.
+	 * @param weights - the weight of each symbol; zero weights still get a code
+	 * @return the code length of each symbol, in the order of the weights
+	 * @throws IllegalArgumentException if there are no weights or a weight is negative or NaN
+	 */
+	public static int[] compute(double[] weights) throws IllegalArgumentException {
+		return compute(weights, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the code length of every symbol with no code longer than
+	 * <code>maxLength</code>. If the Huffman code already fits, it is
+	 * returned; otherwise the optimal length-limited code is found with the
+	 * package-merge algorithm of Larmore and Hirschberg, in time and space
+	 * proportional to the alphabet size times <code>maxLength</code>.
+	 * @param weights - the weight of each symbol; zero weights still get a code
+	 * @param maxLength - the longest code length allowed
+	 * @return the code length of each symbol, in the order of the weights
+	 * @throws IllegalArgumentException if there are no weights, a weight is
+	 * negative or NaN, or there are more than 2^maxLength symbols
+	 */
+	public static int[] compute(double[] weights, int maxLength) throws IllegalArgumentException {
+		int n = weights.length;
+		if(n == 0) {
+			throw new IllegalArgumentException("No symbols");
+		}
+		if(maxLength < 1 || (maxLength < 31 && n > 1 << maxLength)) {
+			throw new IllegalArgumentException(n + " symbols do not fit in codes of length " + maxLength);
+		}
+		double[] sorted = weights.clone();
+		int[] order = new int[n];
+		for(int i=0; i<n; i++) {
+			if(!(sorted[i] >= 0)) {
+				throw new IllegalArgumentException("Invalid weight: " + sorted[i]);
+			}
+			order[i] = i;
+		}
+		heapSort(sorted, order);
+		int[] lengths = new int[n];
+		if(n == 1) {
+			lengths[0] = 1;
+			return lengths;
+		}
+		double[] found = sorted.clone();
+		inPlaceLengths(found);
+		if(found[0] > maxLength) {
+			packageMerge(sorted, maxLength, found);
+		}
+		for(int i=0; i<n; i++) {
+			lengths[order[i]] = (int) found[i];
+		}
+		return lengths;
+	}
+
+	/**
+	 * Computes code lengths for symbol counts, giving no code to symbols
+	 * that do not occur.
+	 * @param counts - the count of each symbol
+	 * @return the code length of each symbol; 0 if its count is 0
+	 * @throws IllegalArgumentException if a count is negative
+	 */
+	public static int[] fromCounts(long[] counts) throws IllegalArgumentException {
+		return fromCounts(counts, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes length-limited code lengths for symbol counts, giving no code
+	 * to symbols that do not occur.
+	 * @param counts - the count of each symbol
+	 * @param maxLength - the longest code length allowed
+	 * @return the code length of each symbol; 0 if its count is 0
+	 * @throws IllegalArgumentException if a count is negative or there are
+	 * more than 2^maxLength symbols that occur
+	 */
+	public static int[] fromCounts(long[] counts, int maxLength) throws IllegalArgumentException {
+		int present = 0;
+		for(long count : counts) {
+			if(count < 0) {
+				throw new IllegalArgumentException("Invalid count: " + count);
+			}
+			if(count > 0) {
+				present++;
+			}
+		}
+		int[] lengths = new int[counts.length];
+		if(present == 0) {
+			return lengths;
+		}
+		double[] weights = new double[present];
+		int[] symbols = new int[present];
+		int n = 0;
+		for(int i=0; i<counts.length; i++) {
+			if(counts[i] > 0) {
+				weights[n] = counts[i];
+				symbols[n++] = i;
+			}
+		}
+		int[] found = compute(weights, maxLength);
+		for(int i=0; i<present; i++) {
+			lengths[symbols[i]] = found[i];
+		}
+		return lengths;
+	}
+
+	/**
+	 * Returns the average code length of a code, in bits per symbol.
+	 * @param weights - the weight of each symbol
+	 * @param lengths - the code length of each symbol
+	 * @return the weighted average code length; 0 if the total weight is 0
+	 */
+	public static double averageLength(double[] weights, int[] lengths) {
+		double bits = 0;
+		double total = 0;
+		for(int i=0; i<weights.length; i++) {
+			bits += weights[i] * lengths[i];
+			total += weights[i];
+		}
+		return total == 0 ? 0 : bits / total;
+	}
+
+	/**
+	 * Private helper that sorts weights in increasing order, moving the
+	 * symbol indexes along with them. Equal weights are ordered by index so
+	 * that the result does not depend on the sort.
+	 * @param keys - the weights
+	 * @param values - the symbol indexes
+	 */
+	private static void heapSort(double[] keys, int[] values) {
+		int n = keys.length;
+		for(int i=n/2-1; i>=0; i--) {
+			siftDown(keys, values, i, n);
+		}
+		for(int end=n-1; end>0; end--) {
+			swap(keys, values, 0, end);
+			siftDown(keys, values, 0, end);
+		}
+	}
+
+	/**
+	 * Private helper that restores the max-heap order below a node.
+	 * @param keys - the weights
+	 * @param values - the symbol indexes
+	 * @param node - the node to sift down
+	 * @param size - the size of the heap
+	 */
+	private static void siftDown(double[] keys, int[] values, int node, int size) {
+		while(true) {
+			int child = 2 * node + 1;
+			if(child >= size) {
+				return;
+			}
+			if(child + 1 < size && greater(keys, values, child + 1, child)) {
+				child++;
+			}
+			if(!greater(keys, values, child, node)) {
+				return;
+			}
+			swap(keys, values, node, child);
+			node = child;
+		}
+	}
+
+	/**
+	 * Private helper that compares two items by weight and then by index.
+	 * @param keys - the weights
+	 * @param values - the symbol indexes
+	 * @param a - the first item
+	 * @param b - the second item
+	 * @return true if item a sorts after item b
+	 */
+	private static boolean greater(double[] keys, int[] values, int a, int b) {
+		return keys[a] > keys[b] || (keys[a] == keys[b] && values[a] > values[b]);
+	}
+
+	/**
+	 * Private helper that swaps two items.
+	 * @param keys - the weights
+	 * @param values - the symbol indexes
+	 * @param a - the first item
+	 * @param b - the second item
+	 */
+	private static void swap(double[] keys, int[] values, int a, int b) {
+		double key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		int value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+	}
+
+	/**
+	 * Private helper that replaces sorted weights with their code lengths.
+	 * @param a - at least two weights in increasing order; replaced by the
+	 * code lengths, which are in decreasing order
+	 */
+	private static void inPlaceLengths(double[] a) {
+		int n = a.length;
+		// Phase 1: a[0..next) holds internal node weights, or parent links once used.
+		int leaf = 0;
+		int root = 0;
+		for(int next=0; next<n-1; next++) {
+			if(leaf >= n || (root < next && a[root] < a[leaf])) {
+				a[next] = a[root];
+				a[root++] = next;
+			} else {
+				a[next] = a[leaf++];
+			}
+			if(leaf >= n || (root < next && a[root] < a[leaf])) {
+				a[next] += a[root];
+				a[root++] = next;
+			} else {
+				a[next] += a[leaf++];
+			}
+		}
+		// Phase 2: parent links become internal node depths.
+		a[n - 2] = 0;
+		for(int next=n-3; next>=0; next--) {
+			a[next] = a[(int) a[next]] + 1;
+		}
+		// Phase 3: internal node depths become leaf depths.
+		int available = 1;
+		int used = 0;
+		int depth = 0;
+		root = n - 2;
+		int next = n - 1;
+		while(available > 0) {
+			while(root >= 0 && a[root] == depth) {
+				used++;
+				root--;
+			}
+			while(available > used) {
+				a[next--] = depth;
+				available--;
+			}
+			available = 2 * used;
+			depth++;
+			used = 0;
+		}
+	}
+
+	/**
+	 * Private helper that finds optimal length-limited code lengths with the
+	 * package-merge algorithm. The list for the deepest level holds the
+	 * leaves; the list for each shallower level merges the leaves with the
+	 * packages formed by pairing adjacent items of the level below. The
+	 * cheapest 2n - 2 items of the top list are chosen, and every leaf gains
+	 * one bit of length for each level at which it is chosen, directly or
+	 * inside a chosen package.
+	 * @param sorted - at least two weights in increasing order
+	 * @param maxLength - the longest code length, with 2^maxLength at least the number of weights
+	 * @param lengths - receives the code lengths, in the order of the weights
+	 */
+	private static void packageMerge(double[] sorted, int maxLength, double[] lengths) {
+		int n = sorted.length;
+		int levels = Math.min(maxLength, n - 1);
+		boolean[][] isLeaf = new boolean[levels][];
+		double[] below = sorted;
+		for(int level=levels-1; level>=0; level--) {
+			int packages = level == levels - 1 ? 0 : below.length / 2;
+			double[] list = new double[n + packages];
+			boolean[] leaf = new boolean[n + packages];
+			int l = 0;
+			int p = 0;
+			for(int i=0; i<list.length; i++) {
+				double pack = p < packages ? below[2 * p] + below[2 * p + 1] : Double.POSITIVE_INFINITY;
+				if(l < n && sorted[l] <= pack) {
+					list[i] = sorted[l++];
+					leaf[i] = true;
+				} else {
+					list[i] = pack;
+					p++;
+				}
+			}
+			isLeaf[level] = leaf;
+			below = list;
+		}
+		Arrays.fill(lengths, 0);
+		int chosen = 2 * n - 2;
+		for(int level=0; level<levels && chosen>0; level++) {
+			int leaves = 0;
+			for(int i=0; i<chosen; i++) {
+				if(isLeaf[level][i]) {
+					leaves++;
+				}
+			}
+			for(int i=0; i<leaves; i++) {
+				lengths[i]++;
+			}
+			chosen = 2 * (chosen - leaves);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A Huffman code map compiled into one dense <code>long[]</code> indexed
+ * by character, for encoding.
+ * <p>
+ * Each entry packs a code of up to {@link #MAX_PACKED} bits, right aligned,
+ * above an 8-bit length, so encoding a character is one array load with no
+ * boxing or hashing. Longer codes are marked by the length
+ * <code>LONG_CODE</code> and kept as bit strings on the side. A character
+ * without a code has the entry -1, whose length field is the sentinel
+ * <code>NO_CODE</code>, so a missing code is found by the same load. The
+ * table is immutable once built; compile it once per code and reuse it,
+ * as {@link Codebook} does.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodeTable {
+
+	/** Longest code packed into an entry. */
+	public static final int MAX_PACKED = 56;
+
+	/** Length field of an entry whose code is in longCodes. */
+	private static final int LONG_CODE = 0xFE;
+
+	/** Length field of a character without a code. */
+	private static final int NO_CODE = 0xFF;
+
+	/** The entry of a character without a code. */
+	private static final long UNKNOWN = -1L;
+
+	/** Packed code and length of each character below entries.length. */
+	private final long[] entries;
+
+	/** Codes longer than MAX_PACKED bits, indexed by character; otherwise null. */
+	private final StringOfBits[] longCodes;
+
+	/** Number of characters with a code. */
+	private final int size;
+
+	/**
+	 * Compiles a Huffman code map. The map is not kept, so later changes to
+	 * it do not affect the table.
+	 * @param huffmanCode - the Huffman code map
+	 */
+	public CodeTable(Map<Character,StringOfBits> huffmanCode) {
+		int span = 0;
+		for(Character c : huffmanCode.keySet()) {
+			span = Math.max(span, c + 1);
+		}
+		this.entries = new long[span];
+		Arrays.fill(entries, UNKNOWN);
+		StringOfBits[] longs = null;
+		for(Map.Entry<Character,StringOfBits> entry : huffmanCode.entrySet()) {
+			char c = entry.getKey();
+			StringOfBits code = entry.getValue();
+			int length = code.length();
+			if(length <= MAX_PACKED) {
+				entries[c] = code.readBits(0, length) << 8 | length;
+			} else {
+				if(longs == null) {
+					longs = new StringOfBits[span];
+				}
+				longs[c] = new StringOfBits(code);
+				entries[c] = LONG_CODE;
+			}
+		}
+		this.longCodes = longs;
+		this.size = huffmanCode.size();
+	}
+
+	/**
+	 * Returns the number of characters with a code.
+	 * @return the number of codes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether a character has a code.
+	 * @param c - the character
+	 * @return true if c can be encoded
+	 */
+	public boolean contains(char c) {
+		return c < entries.length && entries[c] != UNKNOWN;
+	}
+
+	/**
+	 * Returns the code length of a character.
+	 * @param c - the character
+	 * @return the length of its code in bits; -1 if it has no code
+	 */
+	public int codeLength(char c) {
+		if(!contains(c)) {
+			return -1;
+		}
+		int length = (int) entries[c] & 0xFF;
+		return length == LONG_CODE ? longCodes[c].length() : length;
+	}
+
+	/**
+	 * Encodes a string.
+	 * @param text - the string to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public StringOfBits encode(String text) throws IllegalArgumentException {
+		BitWriter writer = new BitWriter(4L * text.length());
+		encode(text, 0, text.length(), 1, writer);
+		return writer.toStringOfBits();
+	}
+
+	/**
+	 * Encodes a string into off-heap storage, for encodings that may be
+	 * longer than a {@link StringOfBits} can hold.
+	 * @param text - the string to encode
+	 * @param out - the buffer the codes are appended to
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public void encode(String text, DirectBitBuffer out) throws IllegalArgumentException {
+		long[] entries = this.entries;
+		int span = entries.length;
+		int n = text.length();
+		for(int i=0; i<n; i++) {
+			char c = text.charAt(i);
+			long entry = c < span ? entries[c] : UNKNOWN;
+			int length = (int) entry & 0xFF;
+			if(length <= MAX_PACKED) {
+				out.put(entry >>> 8, length);
+			} else if(length == NO_CODE) {
+				throw new IllegalArgumentException("No code for character " + (int) c);
+			} else {
+				out.write(longCodes[c]);
+			}
+		}
+	}
+
+	/**
+	 * Appends the codes of every <code>step</code>-th character of a range
+	 * to a writer.
+	 * @param text - the characters to encode
+	 * @param from - the index of the first character
+	 * @param to - the index after the range
+	 * @param step - the distance between encoded characters, at least 1
+	 * @param writer - the writer the codes are appended to
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	void encode(String text, int from, int to, int step, BitWriter writer) throws IllegalArgumentException {
+		long[] entries = this.entries;
+		int span = entries.length;
+		for(int i=from; i<to; i+=step) {
+			char c = text.charAt(i);
+			long entry = c < span ? entries[c] : UNKNOWN;
+			int length = (int) entry & 0xFF;
+			if(length <= MAX_PACKED) {
+				writer.put(entry >>> 8, length);
+			} else if(length == NO_CODE) {
+				throw new IllegalArgumentException("No code for character " + (int) c);
+			} else {
+				writer.write(longCodes[c]);
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable Huffman code together with its compiled encoding table and
+ * decoder, safe to share between threads.
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class Codebook {
+
+	/** The code of each symbol; never modified after construction. */
+	private final Map<Character,StringOfBits> code;
+
+	/** The compiled encoding table for the code. */
+	private final CodeTable table;
+
+	/** The compiled decoder for the code. */
+	private final HuffmanDecoder decoder;
+
+	/**
+	 * Compiles a codebook from a Huffman code map. The map is copied.
+	 * @param huffmanCode - the Huffman code map
+	 * @throws IllegalArgumentException if the code is not prefix-free
+	 */
+	public Codebook(Map<Character,StringOfBits> huffmanCode) throws IllegalArgumentException {
+		Map<Character,StringOfBits> copy = new HashMap<Character,StringOfBits>();
+		for(Map.Entry<Character,StringOfBits> entry : huffmanCode.entrySet()) {
+			copy.put(entry.getKey(), new StringOfBits(entry.getValue()));
+		}
+		this.code = Collections.unmodifiableMap(copy);
+		this.table = new CodeTable(copy);
+		this.decoder = new HuffmanDecoder(copy);
+	}
+
+	/**
+	 * Returns the code map. The map cannot be modified, but the bit strings
+	 * in it are shared and must not be changed either.
+	 * @return the Huffman code map
+	 */
+	public Map<Character,StringOfBits> code() {
+		return code;
+	}
+
+	/**
+	 * Returns the compiled encoding table.
+	 * @return the table
+	 */
+	public CodeTable table() {
+		return table;
+	}
+
+	/**
+	 * Returns the compiled decoder.
+	 * @return the decoder
+	 */
+	public HuffmanDecoder decoder() {
+		return decoder;
+	}
+
+	/**
+	 * Encodes a string with this codebook.
+	 * @param message - the string to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public StringOfBits encode(String message) throws IllegalArgumentException {
+		return HuffmanCode.encode(message, table);
+	}
+
+	/**
+	 * Decodes bits with this codebook.
+	 * @param bits - the encoded bits
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the bits are not a valid encoding
+	 */
+	public String decode(StringOfBits bits) throws IllegalArgumentException {
+		return decoder.decode(bits);
+	}
+}
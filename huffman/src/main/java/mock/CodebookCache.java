@@ -0,0 +1,254 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of compiled codebooks keyed by the shape of
+ * a frequency table.
+ * <p>
+ * The key of a table is its fingerprint: the sorted symbols, each with its
+ * share of the total frequency rounded to a fixed number of bits, and never
+ * rounded down to zero so every symbol keeps a code. Tables with the same
+ * symbols and nearly the same distribution therefore share a key. The code
+ * for a key is built from the rounded frequencies, so it depends only on
+ * the key and not on which table was seen first.
+ * </p>
+ * <p>
+ * The least recently used entry is evicted once the cache holds more than
+ * its maximum number of codebooks. Codebooks are built outside the lock,
+ * so a slow build never blocks other lookups; two threads that miss on the
+ * same key at once may both build it, and the first to finish wins.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodebookCache {
+
+	/** Default number of bits each normalized frequency is rounded to. */
+	public static final int DEFAULT_PRECISION = 10;
+
+	/** Most codebooks kept. */
+	private final int maxEntries;
+
+	/** Number of bits each normalized frequency is rounded to. */
+	private final int precision;
+
+	/** The cached codebooks in access order; guarded by itself. */
+	private final LinkedHashMap<Fingerprint,Codebook> entries;
+
+	/** Number of lookups that found a codebook. */
+	private final LongAdder hits = new LongAdder();
+
+	/** Number of lookups that built a codebook. */
+	private final LongAdder misses = new LongAdder();
+
+	/** Number of codebooks evicted. */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache with the default precision.
+	 * @param maxEntries - the most codebooks to keep
+	 * @throws IllegalArgumentException if maxEntries is less than 1
+	 */
+	public CodebookCache(int maxEntries) throws IllegalArgumentException {
+		this(maxEntries, DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maxEntries - the most codebooks to keep
+	 * @param precision - the number of bits each normalized frequency is
+	 * rounded to, 1 to 30; fewer bits let more tables share a codebook
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public CodebookCache(int maxEntries, int precision) throws IllegalArgumentException {
+		if(maxEntries < 1 || precision < 1 || precision > 30) {
+			throw new IllegalArgumentException();
+		}
+		this.maxEntries = maxEntries;
+		this.precision = precision;
+		this.entries = new LinkedHashMap<Fingerprint,Codebook>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Fingerprint,Codebook> eldest) {
+				if(size() > CodebookCache.this.maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a codebook for the character frequencies of a seed string.
+	 * @param seed - the string whose frequencies the code should fit
+	 * @return a codebook with a code for every character of the seed
+	 * @throws IllegalArgumentException if the seed is empty
+	 */
+	public Codebook get(String seed) throws IllegalArgumentException {
+		FrequencyCounter counter = FrequencyCounter.count(seed);
+		int[] symbols = counter.symbols();
+		double[] weights = new double[symbols.length];
+		for(int i=0; i<symbols.length; i++) {
+			weights[i] = counter.count(symbols[i]);
+		}
+		return lookup(symbols, weights, counter.total());
+	}
+
+	/**
+	 * Returns a codebook for a frequency table.
+	 * @param table - the symbol frequency table
+	 * @return a codebook with a code for every symbol of the table
+	 * @throws IllegalArgumentException if the table is empty or has a
+	 * negative frequency
+	 */
+	public Codebook get(Map<Character,Double> table) throws IllegalArgumentException {
+		int[] symbols = new int[table.size()];
+		int n = 0;
+		for(Character c : table.keySet()) {
+			symbols[n++] = c;
+		}
+		Arrays.sort(symbols);
+		double total = 0;
+		double[] weights = new double[n];
+		for(int i=0; i<n; i++) {
+			weights[i] = table.get((char) symbols[i]);
+			if(!(weights[i] >= 0)) {
+				throw new IllegalArgumentException("Invalid frequency: " + weights[i]);
+			}
+			total += weights[i];
+		}
+		return lookup(symbols, weights, total);
+	}
+
+	/**
+	 * Returns the number of lookups that found a cached codebook.
+	 * @return the hit count
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that had to build a codebook.
+	 * @return the miss count
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of codebooks evicted to stay within the bound.
+	 * @return the eviction count
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of cached codebooks.
+	 * @return the cache size
+	 */
+	public int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Removes every cached codebook. The counters are kept.
+	 */
+	public void clear() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Private helper that looks up or builds the codebook for sorted
+	 * symbols and their weights.
+	 * @param symbols - the symbols in increasing order
+	 * @param weights - the weight of each symbol
+	 * @param total - the sum of the weights
+	 * @return the codebook
+	 * @throws IllegalArgumentException if there are no symbols
+	 */
+	private Codebook lookup(int[] symbols, double[] weights, double total) throws IllegalArgumentException {
+		if(symbols.length == 0) {
+			throw new IllegalArgumentException("No symbols");
+		}
+		int[] shares = new int[symbols.length];
+		for(int i=0; i<symbols.length; i++) {
+			double share = total == 0 ? 0 : weights[i] / total;
+			shares[i] = (int) Math.max(1, Math.round(share * (1 << precision)));
+		}
+		Fingerprint key = new Fingerprint(symbols, shares);
+		Codebook codebook;
+		synchronized(entries) {
+			codebook = entries.get(key);
+		}
+		if(codebook != null) {
+			hits.increment();
+			return codebook;
+		}
+		misses.increment();
+		Map<Character,Double> rounded = new HashMap<Character,Double>();
+		for(int i=0; i<symbols.length; i++) {
+			rounded.put((char) symbols[i], (double) shares[i]);
+		}
+		Codebook built = new Codebook(HuffmanCode.createHuffmanCode(rounded));
+		synchronized(entries) {
+			codebook = entries.get(key);
+			if(codebook == null) {
+				entries.put(key, built);
+				codebook = built;
+			}
+		}
+		return codebook;
+	}
+
+	/**
+	 * The cache key: sorted symbols with their rounded shares.
+	 */
+	private static final class Fingerprint {
+
+		/** The symbols in increasing order. */
+		private final int[] symbols;
+
+		/** The rounded share of each symbol. */
+		private final int[] shares;
+
+		/** The precomputed hash code. */
+		private final int hash;
+
+		/**
+		 * Creates a fingerprint.
+		 * @param symbols - the symbols in increasing order
+		 * @param shares - the rounded share of each symbol
+		 */
+		Fingerprint(int[] symbols, int[] shares) {
+			this.symbols = symbols;
+			this.shares = shares;
+			this.hash = 31 * Arrays.hashCode(symbols) + Arrays.hashCode(shares);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Fingerprint)) {
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return hash == other.hash && Arrays.equals(symbols, other.symbols)
+					&& Arrays.equals(shares, other.shares);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,318 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes canonical Huffman codes in a compact binary format.
+ * <p>
+ * A canonical code is fully described by the code length of each symbol,
+ * so only the symbols and their lengths are stored; the codes are rebuilt
+ * with {@link HuffmanCode#createCanonicalCode(Map)} when the codebook is
+ * read. A codebook holds, in order:
+ * </p>
+ * <ul>
+ * <li>the magic bytes <code>HCB</code> and a version byte</li>
+ * <li>a flag byte; bit 0 is set if the lengths are packed two to a byte</li>
+ * <li>the number of symbols as a varint</li>
+ * <li>the symbols in increasing order, each as a varint of the gap from
+ * the previous symbol less one (the first symbol is stored as is)</li>
+ * <li>the code lengths in the same order, as 4-bit values if every length
+ * is below 16 and otherwise as single bytes</li>
+ * <li>the CRC-32 of everything before it, 4 bytes big-endian</li>
+ * </ul>
+ * <p>
+ * Varints are unsigned LEB128: 7 bits per byte, low bits first, with the
+ * high bit set on every byte but the last. A 256-symbol byte code takes
+ * about 400 bytes.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodebookFormat {
+
+	/** Magic bytes at the start of a codebook. */
+	private static final byte[] MAGIC = {'H', 'C', 'B'};
+
+	/** Version of the format written by this class. */
+	static final int VERSION = 1;
+
+	/** Flag set when lengths are packed into 4 bits each. */
+	private static final int PACKED_LENGTHS = 1;
+
+	/** Largest symbol that may be stored. */
+	private static final int MAX_SYMBOL = Character.MAX_CODE_POINT;
+
+	/** Longest code length that may be stored. */
+	private static final int MAX_LENGTH = 255;
+
+	/**
+	 * Serializes a canonical code.
+	 * @param huffmanCode - the code, as made by {@link HuffmanCode#createHuffmanCode(Map)}
+	 * @return the codebook bytes
+	 * @throws IllegalArgumentException if the code is not canonical
+	 */
+	public static byte[] toBytes(Map<Character,StringOfBits> huffmanCode) throws IllegalArgumentException {
+		int[] symbols = new int[huffmanCode.size()];
+		int n = 0;
+		for(Character c : huffmanCode.keySet()) {
+			symbols[n++] = c;
+		}
+		Arrays.sort(symbols);
+		int[] lengths = new int[n];
+		Map<Character,Integer> lengthTable = new HashMap<Character,Integer>();
+		for(int i=0; i<n; i++) {
+			lengths[i] = huffmanCode.get((char) symbols[i]).length();
+			lengthTable.put((char) symbols[i], lengths[i]);
+		}
+		if(n > 0 && !HuffmanCode.createCanonicalCode(lengthTable).equals(huffmanCode)) {
+			throw new IllegalArgumentException("Code is not canonical");
+		}
+		return encode(symbols, lengths);
+	}
+
+	/**
+	 * Reads a code from codebook bytes.
+	 * @param bytes - the codebook bytes
+	 * @return the code
+	 * @throws IOException if the bytes are not a valid codebook
+	 */
+	public static Map<Character,StringOfBits> fromBytes(byte[] bytes) throws IOException {
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		Map<Character,StringOfBits> code = read(in);
+		if(in.available() > 0) {
+			throw new IOException("Extra bytes after codebook");
+		}
+		return code;
+	}
+
+	/**
+	 * Writes a canonical code to a stream.
+	 * @param huffmanCode - the code, as made by {@link HuffmanCode#createHuffmanCode(Map)}
+	 * @param out - the stream
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if the code is not canonical
+	 */
+	public static void write(Map<Character,StringOfBits> huffmanCode, OutputStream out)
+			throws IOException, IllegalArgumentException {
+		out.write(toBytes(huffmanCode));
+	}
+
+	/**
+	 * Reads a code from a stream, leaving the stream just past the codebook.
+	 * @param in - the stream
+	 * @return the code
+	 * @throws IOException if an I/O error occurs or the codebook is not valid
+	 */
+	public static Map<Character,StringOfBits> read(InputStream in) throws IOException {
+		int[][] table = decode(in);
+		int[] symbols = table[0];
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		for(int i=0; i<symbols.length; i++) {
+			if(symbols[i] > Character.MAX_VALUE) {
+				throw new IOException("Symbol is not a char: " + symbols[i]);
+			}
+			lengths.put((char) symbols[i], table[1][i]);
+		}
+		if(lengths.isEmpty()) {
+			return new HashMap<Character,StringOfBits>();
+		}
+		try {
+			return HuffmanCode.createCanonicalCode(lengths);
+		} catch(IllegalArgumentException ex) {
+			throw new IOException("Code lengths do not form a prefix code", ex);
+		}
+	}
+
+	/**
+	 * Saves a canonical code to a file.
+	 * @param huffmanCode - the code
+	 * @param file - the file to create or replace
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if the code is not canonical
+	 */
+	public static void save(Map<Character,StringOfBits> huffmanCode, Path file)
+			throws IOException, IllegalArgumentException {
+		Files.write(file, toBytes(huffmanCode));
+	}
+
+	/**
+	 * Loads a code from a file.
+	 * @param file - the codebook file
+	 * @return the code
+	 * @throws IOException if an I/O error occurs or the file is not a valid codebook
+	 */
+	public static Map<Character,StringOfBits> load(Path file) throws IOException {
+		return fromBytes(Files.readAllBytes(file));
+	}
+
+	/**
+	 * Encodes symbols and code lengths as codebook bytes.
+	 * @param symbols - the symbols in increasing order, 0 to 0x10FFFF
+	 * @param lengths - the code length of each symbol, 1 to 255
+	 * @return the codebook bytes
+	 * @throws IllegalArgumentException if a symbol or length is out of range or out of order
+	 */
+	static byte[] encode(int[] symbols, int[] lengths) throws IllegalArgumentException {
+		int n = symbols.length;
+		boolean packed = true;
+		for(int i=0; i<n; i++) {
+			if(symbols[i] < 0 || symbols[i] > MAX_SYMBOL || (i > 0 && symbols[i] <= symbols[i - 1])) {
+				throw new IllegalArgumentException("Symbols out of range or order at " + i);
+			}
+			if(lengths[i] < 1 || lengths[i] > MAX_LENGTH) {
+				throw new IllegalArgumentException("Invalid code length: " + lengths[i]);
+			}
+			packed &= lengths[i] < 16;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 2 * n);
+		out.write(MAGIC, 0, MAGIC.length);
+		out.write(VERSION);
+		out.write(packed ? PACKED_LENGTHS : 0);
+		writeVarint(out, n);
+		for(int i=0; i<n; i++) {
+			writeVarint(out, i == 0 ? symbols[0] : symbols[i] - symbols[i - 1] - 1);
+		}
+		if(packed) {
+			for(int i=0; i<n; i+=2) {
+				out.write(lengths[i] << 4 | (i + 1 < n ? lengths[i + 1] : 0));
+			}
+		} else {
+			for(int i=0; i<n; i++) {
+				out.write(lengths[i]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(out.toByteArray());
+		long value = crc.getValue();
+		for(int shift=24; shift>=0; shift-=8) {
+			out.write((int) (value >>> shift));
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes codebook bytes from a stream into symbols and code lengths.
+	 * @param in - the stream, read one byte at a time up to the end of the codebook
+	 * @return the symbols in increasing order and the code lengths, as two arrays
+	 * @throws IOException if an I/O error occurs or the codebook is not valid
+	 */
+	static int[][] decode(InputStream in) throws IOException {
+		CRC32 crc = new CRC32();
+		for(byte b : MAGIC) {
+			if(readByte(in, crc) != (b & 0xFF)) {
+				throw new IOException("Not a codebook");
+			}
+		}
+		int version = readByte(in, crc);
+		if(version != VERSION) {
+			throw new IOException("Unsupported codebook version " + version);
+		}
+		int flags = readByte(in, crc);
+		if((flags & ~PACKED_LENGTHS) != 0) {
+			throw new IOException("Unknown codebook flags " + flags);
+		}
+		long count = readVarint(in, crc);
+		if(count > MAX_SYMBOL + 1) {
+			throw new IOException("Too many symbols: " + count);
+		}
+		int n = (int) count;
+		int[] symbols = new int[n];
+		long symbol = -1;
+		for(int i=0; i<n; i++) {
+			symbol += readVarint(in, crc) + 1;
+			if(symbol > MAX_SYMBOL) {
+				throw new IOException("Symbol out of range: " + symbol);
+			}
+			symbols[i] = (int) symbol;
+		}
+		int[] lengths = new int[n];
+		if((flags & PACKED_LENGTHS) != 0) {
+			for(int i=0; i<n; i+=2) {
+				int b = readByte(in, crc);
+				lengths[i] = b >>> 4;
+				if(i + 1 < n) {
+					lengths[i + 1] = b & 0x0F;
+				} else if((b & 0x0F) != 0) {
+					throw new IOException("Nonzero length padding");
+				}
+			}
+		} else {
+			for(int i=0; i<n; i++) {
+				lengths[i] = readByte(in, crc);
+			}
+		}
+		for(int i=0; i<n; i++) {
+			if(lengths[i] == 0) {
+				throw new IOException("Zero code length for symbol " + symbols[i]);
+			}
+		}
+		long expected = crc.getValue();
+		long stored = 0;
+		for(int i=0; i<4; i++) {
+			stored = stored << 8 | readByte(in, null);
+		}
+		if(stored != expected) {
+			throw new IOException("Codebook checksum mismatch");
+		}
+		return new int[][] {symbols, lengths};
+	}
+
+	/**
+	 * Private helper that writes an unsigned LEB128 varint.
+	 * @param out - the stream
+	 * @param value - the value, not negative
+	 */
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while((value & ~0x7F) != 0) {
+			out.write(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Private helper that reads an unsigned LEB128 varint of up to 5 bytes.
+	 * @param in - the stream
+	 * @param crc - the checksum to update
+	 * @return the value
+	 * @throws IOException if an I/O error occurs or the varint is too long
+	 */
+	private static long readVarint(InputStream in, CRC32 crc) throws IOException {
+		long value = 0;
+		for(int shift=0; shift<35; shift+=7) {
+			int b = readByte(in, crc);
+			value |= (long) (b & 0x7F) << shift;
+			if(b < 0x80) {
+				return value;
+			}
+		}
+		throw new IOException("Varint too long");
+	}
+
+	/**
+	 * Private helper that reads one byte, adding it to a checksum.
+	 * @param in - the stream
+	 * @param crc - the checksum to update, or null
+	 * @return the byte, 0 to 255
+	 * @throws IOException if an I/O error occurs or the stream ends
+	 */
+	private static int readByte(InputStream in, CRC32 crc) throws IOException {
+		int b = in.read();
+		if(b < 0) {
+			throw new EOFException("Codebook is truncated");
+		}
+		if(crc != null) {
+			crc.update(b);
+		}
+		return b;
+	}
+}
@@ -0,0 +1,323 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters for the codec, published as a platform MBean.
+ * <p>
+ * {@link HuffmanCode} reports each code it builds and each encode and
+ * decode call here. Recording is off unless the system property
+ * <code>huffman.metrics</code> is <code>true</code> or it is turned on
+ * through {@link #setEnabled(boolean)}; while it is off every report costs
+ * one volatile read. The counters are {@link LongAdder}s, which spread
+ * updates from different threads over separate cells, so recording can
+ * stay on under load.
+ * </p>
+ * <p>
+ * Call {@link #register()} once to make the counters visible to JMX
+ * clients such as jconsole.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodecMetrics implements CodecMetricsMBean {
+
+	/** The name under which the metrics are registered. */
+	public static final String OBJECT_NAME = "huffman:type=CodecMetrics";
+
+	/** Number of decode latency buckets; the last one reaches past 2^39 ns. */
+	static final int BUCKETS = 40;
+
+	/** The process-wide instance. */
+	private static final CodecMetrics INSTANCE = new CodecMetrics(Boolean.getBoolean("huffman.metrics"));
+
+	/** Whether metrics are being recorded. */
+	private volatile boolean enabled;
+
+	/** Uncompressed bytes taken in for encoding. */
+	private final LongAdder bytesIn = new LongAdder();
+
+	/** Compressed bytes produced by encoding. */
+	private final LongAdder bytesOut = new LongAdder();
+
+	/** Bits produced by encoding. */
+	private final LongAdder bitsEncoded = new LongAdder();
+
+	/** Symbols encoded. */
+	private final LongAdder symbolsEncoded = new LongAdder();
+
+	/** Symbols decoded. */
+	private final LongAdder symbolsDecoded = new LongAdder();
+
+	/** Codes built. */
+	private final LongAdder codesBuilt = new LongAdder();
+
+	/** Total nanoseconds spent building codes. */
+	private final LongAdder buildNanos = new LongAdder();
+
+	/** Decode calls in each latency bucket. */
+	private final LongAdder[] latency = new LongAdder[BUCKETS];
+
+	/** Entropy of the most recently built code's table. */
+	private volatile double entropy;
+
+	/** Expected code length of the most recently built code. */
+	private volatile double expectedLength;
+
+	/**
+	 * Private constructor for the process-wide instance.
+	 * @param enabled - whether to record from the start
+	 */
+	private CodecMetrics(boolean enabled) {
+		this.enabled = enabled;
+		for(int i=0; i<BUCKETS; i++) {
+			latency[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the process-wide metrics.
+	 * @return the metrics
+	 */
+	public static CodecMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, if they are not
+	 * registered already.
+	 * @return the name the metrics are registered under
+	 * @throws IllegalStateException if registration fails
+	 */
+	public static ObjectName register() throws IllegalStateException {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(!server.isRegistered(name)) {
+				try {
+					server.registerMBean(INSTANCE, name);
+				} catch(InstanceAlreadyExistsException ex) {
+					// Registered by another thread in the meantime.
+				}
+			}
+			return name;
+		} catch(MalformedObjectNameException ex) {
+			throw new IllegalStateException(ex);
+		} catch(JMException ex) {
+			throw new IllegalStateException("Could not register " + OBJECT_NAME, ex);
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if registered.
+	 * @throws IllegalStateException if removal fails
+	 */
+	public static void unregister() throws IllegalStateException {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch(JMException ex) {
+			throw new IllegalStateException("Could not unregister " + OBJECT_NAME, ex);
+		}
+	}
+
+	/**
+	 * Starts timing a call.
+	 * @return the start time to pass back when recording; 0 if not recording
+	 */
+	static long start() {
+		return INSTANCE.enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records that a code was built.
+	 * @param start - the value returned by {@link #start()} before building
+	 * @param weights - the frequency of each symbol
+	 * @param lengths - the code length of each symbol
+	 */
+	static void recordBuild(long start, double[] weights, int[] lengths) {
+		CodecMetrics metrics = INSTANCE;
+		if(!metrics.enabled || start == 0) {
+			return;
+		}
+		metrics.buildNanos.add(System.nanoTime() - start);
+		metrics.codesBuilt.increment();
+		double total = 0;
+		for(double weight : weights) {
+			total += weight;
+		}
+		double bits = 0;
+		for(double weight : weights) {
+			if(weight > 0) {
+				bits -= weight / total * Math.log(weight / total) / Math.log(2);
+			}
+		}
+		metrics.entropy = bits;
+		metrics.expectedLength = CodeLengths.averageLength(weights, lengths);
+	}
+
+	/**
+	 * Records an encode call.
+	 * @param inputBytes - the uncompressed size in bytes
+	 * @param symbols - the number of symbols encoded
+	 * @param bits - the number of bits produced
+	 */
+	static void recordEncode(long inputBytes, long symbols, long bits) {
+		CodecMetrics metrics = INSTANCE;
+		if(!metrics.enabled) {
+			return;
+		}
+		metrics.bytesIn.add(inputBytes);
+		metrics.bytesOut.add((bits + 7) >>> 3);
+		metrics.bitsEncoded.add(bits);
+		metrics.symbolsEncoded.add(symbols);
+	}
+
+	/**
+	 * Records a decode call.
+	 * @param start - the value returned by {@link #start()} before decoding
+	 * @param symbols - the number of symbols decoded
+	 */
+	static void recordDecode(long start, long symbols) {
+		CodecMetrics metrics = INSTANCE;
+		if(!metrics.enabled || start == 0) {
+			return;
+		}
+		long nanos = Math.max(1, System.nanoTime() - start);
+		metrics.latency[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos))].increment();
+		metrics.symbolsDecoded.add(symbols);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void reset() {
+		bytesIn.reset();
+		bytesOut.reset();
+		bitsEncoded.reset();
+		symbolsEncoded.reset();
+		symbolsDecoded.reset();
+		codesBuilt.reset();
+		buildNanos.reset();
+		for(LongAdder bucket : latency) {
+			bucket.reset();
+		}
+		entropy = 0;
+		expectedLength = 0;
+	}
+
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+
+	@Override
+	public long getSymbolsEncoded() {
+		return symbolsEncoded.sum();
+	}
+
+	@Override
+	public long getSymbolsDecoded() {
+		return symbolsDecoded.sum();
+	}
+
+	@Override
+	public double getAverageBitsPerSymbol() {
+		long symbols = symbolsEncoded.sum();
+		return symbols == 0 ? 0 : (double) bitsEncoded.sum() / symbols;
+	}
+
+	@Override
+	public double getEntropyBitsPerSymbol() {
+		return entropy;
+	}
+
+	@Override
+	public double getExpectedBitsPerSymbol() {
+		return expectedLength;
+	}
+
+	@Override
+	public long getCodesBuilt() {
+		return codesBuilt.sum();
+	}
+
+	@Override
+	public double getAverageBuildMicros() {
+		long codes = codesBuilt.sum();
+		return codes == 0 ? 0 : buildNanos.sum() / 1000.0 / codes;
+	}
+
+	@Override
+	public long getDecodeCount() {
+		long count = 0;
+		for(LongAdder bucket : latency) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	@Override
+	public long[] getDecodeLatencyHistogram() {
+		long[] counts = new long[BUCKETS];
+		for(int i=0; i<BUCKETS; i++) {
+			counts[i] = latency[i].sum();
+		}
+		return counts;
+	}
+
+	@Override
+	public double getDecodeLatencyP50Micros() {
+		return decodeLatencyPercentile(0.50);
+	}
+
+	@Override
+	public double getDecodeLatencyP99Micros() {
+		return decodeLatencyPercentile(0.99);
+	}
+
+	/**
+	 * Returns a decode latency percentile, to within a factor of two.
+	 * @param fraction - the percentile as a fraction, 0 to 1
+	 * @return the upper bound of the percentile's bucket in microseconds; 0
+	 * if no decode has been timed
+	 */
+	public double decodeLatencyPercentile(double fraction) {
+		long[] counts = getDecodeLatencyHistogram();
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		int i = 0;
+		while(i < BUCKETS - 1 && (seen += counts[i]) < rank) {
+			i++;
+		}
+		return Math.pow(2, i + 1) / 1000.0;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * The management interface of {@link CodecMetrics}, published through the
+ * platform MBean server under the name <code>huffman:type=CodecMetrics</code>.
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public interface CodecMetricsMBean {
+
+	/**
+	 * Returns whether metrics are being recorded.
+	 * @return true if recording
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Turns recording on or off. Counts are kept while recording is off.
+	 * @param enabled - true to record
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Sets every count back to zero.
+	 */
+	void reset();
+
+	/**
+	 * Returns the uncompressed bytes taken in for encoding; a char counts
+	 * as two bytes.
+	 * @return the bytes in
+	 */
+	long getBytesIn();
+
+	/**
+	 * Returns the compressed bytes produced by encoding, rounding each
+	 * encoded result up to a whole byte.
+	 * @return the bytes out
+	 */
+	long getBytesOut();
+
+	/**
+	 * Returns the number of symbols encoded.
+	 * @return the symbols encoded
+	 */
+	long getSymbolsEncoded();
+
+	/**
+	 * Returns the number of symbols decoded.
+	 * @return the symbols decoded
+	 */
+	long getSymbolsDecoded();
+
+	/**
+	 * Returns the average number of bits written per symbol encoded.
+	 * @return bits per symbol; 0 if nothing has been encoded
+	 */
+	double getAverageBitsPerSymbol();
+
+	/**
+	 * Returns the Shannon entropy of the frequency table of the most
+	 * recently built code, the lower bound on its bits per symbol.
+	 * @return the entropy in bits per symbol; 0 if no code has been built
+	 */
+	double getEntropyBitsPerSymbol();
+
+	/**
+	 * Returns the average code length of the most recently built code,
+	 * weighted by its frequency table.
+	 * @return the expected bits per symbol; 0 if no code has been built
+	 */
+	double getExpectedBitsPerSymbol();
+
+	/**
+	 * Returns the number of codes built.
+	 * @return the codes built
+	 */
+	long getCodesBuilt();
+
+	/**
+	 * Returns the average time to build a code.
+	 * @return the build time in microseconds; 0 if no code has been built
+	 */
+	double getAverageBuildMicros();
+
+	/**
+	 * Returns the number of decode calls timed.
+	 * @return the decode calls
+	 */
+	long getDecodeCount();
+
+	/**
+	 * Returns the decode latency histogram. Bucket <code>i</code> counts
+	 * calls that took from 2^i up to 2^(i+1) nanoseconds; the last bucket
+	 * also counts every longer call.
+	 * @return the count in each bucket
+	 */
+	long[] getDecodeLatencyHistogram();
+
+	/**
+	 * Returns the median decode latency, to within a factor of two.
+	 * @return the upper bound of the median's bucket in microseconds
+	 */
+	double getDecodeLatencyP50Micros();
+
+	/**
+	 * Returns the 99th percentile decode latency, to within a factor of two.
+	 * @return the upper bound of the percentile's bucket in microseconds
+	 */
+	double getDecodeLatencyP99Micros();
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A growable bit string held outside the Java heap and indexed by
+ * <code>long</code>, for encoded payloads too long for a
+ * {@link StringOfBits}.
+ * <p>
+ * Bits are stored most significant first in 64-bit big-endian words, in
+ * direct {@link ByteBuffer} segments of a fixed power-of-two size. Growing
+ * the buffer allocates one more segment and never copies the bits already
+ * written, and the garbage collector sees only the small segment objects,
+ * not the data. Appends go through a 64-bit accumulator, as in
+ * {@link BitWriter}, so a whole word is stored at a time.
+ * </p>
+ * <p>
+ * The off-heap memory of a segment is released when the segment is
+ * garbage collected. A buffer is not safe for use by several threads
+ * while it is being written.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class DirectBitBuffer implements BitSequence {
+
+	/** Default segment size in bytes: 64 MB. */
+	public static final int DEFAULT_SEGMENT_BYTES = 1 << 26;
+
+	/** The segments, of which the first segmentCount are allocated. */
+	private ByteBuffer[] segments = new ByteBuffer[4];
+
+	/** Number of segments allocated. */
+	private int segmentCount;
+
+	/** Size of each segment in bytes. */
+	private final int segmentBytes;
+
+	/** log2 of the number of words in a segment. */
+	private final int wordShift;
+
+	/** Number of full words stored in the segments. */
+	private long full;
+
+	/** Pending bits, left aligned; bits below the pending ones are zero. */
+	private long acc;
+
+	/** Number of pending bits in acc, 0 to 63. */
+	private int accBits;
+
+	/**
+	 * Creates an empty buffer with the default segment size.
+	 */
+	public DirectBitBuffer() {
+		this(DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * Creates an empty buffer with a given segment size.
+	 * @param segmentBytes - the segment size in bytes, a power of two of at least 8
+	 * @throws IllegalArgumentException if segmentBytes is not a power of two of at least 8
+	 */
+	public DirectBitBuffer(int segmentBytes) throws IllegalArgumentException {
+		if(segmentBytes < 8 || Integer.bitCount(segmentBytes) != 1) {
+			throw new IllegalArgumentException("Segment size must be a power of two of at least 8: " + segmentBytes);
+		}
+		this.segmentBytes = segmentBytes;
+		this.wordShift = Integer.numberOfTrailingZeros(segmentBytes) - 3;
+	}
+
+	/**
+	 * Returns the number of bits in the buffer.
+	 * @return the number of bits
+	 */
+	@Override
+	public long bitLength() {
+		return 64 * full + accBits;
+	}
+
+	/**
+	 * Appends the low-order <code>count</code> bits of <code>bits</code>,
+	 * most significant of those bits first.
+	 * @param bits - the bits to append, right aligned
+	 * @param count - the number of bits, 0 to 64
+	 */
+	public void write(long bits, int count) {
+		if(count < 64) {
+			bits &= (1L << count) - 1;
+		}
+		put(bits, count);
+	}
+
+	/**
+	 * Appends a sequence of bits.
+	 * @param bits - the bits to append
+	 */
+	public void write(BitSequence bits) {
+		long length = bits.bitLength();
+		for(long i=0; i<length; i+=64) {
+			int n = (int) Math.min(64, length - i);
+			put(bits.readBits(i, n), n);
+		}
+	}
+
+	@Override
+	public long readBits(long index, int count) throws IndexOutOfBoundsException, IllegalArgumentException {
+		if(index < 0) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + bitLength());
+		}
+		if(count < 0 || count > 64) {
+			throw new IllegalArgumentException("Bit count out of range: " + count);
+		}
+		if(count == 0 || index >= bitLength()) {
+			return 0L;
+		}
+		long word = index >>> 6;
+		int offset = (int) index & 63;
+		long bits = word(word) << offset;
+		if(offset != 0 && offset + count > 64 && word < full) {
+			bits |= word(word + 1) >>> (64 - offset);
+		}
+		return bits >>> (64 - count);
+	}
+
+	/**
+	 * Returns the bit at a position as an int.
+	 * @param index - the position of the bit
+	 * @return 0 or 1
+	 * @throws IndexOutOfBoundsException if index is negative or not less than bitLength()
+	 */
+	public int intAt(long index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return (int) (word(index >>> 6) >>> (63 - (index & 63))) & 1;
+	}
+
+	/**
+	 * Sets the bit at a position.
+	 * @param index - the position of the bit
+	 * @param b - the new value of the bit
+	 * @throws IndexOutOfBoundsException if index is negative or not less than bitLength()
+	 */
+	public void setBitAt(long index, boolean b) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		long word = index >>> 6;
+		long mask = 1L << (63 - (index & 63));
+		if(word == full) {
+			acc = b ? acc | mask : acc & ~mask;
+		} else {
+			ByteBuffer segment = segments[(int) (word >>> wordShift)];
+			int at = offsetOf(word);
+			long value = segment.getLong(at);
+			segment.putLong(at, b ? value | mask : value & ~mask);
+		}
+	}
+
+	/**
+	 * Writes the bits to a channel as bytes, most significant bit first,
+	 * with the final partial byte padded with zeros.
+	 * @param out - the channel to write to, in blocking mode
+	 * @return the number of bytes written
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long writeTo(WritableByteChannel out) throws IOException {
+		long bytes = (bitLength() + 7) >>> 3;
+		long stored = 8 * full;
+		for(int s=0; s<segmentCount && stored>0; s++) {
+			ByteBuffer view = segments[s].duplicate();
+			view.clear().limit((int) Math.min(segmentBytes, stored));
+			stored -= writeFully(view, out);
+		}
+		long left = bytes - 8 * full;
+		if(left > 0) {
+			ByteBuffer tail = ByteBuffer.allocate(8).putLong(acc);
+			tail.flip().limit((int) left);
+			writeFully(tail, out);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Appends bits whose bits above <code>count</code> are already zero.
+	 * @param bits - the bits to append, right aligned
+	 * @param count - the number of bits, 0 to 64
+	 */
+	void put(long bits, int count) {
+		int free = 64 - accBits;
+		if(count < free) {
+			acc |= bits << (free - count);
+			accBits += count;
+			return;
+		}
+		int over = count - free;
+		acc |= bits >>> over;
+		store(acc);
+		acc = over == 0 ? 0 : bits << (64 - over);
+		accBits = over;
+	}
+
+	/**
+	 * Private helper that stores a full word after the last one, adding a
+	 * segment when the current one is full.
+	 * @param value - the word
+	 */
+	private void store(long value) {
+		int segment = (int) (full >>> wordShift);
+		if(segment == segmentCount) {
+			if(segmentCount == segments.length) {
+				segments = Arrays.copyOf(segments, segmentCount * 2);
+			}
+			segments[segmentCount++] = ByteBuffer.allocateDirect(segmentBytes);
+		}
+		segments[segment].putLong(offsetOf(full), value);
+		full++;
+	}
+
+	/**
+	 * Private helper that returns a word, stored or pending.
+	 * @param word - the index of the word, at most the number of full words
+	 * @return the word
+	 */
+	private long word(long word) {
+		if(word == full) {
+			return acc;
+		}
+		return segments[(int) (word >>> wordShift)].getLong(offsetOf(word));
+	}
+
+	/**
+	 * Private helper that returns the byte offset of a word in its segment.
+	 * @param word - the index of the word
+	 * @return the byte offset
+	 */
+	private int offsetOf(long word) {
+		return (int) (word & ((1L << wordShift) - 1)) << 3;
+	}
+
+	/**
+	 * Private helper that verifies that an index addresses an existing bit.
+	 * @param index - the index to check
+	 * @throws IndexOutOfBoundsException if index is negative or not less than bitLength()
+	 */
+	private void checkIndex(long index) throws IndexOutOfBoundsException {
+		if(index < 0 || index >= bitLength()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + bitLength());
+		}
+	}
+
+	/**
+	 * Private helper that writes all of a buffer to a channel.
+	 * @param buffer - the bytes to write
+	 * @param out - the channel
+	 * @return the number of bytes written
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static long writeFully(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+		long n = buffer.remaining();
+		while(buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		return n;
+	}
+}
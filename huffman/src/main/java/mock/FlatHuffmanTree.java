@@ -0,0 +1,450 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Huffman tree stored in parallel primitive arrays instead of linked
+ * node objects.
+ * <p>
+ * Node <code>i</code> has children <code>left[i]</code> and
+ * <code>right[i]</code> (-1 if missing), parent <code>parent[i]</code>
+ * (-1 for the root), symbol <code>symbol[i]</code> (-1 for internal nodes)
+ * and weight <code>weight[i]</code>. The root is node 0 and nodes are
+ * numbered in preorder, so a left child always directly follows its parent
+ * and a walk down the tree touches nearby array slots. A left branch is a
+ * 0 bit and a right branch is a 1 bit.
+ * </p>
+ * <p>
+ * A tree for a single symbol has an internal root with the symbol as its
+ * left child, so the symbol has the code 0 as in
+ * {@link HuffmanCode#createHuffmanCode(Map)}.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class FlatHuffmanTree {
+
+	/** Left child of each node; -1 if none. */
+	private final int[] left;
+
+	/** Right child of each node; -1 if none. */
+	private final int[] right;
+
+	/** Parent of each node; -1 for the root. */
+	private final int[] parent;
+
+	/** Symbol of each leaf; -1 for internal nodes. */
+	private final int[] symbol;
+
+	/** Weight of each node; an internal node weighs as much as its children. */
+	private final long[] weight;
+
+	/** Depth of each node; the root has depth 0. */
+	private final int[] depth;
+
+	/** Leaf node of each symbol, indexed by symbol; -1 if the symbol has no code. */
+	private final int[] leafOf;
+
+	/** Number of nodes. */
+	private final int size;
+
+	/**
+	 * Private constructor over filled arrays, which may be longer than size.
+	 * @param left - the left children
+	 * @param right - the right children
+	 * @param symbol - the leaf symbols
+	 * @param weight - the node weights
+	 * @param size - the number of nodes
+	 */
+	private FlatHuffmanTree(int[] left, int[] right, int[] symbol, long[] weight, int size) {
+		this.size = size;
+		this.left = Arrays.copyOf(left, size);
+		this.right = Arrays.copyOf(right, size);
+		this.symbol = Arrays.copyOf(symbol, size);
+		this.weight = Arrays.copyOf(weight, size);
+		this.parent = new int[size];
+		this.depth = new int[size];
+		Arrays.fill(parent, -1);
+		int maxSymbol = -1;
+		for(int i=0; i<size; i++) {
+			if(this.left[i] >= 0) {
+				parent[this.left[i]] = i;
+			}
+			if(this.right[i] >= 0) {
+				parent[this.right[i]] = i;
+			}
+			maxSymbol = Math.max(maxSymbol, this.symbol[i]);
+		}
+		this.leafOf = new int[maxSymbol + 1];
+		Arrays.fill(leafOf, -1);
+		for(int i=0; i<size; i++) {
+			if(this.symbol[i] < 0) {
+				this.weight[i] = 0;
+			}
+		}
+		for(int i=0; i<size; i++) {
+			if(parent[i] >= 0) {
+				depth[i] = depth[parent[i]] + 1;
+			}
+			if(this.symbol[i] >= 0) {
+				leafOf[this.symbol[i]] = i;
+			}
+		}
+		for(int i=size-1; i>0; i--) {
+			this.weight[parent[i]] += this.weight[i];
+		}
+	}
+
+	/**
+	 * Builds a flat tree holding the canonical Huffman code of a frequency
+	 * table, with each leaf weighted by its rounded frequency.
+	 * @param table - the symbol frequency table
+	 * @return the tree
+	 * @throws IllegalArgumentException if the table is empty
+	 */
+	public static FlatHuffmanTree create(Map<Character,Double> table) throws IllegalArgumentException {
+		if(table.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+		Map<Character,Long> weights = new HashMap<Character,Long>();
+		for(Map.Entry<Character,Double> entry : table.entrySet()) {
+			weights.put(entry.getKey(), Math.round(entry.getValue()));
+		}
+		return build(HuffmanCode.createHuffmanCode(table), weights);
+	}
+
+	/**
+	 * Builds a flat tree from the codes of a prefix code; every node has
+	 * weight 0.
+	 * @param huffmanCode - the Huffman code map
+	 * @return the tree
+	 * @throws IllegalArgumentException if the code is empty, has an empty
+	 * code or is not prefix-free
+	 */
+	public static FlatHuffmanTree fromCode(Map<Character,StringOfBits> huffmanCode)
+			throws IllegalArgumentException {
+		return build(huffmanCode, new HashMap<Character,Long>());
+	}
+
+	/**
+	 * Copies a linked HuffmanTree into a flat tree. Leaf weights are the
+	 * rounded leaf frequencies; a missing frequency counts as 0.
+	 * @param ht - the Huffman tree; every leaf must hold a symbol
+	 * @return the tree
+	 * @throws IllegalArgumentException if a leaf has no symbol
+	 */
+	public static FlatHuffmanTree fromHuffmanTree(HuffmanTree ht) throws IllegalArgumentException {
+		int capacity = 16;
+		int[] left = new int[capacity];
+		int[] right = new int[capacity];
+		int[] symbol = new int[capacity];
+		long[] weight = new long[capacity];
+		int size = 0;
+		boolean singleLeaf = ht.getLeftChild() == null && ht.getRightChild() == null;
+		if(singleLeaf) {
+			left[0] = 1;
+			right[0] = -1;
+			symbol[0] = -1;
+			size = 1;
+		}
+		HuffmanTree[] stack = new HuffmanTree[capacity];
+		int[] slots = new int[capacity];
+		int top = 0;
+		stack[top] = ht;
+		slots[top++] = -1;
+		while(top > 0) {
+			HuffmanTree node = stack[--top];
+			int parentSlot = slots[top];
+			if(size == left.length) {
+				left = Arrays.copyOf(left, size * 2);
+				right = Arrays.copyOf(right, size * 2);
+				symbol = Arrays.copyOf(symbol, size * 2);
+				weight = Arrays.copyOf(weight, size * 2);
+			}
+			int index = size++;
+			if(parentSlot >= 0) {
+				if((parentSlot & 1) == 0) {
+					left[parentSlot >> 1] = index;
+				} else {
+					right[parentSlot >> 1] = index;
+				}
+			}
+			left[index] = -1;
+			right[index] = -1;
+			if(node.getLeftChild() == null && node.getRightChild() == null) {
+				if(node.getSymbol() == null) {
+					throw new IllegalArgumentException("Leaf without a symbol");
+				}
+				symbol[index] = node.getSymbol();
+				weight[index] = node.getFrequency() == null ? 0 : Math.round(node.getFrequency());
+				continue;
+			}
+			symbol[index] = -1;
+			if(top + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				slots = Arrays.copyOf(slots, slots.length * 2);
+			}
+			if(node.getRightChild() != null) {
+				stack[top] = node.getRightChild();
+				slots[top++] = index << 1 | 1;
+			}
+			if(node.getLeftChild() != null) {
+				stack[top] = node.getLeftChild();
+				slots[top++] = index << 1;
+			}
+		}
+		return new FlatHuffmanTree(left, right, symbol, weight, size);
+	}
+
+	/**
+	 * Copies this tree into a linked HuffmanTree. Leaves hold their symbol,
+	 * weight and code; internal nodes hold only their weight.
+	 * @return the Huffman tree
+	 */
+	public HuffmanTree toHuffmanTree() {
+		HuffmanTree[] nodes = new HuffmanTree[size];
+		for(int i=size-1; i>=0; i--) {
+			if(symbol[i] >= 0) {
+				nodes[i] = new HuffmanTree((char) symbol[i], (double) weight[i], codeOf(i));
+			} else {
+				nodes[i] = new HuffmanTree((double) weight[i], left[i] < 0 ? null : nodes[left[i]],
+						right[i] < 0 ? null : nodes[right[i]]);
+			}
+		}
+		return nodes[0];
+	}
+
+	/**
+	 * Encodes a string by walking from each symbol's leaf up to the root.
+	 * @param message - the string to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public StringOfBits encode(String message) throws IllegalArgumentException {
+		StringOfBits bits = new StringOfBits();
+		long[] path = new long[1];
+		for(int i=0; i<message.length(); i++) {
+			char c = message.charAt(i);
+			int leaf = c < leafOf.length ? leafOf[c] : -1;
+			if(leaf < 0) {
+				throw new IllegalArgumentException("No code for character " + (int) c);
+			}
+			int length = depth[leaf];
+			if(length > 64 * path.length) {
+				path = new long[(length + 63) / 64];
+			}
+			Arrays.fill(path, 0, (length + 63) / 64, 0L);
+			for(int node=leaf, d=length-1; d>=0; node=parent[node], d--) {
+				if(right[parent[node]] == node) {
+					path[d >>> 6] |= 1L << (63 - (d & 63));
+				}
+			}
+			for(int d=0; d<length; d+=64) {
+				int n = Math.min(64, length - d);
+				bits.appendBits(path[d >>> 6] >>> (64 - n), n);
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Decodes bits by walking down the arrays from the root.
+	 * @param bits - the encoded bits
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the bits do not follow a path to a
+	 * leaf or end in the middle of a code
+	 */
+	public String decode(StringOfBits bits) throws IllegalArgumentException {
+		StringBuilder message = new StringBuilder();
+		int node = 0;
+		int length = bits.length();
+		for(int i=0; i<length; i+=64) {
+			int n = Math.min(64, length - i);
+			long word = bits.readBits(i, n) << (64 - n);
+			for(int b=0; b<n; b++, word<<=1) {
+				node = word < 0 ? right[node] : left[node];
+				if(node < 0) {
+					throw new IllegalArgumentException("Invalid code at bit " + (i + b));
+				}
+				if(symbol[node] >= 0) {
+					message.append((char) symbol[node]);
+					node = 0;
+				}
+			}
+		}
+		if(node != 0) {
+			throw new IllegalArgumentException("Truncated code at end of input");
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Returns the code of each symbol, read off the paths to the leaves.
+	 * @return the Huffman code map
+	 */
+	public Map<Character,StringOfBits> toCode() {
+		Map<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		for(int i=0; i<size; i++) {
+			if(symbol[i] >= 0) {
+				code.put((char) symbol[i], codeOf(i));
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the left child of a node.
+	 * @param node - the node
+	 * @return the left child; -1 if none
+	 */
+	public int left(int node) {
+		return left[node];
+	}
+
+	/**
+	 * Returns the right child of a node.
+	 * @param node - the node
+	 * @return the right child; -1 if none
+	 */
+	public int right(int node) {
+		return right[node];
+	}
+
+	/**
+	 * Returns the parent of a node.
+	 * @param node - the node
+	 * @return the parent; -1 for the root
+	 */
+	public int parent(int node) {
+		return parent[node];
+	}
+
+	/**
+	 * Returns the symbol of a node.
+	 * @param node - the node
+	 * @return the symbol; -1 for an internal node
+	 */
+	public int symbol(int node) {
+		return symbol[node];
+	}
+
+	/**
+	 * Returns the weight of a node.
+	 * @param node - the node
+	 * @return the weight
+	 */
+	public long weight(int node) {
+		return weight[node];
+	}
+
+	/**
+	 * Private helper that reads the code of a node off its path from the root.
+	 * @param node - the node
+	 * @return the code
+	 */
+	private StringOfBits codeOf(int node) {
+		StringOfBits code = new StringOfBits();
+		for(int d=depth[node]; d>0; d--) {
+			code.append(0);
+		}
+		for(int d=depth[node]-1; d>=0; d--, node=parent[node]) {
+			if(right[parent[node]] == node) {
+				code.setBitAt(d, 1);
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Private helper that builds a tree from codes by inserting each code as
+	 * a path, then renumbers the nodes in preorder.
+	 * @param huffmanCode - the Huffman code map
+	 * @param weights - the weight of each symbol; missing symbols weigh 0
+	 * @return the tree
+	 * @throws IllegalArgumentException if the code is empty, has an empty
+	 * code or is not prefix-free
+	 */
+	private static FlatHuffmanTree build(Map<Character,StringOfBits> huffmanCode, Map<Character,Long> weights)
+			throws IllegalArgumentException {
+		if(huffmanCode.isEmpty()) {
+			throw new IllegalArgumentException("Empty code");
+		}
+		int capacity = 2 * huffmanCode.size();
+		int[][] children = {new int[capacity], new int[capacity]};
+		int[] symbol = new int[capacity];
+		long[] weight = new long[capacity];
+		children[0][0] = -1;
+		children[1][0] = -1;
+		symbol[0] = -1;
+		int size = 1;
+		for(Map.Entry<Character,StringOfBits> entry : huffmanCode.entrySet()) {
+			StringOfBits code = entry.getValue();
+			if(code.length() == 0) {
+				throw new IllegalArgumentException("Empty code for " + entry.getKey());
+			}
+			int node = 0;
+			for(int i=0; i<code.length(); i++) {
+				if(symbol[node] >= 0) {
+					throw new IllegalArgumentException("Code is not prefix-free");
+				}
+				int bit = code.intAt(i);
+				int next = children[bit][node];
+				if(next < 0) {
+					if(size == symbol.length) {
+						children[0] = Arrays.copyOf(children[0], size * 2);
+						children[1] = Arrays.copyOf(children[1], size * 2);
+						symbol = Arrays.copyOf(symbol, size * 2);
+						weight = Arrays.copyOf(weight, size * 2);
+					}
+					next = size++;
+					children[0][next] = -1;
+					children[1][next] = -1;
+					symbol[next] = -1;
+					children[bit][node] = next;
+				}
+				node = next;
+			}
+			if(symbol[node] >= 0 || children[0][node] >= 0 || children[1][node] >= 0) {
+				throw new IllegalArgumentException("Code is not prefix-free");
+			}
+			symbol[node] = entry.getKey();
+			Long w = weights.get(entry.getKey());
+			weight[node] = w == null ? 0 : w;
+		}
+		int[] order = new int[size];
+		int[] stack = new int[size];
+		int top = 0;
+		int count = 0;
+		stack[top++] = 0;
+		while(top > 0) {
+			int node = stack[--top];
+			order[node] = count++;
+			if(children[1][node] >= 0) {
+				stack[top++] = children[1][node];
+			}
+			if(children[0][node] >= 0) {
+				stack[top++] = children[0][node];
+			}
+		}
+		int[] left = new int[size];
+		int[] right = new int[size];
+		int[] flatSymbol = new int[size];
+		long[] flatWeight = new long[size];
+		for(int node=0; node<size; node++) {
+			int index = order[node];
+			left[index] = children[0][node] < 0 ? -1 : order[children[0][node]];
+			right[index] = children[1][node] < 0 ? -1 : order[children[1][node]];
+			flatSymbol[index] = symbol[node];
+			flatWeight[index] = weight[node];
+		}
+		return new FlatHuffmanTree(left, right, flatSymbol, flatWeight, size);
+	}
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Counts symbol frequencies in primitive tables.
+ * <p>
+ * Characters are counted in a dense table indexed by the character, which
+ * starts with room for the 256 Latin-1 characters and grows to the whole
+ * Basic Multilingual Plane the first time a larger character is seen. Code
+ * points above the BMP, which are only counted by
+ * {@link #addCodePoints(CharSequence)}, go to a small open-addressing
+ * overflow table.
+ * </p>
+ * <p>
+ * The dense table is kept as four interleaved sub-histograms, and
+ * consecutive characters are counted in different ones, so a run of the
+ * same character does not make each increment wait for the store of the
+ * one before it. The sub-histograms are summed when counts are read.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class FrequencyCounter {
+
+	/** Strings at least this long are counted in parallel by {@link #count(CharSequence)}. */
+	static final int PARALLEL_THRESHOLD = 1 << 20;
+
+	/** Number of characters counted by each parallel task. */
+	static final int PARALLEL_CHUNK = 1 << 18;
+
+	/** Initial size of the dense table. */
+	private static final int LATIN1 = 256;
+
+	/** Size of the dense table once it has grown. */
+	private static final int BMP = 1 << 16;
+
+	/** Number of interleaved sub-histograms. */
+	private static final int LANES = 4;
+
+	/** The dense sub-histograms, all of the same length. */
+	private long[][] lanes = new long[LANES][LATIN1];
+
+	/** Overflow code points; 0 marks a free slot. */
+	private int[] overflowKeys;
+
+	/** Counts of the overflow code points. */
+	private long[] overflowCounts;
+
+	/** Number of overflow code points. */
+	private int overflowSize;
+
+	/**
+	 * Counts the characters of a string, in parallel when the string is long.
+	 * @param text - the string to count
+	 * @return the counter holding the character frequencies
+	 */
+	public static FrequencyCounter count(final CharSequence text) {
+		if(text.length() < PARALLEL_THRESHOLD) {
+			return new FrequencyCounter().add(text);
+		}
+		final int length = text.length();
+		int chunks = (length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+		return IntStream.range(0, chunks).parallel().collect(FrequencyCounter::new,
+				(counter, chunk) -> counter.add(text, chunk * PARALLEL_CHUNK,
+						Math.min(length, (chunk + 1) * PARALLEL_CHUNK)),
+				FrequencyCounter::merge);
+	}
+
+	/**
+	 * Counts one character.
+	 * @param c - the character
+	 * @return this counter
+	 */
+	public FrequencyCounter add(char c) {
+		if(c >= lanes[0].length) {
+			grow();
+		}
+		lanes[0][c]++;
+		return this;
+	}
+
+	/**
+	 * Counts every character of a string.
+	 * @param text - the string
+	 * @return this counter
+	 */
+	public FrequencyCounter add(CharSequence text) {
+		return add(text, 0, text.length());
+	}
+
+	/**
+	 * Counts the characters of part of a string.
+	 * @param text - the string
+	 * @param from - the index of the first character
+	 * @param to - the index just past the last character
+	 * @return this counter
+	 * @throws IndexOutOfBoundsException if the range is not within the string
+	 */
+	public FrequencyCounter add(CharSequence text, int from, int to) {
+		if(from < 0 || to > text.length() || from > to) {
+			throw new IndexOutOfBoundsException();
+		}
+		long[] t0 = lanes[0];
+		long[] t1 = lanes[1];
+		long[] t2 = lanes[2];
+		long[] t3 = lanes[3];
+		int limit = t0.length;
+		int i = from;
+		for(; i + 4 <= to; i += 4) {
+			char c0 = text.charAt(i);
+			char c1 = text.charAt(i + 1);
+			char c2 = text.charAt(i + 2);
+			char c3 = text.charAt(i + 3);
+			if((c0 | c1 | c2 | c3) >= limit) {
+				grow();
+				t0 = lanes[0];
+				t1 = lanes[1];
+				t2 = lanes[2];
+				t3 = lanes[3];
+				limit = t0.length;
+			}
+			t0[c0]++;
+			t1[c1]++;
+			t2[c2]++;
+			t3[c3]++;
+		}
+		for(; i<to; i++) {
+			add(text.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Counts the code points of a string. Characters of the BMP, including
+	 * unpaired surrogates, are counted as by {@link #add(CharSequence)};
+	 * supplementary code points are counted as single symbols.
+	 * @param text - the string
+	 * @return this counter
+	 */
+	public FrequencyCounter addCodePoints(CharSequence text) {
+		int length = text.length();
+		int start = 0;
+		for(int i=0; i<length; i++) {
+			if(Character.isHighSurrogate(text.charAt(i)) && i + 1 < length
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				add(text, start, i);
+				addOverflow(Character.toCodePoint(text.charAt(i), text.charAt(i + 1)), 1);
+				i++;
+				start = i + 1;
+			}
+		}
+		return add(text, start, length);
+	}
+
+	/**
+	 * Adds the counts of another counter to this one.
+	 * @param other - the counter to add
+	 * @return this counter
+	 */
+	public FrequencyCounter merge(FrequencyCounter other) {
+		if(other.lanes[0].length > lanes[0].length) {
+			grow();
+		}
+		for(int lane=0; lane<LANES; lane++) {
+			long[] source = other.lanes[lane];
+			long[] target = lanes[0];
+			for(int c=0; c<source.length; c++) {
+				target[c] += source[c];
+			}
+		}
+		if(other.overflowKeys != null) {
+			for(int i=0; i<other.overflowKeys.length; i++) {
+				if(other.overflowKeys[i] != 0) {
+					addOverflow(other.overflowKeys[i], other.overflowCounts[i]);
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the count of a symbol.
+	 * @param symbol - a character or code point
+	 * @return the number of times the symbol was counted
+	 */
+	public long count(int symbol) {
+		if(symbol < 0) {
+			return 0;
+		}
+		if(symbol < lanes[0].length) {
+			return lanes[0][symbol] + lanes[1][symbol] + lanes[2][symbol] + lanes[3][symbol];
+		}
+		if(symbol < BMP || overflowKeys == null) {
+			return 0;
+		}
+		int slot = slot(overflowKeys, symbol);
+		return overflowKeys[slot] == symbol ? overflowCounts[slot] : 0;
+	}
+
+	/**
+	 * Returns the total number of symbols counted.
+	 * @return the total count
+	 */
+	public long total() {
+		long total = 0;
+		for(long[] lane : lanes) {
+			for(long n : lane) {
+				total += n;
+			}
+		}
+		if(overflowKeys != null) {
+			for(long n : overflowCounts) {
+				total += n;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the symbols with a nonzero count in increasing order.
+	 * @return the symbols that were counted
+	 */
+	public int[] symbols() {
+		int dense = lanes[0].length;
+		int[] symbols = new int[dense + overflowSize];
+		int n = 0;
+		for(int c=0; c<dense; c++) {
+			if(lanes[0][c] + lanes[1][c] + lanes[2][c] + lanes[3][c] != 0) {
+				symbols[n++] = c;
+			}
+		}
+		int first = n;
+		if(overflowKeys != null) {
+			for(int key : overflowKeys) {
+				if(key != 0) {
+					symbols[n++] = key;
+				}
+			}
+		}
+		Arrays.sort(symbols, first, n);
+		return Arrays.copyOf(symbols, n);
+	}
+
+	/**
+	 * Returns the counts as a frequency table for
+	 * {@link HuffmanCode#createHuffmanCode(Map)}.
+	 * @return the frequency of every counted character
+	 * @throws IllegalArgumentException if a supplementary code point was counted
+	 */
+	public Map<Character,Double> toTable() throws IllegalArgumentException {
+		if(overflowSize > 0) {
+			throw new IllegalArgumentException("Code points above the BMP are not characters");
+		}
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		for(int c=0; c<lanes[0].length; c++) {
+			long n = lanes[0][c] + lanes[1][c] + lanes[2][c] + lanes[3][c];
+			if(n != 0) {
+				table.put((char) c, (double) n);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Private helper that grows the dense sub-histograms to cover the BMP.
+	 */
+	private void grow() {
+		for(int lane=0; lane<LANES; lane++) {
+			lanes[lane] = Arrays.copyOf(lanes[lane], BMP);
+		}
+	}
+
+	/**
+	 * Private helper that adds to the count of a supplementary code point.
+	 * @param codePoint - the code point, above the BMP
+	 * @param n - the amount to add
+	 */
+	private void addOverflow(int codePoint, long n) {
+		if(overflowKeys == null) {
+			overflowKeys = new int[16];
+			overflowCounts = new long[16];
+		} else if(2 * (overflowSize + 1) > overflowKeys.length) {
+			int[] keys = overflowKeys;
+			long[] counts = overflowCounts;
+			overflowKeys = new int[keys.length * 2];
+			overflowCounts = new long[keys.length * 2];
+			for(int i=0; i<keys.length; i++) {
+				if(keys[i] != 0) {
+					int slot = slot(overflowKeys, keys[i]);
+					overflowKeys[slot] = keys[i];
+					overflowCounts[slot] = counts[i];
+				}
+			}
+		}
+		int slot = slot(overflowKeys, codePoint);
+		if(overflowKeys[slot] == 0) {
+			overflowKeys[slot] = codePoint;
+			overflowSize++;
+		}
+		overflowCounts[slot] += n;
+	}
+
+	/**
+	 * Private helper that finds the slot of a code point, or the free slot
+	 * where it belongs, by linear probing.
+	 * @param keys - the overflow keys, with a power of two length and a free slot
+	 * @param codePoint - the code point
+	 * @return the slot index
+	 */
+	private static int slot(int[] keys, int codePoint) {
+		int mask = keys.length - 1;
+		int hash = codePoint * 0x9E3779B9;
+		int slot = (hash ^ hash >>> 16) & mask;
+		while(keys[slot] != 0 && keys[slot] != codePoint) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+}
@@ -0,0 +1,211 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+import java.util.Map;
+
+/**
+ * Decodes data in the format written by {@link HuffmanOutputStream} or
+ * {@link HuffmanBufferEncoder} from one {@link ByteBuffer} into another.
+ * <p>
+ * The decoder works like a {@link java.nio.charset.CharsetDecoder}: call
+ * {@link #decode(ByteBuffer, ByteBuffer, boolean)} with each chunk of
+ * input, passing <code>true</code> for <code>endOfInput</code> once the
+ * buffer holds the rest of the data. Until then the last 9 bytes of the
+ * input are left unread, because they may be the padded final byte and
+ * the bit-length trailer; compact the buffer and add more input before
+ * calling again. Empty the output buffer whenever the result is
+ * {@link CoderResult#OVERFLOW}. Buffers may be heap or direct.
+ * </p>
+ * <p>
+ * Corrupt data gives a malformed result. The decoder then stays in error
+ * until it is reset, and {@link #error()} describes the problem. A decoder
+ * is not safe for use by several threads.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanBufferDecoder {
+
+	/** Size of the bit-length trailer. */
+	private static final int TRAILER_SIZE = HuffmanOutputStream.TRAILER_SIZE;
+
+	/** The compiled decoder. */
+	private final HuffmanDecoder decoder;
+
+	/** Bits waiting to be decoded, left aligned. */
+	private long window;
+
+	/** Number of valid bits in the window. */
+	private int windowBits;
+
+	/** Number of bits decoded so far. */
+	private long bitsRead;
+
+	/** The link entry reached by an unfinished code; 0 if at a code boundary. */
+	private long link;
+
+	/** Bit position where the unfinished code started. */
+	private long codeStart;
+
+	/** A second decoded symbol waiting to be written; -1 if none. */
+	private int pending = -1;
+
+	/** Whether the whole stream has been decoded. */
+	private boolean done;
+
+	/** The reason the data was rejected; null if it has not been. */
+	private String error;
+
+	/**
+	 * Creates a decoder for the given codebook.
+	 * @param huffmanCode - the Huffman code map used to encode the data
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not
+	 * a byte value or is not prefix-free
+	 */
+	public HuffmanBufferDecoder(Map<Character,StringOfBits> huffmanCode) throws IllegalArgumentException {
+		for(Character c : huffmanCode.keySet()) {
+			if(c > 255) {
+				throw new IllegalArgumentException("Symbol is not a byte value: " + (int) c);
+			}
+		}
+		this.decoder = new HuffmanDecoder(huffmanCode);
+	}
+
+	/**
+	 * Decodes as many bytes as possible from <code>src</code> into
+	 * <code>dst</code>.
+	 * @param src - the encoded bytes
+	 * @param dst - the buffer the decoded bytes are written to
+	 * @param endOfInput - true if src holds all of the remaining data,
+	 * including the trailer
+	 * @return {@link CoderResult#UNDERFLOW} if more input is needed or, at
+	 * the end of input, the stream is fully decoded and src is consumed;
+	 * {@link CoderResult#OVERFLOW} if dst is full; or a malformed result if
+	 * the data is corrupt
+	 */
+	public CoderResult decode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+		if(error != null) {
+			return CoderResult.malformedForLength(1);
+		}
+		if(done) {
+			return CoderResult.UNDERFLOW;
+		}
+		int limit = src.limit();
+		int dataLimit = limit - TRAILER_SIZE - (endOfInput ? 0 : 1);
+		long totalBits = -1;
+		if(endOfInput) {
+			if(src.remaining() < TRAILER_SIZE) {
+				return malformed("Missing bit-length trailer");
+			}
+			totalBits = 0;
+			for(int i=limit-TRAILER_SIZE; i<limit; i++) {
+				totalBits = (totalBits << 8) | (src.get(i) & 0xFF);
+			}
+			long dataBits = bitsRead + windowBits + 8L * (dataLimit - src.position());
+			if(totalBits < 0 || totalBits > dataBits || totalBits <= dataBits - 8) {
+				return malformed("Bit-length trailer does not match data");
+			}
+		}
+		while(true) {
+			if(pending >= 0) {
+				if(!dst.hasRemaining()) {
+					return CoderResult.OVERFLOW;
+				}
+				dst.put((byte) pending);
+				pending = -1;
+			}
+			while(windowBits <= 56 && src.position() < dataLimit) {
+				window |= (src.get() & 0xFFL) << (56 - windowBits);
+				windowBits += 8;
+			}
+			long available = totalBits >= 0 ? Math.min(windowBits, totalBits - bitsRead) : windowBits;
+			if(link == 0) {
+				if(totalBits >= 0 && bitsRead == totalBits) {
+					src.position(limit);
+					done = true;
+					return CoderResult.UNDERFLOW;
+				}
+				if(!dst.hasRemaining()) {
+					return CoderResult.OVERFLOW;
+				}
+				codeStart = bitsRead;
+			}
+			int width = link == 0 ? decoder.rootBits() : HuffmanDecoder.linkBits(link);
+			long entry = decoder.entry((link == 0 ? 0 : HuffmanDecoder.linkOffset(link))
+					+ (int) (window >>> (64 - width)));
+			int count = HuffmanDecoder.count(entry);
+			int length;
+			if(count == HuffmanDecoder.LINK) {
+				length = width;
+			} else if(count == 0) {
+				// Bits past the window are zero; only a full window proves the code invalid.
+				if(width > available && totalBits < 0) {
+					return CoderResult.UNDERFLOW;
+				}
+				return malformed("Invalid code at bit " + codeStart);
+			} else if(HuffmanDecoder.consumed(entry) <= available) {
+				length = HuffmanDecoder.consumed(entry);
+			} else {
+				count = 1;
+				length = HuffmanDecoder.firstLength(entry);
+			}
+			if(length > available) {
+				if(totalBits >= 0) {
+					return malformed("Truncated code at bit " + codeStart);
+				}
+				return CoderResult.UNDERFLOW;
+			}
+			window <<= length;
+			windowBits -= length;
+			bitsRead += length;
+			if(count == HuffmanDecoder.LINK) {
+				link = entry;
+				continue;
+			}
+			link = 0;
+			dst.put((byte) HuffmanDecoder.symbol(entry, 0));
+			if(count == 2) {
+				pending = HuffmanDecoder.symbol(entry, 1);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the whole stream, up to its trailer, has been decoded.
+	 * @return true once decoding is complete
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Returns why the data was rejected.
+	 * @return the reason; null if the data has not been rejected
+	 */
+	public String error() {
+		return error;
+	}
+
+	/**
+	 * Discards all state so that the decoder can start a new stream.
+	 */
+	public void reset() {
+		window = 0;
+		windowBits = 0;
+		bitsRead = 0;
+		link = 0;
+		codeStart = 0;
+		pending = -1;
+		done = false;
+		error = null;
+	}
+
+	/**
+	 * Private helper that puts the decoder in error.
+	 * @param reason - the reason the data is rejected
+	 * @return a malformed result
+	 */
+	private CoderResult malformed(String reason) {
+		error = reason;
+		return CoderResult.malformedForLength(1);
+	}
+}
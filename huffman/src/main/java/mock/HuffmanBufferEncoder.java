@@ -0,0 +1,176 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+import java.util.Map;
+
+/**
+ * Huffman-encodes bytes from one {@link ByteBuffer} into another, in the
+ * format written by {@link HuffmanOutputStream}.
+ * <p>
+ * The encoder works like a {@link java.nio.charset.CharsetEncoder}: call
+ * {@link #encode(ByteBuffer, ByteBuffer)} while there is input, emptying
+ * the output buffer whenever it reports {@link CoderResult#OVERFLOW}, and
+ * then call {@link #flush(ByteBuffer)} until it reports
+ * {@link CoderResult#UNDERFLOW} to write the padding and the bit-length
+ * trailer. Buffers may be heap or direct and are read and written between
+ * their positions and limits only. Bits of an unfinished byte are kept in
+ * the encoder between calls.
+ * </p>
+ * <p>
+ * A byte is encoded only once the whole of its code fits in the output
+ * buffer, so the output buffer must have room for at least the longest
+ * code plus one byte. An encoder is not safe for use by several threads.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanBufferEncoder {
+
+	/** Longest code written with a single accumulator update. */
+	private static final int MAX_PACKED = 56;
+
+	/** Codes of at most MAX_PACKED bits, right aligned, indexed by byte. */
+	private final long[] packed = new long[256];
+
+	/** Code length for each byte; 0 if the byte has no code. */
+	private final int[] lengths = new int[256];
+
+	/** Codes longer than MAX_PACKED bits, indexed by byte; otherwise null. */
+	private final StringOfBits[] longCodes = new StringOfBits[256];
+
+	/** Pending bits, right aligned; only the low accBits bits are used. */
+	private long acc;
+
+	/** Number of pending bits in acc, always less than 8 between calls. */
+	private int accBits;
+
+	/** Total number of encoded bits. */
+	private long totalBits;
+
+	/** The padding byte and trailer, once flushing has started; otherwise null. */
+	private byte[] tail;
+
+	/** Number of bytes of tail already written. */
+	private int tailWritten;
+
+	/**
+	 * Creates an encoder for the given codebook.
+	 * @param huffmanCode - the Huffman code map; symbols must be between 0 and 255
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not a byte value
+	 */
+	public HuffmanBufferEncoder(Map<Character,StringOfBits> huffmanCode) throws IllegalArgumentException {
+		for(Map.Entry<Character,StringOfBits> entry : huffmanCode.entrySet()) {
+			int symbol = entry.getKey();
+			StringOfBits code = entry.getValue();
+			if(symbol > 255) {
+				throw new IllegalArgumentException("Symbol is not a byte value: " + symbol);
+			}
+			lengths[symbol] = code.length();
+			if(code.length() <= MAX_PACKED) {
+				packed[symbol] = code.readBits(0, code.length());
+			} else {
+				longCodes[symbol] = new StringOfBits(code);
+			}
+		}
+	}
+
+	/**
+	 * Encodes as many bytes as possible from <code>src</code> into
+	 * <code>dst</code>.
+	 * @param src - the bytes to encode
+	 * @param dst - the buffer the encoded bytes are written to
+	 * @return {@link CoderResult#UNDERFLOW} once every byte of src is
+	 * encoded, {@link CoderResult#OVERFLOW} if dst has no room for the next
+	 * code, or an unmappable result of length 1 if the next byte of src has
+	 * no code; src is then positioned at that byte
+	 * @throws IllegalStateException if the encoder is being flushed
+	 */
+	public CoderResult encode(ByteBuffer src, ByteBuffer dst) throws IllegalStateException {
+		if(tail != null) {
+			throw new IllegalStateException("Encoder is flushed; reset it first");
+		}
+		while(src.hasRemaining()) {
+			int p = src.position();
+			int symbol = src.get(p) & 0xFF;
+			int length = lengths[symbol];
+			if(length == 0) {
+				return CoderResult.unmappableForLength(1);
+			}
+			if(dst.remaining() < (accBits + length) >>> 3) {
+				return CoderResult.OVERFLOW;
+			}
+			src.position(p + 1);
+			if(length <= MAX_PACKED) {
+				writeBits(dst, packed[symbol], length);
+			} else {
+				StringOfBits code = longCodes[symbol];
+				for(int i=0; i<length; i+=32) {
+					int n = Math.min(32, length - i);
+					writeBits(dst, code.readBits(i, n), n);
+				}
+			}
+		}
+		return CoderResult.UNDERFLOW;
+	}
+
+	/**
+	 * Writes the padded final byte and the bit-length trailer. Once this
+	 * has been called, only further calls to flush or {@link #reset()} are
+	 * allowed.
+	 * @param dst - the buffer the bytes are written to
+	 * @return {@link CoderResult#UNDERFLOW} once everything is written, or
+	 * {@link CoderResult#OVERFLOW} if dst filled up first
+	 */
+	public CoderResult flush(ByteBuffer dst) {
+		if(tail == null) {
+			int pad = accBits > 0 ? 1 : 0;
+			tail = new byte[pad + HuffmanOutputStream.TRAILER_SIZE];
+			if(pad > 0) {
+				tail[0] = (byte) (acc << (8 - accBits));
+				accBits = 0;
+			}
+			for(int i=0; i<HuffmanOutputStream.TRAILER_SIZE; i++) {
+				tail[pad + i] = (byte) (totalBits >>> (56 - 8 * i));
+			}
+		}
+		int n = Math.min(dst.remaining(), tail.length - tailWritten);
+		dst.put(tail, tailWritten, n);
+		tailWritten += n;
+		return tailWritten == tail.length ? CoderResult.UNDERFLOW : CoderResult.OVERFLOW;
+	}
+
+	/**
+	 * Discards any pending bits so that the encoder can start a new stream.
+	 */
+	public void reset() {
+		acc = 0;
+		accBits = 0;
+		totalBits = 0;
+		tail = null;
+		tailWritten = 0;
+	}
+
+	/**
+	 * Returns the number of encoded bits produced since the last reset.
+	 * @return the number of encoded bits
+	 */
+	public long bitsWritten() {
+		return totalBits;
+	}
+
+	/**
+	 * Private helper that appends up to MAX_PACKED bits, writing every
+	 * whole byte to dst. The caller has checked that dst has room.
+	 * @param dst - the buffer the bytes are written to
+	 * @param bits - the bits, right aligned
+	 * @param n - the number of bits
+	 */
+	private void writeBits(ByteBuffer dst, long bits, int n) {
+		acc = (acc << n) | bits;
+		accBits += n;
+		totalBits += n;
+		while(accBits >= 8) {
+			accBits -= 8;
+			dst.put((byte) (acc >>> accBits));
+		}
+	}
+}
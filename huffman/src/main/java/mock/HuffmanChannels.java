@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CoderResult;
+import java.util.Map;
+
+/**
+ * Encodes and decodes whole channels through a {@link HuffmanBufferEncoder}
+ * or {@link HuffmanBufferDecoder}, in the format of
+ * {@link HuffmanOutputStream}.
+ * <p>
+ * Data moves through two direct buffers of {@link #BUFFER_SIZE} bytes, so
+ * nothing is copied onto the heap on the way. The channels must be in
+ * blocking mode, and neither channel is closed.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanChannels {
+
+	/** Size of each transfer buffer. */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Encodes everything read from a channel.
+	 * @param in - the channel of bytes to encode
+	 * @param out - the channel the encoded bytes are written to
+	 * @param huffmanCode - the Huffman code map; symbols must be between 0 and 255
+	 * @return the number of bytes written, including the trailer
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not
+	 * a byte value, or a byte read has no code
+	 */
+	public static long encode(ReadableByteChannel in, WritableByteChannel out,
+			Map<Character,StringOfBits> huffmanCode) throws IOException, IllegalArgumentException {
+		HuffmanBufferEncoder encoder = new HuffmanBufferEncoder(huffmanCode);
+		ByteBuffer src = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		ByteBuffer dst = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long written = 0;
+		while(in.read(src) >= 0) {
+			src.flip();
+			CoderResult result;
+			while((result = encoder.encode(src, dst)).isOverflow()) {
+				written += drain(dst, out);
+			}
+			if(result.isUnmappable()) {
+				throw new IllegalArgumentException("No code for byte " + (src.get(src.position()) & 0xFF));
+			}
+			src.compact();
+		}
+		while(encoder.flush(dst).isOverflow()) {
+			written += drain(dst, out);
+		}
+		return written + drain(dst, out);
+	}
+
+	/**
+	 * Decodes everything read from a channel.
+	 * @param in - the channel of encoded bytes
+	 * @param out - the channel the decoded bytes are written to
+	 * @param huffmanCode - the Huffman code map used to encode the data
+	 * @return the number of bytes written
+	 * @throws IOException if an I/O error occurs or the data is corrupt
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not
+	 * a byte value or is not prefix-free
+	 */
+	public static long decode(ReadableByteChannel in, WritableByteChannel out,
+			Map<Character,StringOfBits> huffmanCode) throws IOException, IllegalArgumentException {
+		HuffmanBufferDecoder decoder = new HuffmanBufferDecoder(huffmanCode);
+		ByteBuffer src = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		ByteBuffer dst = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long written = 0;
+		boolean eof = false;
+		while(!decoder.isDone()) {
+			eof = eof || in.read(src) < 0;
+			src.flip();
+			CoderResult result;
+			while((result = decoder.decode(src, dst, eof)).isOverflow()) {
+				written += drain(dst, out);
+			}
+			if(result.isMalformed()) {
+				throw new IOException(decoder.error());
+			}
+			src.compact();
+		}
+		return written + drain(dst, out);
+	}
+
+	/**
+	 * Private helper that writes out everything in a buffer and clears it.
+	 * @param buffer - the buffer, in write mode
+	 * @param out - the channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static long drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+		buffer.flip();
+		long n = buffer.remaining();
+		while(buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+		return n;
+	}
+}
@@ -0,0 +1,126 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A connection to a {@link HuffmanServer}. Each call sends one request and
+ * waits for its response. A client is not safe for use by several threads.
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanClient implements Closeable {
+
+	/** The connection. */
+	private final Socket socket;
+
+	/** Requests to the server. */
+	private final DataOutputStream out;
+
+	/** Responses from the server. */
+	private final DataInputStream in;
+
+	/**
+	 * Connects to a server on the loopback address, waiting as long as it
+	 * takes for each response.
+	 * @param port - the server's port
+	 * @throws IOException if the connection fails
+	 */
+	public HuffmanClient(int port) throws IOException {
+		this(port, 0);
+	}
+
+	/**
+	 * Connects to a server on the loopback address, giving up on a response
+	 * that takes too long.
+	 * @param port - the server's port
+	 * @param timeoutMillis - how long to wait for each response, or 0 to
+	 * wait forever
+	 * @throws IOException if the connection fails
+	 */
+	public HuffmanClient(int port, int timeoutMillis) throws IOException {
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		socket.setSoTimeout(timeoutMillis);
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+	}
+
+	/**
+	 * Asks the server to build a code from seed text and use it for this
+	 * connection.
+	 * @param seed - the seed text
+	 * @return the code the server chose
+	 * @throws IOException if an I/O error occurs or the server refuses
+	 */
+	public Map<Character,StringOfBits> negotiate(String seed) throws IOException {
+		return CodebookFormat.fromBytes(call(HuffmanServer.OP_SEED, HuffmanServer.charsToBytes(seed)));
+	}
+
+	/**
+	 * Tells the server to use a code for this connection.
+	 * @param huffmanCode - the code, as made by {@link HuffmanCode#createHuffmanCode(Map)}
+	 * @throws IOException if an I/O error occurs or the server refuses
+	 * @throws IllegalArgumentException if the code is not canonical
+	 */
+	public void useCodebook(Map<Character,StringOfBits> huffmanCode) throws IOException, IllegalArgumentException {
+		call(HuffmanServer.OP_CODEBOOK, CodebookFormat.toBytes(huffmanCode));
+	}
+
+	/**
+	 * Has the server encode text with the connection's code.
+	 * @param text - the text
+	 * @return the encoded bits
+	 * @throws IOException if an I/O error occurs or the server refuses
+	 */
+	public StringOfBits encode(String text) throws IOException {
+		return HuffmanServer.bytesToBits(call(HuffmanServer.OP_ENCODE, HuffmanServer.charsToBytes(text)));
+	}
+
+	/**
+	 * Has the server decode bits with the connection's code.
+	 * @param bits - the encoded bits
+	 * @return the text
+	 * @throws IOException if an I/O error occurs or the server refuses
+	 */
+	public String decode(StringOfBits bits) throws IOException {
+		return HuffmanServer.bytesToChars(call(HuffmanServer.OP_DECODE, HuffmanServer.bitsToBytes(bits)));
+	}
+
+	/**
+	 * Closes the connection.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	/**
+	 * Private helper that sends a request and reads its response.
+	 * @param op - the operation
+	 * @param payload - the request payload
+	 * @return the response payload
+	 * @throws IOException if an I/O error occurs or the server answers with an error
+	 */
+	private byte[] call(int op, byte[] payload) throws IOException {
+		HuffmanServer.writeFrame(out, op, payload);
+		int status = in.readUnsignedByte();
+		int length = in.readInt();
+		if(length < 0 || length > HuffmanServer.MAX_PAYLOAD) {
+			throw new IOException("Invalid response length: " + length);
+		}
+		byte[] answer = new byte[length];
+		in.readFully(answer);
+		if(status != HuffmanServer.OK) {
+			throw new IOException("Server error: " + new String(answer, StandardCharsets.UTF_8));
+		}
+		return answer;
+	}
+}
@@ -1,121 +1,406 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Random;
 
 /**
  * Utility class for creating and using Huffman codes.
+ * Codes built and encode and decode calls are reported to
+ * {@link CodecMetrics}.
  * @version Fall 2015 (1)
  * @author Trever
  */
 public class HuffmanCode {
 	
+	/** Orders symbols with their code lengths by length, then by symbol. */
+	private static final Comparator<Map.Entry<Character,Integer>> CANONICAL_ORDER =
+			new Comparator<Map.Entry<Character,Integer>>() {
+		@Override
+		public int compare(Map.Entry<Character,Integer> a, Map.Entry<Character,Integer> b) {
+			int byLength = a.getValue().compareTo(b.getValue());
+			return byLength != 0 ? byLength : a.getKey().compareTo(b.getKey());
+		}
+	};
+	
 	/**
 	 * Create a Huffman code for a given seed string
 	 * @param seed - the string from which the code is generated
 	 * @return the Huffman code as a map
 	 */
 	public static Map<Character,StringOfBits> createHuffmanCode(String seed) {
-		Map<Character,Double> map = new HashMap<Character,Double>();
-		Double temp;
-		for(int i=0; i<seed.length(); i++) {
-			if(map.containsKey(seed.charAt(i))) {
-				temp = map.get(seed.charAt(i));
-				temp++;
-				map.put(seed.charAt(i), temp);
-			} else {
-				map.put(seed.charAt(i), new Double(1));
-			}
-		}
-		return createHuffmanCode(map);	
+		return createHuffmanCode(FrequencyCounter.count(seed).toTable());
+	}
+	
+	/**
+	 * Create a Huffman code for the bytes of binary data. Each byte value
+	 * is its own symbol, and the code is held in primitive tables.
+	 * @param seed - the data from which the code is generated
+	 * @return the Huffman code for every byte value that occurs in the seed
+	 */
+	public static PrimitiveCode createHuffmanCode(byte[] seed) {
+		return PrimitiveCode.forBytes(seed);
+	}
+	
+	/**
+	 * Create a Huffman code for the code points of a seed string, so that a
+	 * supplementary character gets one code rather than one per surrogate.
+	 * @param seed - the string from which the code is generated
+	 * @return the Huffman code for every code point that occurs in the seed
+	 */
+	public static PrimitiveCode createCodePointCode(CharSequence seed) {
+		return PrimitiveCode.forCodePoints(seed);
+	}
+	
+	/**
+	 * Create a Huffman code for a given frequency table. The code is
+	 * canonical: code lengths are computed by {@link CodeLengths} on
+	 * primitive arrays, without building a tree, and codes are then assigned
+	 * in order of length and symbol, so the same table always yields the
+	 * same code.
+	 * @param table - the symbol frequency table from which the code is generated
+	 * @return the Huffman code as a map
+	 */
+	public static Map<Character,StringOfBits> createHuffmanCode(Map<Character,Double> table) {
+		return createHuffmanCode(table, Integer.MAX_VALUE);
 	}
 	
 	/**
-	 * Create a Huffman code for a given frequency table
+	 * Create a canonical Huffman code for a given frequency table in which
+	 * no code is longer than <code>maxCodeLength</code> bits. The code is
+	 * the optimal one under that limit; see {@link #lengthLimitCost} for
+	 * what the limit costs.
 	 * @param table - the symbol frequency table from which the code is generated
+	 * @param maxCodeLength - the longest code length allowed
 	 * @return the Huffman code as a map
+	 * @throws IllegalArgumentException if the table has more than 2^maxCodeLength symbols
 	 */
-	public static Map<Character,StringOfBits> createHuffmanCode(Map<Character,Double> table) {	
-		HuffmanTree ht;
-		PriorityQueue<HuffmanTree> SQ = new PriorityQueue<HuffmanTree>();
-		PriorityQueue<HuffmanTree> TQ = new PriorityQueue<HuffmanTree>();
-		for (Map.Entry<Character,Double> entry : table.entrySet()) {
-			ht = new HuffmanTree(entry.getKey(), entry.getValue(), new StringOfBits());
-			SQ.add(ht);
+	public static Map<Character,StringOfBits> createHuffmanCode(Map<Character,Double> table,
+			int maxCodeLength) throws IllegalArgumentException {
+		if(table.isEmpty()) {
+			return new HashMap<Character,StringOfBits>();
 		}
-		HuffmanTree treeA;
-		HuffmanTree treeB;
-		HuffmanTree treeP;
-		HuffmanTree resultTree;	
-		while(!SQ.isEmpty()){
-			if(SQ.size() > 1) {
-				treeA = SQ.remove();
-				treeB = SQ.remove();
-				treeP = new HuffmanTree(treeA.getFrequency() + treeB.getFrequency(), treeA, treeB);
-				TQ.add(treeP);
-			} else {
-				treeP = SQ.remove();
-				TQ.add(treeP);
+		long start = CodecMetrics.start();
+		char[] symbols = new char[table.size()];
+		double[] weights = new double[table.size()];
+		int n = 0;
+		for(Map.Entry<Character,Double> entry : table.entrySet()) {
+			symbols[n] = entry.getKey();
+			weights[n++] = entry.getValue();
+		}
+		int[] found = CodeLengths.compute(weights, maxCodeLength);
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		for(int i=0; i<n; i++) {
+			lengths.put(symbols[i], found[i]);
+		}
+		Map<Character,StringOfBits> code = createCanonicalCode(lengths);
+		CodecMetrics.recordBuild(start, weights, found);
+		return code;
+	}
+	
+	/**
+	 * Finds how much longer data coded with a length-limited code is than
+	 * with an unlimited Huffman code, as a fraction of the unlimited size.
+	 * @param table - the symbol frequency table
+	 * @param maxCodeLength - the longest code length allowed
+	 * @return the relative increase in encoded size; 0 if the limit costs nothing
+	 * @throws IllegalArgumentException if the table has more than 2^maxCodeLength symbols
+	 */
+	public static double lengthLimitCost(Map<Character,Double> table, int maxCodeLength)
+			throws IllegalArgumentException {
+		if(table.isEmpty()) {
+			return 0;
+		}
+		double[] weights = new double[table.size()];
+		int n = 0;
+		for(Double weight : table.values()) {
+			weights[n++] = weight;
+		}
+		double optimal = CodeLengths.averageLength(weights, CodeLengths.compute(weights));
+		double limited = CodeLengths.averageLength(weights, CodeLengths.compute(weights, maxCodeLength));
+		return optimal == 0 ? 0 : limited / optimal - 1;
+	}
+	
+	/**
+	 * Create a Huffman tree for a given frequency table. The code lengths
+	 * are computed by {@link CodeLengths}, so they are optimal, and the tree
+	 * is the one of the canonical code for those lengths: the leaf of each
+	 * symbol is reached by following its code from {@link #createHuffmanCode(Map)}.
+	 * Each internal node holds the total frequency of its leaves.
+	 * @param table - the symbol frequency table from which the tree is built
+	 * @return the Huffman tree; leaves hold the symbols and their codes
+	 * @throws IllegalArgumentException if the table is empty
+	 */
+	public static HuffmanTree createHuffmanTree(Map<Character,Double> table) throws IllegalArgumentException {
+		if(table.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+		if(table.size() == 1) {
+			Map.Entry<Character,Double> entry = table.entrySet().iterator().next();
+			return new HuffmanTree(entry.getKey(), entry.getValue(), new StringOfBits());
+		}
+		char[] symbols = new char[table.size()];
+		double[] weights = new double[table.size()];
+		int n = 0;
+		for(Map.Entry<Character,Double> entry : table.entrySet()) {
+			symbols[n] = entry.getKey();
+			weights[n++] = entry.getValue();
+		}
+		int[] found = CodeLengths.compute(weights);
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		for(int i=0; i<n; i++) {
+			lengths.put(symbols[i], found[i]);
+		}
+		List<Map.Entry<Character,Integer>> order = new ArrayList<Map.Entry<Character,Integer>>(lengths.entrySet());
+		Collections.sort(order, CANONICAL_ORDER);
+		return subtree(order, createCanonicalCode(lengths), table, 0, order.size(), 0);
+	}
+	
+	/**
+	 * Private helper that builds the subtree holding the symbols of a range
+	 * whose codes share their first <code>depth</code> bits. In canonical
+	 * order the codes are sorted, so the symbols of the left subtree come
+	 * first.
+	 * @param order - the symbols in canonical order
+	 * @param code - the canonical code of each symbol
+	 * @param table - the frequency of each symbol
+	 * @param from - the first symbol of the range
+	 * @param to - one past the last symbol of the range
+	 * @param depth - the depth of the subtree, the length of the shared prefix
+	 * @return the subtree
+	 */
+	private static HuffmanTree subtree(List<Map.Entry<Character,Integer>> order, Map<Character,StringOfBits> code,
+			Map<Character,Double> table, int from, int to, int depth) {
+		Character first = order.get(from).getKey();
+		if(to - from == 1 && code.get(first).length() == depth) {
+			return new HuffmanTree(first, table.get(first), code.get(first));
+		}
+		int split = from;
+		while(split < to && !code.get(order.get(split).getKey()).booleanAt(depth)) {
+			split++;
+		}
+		HuffmanTree left = subtree(order, code, table, from, split, depth + 1);
+		HuffmanTree right = subtree(order, code, table, split, to, depth + 1);
+		return new HuffmanTree(left.getFrequency() + right.getFrequency(), left, right);
+	}
+	
+	/**
+	 * Finds the depth of every symbol in a Huffman tree with a single
+	 * iterative traversal. A tree holding a single leaf gives that symbol
+	 * length 1.
+	 * @param ht - the Huffman tree
+	 * @return the code length of each symbol
+	 */
+	public static Map<Character,Integer> codeLengths(HuffmanTree ht) {
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		List<HuffmanTree> stack = new ArrayList<HuffmanTree>();
+		List<Integer> depths = new ArrayList<Integer>();
+		stack.add(ht);
+		depths.add(0);
+		while(!stack.isEmpty()) {
+			HuffmanTree node = stack.remove(stack.size() - 1);
+			int depth = depths.remove(depths.size() - 1);
+			if(node.getLeftChild() == null && node.getRightChild() == null) {
+				if(node.getSymbol() != null) {
+					lengths.put(node.getSymbol(), Math.max(1, depth));
+				}
+				continue;
+			}
+			if(node.getRightChild() != null) {
+				stack.add(node.getRightChild());
+				depths.add(depth + 1);
+			}
+			if(node.getLeftChild() != null) {
+				stack.add(node.getLeftChild());
+				depths.add(depth + 1);
 			}
 		}
-		while(TQ.size() > 1) {
-			treeA = TQ.remove();
-			treeB = TQ.remove();
-			treeP = new HuffmanTree(treeA.getFrequency() + treeB.getFrequency(), treeA, treeB);
-			TQ.add(treeP);
-		}	
-		resultTree = TQ.remove();
-		
+		return lengths;
+	}
+	
+	/**
+	 * Create the canonical Huffman code for a table of code lengths. Symbols
+	 * are ordered by code length and then by symbol; the first gets all
+	 * zeros, and each following code is the previous code plus one, padded
+	 * with zeros to its own length. The lengths alone therefore describe
+	 * the whole code.
+	 * @param lengths - the code length of each symbol
+	 * @return the canonical Huffman code as a map
+	 * @throws IllegalArgumentException if a length is less than 1 or the lengths
+	 * cannot form a prefix code
+	 */
+	public static Map<Character,StringOfBits> createCanonicalCode(Map<Character,Integer> lengths)
+		throws IllegalArgumentException {
+		List<Map.Entry<Character,Integer>> order = new ArrayList<Map.Entry<Character,Integer>>(lengths.entrySet());
+		Collections.sort(order, CANONICAL_ORDER);
 		Map<Character,StringOfBits> outputMap = new HashMap<Character,StringOfBits>();
-		List<BinaryTree<HuffmanTreeNodeValues>> rawList = resultTree.postorderSubtrees();
-		List<HuffmanTree> hList = convertToHuffmanList(rawList);
-		StringOfBits tempBits;
-		Character tempSymbol;	
-		while(!containsAllKeys(outputMap, hList)) {
-			tempBits = randomFind(resultTree);
-			tempSymbol = findSymbol(resultTree, tempBits);
-			if(!outputMap.containsKey(tempSymbol)) {
-				outputMap.put(tempSymbol, tempBits);
+		StringOfBits next = new StringOfBits();
+		for(int i=0; i<order.size(); i++) {
+			int length = order.get(i).getValue();
+			if(length < 1) {
+				throw new IllegalArgumentException("Code length must be positive");
 			}
-		}	
+			if(i > 0 && !increment(next)) {
+				throw new IllegalArgumentException("Code lengths are over-subscribed");
+			}
+			while(next.length() < length) {
+				next.append(false);
+			}
+			outputMap.put(order.get(i).getKey(), new StringOfBits(next));
+		}
 		return outputMap;
 	}
 	
 	/**
-	 * The Huffman-encoded version of the parameter
+	 * The Huffman-encoded version of the parameter. The code map is first
+	 * compiled into a {@link CodeTable}; to encode many strings with one
+	 * code, compile the table once and use {@link #encode(String, CodeTable)}.
 	 * @param inputString - the string to be encoded
 	 * @param huffmanCode - the Huffman code map
 	 * @return the Huffman-encoded version of the parameter
+	 * @throws IllegalArgumentException if a character has no code
 	 */
 	public static StringOfBits encode(String inputString, Map<Character,StringOfBits> huffmanCode)
 		throws IllegalArgumentException {
-		StringOfBits output = new StringOfBits();
-		for(int i=0; i<inputString.length(); i++) {
-			if(!huffmanCode.containsKey(inputString.charAt(i))) {
-				throw new IllegalArgumentException();
-			}
-			output.append(huffmanCode.get(inputString.charAt(i)));
-		}
+		return encode(inputString, new CodeTable(huffmanCode));
+	}
+	
+	/**
+	 * The Huffman-encoded version of a string, using a compiled code table
+	 * @param inputString - the string to be encoded
+	 * @param table - the compiled Huffman code
+	 * @return the Huffman-encoded version of the parameter
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public static StringOfBits encode(String inputString, CodeTable table) throws IllegalArgumentException {
+		StringOfBits output = table.encode(inputString);
+		CodecMetrics.recordEncode(2L * inputString.length(), inputString.length(), output.length());
+		return output;
+	}
+	
+	/**
+	 * The Huffman-encoded version of a string, held off the heap so that
+	 * it may be longer than 2^31 bits
+	 * @param inputString - the string to be encoded
+	 * @param table - the compiled Huffman code
+	 * @return the Huffman-encoded version of the parameter
+	 * @throws IllegalArgumentException if a character has no code
+	 */
+	public static DirectBitBuffer encodeDirect(String inputString, CodeTable table) throws IllegalArgumentException {
+		DirectBitBuffer output = new DirectBitBuffer();
+		table.encode(inputString, output);
+		CodecMetrics.recordEncode(2L * inputString.length(), inputString.length(), output.bitLength());
+		return output;
+	}
+	
+	/**
+	 * The Huffman-encoded version of binary data
+	 * @param data - the bytes to be encoded
+	 * @param code - the byte code
+	 * @return the Huffman-encoded version of the parameter
+	 * @throws IllegalArgumentException if a byte has no code
+	 */
+	public static StringOfBits encode(byte[] data, PrimitiveCode code) throws IllegalArgumentException {
+		StringOfBits output = code.encode(data);
+		CodecMetrics.recordEncode(data.length, data.length, output.length());
+		return output;
+	}
+	
+	/**
+	 * The Huffman-encoded version of the code points of a string
+	 * @param text - the string to be encoded
+	 * @param code - the code point code
+	 * @return the Huffman-encoded version of the parameter
+	 * @throws IllegalArgumentException if a code point has no code
+	 */
+	public static StringOfBits encodeCodePoints(CharSequence text, PrimitiveCode code)
+		throws IllegalArgumentException {
+		StringOfBits output = code.encodeCodePoints(text);
+		CodecMetrics.recordEncode(2L * text.length(), Character.codePointCount(text, 0, text.length()),
+				output.length());
+		return output;
+	}
+	
+	/**
+	 * Decode a bit string into bytes using the byte code provided.
+	 * @param encodedString - the bits to be decoded
+	 * @param code - the byte code
+	 * @return the decoded bytes
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public static byte[] decodeBytes(StringOfBits encodedString, PrimitiveCode code)
+		throws IllegalArgumentException {
+		long start = CodecMetrics.start();
+		byte[] output = code.decodeBytes(encodedString);
+		CodecMetrics.recordDecode(start, output.length);
+		return output;
+	}
+	
+	/**
+	 * Decode a bit string into a string of code points using the code provided.
+	 * @param encodedString - the bits to be decoded
+	 * @param code - the code point code
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public static String decodeCodePoints(StringOfBits encodedString, PrimitiveCode code)
+		throws IllegalArgumentException {
+		long start = CodecMetrics.start();
+		String output = code.decodeString(encodedString);
+		CodecMetrics.recordDecode(start, output.codePointCount(0, output.length()));
 		return output;
 	}
 	
 	/**
 	 * Decode a bit string (0s and 1s) using the Huffman code provided.
+	 * The code is compiled into a table-driven HuffmanDecoder; callers that
+	 * decode repeatedly with one code should keep their own decoder.
+	 * @param encodedString - the string to be decoded
+	 * @param huffmanCode - the Huffman code map
+	 * @return the decoded version of the parameter
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public static String decode(StringOfBits encodedString, Map<Character,StringOfBits> huffmanCode)
+		throws IllegalArgumentException {
+		long start = CodecMetrics.start();
+		String output = new HuffmanDecoder(huffmanCode).decode(encodedString);
+		CodecMetrics.recordDecode(start, output.length());
+		return output;
+	}
+
+	/**
+	 * Decode a bit sequence of any length, such as one made by
+	 * {@link #encodeDirect(String, CodeTable)}, with a compiled decoder
+	 * @param encoded - the bits to be decoded
+	 * @param decoder - the decoder for the code
+	 * @return the decoded version of the parameter
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public static String decode(BitSequence encoded, HuffmanDecoder decoder) throws IllegalArgumentException {
+		long start = CodecMetrics.start();
+		String output = decoder.decode(encoded);
+		CodecMetrics.recordDecode(start, output.length());
+		return output;
+	}
+
+	/**
+	 * Decode a bit string one bit at a time by searching the code map for
+	 * each growing prefix. This is the original recursive decoder; it takes
+	 * quadratic time and is kept only as a baseline for measurements.
 	 * @param encodedString - the string to be decoded
 	 * @param huffmanCode - the Huffman code map
 	 * @return the decoded version of the parameter
 	 */
-	public static String decode(StringOfBits encodedString, Map<Character,StringOfBits> huffmanCode) {
+	static String decodeBitByBit(StringOfBits encodedString, Map<Character,StringOfBits> huffmanCode) {
 		StringOfBits currentValue = new StringOfBits("");
 		String output = "";
 		int i=0;
 		while(i<encodedString.length()) {
 			currentValue.append(encodedString.intAt(i));
 			if(containsStringOfBitsValue(huffmanCode, currentValue)) {
-				encodedString = shiftLeft(encodedString, currentValue.length());
-				output = getKeyFromValue(huffmanCode, currentValue) + decode(encodedString, huffmanCode);
+				encodedString = encodedString.slice(currentValue.length());
+				output = getKeyFromValue(huffmanCode, currentValue) + decodeBitByBit(encodedString, huffmanCode);
 			}
 			i++;
 		}
@@ -146,15 +431,7 @@ public class HuffmanCode {
 	 * @retun true if a == b or false if a != b
 	 */
 	private static boolean compareStringOfBits(StringOfBits a, StringOfBits b) {
-		if(a.length() != b.length()) {
-			return false;
-		}
-		for(int i=0; i<a.length(); i++) {
-			if(a.charAt(i) != b.charAt(i)) {
-				return false;
-			}
-		}
-		return true;
+		return a.equals(b);
 	}
 	
 	/**
@@ -173,95 +450,21 @@ public class HuffmanCode {
 	}
 	
 	/**
-	 * Private helper method that shifts a StringOfBits s to the left by n characters
-	 * @param s - the StringOfBits to be shifted to the left
-	 * @param n - the amount that s will be shifted to the left
-	 * @return the shifted StringOfBits
-	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private static StringOfBits shiftLeft(StringOfBits s, int n) {
-		StringOfBits shiftedS = new StringOfBits();
-		ArrayList temp = new ArrayList();
-		for(int i=n; i<s.length(); i++) {
-			temp.add(s.charAt(i));
-		}
-		for(int i=0; i<temp.size(); i++) {
-			shiftedS.append((char) temp.get(i));
-		}	
-		return shiftedS;
-	}	
-	
-	/**
-	 * Private helper method that converts a list of BinaryTree<HuffmanTreeNodeValues> to
-	 * a List of HuffmanTree objects.
-	 * @param rawList - the list of generic BinaryTree<HuffmanTreeNodeValues> to be converted
-	 * @return the list of HuffmanTree objects
-	 */
-	private static List<HuffmanTree> convertToHuffmanList(List<BinaryTree<HuffmanTreeNodeValues>> rawList) {
-		List<HuffmanTree> hList = new ArrayList<HuffmanTree>();
-		for(int i=0; i<rawList.size(); i++) {
-			hList.add(new HuffmanTree(rawList.get(i).getValue()));
-		}
-		return hList;
-	}
-	
-	/**
-	 * Private helper method that checks a map to see if it contains all symbols 
-	 * as keys for a list of HuffmanTree objects.
-	 * @param map - the map to be checked for if it contains all of the symbols
-	 * @param hList - the list of HuffmanTree objects used to check the map
-	 * @return true if the map contains all symbols; false otherwise
+	 * Private helper method that adds one to a StringOfBits read as an
+	 * unsigned binary number, keeping its length.
+	 * @param bits - the StringOfBits to be incremented in place
+	 * @return true if successful; false if every bit was already 1
 	 */
-	private static boolean containsAllKeys(Map<Character,StringOfBits> map, List<HuffmanTree> hList) {
-		for(int i=0; i<hList.size(); i++) {
-			if(hList.get(i).getSymbol() != null &&
-					!map.containsKey(hList.get(i).getSymbol())) {
-				return false;
-			}
-		}
-		return true;	
-	}
-	
-	/**
-	 * Private helper method that finds a random leaf node in the HuffmanTree and
-	 * creates a StringOfBits path to that leaf node.
-	 * @param ht - the HuffmanTree object to be searched
-	 * @return the path to a random leaf node in the HuffmanTree ht
-	 */
-	private static StringOfBits randomFind(HuffmanTree ht) {
-		Random random = new Random();
-		StringOfBits bits = new StringOfBits();
-		if(!ht.isLeaf()) {
-			if(random.nextInt(2) == 1) {
-				bits.append(0);
-				if(ht.getLeftChild() != null) {
-					bits.append(randomFind(ht.getLeftChild()));
-				}
-			} else {
-				bits.append(1);
-				if(ht.getRightChild() != null) {
-					bits.append(randomFind(ht.getRightChild()));
-				}
-			}
+	private static boolean increment(StringOfBits bits) {
+		int i = bits.length() - 1;
+		while(i >= 0 && bits.booleanAt(i)) {
+			bits.setBitAt(i, false);
+			i--;
 		}
-		return bits;
-	}
-	
-	/**
-	 * Private helper method that finds a symbol given a StringOfBits path.
-	 * @param ht - the tree to be searched
-	 * @param path - the path that the tree will go through to find the symbol
-	 * @return the desired symbol based on the StringOfBits path
-	 */
-	private static Character findSymbol(HuffmanTree ht, StringOfBits path) {	
-		for(int i=0; i<path.length(); i++) {
-			if(path.intAt(i) == 1) {
-				ht = ht.getRightChild();
-			}
-			if(path.intAt(i) == 0) {
-				ht = ht.getLeftChild();
-			}
+		if(i < 0) {
+			return false;
 		}
-		return ht.getSymbol();	
+		bits.setBitAt(i, true);
+		return true;
 	}
 }
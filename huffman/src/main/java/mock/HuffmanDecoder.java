@@ -0,0 +1,478 @@
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A compiled, table-driven decoder for a prefix code.
+ * <p>
+ * The code is compiled once into a single flat <code>long[]</code> of
+ * lookup tables. The root table is indexed by the next <code>rootBits</code>
+ * bits of input and resolves one or two whole symbols per lookup; codes
+ * longer than the root width continue through secondary tables, each of
+ * which consumes up to <code>rootBits</code> more bits. Decoding therefore
+ * runs in time linear in the input and the memory used depends only on
+ * the codebook.
+ * </p>
+ * <p>
+ * Each table entry packs the following fields:
+ * <code>consumed</code> (bits 0-7), <code>firstLength</code> (bits 8-15),
+ * <code>count</code> (bits 16-17; 0 = invalid code, 1 or 2 symbols,
+ * 3 = link to a secondary table), then either the two 21-bit symbols
+ * (bits 18-38 and 39-59) or, for a link, the 32-bit table offset
+ * (bits 18-49) and the secondary table width (bits 50-55).
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanDecoder {
+
+	/** Default number of bits resolved by one root table lookup. */
+	public static final int DEFAULT_ROOT_BITS = 10;
+
+	/** Largest symbol value that fits in a table entry. */
+	static final int MAX_SYMBOL = (1 << 21) - 1;
+
+	/** Entry count value marking a link to a secondary table. */
+	static final int LINK = 3;
+
+	/** Most chars a decoded string may hold. */
+	private static final int MAX_CHARS = Integer.MAX_VALUE - 8;
+
+	/** Largest initial capacity of a decoded string; it grows past this as needed. */
+	private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+	/** The concatenated root and secondary tables. */
+	private final long[] table;
+
+	/** The number of bits indexing the root table. */
+	private final int rootBits;
+
+	/** Length of the shortest code; 0 if there are none. */
+	private final int minLength;
+
+	/**
+	 * Compiles a decoder for a Huffman code map using the default root width.
+	 * @param huffmanCode - the Huffman code map
+	 * @throws IllegalArgumentException if the code is not prefix-free
+	 */
+	public HuffmanDecoder(Map<Character,StringOfBits> huffmanCode) throws IllegalArgumentException {
+		this(huffmanCode, DEFAULT_ROOT_BITS);
+	}
+
+	/**
+	 * Compiles a decoder for a Huffman code map.
+	 * @param huffmanCode - the Huffman code map
+	 * @param rootBits - the number of bits resolved by one root lookup, 1 to 16
+	 * @throws IllegalArgumentException if the code is not prefix-free or rootBits is out of range
+	 */
+	public HuffmanDecoder(Map<Character,StringOfBits> huffmanCode, int rootBits) throws IllegalArgumentException {
+		this(symbolsOf(huffmanCode), codesOf(huffmanCode), rootBits);
+	}
+
+	/**
+	 * Compiles a decoder for parallel arrays of symbols and codes. Symbols
+	 * whose code is empty can never be decoded and are ignored.
+	 * @param symbols - the symbols, each between 0 and MAX_SYMBOL
+	 * @param codes - the code for each symbol
+	 * @param rootBits - the number of bits resolved by one root lookup, 1 to 16
+	 * @throws IllegalArgumentException if the code is not prefix-free or an argument is out of range
+	 */
+	HuffmanDecoder(int[] symbols, StringOfBits[] codes, int rootBits) throws IllegalArgumentException {
+		if(rootBits < 1 || rootBits > 16 || symbols.length != codes.length) {
+			throw new IllegalArgumentException();
+		}
+		CodeTrie trie = new CodeTrie();
+		int minLength = Integer.MAX_VALUE;
+		int maxLength = 0;
+		for(int i=0; i<symbols.length; i++) {
+			if(symbols[i] < 0 || symbols[i] > MAX_SYMBOL) {
+				throw new IllegalArgumentException("Symbol out of range: " + symbols[i]);
+			}
+			trie.insert(symbols[i], codes[i]);
+			if(codes[i].length() > 0) {
+				minLength = Math.min(minLength, codes[i].length());
+			}
+			maxLength = Math.max(maxLength, codes[i].length());
+		}
+		this.minLength = maxLength == 0 ? 0 : minLength;
+		this.rootBits = Math.max(1, Math.min(rootBits, maxLength));
+		this.table = new TableBuilder(trie, this.rootBits).build();
+	}
+
+	/**
+	 * Returns the number of bits indexing the root table.
+	 * @return the root table width
+	 */
+	public int rootBits() {
+		return rootBits;
+	}
+
+	/**
+	 * Returns the number of table entries allocated for this codebook.
+	 * @return the total size of the root and secondary tables
+	 */
+	public int tableSize() {
+		return table.length;
+	}
+
+	/**
+	 * Decodes a bit sequence, such as a {@link StringOfBits} or a
+	 * {@link DirectBitBuffer}, into the string of symbols it encodes.
+	 * @param encoded - the bits to decode
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 * or decode to more chars than a string can hold
+	 */
+	public String decode(BitSequence encoded) throws IllegalArgumentException {
+		long length = encoded.bitLength();
+		// Every code is at least minLength bits, which bounds the number of chars.
+		long most = minLength == 0 ? 0 : length / minLength;
+		StringBuilder output = new StringBuilder((int) Math.max(16, Math.min(MAX_INITIAL_CAPACITY, most)));
+		// The output length only needs checking when the input could hold more codes than fit.
+		boolean unbounded = most > MAX_CHARS;
+		long pos = 0;
+		while(pos < length) {
+			int width = rootBits;
+			long entry = table[(int) encoded.readBits(pos, width)];
+			long start = pos;
+			while(count(entry) == LINK) {
+				pos += width;
+				width = linkBits(entry);
+				entry = table[linkOffset(entry) + (int) encoded.readBits(pos, width)];
+			}
+			int count = count(entry);
+			if(count == 0) {
+				throw new IllegalArgumentException("Invalid code at bit " + start);
+			}
+			if(unbounded && output.length() > MAX_CHARS - 2) {
+				throw new IllegalArgumentException("Too many symbols for a string at bit " + start);
+			}
+			if(pos + consumed(entry) <= length) {
+				output.append((char) symbol(entry, 0));
+				if(count == 2) {
+					output.append((char) symbol(entry, 1));
+				}
+				pos += consumed(entry);
+			} else if(count == 2 && pos + firstLength(entry) <= length) {
+				output.append((char) symbol(entry, 0));
+				pos += firstLength(entry);
+			} else {
+				throw new IllegalArgumentException("Truncated code at bit " + start);
+			}
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Returns the number of bits used by an entry.
+	 * @param entry - a table entry
+	 * @return the bits consumed by the entry
+	 */
+	static int consumed(long entry) {
+		return (int) (entry & 0xFF);
+	}
+
+	/**
+	 * Returns the number of bits used by the first symbol of an entry.
+	 * @param entry - a table entry
+	 * @return the length of the first code
+	 */
+	static int firstLength(long entry) {
+		return (int) ((entry >>> 8) & 0xFF);
+	}
+
+	/**
+	 * Returns the number of symbols resolved by an entry, or LINK.
+	 * @param entry - a table entry
+	 * @return 0 for an invalid code, 1 or 2 symbols, or LINK
+	 */
+	static int count(long entry) {
+		return (int) ((entry >>> 16) & 3);
+	}
+
+	/**
+	 * Returns a symbol resolved by an entry.
+	 * @param entry - a table entry
+	 * @param which - 0 for the first symbol, 1 for the second
+	 * @return the symbol
+	 */
+	static int symbol(long entry, int which) {
+		return (int) ((entry >>> (18 + 21 * which)) & MAX_SYMBOL);
+	}
+
+	/**
+	 * Returns the offset of the secondary table a link entry refers to.
+	 * @param entry - a link entry
+	 * @return the offset of the secondary table
+	 */
+	static int linkOffset(long entry) {
+		return (int) ((entry >>> 18) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the width of the secondary table a link entry refers to.
+	 * @param entry - a link entry
+	 * @return the number of bits indexing the secondary table
+	 */
+	static int linkBits(long entry) {
+		return (int) ((entry >>> 50) & 0x3F);
+	}
+
+	/**
+	 * Returns the raw table entry at an index.
+	 * @param index - the index into the flat table
+	 * @return the entry
+	 */
+	long entry(int index) {
+		return table[index];
+	}
+
+	/**
+	 * Private helper that extracts the symbols of a code map.
+	 * @param huffmanCode - the Huffman code map
+	 * @return the symbols, in iteration order
+	 */
+	private static int[] symbolsOf(Map<Character,StringOfBits> huffmanCode) {
+		int[] symbols = new int[huffmanCode.size()];
+		int i = 0;
+		for(Character c : huffmanCode.keySet()) {
+			symbols[i++] = c;
+		}
+		return symbols;
+	}
+
+	/**
+	 * Private helper that extracts the codes of a code map.
+	 * @param huffmanCode - the Huffman code map
+	 * @return the codes, in the same order as symbolsOf
+	 */
+	private static StringOfBits[] codesOf(Map<Character,StringOfBits> huffmanCode) {
+		StringOfBits[] codes = new StringOfBits[huffmanCode.size()];
+		int i = 0;
+		for(StringOfBits code : huffmanCode.values()) {
+			codes[i++] = code;
+		}
+		return codes;
+	}
+
+	/**
+	 * A binary trie of codes stored in primitive arrays. Node 0 is the root;
+	 * children are always created after their parent.
+	 */
+	private static final class CodeTrie {
+
+		/** Child node indices, two per node; -1 if absent. */
+		int[] children = new int[64];
+
+		/** Symbol of each leaf node; -1 for internal nodes. */
+		int[] symbol = new int[32];
+
+		/** Number of nodes in the trie. */
+		int size = 1;
+
+		/** Creates a trie holding only the root. */
+		CodeTrie() {
+			Arrays.fill(children, -1);
+			Arrays.fill(symbol, -1);
+		}
+
+		/**
+		 * Adds a code to the trie.
+		 * @param sym - the symbol of the code
+		 * @param code - the bits of the code
+		 * @throws IllegalArgumentException if the code conflicts with one already present
+		 */
+		void insert(int sym, StringOfBits code) throws IllegalArgumentException {
+			if(code.length() == 0) {
+				return;
+			}
+			int node = 0;
+			for(int i=0; i<code.length(); i++) {
+				if(symbol[node] != -1) {
+					throw new IllegalArgumentException("Code is not prefix-free");
+				}
+				int slot = 2 * node + code.intAt(i);
+				if(children[slot] == -1) {
+					int child = newNode();
+					children[slot] = child;
+				}
+				node = children[slot];
+			}
+			if(symbol[node] != -1 || children[2 * node] != -1 || children[2 * node + 1] != -1) {
+				throw new IllegalArgumentException("Code is not prefix-free");
+			}
+			symbol[node] = sym;
+		}
+
+		/**
+		 * Allocates a new node.
+		 * @return the index of the new node
+		 */
+		private int newNode() {
+			if(size == symbol.length) {
+				int old = symbol.length;
+				symbol = Arrays.copyOf(symbol, old * 2);
+				children = Arrays.copyOf(children, old * 4);
+				Arrays.fill(symbol, old, old * 2, -1);
+				Arrays.fill(children, old * 2, old * 4, -1);
+			}
+			return size++;
+		}
+
+		/**
+		 * Computes the height of every node, that is, the length of the
+		 * longest code that continues below it.
+		 * @return the height of each node
+		 */
+		int[] heights() {
+			int[] height = new int[size];
+			for(int node=size-1; node>=0; node--) {
+				for(int bit=0; bit<2; bit++) {
+					int child = children[2 * node + bit];
+					if(child != -1) {
+						height[node] = Math.max(height[node], height[child] + 1);
+					}
+				}
+			}
+			return height;
+		}
+	}
+
+	/**
+	 * Expands a CodeTrie into the flat lookup table.
+	 */
+	private static final class TableBuilder {
+
+		/** The trie being compiled. */
+		private final CodeTrie trie;
+
+		/** The height of each trie node. */
+		private final int[] height;
+
+		/** Width of the root table and upper bound for secondary tables. */
+		private final int rootBits;
+
+		/** The table under construction. */
+		private long[] table;
+
+		/** Number of entries used in the table. */
+		private int size;
+
+		/** Pending secondary tables: trie node and entry index to patch. */
+		private int[] pending = new int[16];
+
+		/** Number of ints used in pending. */
+		private int pendingSize;
+
+		/**
+		 * Creates a builder.
+		 * @param trie - the trie to compile
+		 * @param rootBits - the root table width
+		 */
+		TableBuilder(CodeTrie trie, int rootBits) {
+			this.trie = trie;
+			this.height = trie.heights();
+			this.rootBits = rootBits;
+			this.table = new long[1 << rootBits];
+		}
+
+		/**
+		 * Builds the root table and all secondary tables.
+		 * @return the flat table
+		 */
+		long[] build() {
+			fillTable(0, rootBits, true);
+			int next = 0;
+			while(next < pendingSize) {
+				int node = pending[next++];
+				int slot = pending[next++];
+				int width = Math.min(rootBits, height[node]);
+				int offset = fillTable(node, width, false);
+				table[slot] = ((long) width << 50) | ((long) offset << 18) | ((long) LINK << 16);
+			}
+			return Arrays.copyOf(table, size);
+		}
+
+		/**
+		 * Appends a table that resolves codes continuing below a trie node.
+		 * @param start - the trie node the table starts from
+		 * @param width - the number of bits indexing the table
+		 * @param multi - whether entries may resolve two symbols
+		 * @return the offset of the new table
+		 */
+		private int fillTable(int start, int width, boolean multi) {
+			int offset = size;
+			int entries = 1 << width;
+			if(size + entries > table.length) {
+				table = Arrays.copyOf(table, Math.max(table.length * 2, size + entries));
+			}
+			size += entries;
+			for(int pattern=0; pattern<entries; pattern++) {
+				int node = start;
+				int depth = 0;
+				while(depth < width && node != -1 && trie.symbol[node] == -1) {
+					node = trie.children[2 * node + ((pattern >>> (width - 1 - depth)) & 1)];
+					depth++;
+				}
+				long entry;
+				if(node == -1) {
+					entry = 0L;
+				} else if(trie.symbol[node] == -1) {
+					entry = 0L;
+					addPending(node, offset + pattern);
+				} else {
+					entry = symbolEntry(trie.symbol[node], depth);
+					if(multi && depth < width) {
+						entry = addSecond(entry, pattern, depth, width);
+					}
+				}
+				table[offset + pattern] = entry;
+			}
+			return offset;
+		}
+
+		/**
+		 * Tries to resolve a second whole code from the bits left over in a
+		 * root table pattern after its first code.
+		 * @param entry - the single-symbol entry
+		 * @param pattern - the root table index
+		 * @param used - the bits used by the first code
+		 * @param width - the root table width
+		 * @return the entry, extended with a second symbol if one fits
+		 */
+		private long addSecond(long entry, int pattern, int used, int width) {
+			int node = 0;
+			int depth = used;
+			while(depth < width && node != -1 && trie.symbol[node] == -1) {
+				node = trie.children[2 * node + ((pattern >>> (width - 1 - depth)) & 1)];
+				depth++;
+			}
+			if(node == -1 || trie.symbol[node] == -1) {
+				return entry;
+			}
+			return (entry & ~0xFFL & ~(3L << 16)) | depth | (2L << 16) | ((long) trie.symbol[node] << 39);
+		}
+
+		/**
+		 * Records a secondary table to be built later.
+		 * @param node - the trie node the secondary table starts from
+		 * @param slot - the entry that must link to it
+		 */
+		private void addPending(int node, int slot) {
+			if(pendingSize + 2 > pending.length) {
+				pending = Arrays.copyOf(pending, pending.length * 2);
+			}
+			pending[pendingSize++] = node;
+			pending[pendingSize++] = slot;
+		}
+
+		/**
+		 * Creates an entry resolving a single symbol.
+		 * @param sym - the symbol
+		 * @param length - the bits used by the code within this table
+		 * @return the entry
+		 */
+		private static long symbolEntry(int sym, int length) {
+			return ((long) sym << 18) | (1L << 16) | ((long) length << 8) | length;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * An input stream that decodes data written by {@link HuffmanOutputStream}.
+ * <p>
+ * Bytes are read from the underlying stream through a fixed-size buffer and
+ * decoded with a {@link HuffmanDecoder} compiled from the same codebook.
+ * The last 9 bytes read are always held back, because they may turn out to
+ * be the padded final byte and the bit-length trailer; once the underlying
+ * stream ends, the trailer tells how many bits of the final byte are data.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanInputStream extends InputStream {
+
+	/** Size of the buffer of encoded bytes. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Size of the bit-length trailer. */
+	private static final int TRAILER_SIZE = HuffmanOutputStream.TRAILER_SIZE;
+
+	/** The stream the encoded bytes are read from. */
+	private final InputStream in;
+
+	/** The compiled decoder. */
+	private final HuffmanDecoder decoder;
+
+	/** Buffer of encoded bytes. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** Index of the next unread byte in the buffer. */
+	private int pos;
+
+	/** Number of valid bytes in the buffer. */
+	private int limit;
+
+	/** Whether the underlying stream has ended. */
+	private boolean eof;
+
+	/** Number of data bits, known once the trailer has been read; otherwise -1. */
+	private long totalBits = -1;
+
+	/** Bits waiting to be decoded, left aligned. */
+	private long window;
+
+	/** Number of valid bits in the window. */
+	private int windowBits;
+
+	/** Number of bits decoded so far. */
+	private long bitsRead;
+
+	/** A second decoded symbol waiting to be returned; -1 if none. */
+	private int pending = -1;
+
+	/**
+	 * Creates a stream that decodes with the given codebook.
+	 * @param in - the stream of encoded bytes
+	 * @param huffmanCode - the Huffman code map used to encode the data
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not
+	 * a byte value or is not prefix-free
+	 */
+	public HuffmanInputStream(InputStream in, Map<Character,StringOfBits> huffmanCode)
+		throws IllegalArgumentException {
+		for(Character c : huffmanCode.keySet()) {
+			if(c > 255) {
+				throw new IllegalArgumentException("Symbol is not a byte value: " + (int) c);
+			}
+		}
+		this.in = in;
+		this.decoder = new HuffmanDecoder(huffmanCode);
+	}
+
+	/**
+	 * Decodes the next byte.
+	 * @return the next byte, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt
+	 */
+	@Override
+	public int read() throws IOException {
+		if(pending >= 0) {
+			int b = pending;
+			pending = -1;
+			return b;
+		}
+		return decodeSymbol();
+	}
+
+	/**
+	 * Decodes up to <code>len</code> bytes.
+	 * @param b - the buffer into which the bytes are decoded
+	 * @param off - the index of the first byte to store
+	 * @param len - the maximum number of bytes to decode
+	 * @return the number of bytes decoded, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(len == 0) {
+			return 0;
+		}
+		int n = 0;
+		while(n < len) {
+			int symbol = read();
+			if(symbol < 0) {
+				break;
+			}
+			b[off + n++] = (byte) symbol;
+		}
+		return n == 0 ? -1 : n;
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Private helper that decodes one symbol, keeping a second symbol
+	 * resolved by the same lookup in pending.
+	 * @return the symbol, or -1 at the end of the data
+	 * @throws IOException if an I/O error occurs or the data is corrupt
+	 */
+	private int decodeSymbol() throws IOException {
+		int width = decoder.rootBits();
+		fill(width);
+		if(totalBits >= 0 && bitsRead >= totalBits) {
+			return -1;
+		}
+		long start = bitsRead;
+		long entry = decoder.entry(peek(width));
+		while(HuffmanDecoder.count(entry) == HuffmanDecoder.LINK) {
+			consume(width);
+			width = HuffmanDecoder.linkBits(entry);
+			fill(width);
+			entry = decoder.entry(HuffmanDecoder.linkOffset(entry) + peek(width));
+		}
+		int count = HuffmanDecoder.count(entry);
+		if(count == 0) {
+			throw new IOException("Invalid code at bit " + start);
+		}
+		long available = totalBits >= 0 ? totalBits - bitsRead : Long.MAX_VALUE;
+		if(HuffmanDecoder.consumed(entry) <= available) {
+			consume(HuffmanDecoder.consumed(entry));
+			if(count == 2) {
+				pending = HuffmanDecoder.symbol(entry, 1);
+			}
+		} else if(count == 2 && HuffmanDecoder.firstLength(entry) <= available) {
+			consume(HuffmanDecoder.firstLength(entry));
+		} else {
+			throw new IOException("Truncated code at bit " + start);
+		}
+		return HuffmanDecoder.symbol(entry, 0);
+	}
+
+	/**
+	 * Private helper that returns the next bits of the window without
+	 * consuming them; bits past the available data read as zero.
+	 * @param n - the number of bits, 1 to 16
+	 * @return the bits, right aligned
+	 */
+	private int peek(int n) {
+		return (int) (window >>> (64 - n));
+	}
+
+	/**
+	 * Private helper that drops bits from the front of the window.
+	 * @param n - the number of bits
+	 * @throws IOException if the data ends in the middle of a code
+	 */
+	private void consume(int n) throws IOException {
+		if(n > windowBits) {
+			throw new IOException("Truncated code at bit " + bitsRead);
+		}
+		window <<= n;
+		windowBits -= n;
+		bitsRead += n;
+	}
+
+	/**
+	 * Private helper that loads data bytes into the window until it holds
+	 * at least <code>n</code> bits or the data runs out.
+	 * @param n - the number of bits wanted, at most 56
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void fill(int n) throws IOException {
+		while(windowBits < n) {
+			if(pos >= dataLimit()) {
+				if(eof || !refill()) {
+					return;
+				}
+				continue;
+			}
+			window |= (buffer[pos++] & 0xFFL) << (56 - windowBits);
+			windowBits += 8;
+		}
+	}
+
+	/**
+	 * Private helper that returns the end of the buffered bytes that are
+	 * known to hold only data bits. Until the underlying stream ends, the
+	 * final byte, which may be padded, is held back with the trailer.
+	 * @return the index just past the last usable data byte in the buffer
+	 */
+	private int dataLimit() {
+		return limit - TRAILER_SIZE - (eof ? 0 : 1);
+	}
+
+	/**
+	 * Private helper that reads more bytes into the buffer, and reads the
+	 * trailer once the underlying stream ends.
+	 * @return true if more data bytes may be available
+	 * @throws IOException if an I/O error occurs or the trailer is missing
+	 */
+	private boolean refill() throws IOException {
+		System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+		limit -= pos;
+		pos = 0;
+		while(limit < buffer.length) {
+			int n = in.read(buffer, limit, buffer.length - limit);
+			if(n < 0) {
+				eof = true;
+				break;
+			}
+			limit += n;
+			if(limit > TRAILER_SIZE + 1) {
+				break;
+			}
+		}
+		if(eof) {
+			if(limit < TRAILER_SIZE) {
+				throw new IOException("Missing bit-length trailer");
+			}
+			long bits = 0;
+			for(int i=limit-TRAILER_SIZE; i<limit; i++) {
+				bits = (bits << 8) | (buffer[i] & 0xFF);
+			}
+			long dataBits = bitsRead + windowBits + 8L * (dataLimit() - pos);
+			if(bits < 0 || bits > dataBits || bits <= dataBits - 8) {
+				throw new IOException("Bit-length trailer does not match data");
+			}
+			totalBits = bits;
+		}
+		return pos < dataLimit();
+	}
+}
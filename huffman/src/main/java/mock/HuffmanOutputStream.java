@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * An output stream that Huffman-encodes the bytes written to it.
+ * <p>
+ * Each byte <code>b</code> is treated as the symbol
+ * <code>(char) (b &amp; 0xFF)</code> and replaced by its code from a
+ * codebook such as one made by {@link HuffmanCode#createHuffmanCode(String)}
+ * from a seed read as ISO-8859-1. Encoded bits are packed most significant
+ * bit first through a fixed-size buffer, so memory use does not depend on
+ * the amount of data written.
+ * </p>
+ * <p>
+ * Closing the stream pads the final partial byte with zeros and then writes
+ * an 8-byte big-endian trailer holding the number of encoded bits, which
+ * {@link HuffmanInputStream} uses to find the end of the data.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanOutputStream extends OutputStream {
+
+	/** Size of the encoded byte buffer. */
+	static final int BUFFER_SIZE = 8192;
+
+	/** Size of the bit-length trailer. */
+	static final int TRAILER_SIZE = 8;
+
+	/** Longest code written with a single accumulator update. */
+	private static final int MAX_PACKED = 56;
+
+	/** The stream the encoded bytes are written to. */
+	private final OutputStream out;
+
+	/** Codes of at most MAX_PACKED bits, right aligned, indexed by byte. */
+	private final long[] packed = new long[256];
+
+	/** Code length for each byte; 0 if the byte has no code. */
+	private final int[] lengths = new int[256];
+
+	/** Codes longer than MAX_PACKED bits, indexed by byte; otherwise null. */
+	private final StringOfBits[] longCodes = new StringOfBits[256];
+
+	/** Buffer of encoded bytes waiting to be written. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** Number of bytes used in the buffer. */
+	private int count;
+
+	/** Pending bits, right aligned; only the low accBits bits are used. */
+	private long acc;
+
+	/** Number of pending bits in acc, always less than 8 between writes. */
+	private int accBits;
+
+	/** Total number of encoded bits. */
+	private long totalBits;
+
+	/** Whether the stream has been closed. */
+	private boolean closed;
+
+	/**
+	 * Creates a stream that encodes with the given codebook.
+	 * @param out - the stream the encoded bytes are written to
+	 * @param huffmanCode - the Huffman code map; symbols must be between 0 and 255
+	 * @throws IllegalArgumentException if the codebook has a symbol that is not a byte value
+	 */
+	public HuffmanOutputStream(OutputStream out, Map<Character,StringOfBits> huffmanCode)
+		throws IllegalArgumentException {
+		this.out = out;
+		for(Map.Entry<Character,StringOfBits> entry : huffmanCode.entrySet()) {
+			int symbol = entry.getKey();
+			StringOfBits code = entry.getValue();
+			if(symbol > 255) {
+				throw new IllegalArgumentException("Symbol is not a byte value: " + symbol);
+			}
+			lengths[symbol] = code.length();
+			if(code.length() <= MAX_PACKED) {
+				packed[symbol] = code.readBits(0, code.length());
+			} else {
+				longCodes[symbol] = new StringOfBits(code);
+			}
+		}
+	}
+
+	/**
+	 * Encodes one byte.
+	 * @param b - the byte to encode, in the low 8 bits
+	 * @throws IOException if an I/O error occurs or the stream is closed
+	 * @throws IllegalArgumentException if the byte has no code
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		encode(b & 0xFF);
+	}
+
+	/**
+	 * Encodes a range of bytes.
+	 * @param b - the bytes to encode
+	 * @param off - the index of the first byte
+	 * @param len - the number of bytes
+	 * @throws IOException if an I/O error occurs or the stream is closed
+	 * @throws IllegalArgumentException if a byte has no code
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		if(off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		for(int i=off; i<off+len; i++) {
+			encode(b[i] & 0xFF);
+		}
+	}
+
+	/**
+	 * Writes all whole encoded bytes to the underlying stream and flushes it.
+	 * Bits of an unfinished byte stay pending until more data or close.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Pads the final partial byte, writes the bit-length trailer and closes
+	 * the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if(accBits > 0) {
+				putByte((int) (acc << (8 - accBits)));
+				accBits = 0;
+			}
+			for(int shift=56; shift>=0; shift-=8) {
+				putByte((int) (totalBits >>> shift));
+			}
+			flushBuffer();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of encoded bits written so far.
+	 * @return the number of encoded bits
+	 */
+	public long bitsWritten() {
+		return totalBits;
+	}
+
+	/**
+	 * Private helper that appends the code of one symbol.
+	 * @param symbol - the symbol, 0 to 255
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void encode(int symbol) throws IOException {
+		int length = lengths[symbol];
+		if(length == 0) {
+			throw new IllegalArgumentException("No code for byte " + symbol);
+		}
+		if(length <= MAX_PACKED) {
+			writeBits(packed[symbol], length);
+		} else {
+			StringOfBits code = longCodes[symbol];
+			for(int i=0; i<length; i+=32) {
+				int n = Math.min(32, length - i);
+				writeBits(code.readBits(i, n), n);
+			}
+		}
+	}
+
+	/**
+	 * Private helper that appends up to MAX_PACKED bits.
+	 * @param bits - the bits, right aligned
+	 * @param n - the number of bits
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeBits(long bits, int n) throws IOException {
+		acc = (acc << n) | bits;
+		accBits += n;
+		totalBits += n;
+		while(accBits >= 8) {
+			accBits -= 8;
+			putByte((int) (acc >>> accBits));
+		}
+	}
+
+	/**
+	 * Private helper that adds a byte to the buffer, writing the buffer out
+	 * when it is full.
+	 * @param b - the byte, in the low 8 bits
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void putByte(int b) throws IOException {
+		if(count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	/**
+	 * Private helper that writes the buffered bytes to the underlying stream.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void flushBuffer() throws IOException {
+		if(count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
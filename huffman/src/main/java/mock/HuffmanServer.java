@@ -0,0 +1,421 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A loopback TCP server that encodes and decodes text for other processes
+ * on the same host.
+ * <p>
+ * Each connection is served by its own thread, doing blocking I/O. On a
+ * runtime with virtual threads (Java 21 and later) these are virtual
+ * threads, found by reflection so the code still builds for Java 8;
+ * otherwise they are platform threads with small stacks from a cached pool.
+ * </p>
+ * <p>
+ * A request is a frame of one operation byte, a 4-byte big-endian payload
+ * length and the payload. Every request gets a response frame of one status
+ * byte ({@link #OK} or {@link #ERROR}), a 4-byte length and a payload; the
+ * payload of an error is its UTF-8 message. Text travels as its chars, two
+ * big-endian bytes each, with no charset in between, so any string,
+ * including one with a lone surrogate, arrives unchanged; encoded bits
+ * travel as a 4-byte bit count followed by the bits, most significant
+ * first, padded to a whole byte. The operations are:
+ * </p>
+ * <ul>
+ * <li>{@link #OP_CODEBOOK}: the payload is a codebook in
+ * {@link CodebookFormat}, which the connection uses from then on</li>
+ * <li>{@link #OP_SEED}: the payload is seed text; the server builds a code
+ * for it, or takes one from a cache shared by all connections, uses it for
+ * the connection and answers with it in {@link CodebookFormat}</li>
+ * <li>{@link #OP_ENCODE}: the payload is text; the answer is its encoding</li>
+ * <li>{@link #OP_DECODE}: the payload is an encoding; the answer is its text</li>
+ * </ul>
+ * <p>
+ * Encoding and decoding fail until a codebook is chosen. A frame longer
+ * than {@link #MAX_PAYLOAD} gets an error and the connection is closed.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanServer implements Closeable {
+
+	/** Operation that sets the connection's codebook. */
+	public static final int OP_CODEBOOK = 1;
+
+	/** Operation that builds a codebook from seed text. */
+	public static final int OP_SEED = 2;
+
+	/** Operation that encodes text. */
+	public static final int OP_ENCODE = 3;
+
+	/** Operation that decodes bits. */
+	public static final int OP_DECODE = 4;
+
+	/** Status of a successful response. */
+	public static final int OK = 0;
+
+	/** Status of a failed request. */
+	public static final int ERROR = 1;
+
+	/** Largest payload accepted, in bytes. */
+	public static final int MAX_PAYLOAD = 64 << 20;
+
+	/** Connections queued by the operating system before being accepted. */
+	private static final int BACKLOG = 16384;
+
+	/** Stack size of platform connection threads. */
+	private static final long STACK_SIZE = 256 << 10;
+
+	/** Pause after a failed accept before trying again. */
+	private static final long ACCEPT_RETRY_NANOS = 10000000L;
+
+	/** Number of codebooks kept by the shared cache. */
+	private static final int CACHE_SIZE = 256;
+
+	/** The listening socket. */
+	private final ServerSocket server;
+
+	/** The connection threads. */
+	private final ExecutorService executor;
+
+	/** Whether the connection threads are virtual threads. */
+	private final boolean virtualThreads;
+
+	/** Codebooks built from seeds, shared by all connections. */
+	private final CodebookCache cache = new CodebookCache(CACHE_SIZE);
+
+	/** The open connections, closed when the server is. */
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	/** The thread accepting connections; null until started. */
+	private Thread acceptor;
+
+	/**
+	 * Creates a server listening on the loopback address. Call
+	 * {@link #start()} to begin accepting connections.
+	 * @param port - the port, or 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public HuffmanServer(int port) throws IOException {
+		this.server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+		ExecutorService virtual = virtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null ? virtual : platformThreadExecutor("huffman-server-");
+	}
+
+	/**
+	 * Starts accepting connections on a background thread.
+	 * @return this server
+	 * @throws IllegalStateException if the server was already started
+	 */
+	public synchronized HuffmanServer start() throws IllegalStateException {
+		if(acceptor != null) {
+			throw new IllegalStateException("Server already started");
+		}
+		acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptLoop();
+			}
+		}, "huffman-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		return this;
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * @return the port
+	 */
+	public int port() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Returns the number of open connections.
+	 * @return the connection count
+	 */
+	public int connectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Stops accepting connections and closes every open connection.
+	 * @throws IOException if the listening socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		server.close();
+		for(Socket socket : connections) {
+			closeQuietly(socket);
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns whether this server's connection threads are virtual threads.
+	 * This is decided when the server is created: if the runtime cannot
+	 * create a virtual-thread executor, platform threads are used instead.
+	 * @return true if connections are served on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Creates an executor that runs each task on a new virtual thread if the
+	 * runtime has them, or else on a cached pool of daemon platform threads
+	 * with small stacks.
+	 * @param prefix - the name prefix of platform threads
+	 * @return the executor
+	 */
+	static ExecutorService newConnectionExecutor(final String prefix) {
+		ExecutorService virtual = virtualThreadExecutor();
+		return virtual != null ? virtual : platformThreadExecutor(prefix);
+	}
+
+	/**
+	 * Private helper that creates a cached pool of daemon platform threads
+	 * with small stacks.
+	 * @param prefix - the name prefix of the threads
+	 * @return the executor
+	 */
+	private static ExecutorService platformThreadExecutor(final String prefix) {
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(null, task, prefix + count.incrementAndGet(), STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Private helper that creates a virtual-thread-per-task executor by
+	 * reflection.
+	 * @return the executor, or null if the runtime has no virtual threads
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Private helper that accepts connections until the server is closed.
+	 */
+	private void acceptLoop() {
+		while(!server.isClosed()) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch(IOException ex) {
+				if(server.isClosed()) {
+					return;
+				}
+				// Out of file descriptors or similar; give open connections time to finish.
+				LockSupport.parkNanos(ACCEPT_RETRY_NANOS);
+				continue;
+			}
+			connections.add(socket);
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch(RuntimeException ex) {
+				connections.remove(socket);
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	/**
+	 * Private helper that answers the requests of one connection until it
+	 * is closed.
+	 * @param socket - the connection
+	 */
+	private void serve(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			Codebook codebook = null;
+			while(true) {
+				int op = in.read();
+				if(op < 0) {
+					return;
+				}
+				int length = in.readInt();
+				if(length < 0 || length > MAX_PAYLOAD) {
+					writeFrame(out, ERROR, ("Payload too long: " + length).getBytes(StandardCharsets.UTF_8));
+					return;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				byte[] answer;
+				try {
+					switch(op) {
+					case OP_CODEBOOK:
+						codebook = new Codebook(CodebookFormat.fromBytes(payload));
+						answer = new byte[0];
+						break;
+					case OP_SEED:
+						codebook = cache.get(bytesToChars(payload));
+						answer = CodebookFormat.toBytes(codebook.code());
+						break;
+					case OP_ENCODE:
+						answer = bitsToBytes(codebook(codebook).encode(bytesToChars(payload)));
+						break;
+					case OP_DECODE:
+						answer = charsToBytes(codebook(codebook).decode(bytesToBits(payload)));
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown operation " + op);
+					}
+				} catch(IOException | IllegalArgumentException | IllegalStateException ex) {
+					writeFrame(out, ERROR, String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8));
+					continue;
+				}
+				writeFrame(out, OK, answer);
+			}
+		} catch(EOFException | SocketException ex) {
+			// The client went away or the server is closing.
+		} catch(IOException ex) {
+			// Nothing can be reported on a broken connection.
+		} finally {
+			connections.remove(socket);
+			closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * Private helper that checks that a codebook has been chosen.
+	 * @param codebook - the connection's codebook, or null
+	 * @return the codebook
+	 * @throws IllegalStateException if no codebook has been chosen
+	 */
+	private static Codebook codebook(Codebook codebook) throws IllegalStateException {
+		if(codebook == null) {
+			throw new IllegalStateException("No codebook; send OP_CODEBOOK or OP_SEED first");
+		}
+		return codebook;
+	}
+
+	/**
+	 * Writes a frame and flushes it.
+	 * @param out - the stream
+	 * @param type - the operation or status byte
+	 * @param payload - the payload
+	 * @throws IOException if an I/O error occurs
+	 */
+	static void writeFrame(DataOutputStream out, int type, byte[] payload) throws IOException {
+		out.write(type);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.flush();
+	}
+
+	/**
+	 * Packs the chars of a string as two big-endian bytes each. No charset
+	 * is involved, so lone surrogates are kept.
+	 * @param text - the string
+	 * @return the packed bytes
+	 */
+	static byte[] charsToBytes(String text) {
+		ByteBuffer bytes = ByteBuffer.allocate(2 * text.length());
+		bytes.asCharBuffer().put(text);
+		return bytes.array();
+	}
+
+	/**
+	 * Unpacks chars packed by {@link #charsToBytes(String)}.
+	 * @param bytes - the packed bytes
+	 * @return the string
+	 * @throws IOException if the number of bytes is odd
+	 */
+	static String bytesToChars(byte[] bytes) throws IOException {
+		if(bytes.length % 2 != 0) {
+			throw new IOException("Odd number of bytes for chars: " + bytes.length);
+		}
+		return ByteBuffer.wrap(bytes).asCharBuffer().toString();
+	}
+
+	/**
+	 * Packs encoded bits as a 4-byte bit count followed by the bits.
+	 * @param bits - the bits
+	 * @return the packed bytes
+	 */
+	static byte[] bitsToBytes(StringOfBits bits) {
+		int length = bits.length();
+		byte[] bytes = new byte[4 + (int) ((length + 7L) >>> 3)];
+		bytes[0] = (byte) (length >>> 24);
+		bytes[1] = (byte) (length >>> 16);
+		bytes[2] = (byte) (length >>> 8);
+		bytes[3] = (byte) length;
+		for(int i=0, b=4; i<length; i+=64) {
+			long word = bits.readBits(i, 64);
+			for(int shift=56; shift>=0 && b<bytes.length; shift-=8) {
+				bytes[b++] = (byte) (word >>> shift);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Unpacks bits packed by {@link #bitsToBytes(StringOfBits)}.
+	 * @param bytes - the packed bytes
+	 * @return the bits
+	 * @throws IOException if the bit count does not match the bytes
+	 */
+	static StringOfBits bytesToBits(byte[] bytes) throws IOException {
+		if(bytes.length < 4) {
+			throw new IOException("Missing bit count");
+		}
+		int length = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+		if(length < 0 || (length + 7L) >>> 3 != bytes.length - 4) {
+			throw new IOException("Bit count does not match data: " + length);
+		}
+		BitWriter writer = new BitWriter(length);
+		for(int b=4; b<bytes.length; b++) {
+			int n = Math.min(8, length - 8 * (b - 4));
+			writer.write((bytes[b] & 0xFF) >>> (8 - n), n);
+		}
+		return writer.toStringOfBits();
+	}
+
+	/**
+	 * Private helper that closes a socket, ignoring errors.
+	 * @param socket - the socket
+	 */
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch(IOException ex) {
+			// Already broken; nothing more to do.
+		}
+	}
+}
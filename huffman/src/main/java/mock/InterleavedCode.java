@@ -0,0 +1,251 @@
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Encodes a string as four interleaved Huffman bit streams that are decoded
+ * together in one loop.
+ * <p>
+ * Symbol <code>i</code> of the string goes to stream <code>i % 4</code>,
+ * and every stream is encoded with the same {@link CodeTable}. In a single
+ * stream the position of each code depends on the length of the one before
+ * it, so every table lookup waits for the previous one. The decoder here
+ * advances four independent bit positions in turn, so the processor can
+ * overlap the lookups of the four streams.
+ * </p>
+ * <p>
+ * A block holds the number of symbols and the bit length of each stream,
+ * as 4-byte big-endian integers, followed by the four streams, each padded
+ * to a whole byte. Each stream is therefore limited to 2^31 - 1 bits.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class InterleavedCode {
+
+	/** Number of interleaved streams. */
+	public static final int STREAMS = 4;
+
+	/** Size of the block header in bytes. */
+	static final int HEADER_SIZE = 4 + 4 * STREAMS;
+
+	/** Zero bytes after the last stream, so an 8-byte read never runs off the data. */
+	private static final int PADDING = 8;
+
+	/**
+	 * Encodes a string as an interleaved block.
+	 * @param text - the string to encode
+	 * @param huffmanCode - the Huffman code map
+	 * @return the block
+	 * @throws IllegalArgumentException if a character has no code or a stream
+	 * is longer than 2^31 - 1 bits
+	 */
+	public static byte[] encode(String text, Map<Character,StringOfBits> huffmanCode)
+			throws IllegalArgumentException {
+		return encode(text, new CodeTable(huffmanCode));
+	}
+
+	/**
+	 * Encodes a string as an interleaved block with a compiled code table.
+	 * @param text - the string to encode
+	 * @param table - the compiled Huffman code
+	 * @return the block
+	 * @throws IllegalArgumentException if a character has no code or a stream
+	 * is longer than 2^31 - 1 bits
+	 */
+	public static byte[] encode(String text, CodeTable table) throws IllegalArgumentException {
+		int n = text.length();
+		StringOfBits[] streams = new StringOfBits[STREAMS];
+		int size = HEADER_SIZE;
+		long bits = 0;
+		for(int s=0; s<STREAMS; s++) {
+			BitWriter writer = new BitWriter(n);
+			table.encode(text, s, n, STREAMS, writer);
+			streams[s] = writer.toStringOfBits();
+			size += (streams[s].length() + 7) >>> 3;
+			bits += streams[s].length();
+		}
+		CodecMetrics.recordEncode(2L * n, n, bits);
+		ByteBuffer block = ByteBuffer.allocate(size);
+		block.putInt(n);
+		for(StringOfBits stream : streams) {
+			block.putInt(stream.length());
+		}
+		for(StringOfBits stream : streams) {
+			int length = stream.length();
+			for(int i=0; i<length; i+=64) {
+				long word = stream.readBits(i, 64);
+				for(int shift=56; shift>=0 && i+56-shift<length; shift-=8) {
+					block.put((byte) (word >>> shift));
+				}
+			}
+		}
+		return block.array();
+	}
+
+	/**
+	 * Decodes an interleaved block.
+	 * @param block - the block
+	 * @param huffmanCode - the Huffman code map used to encode it
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the block is not a valid encoding
+	 */
+	public static String decode(byte[] block, Map<Character,StringOfBits> huffmanCode)
+			throws IllegalArgumentException {
+		return decode(block, new HuffmanDecoder(huffmanCode));
+	}
+
+	/**
+	 * Decodes an interleaved block with a compiled decoder.
+	 * @param block - the block
+	 * @param decoder - the decoder for the code used to encode it
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the block is not a valid encoding
+	 */
+	public static String decode(byte[] block, HuffmanDecoder decoder) throws IllegalArgumentException {
+		long start = CodecMetrics.start();
+		if(block.length < HEADER_SIZE) {
+			throw new IllegalArgumentException("Block is shorter than its header");
+		}
+		ByteBuffer in = ByteBuffer.wrap(block);
+		int n = in.getInt();
+		long[] end = new long[STREAMS];
+		long[] pos = new long[STREAMS];
+		long offset = 8L * HEADER_SIZE;
+		long totalBits = 0;
+		for(int s=0; s<STREAMS; s++) {
+			int bits = in.getInt();
+			if(bits < 0) {
+				throw new IllegalArgumentException("Invalid block header");
+			}
+			pos[s] = offset;
+			end[s] = offset + bits;
+			offset += (bits + 7L) & ~7L;
+			totalBits += bits;
+		}
+		if(offset != 8L * block.length) {
+			throw new IllegalArgumentException("Block length does not match its header");
+		}
+		// Every code is at least one bit, so this bounds the output before it is allocated.
+		if(n < 0 || n > totalBits) {
+			throw new IllegalArgumentException("Invalid symbol count: " + n);
+		}
+		byte[] padded = new byte[block.length + PADDING];
+		System.arraycopy(block, 0, padded, 0, block.length);
+		Stepper stepper = new Stepper(decoder, ByteBuffer.wrap(padded));
+		char[] out = new char[n];
+		long p0 = pos[0];
+		long p1 = pos[1];
+		long p2 = pos[2];
+		long p3 = pos[3];
+		int i = 0;
+		for(; i+STREAMS<=n; i+=STREAMS) {
+			long r0 = stepper.next(p0);
+			long r1 = stepper.next(p1);
+			long r2 = stepper.next(p2);
+			long r3 = stepper.next(p3);
+			out[i] = (char) (r0 & HuffmanDecoder.MAX_SYMBOL);
+			out[i + 1] = (char) (r1 & HuffmanDecoder.MAX_SYMBOL);
+			out[i + 2] = (char) (r2 & HuffmanDecoder.MAX_SYMBOL);
+			out[i + 3] = (char) (r3 & HuffmanDecoder.MAX_SYMBOL);
+			p0 = r0 >>> 21;
+			p1 = r1 >>> 21;
+			p2 = r2 >>> 21;
+			p3 = r3 >>> 21;
+		}
+		pos[0] = p0;
+		pos[1] = p1;
+		pos[2] = p2;
+		pos[3] = p3;
+		for(int s=0; i<n; s++, i++) {
+			long r = stepper.next(pos[s]);
+			out[i] = (char) (r & HuffmanDecoder.MAX_SYMBOL);
+			pos[s] = r >>> 21;
+		}
+		for(int s=0; s<STREAMS; s++) {
+			if(pos[s] != end[s]) {
+				throw new IllegalArgumentException("Stream " + s + " does not end after its last code");
+			}
+		}
+		CodecMetrics.recordDecode(start, n);
+		return new String(out);
+	}
+
+	/**
+	 * Decodes single codes at arbitrary bit positions of a block.
+	 */
+	private static final class Stepper {
+
+		/** The decoder whose table is used. */
+		private final HuffmanDecoder decoder;
+
+		/** The block, followed by zero padding. */
+		private final ByteBuffer data;
+
+		/** The root table width. */
+		private final int rootBits;
+
+		/**
+		 * Creates a stepper.
+		 * @param decoder - the decoder
+		 * @param data - the padded block
+		 */
+		Stepper(HuffmanDecoder decoder, ByteBuffer data) {
+			this.decoder = decoder;
+			this.data = data;
+			this.rootBits = decoder.rootBits();
+		}
+
+		/**
+		 * Decodes the code starting at a bit position. Only the first symbol
+		 * of a two-symbol entry is taken, so each call yields one symbol.
+		 * @param pos - the bit position of the code
+		 * @return the position after the code, shifted left 21 bits, or'ed
+		 * with the symbol
+		 * @throws IllegalArgumentException if no valid code starts at pos
+		 */
+		long next(long pos) throws IllegalArgumentException {
+			long entry = decoder.entry((int) (peek(pos) >>> (64 - rootBits)));
+			int count = HuffmanDecoder.count(entry);
+			if(count == HuffmanDecoder.LINK || count == 0) {
+				return slowNext(pos, entry);
+			}
+			return (pos + HuffmanDecoder.firstLength(entry)) << 21 | HuffmanDecoder.symbol(entry, 0);
+		}
+
+		/**
+		 * Decodes a code that continues through secondary tables.
+		 * @param pos - the bit position of the code
+		 * @param entry - the root table entry
+		 * @return the position after the code, shifted left 21 bits, or'ed
+		 * with the symbol
+		 * @throws IllegalArgumentException if no valid code starts at pos
+		 */
+		private long slowNext(long pos, long entry) throws IllegalArgumentException {
+			long start = pos;
+			int width = rootBits;
+			while(HuffmanDecoder.count(entry) == HuffmanDecoder.LINK) {
+				pos += width;
+				width = HuffmanDecoder.linkBits(entry);
+				entry = decoder.entry(HuffmanDecoder.linkOffset(entry) + (int) (peek(pos) >>> (64 - width)));
+			}
+			if(HuffmanDecoder.count(entry) == 0) {
+				throw new IllegalArgumentException("Invalid code at bit " + start);
+			}
+			return (pos + HuffmanDecoder.firstLength(entry)) << 21 | HuffmanDecoder.symbol(entry, 0);
+		}
+
+		/**
+		 * Reads at least 57 bits starting at a bit position.
+		 * @param pos - the bit position
+		 * @return the bits, left aligned
+		 * @throws IllegalArgumentException if the position is past the data
+		 */
+		private long peek(long pos) throws IllegalArgumentException {
+			long index = pos >>> 3;
+			if(index > data.capacity() - 8) {
+				throw new IllegalArgumentException("Truncated code at bit " + pos);
+			}
+			return data.getLong((int) index) << (pos & 7);
+		}
+	}
+}
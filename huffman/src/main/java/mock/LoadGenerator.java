@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the request latency of a {@link HuffmanServer} under many
+ * concurrent connections.
+ * <p>
+ * Every connection is opened and negotiates its code first. Only once all
+ * of them are open do they start sending encode requests, one after
+ * another on each connection, so the measured latencies are those seen
+ * with every connection open at once. Each connection runs on its own
+ * thread, virtual where the runtime has them, as in the server. A
+ * connection that gets no response within 30 seconds, for instance
+ * because the server ran out of file descriptors, counts as failed.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class LoadGenerator {
+
+	/** How long a connection waits for a response before it is counted as failed. */
+	private static final int TIMEOUT_MILLIS = 30000;
+
+	/**
+	 * The outcome of a load run.
+	 */
+	public static final class Result {
+
+		/** Number of connections attempted. */
+		private final int connections;
+
+		/** Number of connections that failed. */
+		private final int failed;
+
+		/** Latency of every completed request in nanoseconds, sorted. */
+		private final long[] latencies;
+
+		/** Time from the first request to the last response in nanoseconds. */
+		private final long elapsed;
+
+		/**
+		 * Creates a result.
+		 * @param connections - the number of connections attempted
+		 * @param failed - the number of connections that failed
+		 * @param latencies - the request latencies in nanoseconds, sorted
+		 * @param elapsed - the duration of the run in nanoseconds
+		 */
+		Result(int connections, int failed, long[] latencies, long elapsed) {
+			this.connections = connections;
+			this.failed = failed;
+			this.latencies = latencies;
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * Returns the number of connections that failed to connect, were
+		 * refused a code or broke during the run.
+		 * @return the failed connections
+		 */
+		public int failedConnections() {
+			return failed;
+		}
+
+		/**
+		 * Returns the number of requests that completed.
+		 * @return the completed requests
+		 */
+		public int requests() {
+			return latencies.length;
+		}
+
+		/**
+		 * Returns the completed requests per second.
+		 * @return the throughput
+		 */
+		public double requestsPerSecond() {
+			return latencies.length / (Math.max(1, elapsed) / 1e9);
+		}
+
+		/**
+		 * Returns a latency percentile.
+		 * @param fraction - the percentile as a fraction, 0 to 1
+		 * @return the latency in microseconds; 0 if no request completed
+		 */
+		public double latencyMicros(double fraction) {
+			if(latencies.length == 0) {
+				return 0;
+			}
+			int rank = (int) Math.ceil(fraction * latencies.length);
+			return latencies[Math.min(latencies.length - 1, Math.max(0, rank - 1))] / 1000.0;
+		}
+
+		/**
+		 * Summarizes the run on one line.
+		 * @Override toString in Object
+		 */
+		public String toString() {
+			return String.format("%d connections (%d failed), %d requests, %.0f req/s, "
+					+ "p50 %.1f us, p99 %.1f us, max %.1f us", connections, failed, latencies.length,
+					requestsPerSecond(), latencyMicros(0.50), latencyMicros(0.99), latencyMicros(1.0));
+		}
+	}
+
+	/**
+	 * Runs a load test against a server on the loopback address.
+	 * @param port - the server's port
+	 * @param connections - the number of concurrent connections
+	 * @param requests - the number of encode requests per connection
+	 * @param text - the text to encode, also used as the seed of the code
+	 * @return the result
+	 * @throws InterruptedException if interrupted while waiting for the run
+	 * @throws IllegalArgumentException if connections or requests is negative
+	 */
+	public static Result run(final int port, int connections, final int requests, final String text)
+			throws InterruptedException, IllegalArgumentException {
+		if(connections < 0 || requests < 0) {
+			throw new IllegalArgumentException("Negative load: " + connections + " x " + requests);
+		}
+		final CountDownLatch ready = new CountDownLatch(connections);
+		final CountDownLatch go = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(connections);
+		final long[] latencies = new long[connections * requests];
+		final AtomicInteger recorded = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		ExecutorService executor = HuffmanServer.newConnectionExecutor("huffman-load-");
+		try {
+			for(int c=0; c<connections; c++) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						boolean waiting = true;
+						try(HuffmanClient client = new HuffmanClient(port, TIMEOUT_MILLIS)) {
+							client.negotiate(text);
+							ready.countDown();
+							waiting = false;
+							go.await();
+							for(int r=0; r<requests; r++) {
+								long start = System.nanoTime();
+								client.encode(text);
+								latencies[recorded.getAndIncrement()] = System.nanoTime() - start;
+							}
+						} catch(IOException ex) {
+							failed.incrementAndGet();
+						} catch(InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						} finally {
+							if(waiting) {
+								ready.countDown();
+							}
+							done.countDown();
+						}
+					}
+				});
+			}
+			ready.await();
+			long start = System.nanoTime();
+			go.countDown();
+			done.await();
+			long elapsed = System.nanoTime() - start;
+			long[] sorted = Arrays.copyOf(latencies, recorded.get());
+			Arrays.sort(sorted);
+			return new Result(connections, failed.get(), sorted, elapsed);
+		} finally {
+			go.countDown();
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,512 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compresses and decompresses files with a canonical Huffman code over
+ * byte values, reading and writing through memory-mapped regions.
+ * <p>
+ * Compression scans the mapped input twice: once to count byte frequencies
+ * and once to encode. The output size is known before encoding, so the
+ * payload is written straight into a mapped region of the output file.
+ * Nothing is copied into a heap String or StringOfBits.
+ * </p>
+ * <p>
+ * A compressed file holds the magic bytes <code>HUF1</code>, the original
+ * length (8 bytes), the code length of each byte value (256 bytes; 0 if
+ * absent), the number of payload bits (8 bytes) and then the payload,
+ * most significant bit first and padded with zeros to a whole byte. All
+ * numbers are big-endian.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class MappedFileCodec {
+
+	/** Magic bytes at the start of a compressed file. */
+	static final int MAGIC = 0x48554631;
+
+	/** Size of the header of a compressed file. */
+	static final int HEADER_SIZE = 4 + 8 + 256 + 8;
+
+	/** Largest region mapped at once. */
+	static final long CHUNK = 1L << 30;
+
+	/** Longest code written with a single accumulator update. */
+	private static final int MAX_PACKED = 56;
+
+	/**
+	 * Compresses a file.
+	 * @param source - the file to compress
+	 * @param target - the compressed file to create or replace
+	 * @return the size of the compressed file in bytes
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static long compress(Path source, Path target) throws IOException {
+		FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		try {
+			long size = in.size();
+			long[] counts = countBytes(in, 0, size);
+			int[] lengths = codeLengths(counts);
+			long bits = 0;
+			for(int b=0; b<256; b++) {
+				bits += counts[b] * lengths[b];
+			}
+			long total = HEADER_SIZE + (bits + 7) / 8;
+			RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw");
+			try {
+				out.setLength(total);
+				FileChannel channel = out.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putLong(size);
+				for(int b=0; b<256; b++) {
+					header.put((byte) lengths[b]);
+				}
+				header.putLong(bits).flip();
+				while(header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				MappedWriter writer = new MappedWriter(channel, HEADER_SIZE, total - HEADER_SIZE);
+				encodeRange(in, 0, size, canonicalCodes(lengths), writer);
+				writer.finish();
+			} finally {
+				out.close();
+			}
+			return total;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decompresses a file written by compress.
+	 * @param source - the compressed file
+	 * @param target - the file to create or replace with the original data
+	 * @return the size of the original data in bytes
+	 * @throws IOException if an I/O error occurs or the file is not valid
+	 */
+	public static long decompress(Path source, Path target) throws IOException {
+		FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		try {
+			if(in.size() < HEADER_SIZE) {
+				throw new IOException("Not a compressed file");
+			}
+			ByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if(header.getInt() != MAGIC) {
+				throw new IOException("Not a compressed file");
+			}
+			long size = header.getLong();
+			int[] lengths = new int[256];
+			for(int b=0; b<256; b++) {
+				lengths[b] = header.get() & 0xFF;
+			}
+			long bits = header.getLong();
+			if(size < 0 || bits < 0 || in.size() != HEADER_SIZE + (bits + 7) / 8) {
+				throw new IOException("Compressed file is truncated or corrupt");
+			}
+			RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw");
+			try {
+				out.setLength(size);
+				MappedWriter writer = new MappedWriter(out.getChannel(), 0, size);
+				MappedReader reader = new MappedReader(in, HEADER_SIZE, in.size() - HEADER_SIZE);
+				decodeRange(reader, bits, size, decoderFor(lengths), writer);
+				writer.finish();
+			} finally {
+				out.close();
+			}
+			return size;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Counts how often each byte value occurs in a region of a file.
+	 * @param channel - the file
+	 * @param start - the offset of the region
+	 * @param length - the length of the region
+	 * @return the count of each byte value
+	 * @throws IOException if an I/O error occurs
+	 */
+	static long[] countBytes(FileChannel channel, long start, long length) throws IOException {
+		long[] counts = new long[256];
+		for(long offset=0; offset<length; offset+=CHUNK) {
+			countBytes(channel.map(FileChannel.MapMode.READ_ONLY,
+					start + offset, Math.min(CHUNK, length - offset)), counts);
+		}
+		return counts;
+	}
+
+	/**
+	 * Adds the byte values between a buffer's position and limit to a count.
+	 * The buffer is left at its limit.
+	 * @param region - the bytes to count
+	 * @param counts - the count of each byte value, updated in place
+	 */
+	static void countBytes(ByteBuffer region, long[] counts) {
+		while(region.hasRemaining()) {
+			counts[region.get() & 0xFF]++;
+		}
+	}
+
+	/**
+	 * Computes the canonical Huffman code lengths for byte counts.
+	 * @param counts - the count of each byte value
+	 * @return the code length of each byte value; 0 if it does not occur
+	 */
+	static int[] codeLengths(long[] counts) {
+		return CodeLengths.fromCounts(counts);
+	}
+
+	/**
+	 * Rebuilds the canonical codes for a table of byte code lengths.
+	 * @param lengths - the code length of each byte value; 0 if absent
+	 * @return the code of each byte value; null if absent
+	 * @throws IOException if the lengths do not form a prefix code
+	 */
+	static StringOfBits[] canonicalCodes(int[] lengths) throws IOException {
+		Map<Character,Integer> table = new HashMap<Character,Integer>();
+		for(int b=0; b<256; b++) {
+			if(lengths[b] > 0) {
+				table.put((char) b, lengths[b]);
+			}
+		}
+		StringOfBits[] codes = new StringOfBits[256];
+		try {
+			for(Map.Entry<Character,StringOfBits> entry : HuffmanCode.createCanonicalCode(table).entrySet()) {
+				codes[entry.getKey()] = entry.getValue();
+			}
+		} catch(IllegalArgumentException ex) {
+			throw new IOException("Invalid code lengths", ex);
+		}
+		return codes;
+	}
+
+	/**
+	 * Compiles a decoder for a table of byte code lengths.
+	 * @param lengths - the code length of each byte value; 0 if absent
+	 * @return the decoder
+	 * @throws IOException if the lengths do not form a prefix code
+	 */
+	static HuffmanDecoder decoderFor(int[] lengths) throws IOException {
+		StringOfBits[] codes = canonicalCodes(lengths);
+		int n = 0;
+		for(int b=0; b<256; b++) {
+			if(codes[b] != null) {
+				n++;
+			}
+		}
+		int[] symbols = new int[n];
+		StringOfBits[] present = new StringOfBits[n];
+		n = 0;
+		for(int b=0; b<256; b++) {
+			if(codes[b] != null) {
+				symbols[n] = b;
+				present[n++] = codes[b];
+			}
+		}
+		return new HuffmanDecoder(symbols, present, HuffmanDecoder.DEFAULT_ROOT_BITS);
+	}
+
+	/**
+	 * Encodes a region of a file into a writer. The final partial byte is
+	 * left pending in the writer.
+	 * @param channel - the file
+	 * @param start - the offset of the region
+	 * @param length - the length of the region
+	 * @param codes - the code of each byte value
+	 * @param writer - the destination of the encoded bits
+	 * @throws IOException if an I/O error occurs
+	 */
+	static void encodeRange(FileChannel channel, long start, long length, StringOfBits[] codes,
+			MappedWriter writer) throws IOException {
+		for(long offset=0; offset<length; offset+=CHUNK) {
+			encodeRange(channel.map(FileChannel.MapMode.READ_ONLY,
+					start + offset, Math.min(CHUNK, length - offset)), codes, writer);
+		}
+	}
+
+	/**
+	 * Encodes the bytes between a buffer's position and limit into a
+	 * writer. The final partial byte is left pending in the writer.
+	 * @param region - the bytes to encode
+	 * @param codes - the code of each byte value
+	 * @param writer - the destination of the encoded bits
+	 * @throws IOException if an I/O error occurs
+	 */
+	static void encodeRange(ByteBuffer region, StringOfBits[] codes, MappedWriter writer) throws IOException {
+		long[] packed = new long[256];
+		int[] lengths = new int[256];
+		for(int b=0; b<256; b++) {
+			if(codes[b] != null) {
+				lengths[b] = codes[b].length();
+				packed[b] = codes[b].readBits(0, Math.min(MAX_PACKED, lengths[b]));
+			}
+		}
+		while(region.hasRemaining()) {
+			int b = region.get() & 0xFF;
+			if(lengths[b] <= MAX_PACKED) {
+				writer.writeBits(packed[b], lengths[b]);
+			} else {
+				for(int i=0; i<lengths[b]; i+=32) {
+					int n = Math.min(32, lengths[b] - i);
+					writer.writeBits(codes[b].readBits(i, n), n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes a given number of bytes from a reader into a writer.
+	 * @param reader - the source of encoded bits
+	 * @param bits - the number of encoded bits available
+	 * @param count - the number of bytes to decode
+	 * @param decoder - the compiled decoder
+	 * @param writer - the destination of the decoded bytes
+	 * @throws IOException if an I/O error occurs or the data is corrupt
+	 */
+	static void decodeRange(MappedReader reader, long bits, long count, HuffmanDecoder decoder,
+			MappedWriter writer) throws IOException {
+		long used = 0;
+		long decoded = 0;
+		while(decoded < count) {
+			long start = used;
+			int width = decoder.rootBits();
+			long entry = decoder.entry(reader.peek(width));
+			while(HuffmanDecoder.count(entry) == HuffmanDecoder.LINK) {
+				reader.skip(width);
+				used += width;
+				width = HuffmanDecoder.linkBits(entry);
+				entry = decoder.entry(HuffmanDecoder.linkOffset(entry) + reader.peek(width));
+			}
+			int symbols = HuffmanDecoder.count(entry);
+			int consumed = HuffmanDecoder.consumed(entry);
+			if(symbols == 2 && (decoded + 1 == count || used + consumed > bits)) {
+				symbols = 1;
+				consumed = HuffmanDecoder.firstLength(entry);
+			}
+			if(symbols == 0 || used + consumed > bits) {
+				throw new IOException("Invalid or truncated code at bit " + start);
+			}
+			reader.skip(consumed);
+			used += consumed;
+			writer.put(HuffmanDecoder.symbol(entry, 0));
+			if(symbols == 2) {
+				writer.put(HuffmanDecoder.symbol(entry, 1));
+			}
+			decoded += symbols;
+		}
+	}
+
+	/**
+	 * Sequential bit reader over a region of a file, mapped a chunk at a
+	 * time, or over a buffer that is already mapped.
+	 */
+	static final class MappedReader {
+
+		/** The file being read; null when reading a given buffer. */
+		private final FileChannel channel;
+
+		/** Offset of the region in the file. */
+		private final long start;
+
+		/** Length of the region. */
+		private final long length;
+
+		/** Offset within the region of the current chunk. */
+		private long chunkStart;
+
+		/** The current mapped chunk. */
+		private ByteBuffer chunk;
+
+		/** Bits loaded from the region, left aligned. */
+		private long window;
+
+		/** Number of valid bits in the window. */
+		private int windowBits;
+
+		/**
+		 * Creates a reader.
+		 * @param channel - the file
+		 * @param start - the offset of the region
+		 * @param length - the length of the region
+		 * @throws IOException if an I/O error occurs
+		 */
+		MappedReader(FileChannel channel, long start, long length) throws IOException {
+			this.channel = channel;
+			this.start = start;
+			this.length = length;
+			this.chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK, length));
+		}
+
+		/**
+		 * Creates a reader over the bytes between a buffer's position and
+		 * limit, such as a slice of a mapping shared by several readers.
+		 * @param region - the bytes to read
+		 */
+		MappedReader(ByteBuffer region) {
+			this.channel = null;
+			this.start = 0;
+			this.chunk = region.slice();
+			this.length = chunk.capacity();
+		}
+
+		/**
+		 * Returns the next bits without consuming them; bits past the end of
+		 * the region read as zero.
+		 * @param n - the number of bits, 1 to 16
+		 * @return the bits, right aligned
+		 * @throws IOException if an I/O error occurs
+		 */
+		int peek(int n) throws IOException {
+			if(windowBits < n) {
+				fill();
+			}
+			return (int) (window >>> (64 - n));
+		}
+
+		/**
+		 * Consumes bits.
+		 * @param n - the number of bits, at most 16
+		 * @throws IOException if fewer bits are left in the region
+		 */
+		void skip(int n) throws IOException {
+			if(windowBits < n) {
+				fill();
+				if(windowBits < n) {
+					throw new IOException("Unexpected end of compressed data");
+				}
+			}
+			window <<= n;
+			windowBits -= n;
+		}
+
+		/**
+		 * Loads whole bytes into the window, mapping the next chunk when
+		 * the current one is used up.
+		 * @throws IOException if an I/O error occurs
+		 */
+		private void fill() throws IOException {
+			while(windowBits <= 56) {
+				if(!chunk.hasRemaining()) {
+					if(chunkStart + chunk.capacity() >= length) {
+						return;
+					}
+					chunkStart += chunk.capacity();
+					chunk = channel.map(FileChannel.MapMode.READ_ONLY, start + chunkStart,
+							Math.min(CHUNK, length - chunkStart));
+				}
+				window |= (chunk.get() & 0xFFL) << (56 - windowBits);
+				windowBits += 8;
+			}
+		}
+	}
+
+	/**
+	 * Sequential bit and byte writer over a region of a file, mapped a chunk
+	 * at a time, or over a buffer that is already mapped.
+	 */
+	static final class MappedWriter {
+
+		/** The file being written; null when writing a given buffer. */
+		private final FileChannel channel;
+
+		/** Offset of the region in the file. */
+		private final long start;
+
+		/** Length of the region. */
+		private final long length;
+
+		/** Offset within the region of the current chunk. */
+		private long chunkStart;
+
+		/** The current mapped chunk. */
+		private ByteBuffer chunk;
+
+		/** Pending bits, right aligned; only the low accBits bits are used. */
+		private long acc;
+
+		/** Number of pending bits, less than 8 between calls. */
+		private int accBits;
+
+		/**
+		 * Creates a writer.
+		 * @param channel - the file, already large enough to hold the region
+		 * @param start - the offset of the region
+		 * @param length - the length of the region
+		 * @throws IOException if an I/O error occurs
+		 */
+		MappedWriter(FileChannel channel, long start, long length) throws IOException {
+			this.channel = channel;
+			this.start = start;
+			this.length = length;
+			this.chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK, length));
+		}
+
+		/**
+		 * Creates a writer over the bytes between a buffer's position and
+		 * limit, such as a slice of a mapping shared by several writers.
+		 * The owner of the mapping forces it to disk.
+		 * @param region - the buffer to write
+		 */
+		MappedWriter(ByteBuffer region) {
+			this.channel = null;
+			this.start = 0;
+			this.chunk = region.slice();
+			this.length = chunk.capacity();
+		}
+
+		/**
+		 * Appends up to 56 bits.
+		 * @param bits - the bits, right aligned
+		 * @param n - the number of bits
+		 * @throws IOException if an I/O error occurs
+		 */
+		void writeBits(long bits, int n) throws IOException {
+			acc = (acc << n) | bits;
+			accBits += n;
+			while(accBits >= 8) {
+				accBits -= 8;
+				put((int) (acc >>> accBits));
+			}
+		}
+
+		/**
+		 * Writes a whole byte.
+		 * @param b - the byte, in the low 8 bits
+		 * @throws IOException if an I/O error occurs or a given buffer is full
+		 */
+		void put(int b) throws IOException {
+			if(!chunk.hasRemaining()) {
+				if(channel == null) {
+					throw new IOException("Write past the end of the region");
+				}
+				chunkStart += chunk.capacity();
+				chunk = channel.map(FileChannel.MapMode.READ_WRITE, start + chunkStart,
+						Math.min(CHUNK, length - chunkStart));
+			}
+			chunk.put((byte) b);
+		}
+
+		/**
+		 * Pads and writes any pending bits and, if the writer mapped its own
+		 * chunks, forces the mapped data to disk.
+		 * @throws IOException if an I/O error occurs
+		 */
+		void finish() throws IOException {
+			if(accBits > 0) {
+				put((int) (acc << (8 - accBits)));
+				accBits = 0;
+			}
+			if(channel != null) {
+				((MappedByteBuffer) chunk).force();
+			}
+		}
+	}
+}
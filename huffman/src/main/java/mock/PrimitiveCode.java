@@ -0,0 +1,449 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A canonical Huffman code over int symbols, held in primitive arrays so
+ * that coding never boxes a symbol.
+ * <p>
+ * Symbols are byte values (0 to 255) for binary data, or Unicode code
+ * points (0 to 0x10FFFF) for text, so supplementary characters get one
+ * code instead of one for each surrogate half. Codes are assigned in order
+ * of length and then symbol, exactly as by
+ * {@link HuffmanCode#createCanonicalCode(Map)}, and are at most
+ * {@link #MAX_CODE_LENGTH} bits long so that each fits in a long.
+ * </p>
+ * <p>
+ * Encoding looks a symbol up in a dense table indexed by symbol when every
+ * symbol is below 65536, and by binary search otherwise, and packs the
+ * codes through a {@link BitWriter}. Decoding resolves
+ * codes of up to {@link #TABLE_BITS} bits with one lookup in a table
+ * indexed by the next bits, and longer codes with the per-length first
+ * code and count of the canonical code.
+ * </p>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class PrimitiveCode {
+
+	/** Longest code length; longer codes are limited with package-merge. */
+	public static final int MAX_CODE_LENGTH = 56;
+
+	/** Number of bits resolved by a single decoding table lookup. */
+	static final int TABLE_BITS = 10;
+
+	/** Symbols below this limit are encoded through dense tables. */
+	private static final int DENSE_LIMIT = 1 << 16;
+
+	/** The symbols in canonical order: by code length, then by symbol. */
+	private final int[] symbols;
+
+	/** The code length of each symbol, in canonical order. */
+	private final int[] lengths;
+
+	/** The code of each symbol, right aligned, in canonical order. */
+	private final long[] codes;
+
+	/** The symbols in increasing order. */
+	private final int[] sorted;
+
+	/** The canonical index of each symbol in sorted. */
+	private final int[] sortedIndex;
+
+	/** Canonical index of each symbol, indexed by symbol, or null if sparse; -1 if no code. */
+	private final int[] dense;
+
+	/** Number of codes of each length. */
+	private final int[] countOfLength = new int[MAX_CODE_LENGTH + 1];
+
+	/** Decoding table entries: canonical index + 1 shifted left 6, or'ed with the length; 0 if longer. */
+	private final int[] table;
+
+	/**
+	 * Private constructor from validated symbols and code lengths.
+	 * @param symbolList - distinct symbols
+	 * @param lengthList - the code length of each symbol, 1 to MAX_CODE_LENGTH
+	 * @throws IllegalArgumentException if the lengths do not form a prefix code
+	 */
+	private PrimitiveCode(int[] symbolList, int[] lengthList) throws IllegalArgumentException {
+		int n = symbolList.length;
+		long[] keys = new long[n];
+		for(int i=0; i<n; i++) {
+			keys[i] = (long) lengthList[i] << 32 | symbolList[i];
+		}
+		Arrays.sort(keys);
+		symbols = new int[n];
+		lengths = new int[n];
+		codes = new long[n];
+		long next = 0;
+		for(int i=0; i<n; i++) {
+			symbols[i] = (int) keys[i];
+			lengths[i] = (int) (keys[i] >>> 32);
+			if(i > 0) {
+				next = (next + 1) << (lengths[i] - lengths[i - 1]);
+			}
+			if(next >>> lengths[i] != 0) {
+				throw new IllegalArgumentException("Code lengths are over-subscribed");
+			}
+			codes[i] = next;
+			countOfLength[lengths[i]]++;
+		}
+		sorted = new int[n];
+		sortedIndex = new int[n];
+		for(int i=0; i<n; i++) {
+			keys[i] = (long) symbols[i] << 32 | i;
+		}
+		Arrays.sort(keys);
+		int maxSymbol = -1;
+		for(int i=0; i<n; i++) {
+			sorted[i] = (int) (keys[i] >>> 32);
+			sortedIndex[i] = (int) keys[i];
+			if(i > 0 && sorted[i] == sorted[i - 1]) {
+				throw new IllegalArgumentException("Duplicate symbol: " + sorted[i]);
+			}
+			maxSymbol = sorted[i];
+		}
+		if(maxSymbol < DENSE_LIMIT) {
+			dense = new int[maxSymbol + 1];
+			Arrays.fill(dense, -1);
+			for(int i=0; i<n; i++) {
+				dense[symbols[i]] = i;
+			}
+		} else {
+			dense = null;
+		}
+		table = new int[1 << TABLE_BITS];
+		for(int i=0; i<n && lengths[i]<=TABLE_BITS; i++) {
+			int shift = TABLE_BITS - lengths[i];
+			int first = (int) codes[i] << shift;
+			Arrays.fill(table, first, first + (1 << shift), (i + 1) << 6 | lengths[i]);
+		}
+	}
+
+	/**
+	 * Creates a code for the byte frequencies of binary data.
+	 * @param seed - the data whose frequencies the code should fit
+	 * @return a code for every byte value that occurs in the seed
+	 */
+	public static PrimitiveCode forBytes(byte[] seed) {
+		long[] counts = new long[256];
+		for(byte b : seed) {
+			counts[b & 0xFF]++;
+		}
+		return fromCounts(counts);
+	}
+
+	/**
+	 * Creates a code for the code point frequencies of a text.
+	 * @param seed - the text whose frequencies the code should fit
+	 * @return a code for every code point that occurs in the seed
+	 */
+	public static PrimitiveCode forCodePoints(CharSequence seed) {
+		FrequencyCounter counter = new FrequencyCounter().addCodePoints(seed);
+		int[] present = counter.symbols();
+		double[] weights = new double[present.length];
+		for(int i=0; i<present.length; i++) {
+			weights[i] = counter.count(present[i]);
+		}
+		if(present.length == 0) {
+			return new PrimitiveCode(present, new int[0]);
+		}
+		return new PrimitiveCode(present, CodeLengths.compute(weights, MAX_CODE_LENGTH));
+	}
+
+	/**
+	 * Creates a code for a table of symbol counts indexed by symbol.
+	 * @param counts - the count of each symbol; symbols with count 0 get no code
+	 * @return the code
+	 * @throws IllegalArgumentException if a count is negative or there are
+	 * more than 0x110000 symbols
+	 */
+	public static PrimitiveCode fromCounts(long[] counts) throws IllegalArgumentException {
+		if(counts.length > Character.MAX_CODE_POINT + 1) {
+			throw new IllegalArgumentException("Too many symbols: " + counts.length);
+		}
+		int[] found = CodeLengths.fromCounts(counts, MAX_CODE_LENGTH);
+		int n = 0;
+		for(int length : found) {
+			if(length > 0) {
+				n++;
+			}
+		}
+		int[] present = new int[n];
+		int[] presentLengths = new int[n];
+		n = 0;
+		for(int s=0; s<found.length; s++) {
+			if(found[s] > 0) {
+				present[n] = s;
+				presentLengths[n++] = found[s];
+			}
+		}
+		return new PrimitiveCode(present, presentLengths);
+	}
+
+	/**
+	 * Creates the canonical code for a list of symbols and code lengths.
+	 * @param symbols - distinct symbols, 0 to 0x10FFFF
+	 * @param lengths - the code length of each symbol, 1 to MAX_CODE_LENGTH
+	 * @return the code
+	 * @throws IllegalArgumentException if a symbol or length is out of range,
+	 * a symbol repeats, or the lengths do not form a prefix code
+	 */
+	public static PrimitiveCode fromLengths(int[] symbols, int[] lengths) throws IllegalArgumentException {
+		if(symbols.length != lengths.length) {
+			throw new IllegalArgumentException("Symbol and length counts differ");
+		}
+		for(int i=0; i<symbols.length; i++) {
+			if(symbols[i] < 0 || symbols[i] > Character.MAX_CODE_POINT) {
+				throw new IllegalArgumentException("Symbol out of range: " + symbols[i]);
+			}
+			if(lengths[i] < 1 || lengths[i] > MAX_CODE_LENGTH) {
+				throw new IllegalArgumentException("Invalid code length: " + lengths[i]);
+			}
+		}
+		return new PrimitiveCode(symbols.clone(), lengths.clone());
+	}
+
+	/**
+	 * Reads a code from codebook bytes written by {@link #toBytes()}.
+	 * @param bytes - the codebook bytes
+	 * @return the code
+	 * @throws IOException if the bytes are not a valid codebook
+	 */
+	public static PrimitiveCode fromBytes(byte[] bytes) throws IOException {
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		int[][] table = CodebookFormat.decode(in);
+		if(in.available() > 0) {
+			throw new IOException("Extra bytes after codebook");
+		}
+		try {
+			return fromLengths(table[0], table[1]);
+		} catch(IllegalArgumentException ex) {
+			throw new IOException("Code lengths do not form a prefix code", ex);
+		}
+	}
+
+	/**
+	 * Serializes this code in the format of {@link CodebookFormat}.
+	 * @return the codebook bytes
+	 */
+	public byte[] toBytes() {
+		int[] sortedLengths = new int[sorted.length];
+		for(int i=0; i<sorted.length; i++) {
+			sortedLengths[i] = lengths[sortedIndex[i]];
+		}
+		return CodebookFormat.encode(sorted, sortedLengths);
+	}
+
+	/**
+	 * Returns the code as a character map, for symbols that are chars.
+	 * @return the Huffman code map
+	 * @throws IllegalArgumentException if a symbol is above 0xFFFF
+	 */
+	public Map<Character,StringOfBits> toCode() throws IllegalArgumentException {
+		Map<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		for(int i=0; i<symbols.length; i++) {
+			if(symbols[i] > Character.MAX_VALUE) {
+				throw new IllegalArgumentException("Symbol is not a char: " + symbols[i]);
+			}
+			StringOfBits bits = new StringOfBits();
+			bits.appendBits(codes[i], lengths[i]);
+			code.put((char) symbols[i], bits);
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the number of symbols with a code.
+	 * @return the number of symbols
+	 */
+	public int size() {
+		return symbols.length;
+	}
+
+	/**
+	 * Returns the symbols with a code.
+	 * @return the symbols in increasing order
+	 */
+	public int[] symbols() {
+		return sorted.clone();
+	}
+
+	/**
+	 * Returns the code length of a symbol.
+	 * @param symbol - the symbol
+	 * @return the code length; 0 if the symbol has no code
+	 */
+	public int codeLength(int symbol) {
+		int i = indexOf(symbol);
+		return i < 0 ? 0 : lengths[i];
+	}
+
+	/**
+	 * Encodes bytes.
+	 * @param data - the bytes to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a byte has no code
+	 */
+	public StringOfBits encode(byte[] data) throws IllegalArgumentException {
+		BitWriter bits = new BitWriter(4L * data.length);
+		for(byte b : data) {
+			append(bits, b & 0xFF);
+		}
+		return bits.toStringOfBits();
+	}
+
+	/**
+	 * Encodes the code points of a text.
+	 * @param text - the text to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a code point has no code
+	 */
+	public StringOfBits encodeCodePoints(CharSequence text) throws IllegalArgumentException {
+		BitWriter bits = new BitWriter(4L * text.length());
+		for(int i=0; i<text.length(); ) {
+			int codePoint = Character.codePointAt(text, i);
+			append(bits, codePoint);
+			i += Character.charCount(codePoint);
+		}
+		return bits.toStringOfBits();
+	}
+
+	/**
+	 * Encodes symbols.
+	 * @param data - the symbols to encode
+	 * @return the encoded bits
+	 * @throws IllegalArgumentException if a symbol has no code
+	 */
+	public StringOfBits encode(int[] data) throws IllegalArgumentException {
+		BitWriter bits = new BitWriter(4L * data.length);
+		for(int symbol : data) {
+			append(bits, symbol);
+		}
+		return bits.toStringOfBits();
+	}
+
+	/**
+	 * Decodes bits into symbols.
+	 * @param bits - the encoded bits
+	 * @return the symbols
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public int[] decode(StringOfBits bits) throws IllegalArgumentException {
+		int[] out = new int[Math.max(16, bits.length() / 4)];
+		int n = 0;
+		for(int pos=0; pos<bits.length(); ) {
+			long entry = next(bits, pos);
+			if(n == out.length) {
+				out = Arrays.copyOf(out, 2 * n);
+			}
+			out[n++] = symbols[(int) entry];
+			pos += (int) (entry >>> 32);
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Decodes bits into bytes.
+	 * @param bits - the encoded bits
+	 * @return the bytes
+	 * @throws IllegalArgumentException if the bits are not a sequence of
+	 * whole codes or a symbol is not a byte value
+	 */
+	public byte[] decodeBytes(StringOfBits bits) throws IllegalArgumentException {
+		byte[] out = new byte[Math.max(16, bits.length() / 4)];
+		int n = 0;
+		for(int pos=0; pos<bits.length(); ) {
+			long entry = next(bits, pos);
+			int symbol = symbols[(int) entry];
+			if(symbol > 255) {
+				throw new IllegalArgumentException("Symbol is not a byte value: " + symbol);
+			}
+			if(n == out.length) {
+				out = Arrays.copyOf(out, 2 * n);
+			}
+			out[n++] = (byte) symbol;
+			pos += (int) (entry >>> 32);
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Decodes bits into a string of code points.
+	 * @param bits - the encoded bits
+	 * @return the decoded string
+	 * @throws IllegalArgumentException if the bits are not a sequence of whole codes
+	 */
+	public String decodeString(StringOfBits bits) throws IllegalArgumentException {
+		StringBuilder out = new StringBuilder();
+		for(int pos=0; pos<bits.length(); ) {
+			long entry = next(bits, pos);
+			out.appendCodePoint(symbols[(int) entry]);
+			pos += (int) (entry >>> 32);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Private helper that finds the canonical index of a symbol.
+	 * @param symbol - the symbol
+	 * @return the canonical index; -1 if the symbol has no code
+	 */
+	private int indexOf(int symbol) {
+		if(dense != null) {
+			return symbol >= 0 && symbol < dense.length ? dense[symbol] : -1;
+		}
+		int i = Arrays.binarySearch(sorted, symbol);
+		return i < 0 ? -1 : sortedIndex[i];
+	}
+
+	/**
+	 * Private helper that appends the code of one symbol.
+	 * @param bits - the writer to append to
+	 * @param symbol - the symbol
+	 * @throws IllegalArgumentException if the symbol has no code
+	 */
+	private void append(BitWriter bits, int symbol) throws IllegalArgumentException {
+		int i = indexOf(symbol);
+		if(i < 0) {
+			throw new IllegalArgumentException("No code for symbol " + symbol);
+		}
+		bits.put(codes[i], lengths[i]);
+	}
+
+	/**
+	 * Private helper that decodes the code starting at a bit position.
+	 * @param bits - the encoded bits
+	 * @param pos - the position of the first bit of the code
+	 * @return the code length in the high 32 bits and the canonical index in the low 32 bits
+	 * @throws IllegalArgumentException if no whole code starts at pos
+	 */
+	private long next(StringOfBits bits, int pos) throws IllegalArgumentException {
+		int available = bits.length() - pos;
+		int entry = table[(int) bits.readBits(pos, TABLE_BITS)];
+		if(entry != 0) {
+			int length = entry & 0x3F;
+			if(length > available) {
+				throw new IllegalArgumentException("Truncated code at bit " + pos);
+			}
+			return (long) length << 32 | (entry >>> 6) - 1;
+		}
+		long window = bits.readBits(pos, MAX_CODE_LENGTH);
+		long code = 0;
+		long first = 0;
+		int index = 0;
+		for(int length=1; length<=MAX_CODE_LENGTH && length<=available; length++) {
+			code |= window >>> (MAX_CODE_LENGTH - length) & 1;
+			int count = countOfLength[length];
+			if(code - first < count) {
+				return (long) length << 32 | index + (int) (code - first);
+			}
+			index += count;
+			first = (first + count) << 1;
+			code <<= 1;
+		}
+		throw new IllegalArgumentException("Invalid or truncated code at bit " + pos);
+	}
+}
@@ -1,7 +1,209 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line entry point for the Huffman code utilities.
+ * <ul>
+ * <li><code>compress [-b &lt;KiB&gt;] [-s] &lt;in&gt; &lt;out&gt;</code> compresses a
+ * file; <code>-b</code> compresses blocks of the given size in parallel and
+ * <code>-s</code> gives every block its own code</li>
+ * <li><code>decompress &lt;in&gt; &lt;out&gt;</code> restores a compressed file
+ * in either format</li>
+ * <li><code>benchdecode [chars]</code> reports the decode throughput of the
+ * table-driven decoder next to the original bit-by-bit decoder</li>
+ * <li><code>serve [port]</code> runs a {@link HuffmanServer} on the loopback
+ * address until the process is killed</li>
+ * <li><code>loadgen [connections] [requests] [port]</code> measures request
+ * latency with a {@link LoadGenerator}, against the server on the given
+ * port or, without one, against a server started in the same process</li>
+ * </ul>
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
 public class Runner {
-	
-	public static void main(String[] args) {
-		System.out.println("HELLO!");
-	}	
-	
-} 
+
+	/** Sample text repeated to build benchmark input. */
+	private static final String SAMPLE = "Sally Sells Seashells by the Seashore. "
+			+ "Today trever has been working on his program sense we woke up. ";
+
+	/** Longest input the recursive bit-by-bit decoder is given. */
+	private static final int BIT_BY_BIT_LIMIT = 2000;
+
+	/** Default port of the serve command. */
+	private static final int DEFAULT_PORT = 7070;
+
+	/** Default number of load generator connections. */
+	private static final int DEFAULT_CONNECTIONS = 10000;
+
+	/** Default number of requests per load generator connection. */
+	private static final int DEFAULT_REQUESTS = 10;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String command = args.length > 0 ? args[0] : "";
+		if(command.equals("compress") && args.length >= 3) {
+			int blockSize = 0;
+			boolean perBlockCodes = false;
+			int i = 1;
+			for(; i<args.length-2; i++) {
+				if(args[i].equals("-b") && i + 1 < args.length - 2) {
+					blockSize = Integer.parseInt(args[++i]) << 10;
+				} else if(args[i].equals("-s")) {
+					perBlockCodes = true;
+				} else {
+					break;
+				}
+			}
+			if(i != args.length - 2) {
+				usage();
+			}
+			if(perBlockCodes && blockSize == 0) {
+				blockSize = BlockFileCodec.DEFAULT_BLOCK_SIZE;
+			}
+			compress(Paths.get(args[i]), Paths.get(args[i + 1]), blockSize, perBlockCodes);
+		} else if(command.equals("decompress") && args.length == 3) {
+			decompress(Paths.get(args[1]), Paths.get(args[2]));
+		} else if(command.equals("benchdecode")) {
+			benchDecode(args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20);
+		} else if(command.equals("serve") && args.length <= 2) {
+			serve(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+		} else if(command.equals("loadgen") && args.length <= 4) {
+			loadGenerator(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONNECTIONS,
+					args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REQUESTS,
+					args.length > 3 ? Integer.parseInt(args[3]) : -1);
+		} else {
+			usage();
+		}
+	}
+
+	/**
+	 * Prints the command line usage and exits.
+	 */
+	private static void usage() {
+		System.err.println("usage: Runner compress [-b <KiB>] [-s] <in> <out>");
+		System.err.println("       Runner decompress <in> <out>");
+		System.err.println("       Runner benchdecode [chars]");
+		System.err.println("       Runner serve [port]");
+		System.err.println("       Runner loadgen [connections] [requests] [port]");
+		System.exit(2);
+	}
+
+	/**
+	 * Compresses a file and prints the sizes and throughput.
+	 * @param source - the file to compress
+	 * @param target - the compressed file
+	 * @param blockSize - the block size for parallel compression, or 0 for a single stream
+	 * @param perBlockCodes - true to give every block its own code
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void compress(Path source, Path target, int blockSize, boolean perBlockCodes)
+			throws IOException {
+		long start = System.nanoTime();
+		long size = blockSize > 0
+				? BlockFileCodec.compress(source, target, blockSize, perBlockCodes, ForkJoinPool.commonPool())
+				: MappedFileCodec.compress(source, target);
+		long elapsed = System.nanoTime() - start;
+		long original = source.toFile().length();
+		System.out.printf("%d -> %d bytes (%.1f%%), %.2f MB/s%n", original, size,
+				original == 0 ? 100.0 : 100.0 * size / original, megabytesPerSecond(original, elapsed));
+	}
+
+	/**
+	 * Decompresses a file and prints the size and throughput.
+	 * @param source - the compressed file
+	 * @param target - the restored file
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void decompress(Path source, Path target) throws IOException {
+		long start = System.nanoTime();
+		long size = BlockFileCodec.isBlockFile(source)
+				? BlockFileCodec.decompress(source, target)
+				: MappedFileCodec.decompress(source, target);
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%d -> %d bytes, %.2f MB/s%n", source.toFile().length(), size,
+				megabytesPerSecond(size, elapsed));
+	}
+
+	/**
+	 * Prints the decode throughput, in MB of decoded text per second, of the
+	 * table-driven decoder and of the original decoder.
+	 * @param chars - the number of characters of input to decode
+	 */
+	private static void benchDecode(int chars) {
+		StringBuilder text = new StringBuilder(chars + SAMPLE.length());
+		while(text.length() < chars) {
+			text.append(SAMPLE);
+		}
+		String input = text.substring(0, chars);
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(input);
+		StringOfBits encoded = HuffmanCode.encode(input, code);
+		HuffmanDecoder decoder = new HuffmanDecoder(code);
+		for(int i=0; i<5; i++) {
+			decoder.decode(encoded);
+		}
+		int rounds = 10;
+		long start = System.nanoTime();
+		for(int i=0; i<rounds; i++) {
+			decoder.decode(encoded);
+		}
+		double tableRate = megabytesPerSecond((long) chars * rounds, System.nanoTime() - start);
+
+		String shortInput = input.substring(0, Math.min(chars, BIT_BY_BIT_LIMIT));
+		StringOfBits shortEncoded = HuffmanCode.encode(shortInput, code);
+		start = System.nanoTime();
+		HuffmanCode.decodeBitByBit(shortEncoded, code);
+		double bitRate = megabytesPerSecond(shortInput.length(), System.nanoTime() - start);
+
+		System.out.printf("table decoder:      %12.4f MB/s (%d chars)%n", tableRate, chars);
+		System.out.printf("bit-by-bit decoder: %12.4f MB/s (%d chars)%n", bitRate, shortInput.length());
+	}
+
+	/**
+	 * Runs a server until the process is killed, with its metrics published
+	 * through JMX.
+	 * @param port - the port to listen on
+	 * @throws IOException if the port cannot be bound
+	 * @throws InterruptedException if the main thread is interrupted
+	 */
+	private static void serve(int port) throws IOException, InterruptedException {
+		CodecMetrics.register();
+		CodecMetrics.get().setEnabled(true);
+		HuffmanServer server = new HuffmanServer(port).start();
+		System.out.printf("listening on 127.0.0.1:%d (%s threads)%n", server.port(),
+				server.usesVirtualThreads() ? "virtual" : "platform");
+		new CountDownLatch(1).await();
+	}
+
+	/**
+	 * Runs the load generator and prints its result.
+	 * @param connections - the number of concurrent connections
+	 * @param requests - the number of requests per connection
+	 * @param port - the server's port, or -1 to start a server in this process
+	 * @throws IOException if the in-process server cannot be started
+	 * @throws InterruptedException if the main thread is interrupted
+	 */
+	private static void loadGenerator(int connections, int requests, int port)
+			throws IOException, InterruptedException {
+		HuffmanServer server = port < 0 ? new HuffmanServer(0).start() : null;
+		try {
+			System.out.println(LoadGenerator.run(server != null ? server.port() : port, connections, requests, SAMPLE));
+		} finally {
+			if(server != null) {
+				server.close();
+			}
+		}
+	}
+
+	/**
+	 * Converts a byte count and elapsed time into MB/s.
+	 * @param bytes - the number of bytes processed
+	 * @param nanos - the elapsed time in nanoseconds
+	 * @return the throughput in MB/s
+	 */
+	private static double megabytesPerSecond(long bytes, long nanos) {
+		return bytes / 1e6 / (Math.max(1, nanos) / 1e9);
+	}
+}
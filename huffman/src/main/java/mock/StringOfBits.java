@@ -1,48 +1,143 @@
-
 /**
  * Represents a string of bit values (0 or 1)
+ * <p>
+ * Bits are packed 64 to a word into a growable <code>long[]</code>,
+ * most significant bit first, so that bit <code>i</code> lives in word
+ * <code>i / 64</code> at position <code>63 - (i % 64)</code>. Bits past
+ * <code>length()</code> are always zero. Appending is amortized O(1) per
+ * bit and appending another StringOfBits shifts whole words at a time.
+ * </p>
+ * <p>
+ * {@link #slice(int, int)} returns a view that shares the words of the
+ * original, starting at a bit offset, in O(1). Storage that is shared
+ * this way is copy-on-write: the first change to either string copies its
+ * bits into words of its own, so changes are never seen by the other.
+ * Bits of shared words past a view's end may be set, so every read masks
+ * them off.
+ * </p>
  * @version Fall 2015 (1)
  * @author Trever
  */
-public class StringOfBits {
+public class StringOfBits implements BitSequence {
+
+	/** Number of bits held by each word of storage. */
+	private static final int WORD_BITS = 64;
+
+	/** Number of words allocated for an empty bit string. */
+	private static final int INITIAL_WORDS = 2;
+
+	/** The packed words that hold the bits of this StringOfBits object */
+	private long[] words;
+
+	/** The number of bits in this StringOfBits object */
+	private int length;
+
+	/** The index in words of bit 0; 0 unless this is a slice */
+	private int offset;
+
+	/** Whether words may be shared with another bit string */
+	private boolean shared;
 
-	/** The Bit String that defines this StringOfBits object */
-	private String bitString;
-	
 	/**
 	 * Constructs the empty bit string; length()==0
 	 */
 	public StringOfBits() {
-		this.bitString = "";
+		this.words = new long[INITIAL_WORDS];
+		this.length = 0;
 	}
-	
+
 	/**
 	 * Copy Constructor.
 	 * @param sb - the object to be cloned
 	 */
 	public StringOfBits(StringOfBits sb) {
-		this.bitString = sb.bitString;
+		this.words = sb.copyWords();
+		this.length = sb.length;
 	}
-	
+
+	/**
+	 * Constructs a bit string that takes over packed words without copying.
+	 * @param words - the packed words; bits past <code>length</code> must be zero
+	 * @param length - the number of bits
+	 */
+	StringOfBits(long[] words, int length) {
+		this.words = words;
+		this.length = length;
+	}
+
+	/**
+	 * Private constructor for a view over shared words.
+	 * @param words - the shared words
+	 * @param offset - the index in words of the first bit
+	 * @param length - the number of bits
+	 */
+	private StringOfBits(long[] words, int offset, int length) {
+		this.words = words;
+		this.offset = offset;
+		this.length = length;
+		this.shared = true;
+	}
+
 	/**
 	 * Constructs a bit string from String of '0' and '1' characters.
 	 * @param charString - the string to convert into bits
+	 * @throws IllegalArgumentException if the string contains any characters other than '0' or '1'
 	 */
-	public StringOfBits(String charString) {
-		this.bitString = charString;
+	public StringOfBits(String charString) throws IllegalArgumentException {
+		this.words = new long[Math.max(INITIAL_WORDS, wordsFor(charString.length()))];
+		this.length = 0;
+		append(charString);
 	}
-	
+
 	/**
 	 * Returns the length of this bit string.
 	 * @return the number of bits in this string
 	 */
 	public int length() {
-		return bitString.length();
+		return length;
+	}
+
+	/**
+	 * Returns the length of this bit string as a long.
+	 * @return the number of bits in this string
+	 */
+	@Override
+	public long bitLength() {
+		return length;
+	}
+
+	/**
+	 * Returns a view of a range of this bit string that shares its storage.
+	 * Takes constant time; see the class comment for how later changes to
+	 * either string are handled.
+	 * @param from - the index of the first bit of the view
+	 * @param to - the index after the last bit of the view
+	 * @return the view
+	 * @throws IndexOutOfBoundsException if from is negative, to is greater
+	 * than length(), or from is greater than to
+	 */
+	public StringOfBits slice(int from, int to) throws IndexOutOfBoundsException {
+		if(from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("From: " + from + ", To: " + to + ", Length: " + length);
+		}
+		shared = true;
+		return new StringOfBits(words, offset + from, to - from);
+	}
+
+	/**
+	 * Returns a view of this bit string without its first bits, sharing
+	 * its storage.
+	 * @param from - the index of the first bit of the view
+	 * @return the view
+	 * @throws IndexOutOfBoundsException if from is negative or greater than length()
+	 */
+	public StringOfBits slice(int from) throws IndexOutOfBoundsException {
+		return slice(from, length);
 	}
-	
+
 	/**
-	 * Appends the bit string representation to the char argument to this 
-	 * bit string. If the parameter is not '0' or '1' the result of 
+	 * Appends the bit string representation to the char argument to this
+	 * bit string. If the parameter is not '0' or '1' the result of
 	 * this method is undefined.
 	 * @param c - a char
 	 * @return a reference to this bit string
@@ -51,12 +146,10 @@ public class StringOfBits {
 	public StringOfBits append(char c) throws IllegalArgumentException {
 		if(c != '1' && c != '0') {
 			throw new IllegalArgumentException();
-		} else {
-			this.bitString = this.bitString + c;
 		}
-		return this;
+		return append(c == '1');
 	}
-	
+
 	/**
 	 * Appends the bit string representation of the boolean argument to this bit string;
 	 * false corresponds to 0, true corresponds to 1.
@@ -64,15 +157,15 @@ public class StringOfBits {
 	 * @return a reference to this bit string
 	 */
 	public StringOfBits append(boolean b) {
+		unshare();
+		ensureCapacity(length + 1);
 		if(b) {
-			this.bitString = this.bitString + "1";
-		}
-		if(!b) {
-			this.bitString = this.bitString + "0";
+			words[length >>> 6] |= 1L << (WORD_BITS - 1 - (length & 63));
 		}
+		length++;
 		return this;
 	}
-	
+
 	/**
 	 * Appends the bit string representation of the int argument to this bit string.
 	 * @param i - an int
@@ -82,12 +175,10 @@ public class StringOfBits {
 	public StringOfBits append(int i) throws IllegalArgumentException {
 		if(i != 1 && i != 0) {
 			throw new IllegalArgumentException();
-		} else {
-			this.bitString = this.bitString + i;
 		}
-		return this;
+		return append(i == 1);
 	}
-	
+
 	/**
 	 * Appends the bit string representation of the String argument to this bit string.
 	 * Each substring of "0" corresponds to 0; each "1" corresponds to 1. If the string
@@ -97,27 +188,35 @@ public class StringOfBits {
 	 * @throws IllegalArgumentException if the passed string contains any characters other than '0' or '1'
 	 */
 	public StringOfBits append(String str) throws IllegalArgumentException {
-		char[] temp = str.toCharArray();
 		for(int i=0; i<str.length(); i++) {
-			if(temp[i] != '1' && temp[i] != '0') {
+			if(str.charAt(i) != '1' && str.charAt(i) != '0') {
 				throw new IllegalArgumentException();
 			}
 		}
-		this.bitString = this.bitString + str;
+		unshare();
+		ensureCapacity(length + str.length());
+		for(int i=0; i<str.length(); i++) {
+			append(str.charAt(i) == '1');
+		}
 		return this;
-		
 	}
-	
+
 	/**
 	 * Appends the bit string parameter to this bit string.
 	 * @param bitstr - a bit string to be appended
 	 * @return a reference to this bit string
 	 */
 	public StringOfBits append(StringOfBits bitstr) {
-		this.bitString = this.bitString + bitstr.bitString;
+		int count = bitstr.length;
+		unshare();
+		ensureCapacity(length + count);
+		for(int i=0; i<count; i+=WORD_BITS) {
+			int n = Math.min(WORD_BITS, count - i);
+			appendBits(bitstr.readBits(i, n), n);
+		}
 		return this;
 	}
-	
+
 	/**
 	 * Returns a char corresponding to the bit at the specified index.
 	 * @param index - the inde of the desired bit value
@@ -126,27 +225,22 @@ public class StringOfBits {
 	 * greater than or equal to length();
 	 */
 	public char charAt(int index) throws IndexOutOfBoundsException {
-		if(index >= bitString.length()) {
-			throw new IndexOutOfBoundsException();
-		}
-		return bitString.charAt(index);
+		return booleanAt(index) ? '1' : '0';
 	}
-	
+
 	/**
 	 * Returns an int corresponding to the bit at the specified index.
 	 * @param index - the index of the desired bit value
 	 * @return the int value at the specified index
-	 * @throws IndexOutOfBoundsException - if index is negative or 
+	 * @throws IndexOutOfBoundsException - if index is negative or
 	 * greater than or equal to length().
 	 */
 	public int intAt(int index) throws IndexOutOfBoundsException {
-		if(index >= bitString.length()) {
-			throw new IndexOutOfBoundsException();
-		}
-		if(bitString.charAt(index) == '1') { return 1; }
-		else { return 0; }
+		checkIndex(index);
+		int bit = offset + index;
+		return (int) (words[bit >>> 6] >>> (WORD_BITS - 1 - (bit & 63))) & 1;
 	}
-	
+
 	/**
 	 * Returns a boolean corresponding to the bit at the specified index.
 	 * @param index - the index of the desired bit value
@@ -155,78 +249,235 @@ public class StringOfBits {
 	 * greater than or equal to length()
 	 */
 	public boolean booleanAt(int index) throws IndexOutOfBoundsException {
-		if(index >= bitString.length()) {
-			throw new IndexOutOfBoundsException();
-		}
-		if(bitString.charAt(index) == '1') { return true; }
-		else { return false; }
+		return intAt(index) == 1;
 	}
-	
+
 	/**
 	 * the bit at the specified index is set to c
 	 * @param index the index of the bit to modify
 	 * @param c the new c value
 	 * @throws IllegalArgumentException if a char other than '0' or '1' is passed to this method
+	 * @throws IndexOutOfBoundsException if index is negative or greater than or equal to length()
 	 */
 	public void setBitAt(int index, char c) throws IllegalArgumentException {
-		if(c != '1' && c != '0') { 
-			throw new IllegalArgumentException(); 
+		if(c != '1' && c != '0') {
+			throw new IllegalArgumentException();
 		}
-		char[] bsc = bitString.toCharArray();
-		bsc[index] = c;
-		this.bitString = String.valueOf(bsc);
+		setBitAt(index, c == '1');
 	}
-	
+
 	/**
 	 * The bit at the specified index is set to i.
 	 * @param index - the index of the bit to modify
 	 * @param i - the new value
 	 * @throws IllegalArgumentException if an int other than 0 or 1 is passed to this method
+	 * @throws IndexOutOfBoundsException if index is negative or greater than or equal to length()
 	 */
 	public void setBitAt(int index, int i) {
-		if(i != 1 && i != 0) { 
-			throw new IllegalArgumentException(); 
-		}
-		char[] bsc = bitString.toCharArray();
-		if(i==1) {
-			bsc[index] = '1';
-		} else {
-			bsc[index] = '0';
+		if(i != 1 && i != 0) {
+			throw new IllegalArgumentException();
 		}
-		this.bitString = String.valueOf(bsc);
+		setBitAt(index, i == 1);
 	}
-	
+
 	/**
 	 * The bit at the specified index is set to b
 	 * @param index - the index of the bit to modify
 	 * @param b - the new value
+	 * @throws IndexOutOfBoundsException if index is negative or greater than or equal to length()
 	 */
 	public void setBitAt(int index, boolean b) {
-		char[] bsc = bitString.toCharArray();
+		checkIndex(index);
+		unshare();
+		long mask = 1L << (WORD_BITS - 1 - (index & 63));
 		if(b) {
-			bsc[index] = '1';
+			words[index >>> 6] |= mask;
 		} else {
-			bsc[index] = '0';
+			words[index >>> 6] &= ~mask;
 		}
-		this.bitString = String.valueOf(bsc);
 	}
-	
+
 	/**
 	 * Prints out the object as a string
 	 * @Override toString in Object
 	 */
 	public String toString() {
-		return bitString;
+		char[] chars = new char[length];
+		for(int i=0; i<length; i++) {
+			int bit = offset + i;
+			chars[i] = (words[bit >>> 6] << (bit & 63)) < 0 ? '1' : '0';
+		}
+		return new String(chars);
 	}
-}
-
-
 
+	/**
+	 * Two bit strings are equal if they hold the same bits
+	 * @Override equals in Object
+	 */
+	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof StringOfBits)) {
+			return false;
+		}
+		StringOfBits other = (StringOfBits) obj;
+		if(length != other.length) {
+			return false;
+		}
+		for(int i=0; i<length; i+=WORD_BITS) {
+			if(readBits(i, WORD_BITS) != other.readBits(i, WORD_BITS)) {
+				return false;
+			}
+		}
+		return true;
+	}
 
+	/**
+	 * Hashes the length and the packed bits
+	 * @Override hashCode in Object
+	 */
+	public int hashCode() {
+		long hash = length;
+		for(int i=0; i<length; i+=WORD_BITS) {
+			hash = hash * 31 + readBits(i, WORD_BITS);
+		}
+		return (int) (hash ^ (hash >>> 32));
+	}
 
+	/**
+	 * Appends the low-order <code>count</code> bits of <code>value</code>
+	 * to this bit string, most significant of those bits first.
+	 * @param value - the bits to append, right aligned
+	 * @param count - the number of bits to append, 0 to 64
+	 */
+	void appendBits(long value, int count) {
+		if(count == 0) {
+			return;
+		}
+		unshare();
+		ensureCapacity(length + count);
+		long bits = count == WORD_BITS ? value : value & ((1L << count) - 1);
+		int used = length & 63;
+		int word = length >>> 6;
+		int free = WORD_BITS - used;
+		if(count <= free) {
+			words[word] |= bits << (free - count);
+		} else {
+			words[word] |= bits >>> (count - free);
+			words[word + 1] |= bits << (WORD_BITS - (count - free));
+		}
+		length += count;
+	}
 
+	/**
+	 * Returns <code>count</code> bits starting at <code>index</code> as the
+	 * low-order bits of a long, first bit most significant. Positions at or
+	 * past <code>length()</code> read as zero. Reading a whole word at a
+	 * time this way is much faster than reading bit by bit.
+	 * @param index - the index of the first bit to read, not negative
+	 * @param count - the number of bits to read, 0 to 64
+	 * @return the requested bits, right aligned
+	 * @throws IndexOutOfBoundsException if index is negative
+	 * @throws IllegalArgumentException if count is not between 0 and 64
+	 */
+	@Override
+	public long readBits(long index, int count) throws IndexOutOfBoundsException, IllegalArgumentException {
+		if(index < 0) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+		}
+		if(count < 0 || count > WORD_BITS) {
+			throw new IllegalArgumentException("Bit count out of range: " + count);
+		}
+		if(count == 0 || index >= length) {
+			return 0L;
+		}
+		int bit = offset + (int) index;
+		int word = bit >>> 6;
+		int shift = bit & 63;
+		long bits = words[word] << shift;
+		if(shift != 0 && shift + count > WORD_BITS && word + 1 < words.length) {
+			bits |= words[word + 1] >>> (WORD_BITS - shift);
+		}
+		bits >>>= WORD_BITS - count;
+		long past = index + count - length;
+		if(past > 0) {
+			bits &= -1L << past;
+		}
+		return bits;
+	}
 
+	/**
+	 * Gives this bit string words of its own if they may be shared, so that
+	 * it can be changed without affecting any other bit string.
+	 */
+	private void unshare() {
+		if(shared) {
+			words = copyWords();
+			offset = 0;
+			shared = false;
+		}
+	}
 
+	/**
+	 * Copies the bits into new words starting at bit 0, with every bit past
+	 * length() zero.
+	 * @return the new words
+	 */
+	private long[] copyWords() {
+		long[] copy = new long[Math.max(INITIAL_WORDS, wordsFor(length))];
+		if(offset == 0 && !shared) {
+			System.arraycopy(words, 0, copy, 0, wordsFor(length));
+		} else {
+			for(int w=0; w<wordsFor(length); w++) {
+				copy[w] = readBits(64L * w, WORD_BITS);
+			}
+		}
+		return copy;
+	}
 
+	/**
+	 * Grows the word storage, doubling it if necessary, so that it can hold
+	 * the given number of bits. The grown storage starts at bit 0, so a
+	 * nonzero offset is dropped.
+	 * @param bits - the number of bits that must fit
+	 */
+	private void ensureCapacity(int bits) {
+		if(bits < 0) {
+			throw new OutOfMemoryError("StringOfBits length overflow");
+		}
+		int needed = wordsFor(bits);
+		if(needed > words.length || offset != 0) {
+			long[] grown = new long[Math.max(needed, words.length * 2)];
+			if(offset == 0) {
+				System.arraycopy(words, 0, grown, 0, wordsFor(length));
+			} else {
+				for(int w=0; w<wordsFor(length); w++) {
+					grown[w] = readBits(64L * w, WORD_BITS);
+				}
+			}
+			words = grown;
+			offset = 0;
+		}
+	}
 
+	/**
+	 * Verifies that an index addresses an existing bit.
+	 * @param index - the index to check
+	 * @throws IndexOutOfBoundsException if index is negative or greater than or equal to length()
+	 */
+	private void checkIndex(int index) throws IndexOutOfBoundsException {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+		}
+	}
 
+	/**
+	 * Returns the number of words needed to hold a number of bits.
+	 * @param bits - the number of bits
+	 * @return the number of 64-bit words
+	 */
+	private static int wordsFor(int bits) {
+		return (int) ((bits + (long) WORD_BITS - 1) >>> 6);
+	}
+}
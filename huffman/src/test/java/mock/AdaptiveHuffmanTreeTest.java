@@ -0,0 +1,278 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the AdaptiveHuffmanTree, AdaptiveHuffmanOutputStream and
+ * AdaptiveHuffmanInputStream classes
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class AdaptiveHuffmanTreeTest {
+
+	/** Encodes bytes through an AdaptiveHuffmanOutputStream.
+	 * @param data - the bytes to encode
+	 * @return the encoded bytes
+	 */
+	private byte[] encode(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(bytes);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/** Decodes bytes through an AdaptiveHuffmanInputStream.
+	 * @param in - the stream of encoded bytes
+	 * @return the decoded bytes
+	 */
+	private byte[] decode(InputStream in) throws IOException {
+		AdaptiveHuffmanInputStream huffman = new AdaptiveHuffmanInputStream(in);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] chunk = new byte[333];
+		int n;
+		while((n = huffman.read(chunk, 0, chunk.length)) > 0) {
+			bytes.write(chunk, 0, n);
+		}
+		huffman.close();
+		return bytes.toByteArray();
+	}
+
+	/** Checks the sibling property: weights never decrease with the node
+	 * number, parents outnumber their children and weigh as much as both.
+	 * @param tree - the tree to check
+	 */
+	private void assertSiblingProperty(AdaptiveHuffmanTree tree) {
+		int root = tree.root();
+		int lowest = tree.escape();
+		assertEquals(root - lowest + 1, tree.size());
+		long previous = -1;
+		for(int node=lowest; node<=root; node++) {
+			long weight = weightOf(tree, node);
+			assertTrue(weight >= previous);
+			previous = weight;
+			if(tree.symbol(node) == AdaptiveHuffmanTree.INTERNAL) {
+				int left = tree.child(node, 0);
+				int right = tree.child(node, 1);
+				assertTrue(left < node && right < node);
+				assertEquals(weight, weightOf(tree, left) + weightOf(tree, right));
+			}
+		}
+	}
+
+	/** Finds the weight of a node from the leaf counts below it.
+	 * @param tree - the tree
+	 * @param node - the node
+	 * @return the weight of the node
+	 */
+	private long weightOf(AdaptiveHuffmanTree tree, int node) {
+		int symbol = tree.symbol(node);
+		if(symbol == AdaptiveHuffmanTree.ESCAPE) {
+			return 0;
+		}
+		if(symbol >= 0) {
+			return tree.weight(symbol);
+		}
+		return weightOf(tree, tree.child(node, 0)) + weightOf(tree, tree.child(node, 1));
+	}
+
+	/** Updates keep the sibling property and the counts */
+	@Test
+	public void updateTest() {
+		AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+		assertEquals(1, tree.size());
+		assertEquals(0, tree.escapeCode().length());
+		Random random = new Random(11);
+		long[] counts = new long[256];
+		for(int i=0; i<5000; i++) {
+			int symbol = (int) Math.min(255, Math.abs(random.nextGaussian() * 20));
+			tree.update(symbol);
+			counts[symbol]++;
+			if(i % 97 == 0) {
+				assertSiblingProperty(tree);
+			}
+		}
+		assertSiblingProperty(tree);
+		assertEquals(5000, tree.total());
+		for(int s=0; s<256; s++) {
+			assertEquals(counts[s], tree.weight(s));
+			assertEquals(counts[s] > 0, tree.contains(s));
+		}
+		assertFalse(tree.contains(AdaptiveHuffmanTree.EOS));
+		assertNull(tree.code(AdaptiveHuffmanTree.EOS));
+	}
+
+	/** The adaptive code is as short as a static Huffman code for the counts */
+	@Test
+	public void optimalTest() {
+		AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+		String text = "Sally Sells Seashells by the Seashore";
+		for(char c : text.toCharArray()) {
+			tree.update(c);
+		}
+		double adaptive = 0;
+		double fixed = 0;
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		for(char c : code.keySet()) {
+			adaptive += tree.weight(c) * tree.code(c).length();
+			fixed += tree.weight(c) * code.get(c).length();
+		}
+		// The escape leaf takes one slot, which can cost at most one bit per symbol.
+		assertTrue(adaptive <= fixed + text.length());
+	}
+
+	/** The snapshot has the same shape, counts and codes as the tree */
+	@Test
+	public void toHuffmanTreeTest() {
+		AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+		for(char c : "abracadabra".toCharArray()) {
+			tree.update(c);
+		}
+		HuffmanTree snapshot = tree.toHuffmanTree();
+		assertEquals(11.0, snapshot.getFrequency(), 0.0);
+		assertEquals(tree.size(), snapshot.numberOfNodes());
+		int leaves = 0;
+		for(HuffmanTreeNodeValues values : snapshot.preorderValues()) {
+			if(values.getCode() == null) {
+				continue;
+			}
+			leaves++;
+			if(values.getSymbol() == null) {
+				assertEquals(tree.escapeCode(), values.getCode());
+				assertEquals(0.0, values.getFrequency(), 0.0);
+			} else {
+				assertEquals(tree.code(values.getSymbol()), values.getCode());
+				assertEquals(tree.weight(values.getSymbol()), values.getFrequency(), 0.0);
+			}
+		}
+		assertEquals(6, leaves);
+	}
+
+	/** Exception test for a symbol out of range */
+	@Test (expected = IllegalArgumentException.class)
+	public void symbolRangeTest() {
+		new AdaptiveHuffmanTree().update(257);
+	}
+
+	/** Round trip of a short message */
+	@Test
+	public void simpleRoundTripTest() throws IOException {
+		byte[] data = "Sally Sells Seashells by the Seashore".getBytes("ISO-8859-1");
+		byte[] encoded = encode(data);
+		assertTrue(encoded.length < data.length);
+		assertTrue(Arrays.equals(data, decode(new ByteArrayInputStream(encoded))));
+	}
+
+	/** Round trip of empty data and of every byte value */
+	@Test
+	public void edgeRoundTripTest() throws IOException {
+		assertEquals(0, decode(new ByteArrayInputStream(encode(new byte[0]))).length);
+		byte[] all = new byte[512];
+		for(int i=0; i<all.length; i++) {
+			all[i] = (byte) (i * 7);
+		}
+		assertTrue(Arrays.equals(all, decode(new ByteArrayInputStream(encode(all)))));
+	}
+
+	/** Round trip of data whose distribution shifts, read back through a
+	 * stream that returns a few bytes at a time */
+	@Test
+	public void largeRoundTripTest() throws IOException {
+		byte[] data = new byte[200000];
+		Random random = new Random(3);
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) (i < data.length / 2 ? 'a' + random.nextInt(4) : random.nextInt(256));
+		}
+		byte[] encoded = encode(data);
+		InputStream trickle = new FilterInputStream(new ByteArrayInputStream(encoded)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 3));
+			}
+		};
+		assertTrue(Arrays.equals(data, decode(trickle)));
+	}
+
+	/** The decoder stops at the end-of-stream symbol and leaves what follows */
+	@Test
+	public void endOfStreamTest() throws IOException {
+		byte[] encoded = encode("hello".getBytes("ISO-8859-1"));
+		byte[] padded = Arrays.copyOf(encoded, encoded.length + 4);
+		AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(padded));
+		byte[] out = new byte[10];
+		assertEquals(5, in.read(out, 0, 10));
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(out, 0, 10));
+	}
+
+	/** A multi-byte read returns everything written before a flush without
+	 * blocking on a source that has more to come */
+	@Test
+	public void flushedReadTest() throws IOException {
+		String[] texts = {"ab", "hello", "abcabc"};
+		for(String text : texts) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(bytes);
+			out.write(text.getBytes("US-ASCII"));
+			out.flush();
+			InputStream open = new FilterInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int n = super.read(b, off, len);
+					if(n < 0) {
+						throw new AssertionError("read blocked waiting for more input");
+					}
+					return n;
+				}
+			};
+			AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(open);
+			byte[] buffer = new byte[64];
+			int n = in.read(buffer, 0, buffer.length);
+			assertEquals(text, new String(buffer, 0, n, "US-ASCII"));
+		}
+	}
+
+	/** Request and response over a pipe, with a flush after each message
+	 * and no close in between */
+	@Test (timeout = 10000)
+	public void pipedExchangeTest() throws IOException {
+		PipedInputStream pipe = new PipedInputStream(1 << 16);
+		AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(new PipedOutputStream(pipe));
+		AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(pipe);
+		String[] messages = {"a", "hello", "hello again", "\u00ff\u0000 binary"};
+		byte[] buffer = new byte[64];
+		for(String message : messages) {
+			byte[] bytes = message.getBytes("ISO-8859-1");
+			out.write(bytes);
+			out.flush();
+			int n = 0;
+			while(n < bytes.length) {
+				n += in.read(buffer, n, buffer.length - n);
+			}
+			assertEquals(message, new String(buffer, 0, n, "ISO-8859-1"));
+		}
+		out.write('!');
+		out.close();
+		assertEquals('!', in.read());
+		assertEquals(-1, in.read());
+	}
+
+	/** Exception test for data cut off before the end-of-stream symbol */
+	@Test (expected = EOFException.class)
+	public void truncatedTest() throws IOException {
+		byte[] encoded = encode("Sally Sells Seashells".getBytes("ISO-8859-1"));
+		decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 2)));
+	}
+}
@@ -0,0 +1,191 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the BinaryTree class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class BinaryTreeTest {
+
+	/** Temporary directory for saved trees */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** Builds the tree D(B(A, C), F(E, -)) with a missing right child.
+	 * @return the tree
+	 */
+	private BinaryTree<String> sampleTree() {
+		BinaryTree<String> b = new BinaryTree<String>("B", new BinaryTree<String>("A"), new BinaryTree<String>("C"));
+		BinaryTree<String> f = new BinaryTree<String>("F", new BinaryTree<String>("E"), null);
+		return new BinaryTree<String>("D", b, f);
+	}
+
+	/** Builds a tree in which every node has only a left child.
+	 * @param depth - the number of nodes
+	 * @return the tree
+	 */
+	private BinaryTree<Integer> leftChain(int depth) {
+		BinaryTree<Integer> tree = new BinaryTree<Integer>(0);
+		for(int i=1; i<depth; i++) {
+			tree = new BinaryTree<Integer>(i, tree, null);
+		}
+		return tree;
+	}
+
+	/** Verifies the values visited in each order */
+	@Test
+	public void traversalOrderTest() {
+		BinaryTree<String> tree = sampleTree();
+		assertEquals(Arrays.asList("D", "B", "A", "C", "F", "E"), tree.preorderValues());
+		assertEquals(Arrays.asList("A", "B", "C", "D", "E", "F"), tree.inorderValues());
+		assertEquals(Arrays.asList("A", "C", "B", "E", "F", "D"), tree.postorderValues());
+		assertEquals(6, tree.postorderSubtrees().size());
+		assertSame(tree, tree.preorderSubtrees().get(0));
+		assertSame(tree, tree.postorderSubtrees().get(5));
+	}
+
+	/** Streams and iterators visit the same subtrees as the lists */
+	@Test
+	public void streamTest() {
+		BinaryTree<String> tree = sampleTree();
+		for(BinaryTree.Traversal order : BinaryTree.Traversal.values()) {
+			List<String> streamed = tree.stream(order).map(BinaryTree::getValue).collect(Collectors.toList());
+			List<BinaryTree<String>> listed = order == BinaryTree.Traversal.PREORDER ? tree.preorderSubtrees()
+					: order == BinaryTree.Traversal.INORDER ? tree.inorderSubtrees() : tree.postorderSubtrees();
+			assertEquals(BinaryTree.values(listed), streamed);
+		}
+		assertEquals("A", tree.stream().findFirst().get().getValue());
+		assertEquals("A", tree.iterator().next().getValue());
+		assertEquals(0, new BinaryTree<String>().stream().count());
+	}
+
+	/** Traversals of a very deep tree do not recurse */
+	@Test
+	public void deepTreeTest() {
+		BinaryTree<Integer> tree = leftChain(200000);
+		for(BinaryTree.Traversal order : BinaryTree.Traversal.values()) {
+			assertEquals(200000, tree.stream(order).count());
+		}
+		assertEquals(Integer.valueOf(199999), tree.iterator(BinaryTree.Traversal.PREORDER).next().getValue());
+		assertEquals(Integer.valueOf(0), tree.iterator(BinaryTree.Traversal.INORDER).next().getValue());
+	}
+
+	/** Exception test for an iterator that has finished */
+	@Test (expected = NoSuchElementException.class)
+	public void exhaustedIteratorTest() {
+		Iterator<BinaryTree<String>> it = new BinaryTree<String>("X").iterator(BinaryTree.Traversal.INORDER);
+		it.next();
+		it.next();
+	}
+
+	/** Cached statistics match the computed ones and follow changes to children */
+	@Test
+	public void cachedStatisticsTest() {
+		BinaryTree<String> plain = sampleTree();
+		BinaryTree<String> tree = sampleTree();
+		tree.setStatisticsCaching(true);
+		assertTrue(tree.isStatisticsCaching());
+		assertTrue(tree.getRightChild().isStatisticsCaching());
+		assertEquals(plain.numberOfNodes(), tree.numberOfNodes());
+		assertEquals(plain.numberOfLeaves(), tree.numberOfLeaves());
+		assertEquals(plain.height(), tree.height());
+		BinaryTree<String> e = tree.getRightChild().getLeftChild();
+		e.setLeftChild(new BinaryTree<String>("G", new BinaryTree<String>("H"), new BinaryTree<String>()));
+		assertTrue(e.getLeftChild().isStatisticsCaching());
+		assertEquals(4, tree.height());
+		assertEquals(8, tree.numberOfNodes());
+		assertEquals(4, tree.numberOfLeaves());
+		tree.getRightChild().setLeftChild(null);
+		assertEquals(2, tree.height());
+		assertEquals(5, tree.numberOfNodes());
+		assertEquals(3, tree.numberOfLeaves());
+		tree.setStatisticsCaching(false);
+		assertFalse(tree.isStatisticsCaching());
+		assertEquals(5, tree.numberOfNodes());
+		assertEquals(-1, new BinaryTree<String>().height());
+	}
+
+	/** Emptying a node through setValue updates the cached statistics */
+	@Test
+	public void emptiedValueStatisticsTest() {
+		BinaryTree<String> leaf = new BinaryTree<String>("B");
+		BinaryTree<String> tree = new BinaryTree<String>("A", leaf, null);
+		tree.setStatisticsCaching(true);
+		assertEquals(2, tree.numberOfNodes());
+		assertEquals(1, tree.height());
+		leaf.setValue(null);
+		assertEquals(1, tree.numberOfNodes());
+		assertEquals(1, tree.numberOfLeaves());
+		assertEquals(0, tree.height());
+	}
+
+	/** Cached height makes repeated queries on a deep tree cheap and does not recurse */
+	@Test
+	public void deepCachedStatisticsTest() {
+		BinaryTree<Integer> tree = leftChain(100000);
+		tree.setStatisticsCaching(true);
+		assertEquals(99999, tree.height());
+		BinaryTree<Integer> bottom = tree;
+		while(bottom.getLeftChild() != null) {
+			bottom = bottom.getLeftChild();
+		}
+		bottom.setRightChild(new BinaryTree<Integer>(-1));
+		for(int i=0; i<1000; i++) {
+			assertEquals(100000, tree.height());
+		}
+		assertEquals(100001, tree.numberOfNodes());
+		assertEquals(1, tree.numberOfLeaves());
+	}
+
+	/** Exception test for attaching a subtree that already has a parent */
+	@Test (expected = IllegalArgumentException.class)
+	public void sharedSubtreeTest() {
+		BinaryTree<String> leaf = new BinaryTree<String>("B");
+		new BinaryTree<String>("A", leaf, null);
+		new BinaryTree<String>("C").setRightChild(leaf);
+	}
+
+	/** A detached subtree can be attached to another tree, whose cached
+	 * statistics then follow changes to it */
+	@Test
+	public void movedSubtreeStatisticsTest() {
+		BinaryTree<String> leaf = new BinaryTree<String>("B");
+		BinaryTree<String> first = new BinaryTree<String>("A", leaf, null);
+		BinaryTree<String> second = new BinaryTree<String>("C");
+		first.setStatisticsCaching(true);
+		second.setStatisticsCaching(true);
+		assertEquals(1, first.height());
+		first.setLeftChild(null);
+		second.setLeftChild(leaf);
+		leaf.setLeftChild(new BinaryTree<String>("D"));
+		assertEquals(0, first.height());
+		assertEquals(2, second.height());
+		assertEquals(3, second.numberOfNodes());
+	}
+
+	/** Parent links survive saving and restoring so cached values stay correct */
+	@Test
+	public void restoreRelinksParentsTest() throws IOException {
+		BinaryTree<String> tree = sampleTree();
+		String file = folder.newFile().getPath();
+		assertTrue(tree.save(file));
+		BinaryTree<String> restored = new BinaryTree<String>();
+		assertTrue(restored.restore(file));
+		restored.setStatisticsCaching(true);
+		assertEquals(2, restored.height());
+		restored.getLeftChild().getLeftChild().setLeftChild(new BinaryTree<String>("Z"));
+		assertEquals(3, restored.height());
+		assertFalse(tree.isStatisticsCaching());
+	}
+}
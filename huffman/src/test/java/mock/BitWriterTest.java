@@ -0,0 +1,61 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the BitWriter class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class BitWriterTest {
+
+	/** Writes of every width match appending to a StringOfBits */
+	@Test
+	public void writeTest() {
+		Random random = new Random(7);
+		BitWriter writer = new BitWriter(1);
+		StringOfBits expected = new StringOfBits();
+		for(int i=0; i<2000; i++) {
+			int count = random.nextInt(65);
+			long bits = random.nextLong();
+			writer.write(bits, count);
+			for(int b=count-1; b>=0; b--) {
+				expected.append((bits >>> b & 1) == 1);
+			}
+		}
+		assertEquals(expected.length(), writer.length());
+		assertEquals(expected, writer.toStringOfBits());
+	}
+
+	/** Bit strings are appended whole, including ones longer than a word */
+	@Test
+	public void writeStringOfBitsTest() {
+		BitWriter writer = new BitWriter();
+		writer.write(5, 3);
+		StringOfBits bits = new StringOfBits("1100110011001100110011001100110011001100110011001100110011001100111");
+		writer.write(bits);
+		StringOfBits expected = new StringOfBits("101").append(bits);
+		assertEquals(expected, writer.toStringOfBits());
+		StringOfBits result = writer.toStringOfBits();
+		result.append(true);
+		assertEquals(expected.length() + 1, result.length());
+		assertEquals(expected, writer.toStringOfBits());
+	}
+
+	/** Bytes are packed most significant bit first and padded with zeros */
+	@Test
+	public void toByteArrayTest() {
+		BitWriter writer = new BitWriter();
+		writer.write(0xABCDL, 16);
+		writer.write(1, 1);
+		byte[] bytes = writer.toByteArray();
+		assertArrayEquals(new byte[] {(byte) 0xAB, (byte) 0xCD, (byte) 0x80}, bytes);
+		writer.reset();
+		assertEquals(0, writer.length());
+		assertEquals(0, writer.toByteArray().length);
+		writer.write(3, 2);
+		assertEquals(new StringOfBits("11"), writer.toStringOfBits());
+	}
+}
@@ -0,0 +1,132 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the BlockFileCodec class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class BlockFileCodecTest {
+	
+	/** Temporary directory for the files under test */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/** Compresses in blocks and decompresses the given data.
+	 * @param data - the original file contents
+	 * @param blockSize - the block size
+	 * @param perBlockCodes - true to give every block its own code
+	 * @return the contents of the decompressed file
+	 */
+	private byte[] roundTrip(byte[] data, int blockSize, boolean perBlockCodes) throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		File restored = folder.newFile();
+		Files.write(original.toPath(), data);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			long size = BlockFileCodec.compress(original.toPath(), compressed.toPath(), blockSize,
+					perBlockCodes, pool);
+			assertEquals(compressed.length(), size);
+			assertTrue(BlockFileCodec.isBlockFile(compressed.toPath()));
+			BlockFileCodec.decompress(compressed.toPath(), restored.toPath(), pool);
+		} finally {
+			pool.shutdown();
+		}
+		return Files.readAllBytes(restored.toPath());
+	}
+	
+	/** Builds data whose byte distribution changes from block to block.
+	 * @param length - the number of bytes
+	 * @return the data
+	 */
+	private byte[] shiftingData(int length) {
+		byte[] data = new byte[length];
+		for(int i=0; i<length; i++) {
+			data[i] = (byte) ((i >> 12) * 17 + (i * 31 + i / 7) % (3 + (i >> 13)));
+		}
+		return data;
+	}
+	
+	/** Round trip with one shared code and a short final block */
+	@Test
+	public void sharedCodeRoundTripTest() throws IOException {
+		byte[] data = shiftingData(100003);
+		assertArrayEquals(data, roundTrip(data, 4096, false));
+	}
+	
+	/** Round trip with a code for every block */
+	@Test
+	public void perBlockCodeRoundTripTest() throws IOException {
+		byte[] data = shiftingData(100003);
+		assertArrayEquals(data, roundTrip(data, 4096, true));
+		assertArrayEquals(data, roundTrip(data, 1, true));
+	}
+	
+	/** Round trip of an empty file and of a file smaller than one block */
+	@Test
+	public void smallFileTest() throws IOException {
+		assertArrayEquals(new byte[0], roundTrip(new byte[0], 4096, false));
+		byte[] same = new byte[10];
+		assertArrayEquals(same, roundTrip(same, 4096, true));
+	}
+	
+	/** A plain compressed file is not mistaken for a block file */
+	@Test
+	public void formatDetectionTest() throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		Files.write(original.toPath(), shiftingData(1000));
+		MappedFileCodec.compress(original.toPath(), compressed.toPath());
+		assertFalse(BlockFileCodec.isBlockFile(compressed.toPath()));
+		assertFalse(BlockFileCodec.isBlockFile(original.toPath()));
+	}
+	
+	/** Exception test for a block file with a missing payload byte */
+	@Test (expected = IOException.class)
+	public void truncatedFileTest() throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		Files.write(original.toPath(), shiftingData(20000));
+		BlockFileCodec.compress(original.toPath(), compressed.toPath(), 1024, false,
+				ForkJoinPool.commonPool());
+		RandomAccessFile file = new RandomAccessFile(compressed, "rw");
+		try {
+			file.setLength(file.length() - 1);
+		} finally {
+			file.close();
+		}
+		BlockFileCodec.decompress(compressed.toPath(), folder.newFile().toPath());
+	}
+	
+	/** Exception test for a block size that is not positive */
+	@Test (expected = IllegalArgumentException.class)
+	public void badBlockSizeTest() throws IOException {
+		File original = folder.newFile();
+		BlockFileCodec.compress(original.toPath(), folder.newFile().toPath(), 0, false,
+				ForkJoinPool.commonPool());
+	}
+	
+	/** Exception test for a file with too many per-block codes for the block index */
+	@Test (expected = IllegalArgumentException.class)
+	public void oversizedIndexTest() throws IOException {
+		File original = folder.newFile();
+		RandomAccessFile file = new RandomAccessFile(original, "rw");
+		try {
+			file.setLength(9L << 20);
+		} finally {
+			file.close();
+		}
+		BlockFileCodec.compress(original.toPath(), folder.newFile().toPath(), 1, true,
+				ForkJoinPool.commonPool());
+	}
+}
@@ -0,0 +1,195 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the CodeLengths class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodeLengthsTest {
+
+	/** Returns the sum of 2^-length over all lengths, scaled by 2^max.
+	 * @param lengths - the code lengths
+	 * @param max - the largest code length
+	 * @return the scaled Kraft sum
+	 */
+	private long kraft(int[] lengths, int max) {
+		long sum = 0;
+		for(int length : lengths) {
+			sum += 1L << (max - length);
+		}
+		return sum;
+	}
+
+	/** Verifies the lengths of a small known table */
+	@Test
+	public void knownLengthsTest() {
+		int[] lengths = CodeLengths.compute(new double[] {1, 4, 4, 2, 1});
+		assertArrayEquals(new int[] {3, 2, 2, 2, 3}, lengths);
+		assertArrayEquals(new int[] {1}, CodeLengths.compute(new double[] {7}));
+		assertArrayEquals(new int[] {1, 1}, CodeLengths.compute(new double[] {0, 0}));
+	}
+
+	/** Returns the cost of an optimal code, the sum of the weights of the
+	 * internal nodes built by Huffman's algorithm.
+	 * @param weights - the symbol weights
+	 * @return the total weighted code length
+	 */
+	private double optimalCost(double[] weights) {
+		PriorityQueue<Double> queue = new PriorityQueue<Double>();
+		for(double weight : weights) {
+			queue.add(weight);
+		}
+		double cost = 0;
+		while(queue.size() > 1) {
+			double sum = queue.remove() + queue.remove();
+			cost += sum;
+			queue.add(sum);
+		}
+		return cost;
+	}
+
+	/** The lengths are optimal and are those of the Huffman tree */
+	@Test
+	public void optimalCostTest() {
+		Random random = new Random(42);
+		for(int round=0; round<50; round++) {
+			int n = 2 + random.nextInt(200);
+			double[] weights = new double[n];
+			Map<Character,Double> table = new HashMap<Character,Double>();
+			for(int i=0; i<n; i++) {
+				weights[i] = round % 2 == 0 ? 1 + random.nextInt(1000) : Math.pow(1.7, random.nextInt(40));
+				table.put((char) i, weights[i]);
+			}
+			int[] lengths = CodeLengths.compute(weights);
+			Map<Character,Integer> tree = HuffmanCode.codeLengths(HuffmanCode.createHuffmanTree(table));
+			double cost = 0;
+			int max = 0;
+			for(int i=0; i<n; i++) {
+				cost += weights[i] * lengths[i];
+				assertEquals(lengths[i], tree.get((char) i).intValue());
+				max = Math.max(max, lengths[i]);
+			}
+			assertEquals(optimalCost(weights), cost, cost * 1e-12);
+			assertEquals(1L << max, kraft(lengths, max));
+		}
+	}
+
+	/** Computes lengths for an alphabet far larger than a char */
+	@Test
+	public void hugeAlphabetTest() {
+		double[] weights = new double[500000];
+		for(int i=0; i<weights.length; i++) {
+			weights[i] = 1 + (i * 7919L) % 1000;
+		}
+		int[] lengths = CodeLengths.compute(weights);
+		int max = 0;
+		for(int length : lengths) {
+			max = Math.max(max, length);
+		}
+		assertEquals(1L << max, kraft(lengths, max));
+	}
+
+	/** Symbols with a zero count get no code */
+	@Test
+	public void fromCountsTest() {
+		long[] counts = new long[256];
+		counts['a'] = 5;
+		counts['b'] = 1;
+		counts['c'] = 1;
+		int[] lengths = CodeLengths.fromCounts(counts);
+		assertEquals(1, lengths['a']);
+		assertEquals(2, lengths['b']);
+		assertEquals(2, lengths['c']);
+		assertEquals(0, lengths['d']);
+		assertArrayEquals(new int[3], CodeLengths.fromCounts(new long[3]));
+	}
+
+	/** Exception test for an empty set of weights */
+	@Test (expected = IllegalArgumentException.class)
+	public void emptyWeightsTest() {
+		CodeLengths.compute(new double[0]);
+	}
+
+	/** Exception test for a negative weight */
+	@Test (expected = IllegalArgumentException.class)
+	public void negativeWeightTest() {
+		CodeLengths.compute(new double[] {1, -1});
+	}
+
+	/** Verifies limited lengths for a Fibonacci table, the worst case for depth */
+	@Test
+	public void lengthLimitTest() {
+		double[] weights = new double[30];
+		weights[0] = 1;
+		weights[1] = 1;
+		for(int i=2; i<weights.length; i++) {
+			weights[i] = weights[i - 1] + weights[i - 2];
+		}
+		int[] unlimited = CodeLengths.compute(weights);
+		assertEquals(29, unlimited[0]);
+		for(int max=5; max<=29; max++) {
+			int[] lengths = CodeLengths.compute(weights, max);
+			int longest = 0;
+			for(int length : lengths) {
+				longest = Math.max(longest, length);
+			}
+			assertTrue(longest <= max);
+			assertEquals(1L << longest, kraft(lengths, longest));
+		}
+		assertArrayEquals(unlimited, CodeLengths.compute(weights, 29));
+		int[] flat = CodeLengths.compute(weights, 5);
+		for(int i=0; i<weights.length; i++) {
+			assertTrue(flat[i] == 4 || flat[i] == 5);
+		}
+	}
+
+	/** Limited lengths cost no more than any other code within the limit */
+	@Test
+	public void lengthLimitOptimalTest() {
+		Random random = new Random(7);
+		for(int round=0; round<200; round++) {
+			int n = 2 + random.nextInt(7);
+			double[] weights = new double[n];
+			for(int i=0; i<n; i++) {
+				weights[i] = Math.pow(3, random.nextInt(8));
+			}
+			int max = 32 - Integer.numberOfLeadingZeros(n - 1) + random.nextInt(2);
+			double best = bestLimitedCost(weights, new int[n], 0, max);
+			double cost = CodeLengths.averageLength(weights, CodeLengths.compute(weights, max));
+			assertEquals(best, cost, 1e-9);
+		}
+	}
+
+	/** Finds the cheapest complete code within a length limit by trying every length assignment.
+	 * @param weights - the symbol weights
+	 * @param lengths - the lengths chosen so far
+	 * @param index - the next symbol to choose a length for
+	 * @param max - the longest code length allowed
+	 * @return the smallest average length of a code satisfying the Kraft inequality
+	 */
+	private double bestLimitedCost(double[] weights, int[] lengths, int index, int max) {
+		if(index == weights.length) {
+			return kraft(lengths, max) <= 1L << max
+					? CodeLengths.averageLength(weights, lengths) : Double.POSITIVE_INFINITY;
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for(int length=1; length<=max; length++) {
+			lengths[index] = length;
+			best = Math.min(best, bestLimitedCost(weights, lengths, index + 1, max));
+		}
+		return best;
+	}
+
+	/** Exception test for more symbols than the length limit allows */
+	@Test (expected = IllegalArgumentException.class)
+	public void tooManySymbolsTest() {
+		CodeLengths.compute(new double[9], 3);
+	}
+}
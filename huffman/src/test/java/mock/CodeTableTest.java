@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the CodeTable class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodeTableTest {
+
+	/** Encodes with a table the same way as with the map */
+	@Test
+	public void encodeTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text);
+		CodeTable table = new CodeTable(map);
+		assertEquals(map.size(), table.size());
+		StringOfBits expected = new StringOfBits();
+		for(int i=0; i<text.length(); i++) {
+			expected.append(map.get(text.charAt(i)));
+		}
+		assertEquals(expected, table.encode(text));
+		assertEquals(expected, HuffmanCode.encode(text, table));
+		assertEquals(0, table.encode("").length());
+	}
+
+	/** Checks lengths, including the sentinel for characters without a code */
+	@Test
+	public void codeLengthTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('a', new StringOfBits("0"));
+		map.put('z', new StringOfBits("10"));
+		map.put('\u0100', new StringOfBits("11"));
+		CodeTable table = new CodeTable(map);
+		assertTrue(table.contains('a'));
+		assertFalse(table.contains('b'));
+		assertFalse(table.contains('\u2603'));
+		assertEquals(1, table.codeLength('a'));
+		assertEquals(2, table.codeLength('\u0100'));
+		assertEquals(-1, table.codeLength('b'));
+		assertEquals(-1, table.codeLength('\u2603'));
+		assertEquals(new StringOfBits("01011"), table.encode("az\u0100"));
+	}
+
+	/** Encodes codes longer than fit in a packed entry */
+	@Test
+	public void longCodeTest() {
+		Map<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		StringOfBits zeros = new StringOfBits();
+		for(int i=0; i<79; i++) {
+			map.put((char) ('0' + i), new StringOfBits(zeros).append(1));
+			zeros.append(0);
+		}
+		map.put('\u007f', zeros);
+		CodeTable table = new CodeTable(map);
+		assertEquals(79, table.codeLength('\u007f'));
+		String text = "0~\u007f~0N";
+		StringOfBits expected = new StringOfBits();
+		for(int i=0; i<text.length(); i++) {
+			expected.append(map.get(text.charAt(i)));
+		}
+		assertEquals(expected, table.encode(text));
+	}
+
+	/** Later changes to the map do not affect the table */
+	@Test
+	public void copyTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('a', new StringOfBits("0"));
+		map.put('b', new StringOfBits("1"));
+		CodeTable table = new CodeTable(map);
+		map.put('a', new StringOfBits("1"));
+		map.remove('b');
+		assertEquals(new StringOfBits("01"), table.encode("ab"));
+	}
+
+	/** A character below the largest coded one but without a code is rejected */
+	@Test(expected = IllegalArgumentException.class)
+	public void gapTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('a', new StringOfBits("0"));
+		map.put('z', new StringOfBits("1"));
+		new CodeTable(map).encode("am");
+	}
+
+	/** A character above the largest coded one is rejected */
+	@Test(expected = IllegalArgumentException.class)
+	public void outOfRangeTest() {
+		new CodeTable(HuffmanCode.createHuffmanCode("ab")).encode("abc");
+	}
+}
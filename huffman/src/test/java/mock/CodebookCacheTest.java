@@ -0,0 +1,102 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for the CodebookCache class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodebookCacheTest {
+
+	/** Identical and scaled seeds share one codebook */
+	@Test
+	public void hitTest() {
+		CodebookCache cache = new CodebookCache(4);
+		Codebook first = cache.get("Mississippi");
+		assertSame(first, cache.get("Mississippi"));
+		assertSame(first, cache.get("MississippiMississippi"));
+		assertSame(first, cache.get("ssissippiMi"));
+		assertEquals(1, cache.misses());
+		assertEquals(3, cache.hits());
+		assertEquals("Mississippi", first.decode(first.encode("Mississippi")));
+	}
+
+	/** Nearly identical distributions share a codebook at low precision only */
+	@Test
+	public void precisionTest() {
+		Map<Character,Double> a = new HashMap<Character,Double>();
+		a.put('x', 1000.0);
+		a.put('y', 500.0);
+		a.put('z', 1.0);
+		Map<Character,Double> b = new HashMap<Character,Double>(a);
+		b.put('x', 1001.0);
+		CodebookCache coarse = new CodebookCache(4, 6);
+		assertSame(coarse.get(a), coarse.get(b));
+		CodebookCache fine = new CodebookCache(4, 20);
+		assertNotSame(fine.get(a), fine.get(b));
+		Map<Character,Double> c = new HashMap<Character,Double>(a);
+		c.put('w', 0.0);
+		Codebook withW = coarse.get(c);
+		assertNotSame(coarse.get(a), withW);
+		assertTrue(withW.code().containsKey('w'));
+	}
+
+	/** The least recently used codebook is evicted */
+	@Test
+	public void evictionTest() {
+		CodebookCache cache = new CodebookCache(2);
+		Codebook ab = cache.get("ab");
+		cache.get("abc");
+		assertSame(ab, cache.get("ab"));
+		cache.get("abcd");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.evictions());
+		assertSame(ab, cache.get("ab"));
+		cache.get("abc");
+		assertEquals(4, cache.misses());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	/** Concurrent lookups all get a working codebook */
+	@Test
+	public void concurrentTest() throws Exception {
+		final CodebookCache cache = new CodebookCache(8);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] futures = new Future<?>[200];
+			for(int i=0; i<futures.length; i++) {
+				final String seed = "seed " + (i % 12) + " Sally Sells Seashells";
+				futures[i] = pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						Codebook codebook = cache.get(seed);
+						assertEquals(seed, codebook.decode(codebook.encode(seed)));
+					}
+				});
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		assertEquals(200, cache.hits() + cache.misses());
+		assertTrue(cache.size() <= 8);
+	}
+
+	/** Exception test for the code map of a cached codebook */
+	@Test (expected = UnsupportedOperationException.class)
+	public void immutableCodeTest() {
+		new CodebookCache(1).get("abc").code().remove('a');
+	}
+}
@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the CodebookFormat class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodebookFormatTest {
+
+	/** Round trip of a small code */
+	@Test
+	public void roundTripTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("Sally Sells Seashells by the Seashore");
+		byte[] bytes = CodebookFormat.toBytes(code);
+		assertEquals(code, CodebookFormat.fromBytes(bytes));
+		assertTrue(bytes.length < 40);
+	}
+
+	/** A code for every byte value stays within a few hundred bytes */
+	@Test
+	public void byteCodeSizeTest() throws IOException {
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		for(char c=0; c<256; c++) {
+			table.put(c, (double) (1 + c % 17));
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(table);
+		byte[] bytes = CodebookFormat.toBytes(code);
+		assertTrue(bytes.length <= 400);
+		assertEquals(code, CodebookFormat.fromBytes(bytes));
+	}
+
+	/** Round trip of codes longer than 15 bits, sparse symbols and the empty code */
+	@Test
+	public void longLengthsTest() throws IOException {
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		double weight = 1;
+		for(int i=0; i<24; i++) {
+			table.put((char) (i * 2500), weight);
+			weight *= 2;
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(table);
+		assertEquals(code, CodebookFormat.fromBytes(CodebookFormat.toBytes(code)));
+		Map<Character,StringOfBits> empty = new HashMap<Character,StringOfBits>();
+		assertEquals(empty, CodebookFormat.fromBytes(CodebookFormat.toBytes(empty)));
+	}
+
+	/** Reading from a stream stops at the end of the codebook */
+	@Test
+	public void streamTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("Mississippi");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CodebookFormat.write(code, out);
+		out.write(42);
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		assertEquals(code, CodebookFormat.read(in));
+		assertEquals(42, in.read());
+	}
+
+	/** Exception test for a codebook with a flipped bit */
+	@Test (expected = IOException.class)
+	public void checksumTest() throws IOException {
+		byte[] bytes = CodebookFormat.toBytes(HuffmanCode.createHuffmanCode("Mississippi"));
+		bytes[bytes.length - 6] ^= 0x10;
+		CodebookFormat.fromBytes(bytes);
+	}
+
+	/** Exception test for a truncated codebook */
+	@Test (expected = IOException.class)
+	public void truncatedTest() throws IOException {
+		byte[] bytes = CodebookFormat.toBytes(HuffmanCode.createHuffmanCode("Mississippi"));
+		CodebookFormat.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+	}
+
+	/** Exception test for a code that cannot be rebuilt from its lengths */
+	@Test (expected = IllegalArgumentException.class)
+	public void notCanonicalTest() {
+		HashMap<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		code.put('a', new StringOfBits("1"));
+		code.put('b', new StringOfBits("0"));
+		CodebookFormat.toBytes(code);
+	}
+}
@@ -0,0 +1,126 @@
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the CodecMetrics class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class CodecMetricsTest {
+
+	/** The process-wide metrics */
+	private final CodecMetrics metrics = CodecMetrics.get();
+
+	/** Starts each test recording from zero */
+	@Before
+	public void setUp() {
+		metrics.reset();
+		metrics.setEnabled(true);
+	}
+
+	/** Turns recording back off */
+	@After
+	public void tearDown() {
+		metrics.setEnabled(false);
+		metrics.reset();
+	}
+
+	/** Encode and decode calls are counted */
+	@Test
+	public void countTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		StringOfBits bits = HuffmanCode.encode(text, code);
+		assertEquals(text, HuffmanCode.decode(bits, code));
+		assertEquals(1, metrics.getCodesBuilt());
+		assertEquals(text.length(), metrics.getSymbolsEncoded());
+		assertEquals(text.length(), metrics.getSymbolsDecoded());
+		assertEquals(2L * text.length(), metrics.getBytesIn());
+		assertEquals((bits.length() + 7) / 8, metrics.getBytesOut());
+		assertEquals((double) bits.length() / text.length(), metrics.getAverageBitsPerSymbol(), 1e-9);
+		assertEquals(1, metrics.getDecodeCount());
+		assertTrue(metrics.getAverageBuildMicros() > 0);
+		assertTrue(metrics.getDecodeLatencyP99Micros() > 0);
+	}
+
+	/** The expected code length is within one bit above the entropy */
+	@Test
+	public void entropyTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		StringOfBits bits = HuffmanCode.encode(text, HuffmanCode.createHuffmanCode(text));
+		double entropy = metrics.getEntropyBitsPerSymbol();
+		double expected = metrics.getExpectedBitsPerSymbol();
+		assertTrue(entropy > 0);
+		assertTrue(expected >= entropy && expected < entropy + 1);
+		assertEquals(expected, (double) bits.length() / text.length(), 1e-9);
+	}
+
+	/** Byte and code point calls are counted */
+	@Test
+	public void primitiveTest() {
+		byte[] data = {1, 2, 2, 3, 3, 3};
+		PrimitiveCode bytes = HuffmanCode.createHuffmanCode(data);
+		HuffmanCode.decodeBytes(HuffmanCode.encode(data, bytes), bytes);
+		String text = "a\uD83D\uDE00a";
+		PrimitiveCode codePoints = HuffmanCode.createCodePointCode(text);
+		HuffmanCode.decodeCodePoints(HuffmanCode.encodeCodePoints(text, codePoints), codePoints);
+		assertEquals(9, metrics.getSymbolsEncoded());
+		assertEquals(9, metrics.getSymbolsDecoded());
+		assertEquals(6 + 8, metrics.getBytesIn());
+		assertEquals(2, metrics.getDecodeCount());
+	}
+
+	/** Nothing is recorded while disabled */
+	@Test
+	public void disabledTest() {
+		metrics.setEnabled(false);
+		String text = "abcabc";
+		HuffmanCode.decode(HuffmanCode.encode(text, HuffmanCode.createHuffmanCode(text)),
+				HuffmanCode.createHuffmanCode(text));
+		assertEquals(0, metrics.getCodesBuilt());
+		assertEquals(0, metrics.getSymbolsEncoded());
+		assertEquals(0, metrics.getDecodeCount());
+		assertEquals(0, metrics.getAverageBitsPerSymbol(), 0.0);
+	}
+
+	/** Percentiles come from the latency histogram buckets */
+	@Test
+	public void percentileTest() {
+		for(int i=0; i<99; i++) {
+			CodecMetrics.recordDecode(System.nanoTime() - 1, 1);
+		}
+		CodecMetrics.recordDecode(System.nanoTime() - 5000000000L, 1);
+		long[] histogram = metrics.getDecodeLatencyHistogram();
+		assertEquals(CodecMetrics.BUCKETS, histogram.length);
+		assertEquals(1, histogram[32]);
+		assertTrue(metrics.getDecodeLatencyP50Micros() < 1000);
+		assertTrue(metrics.decodeLatencyPercentile(1.0) >= 5000000);
+	}
+
+	/** The metrics are readable through the platform MBean server */
+	@Test
+	public void mbeanTest() throws Exception {
+		ObjectName name = CodecMetrics.register();
+		try {
+			assertEquals(name, CodecMetrics.register());
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			HuffmanCode.encode("aab", HuffmanCode.createHuffmanCode("aab"));
+			assertEquals(3L, server.getAttribute(name, "SymbolsEncoded"));
+			assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "SymbolsEncoded"));
+		} finally {
+			CodecMetrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
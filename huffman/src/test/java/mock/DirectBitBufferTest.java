@@ -0,0 +1,114 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the DirectBitBuffer class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class DirectBitBufferTest {
+
+	/** Writes random runs of bits into a buffer with tiny segments and a
+	 * bit string, and checks that every read agrees */
+	@Test
+	public void readWriteTest() {
+		Random random = new Random(23);
+		DirectBitBuffer buffer = new DirectBitBuffer(16);
+		StringOfBits expected = new StringOfBits();
+		for(int i=0; i<500; i++) {
+			int count = random.nextInt(65);
+			long bits = random.nextLong();
+			buffer.write(bits, count);
+			expected.appendBits(bits, count);
+			assertEquals(expected.length(), buffer.bitLength());
+		}
+		for(int i=0; i<expected.length(); i++) {
+			assertEquals(expected.intAt(i), buffer.intAt(i));
+		}
+		for(int i=0; i<2000; i++) {
+			int index = random.nextInt(expected.length() + 100);
+			int count = random.nextInt(65);
+			assertEquals(expected.readBits(index, count), buffer.readBits(index, count));
+		}
+	}
+
+	/** Sets bits both in stored words and in the pending word */
+	@Test
+	public void setBitTest() {
+		DirectBitBuffer buffer = new DirectBitBuffer(8);
+		buffer.write(0L, 64);
+		buffer.write(0L, 64);
+		buffer.write(0L, 10);
+		buffer.setBitAt(3, true);
+		buffer.setBitAt(127, true);
+		buffer.setBitAt(137, true);
+		assertEquals(0x1000000000000000L, buffer.readBits(0, 64));
+		assertEquals(1, buffer.intAt(127));
+		assertEquals(1, buffer.readBits(128, 10));
+		buffer.setBitAt(3, false);
+		assertEquals(0, buffer.intAt(3));
+	}
+
+	/** Appends a bit string and writes the bits to a channel */
+	@Test
+	public void writeToTest() throws IOException {
+		DirectBitBuffer buffer = new DirectBitBuffer(8);
+		StringOfBits bits = new StringOfBits("1010101111001101111011110000000100100011010001010110011110001001101");
+		buffer.write(bits);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertEquals(9, buffer.writeTo(Channels.newChannel(bytes)));
+		byte[] expected = {(byte) 0xAB, (byte) 0xCD, (byte) 0xEF, 0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xA0};
+		assertArrayEquals(expected, bytes.toByteArray());
+	}
+
+	/** Writing to a channel from a partly filled segment keeps the pending bits */
+	@Test
+	public void writeToPartialSegmentTest() throws IOException {
+		DirectBitBuffer buffer = new DirectBitBuffer(64);
+		buffer.write(-1L, 64);
+		buffer.write(0x3FF, 10);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertEquals(10, buffer.writeTo(Channels.newChannel(bytes)));
+		byte[] expected = {-1, -1, -1, -1, -1, -1, -1, -1, -1, (byte) 0xC0};
+		assertArrayEquals(expected, bytes.toByteArray());
+	}
+
+	/** Round trip through the off-heap encoder and the sequence decoder */
+	@Test
+	public void codecTest() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<20000; i++) {
+			text.append((char) ('a' + Integer.numberOfTrailingZeros(i + 1) % 20));
+		}
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text.toString());
+		CodeTable table = new CodeTable(map);
+		DirectBitBuffer encoded = HuffmanCode.encodeDirect(text.toString(), table);
+		StringOfBits expected = HuffmanCode.encode(text.toString(), table);
+		assertEquals(expected.length(), encoded.bitLength());
+		for(int i=0; i<expected.length(); i+=64) {
+			assertEquals(expected.readBits(i, 64), encoded.readBits(i, 64));
+		}
+		assertEquals(text.toString(), HuffmanCode.decode(encoded, new HuffmanDecoder(map)));
+	}
+
+	/** Exception test for reading past the end */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void indexTest() {
+		DirectBitBuffer buffer = new DirectBitBuffer();
+		buffer.write(5L, 3);
+		buffer.intAt(3);
+	}
+
+	/** Exception test for a segment size that is not a power of two */
+	@Test (expected = IllegalArgumentException.class)
+	public void segmentSizeTest() {
+		new DirectBitBuffer(24);
+	}
+}
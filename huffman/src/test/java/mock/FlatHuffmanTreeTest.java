@@ -0,0 +1,98 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FlatHuffmanTree class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class FlatHuffmanTreeTest {
+
+	/** Builds the frequency table of a string.
+	 * @param text - the string
+	 * @return the frequency of each character
+	 */
+	private Map<Character,Double> table(String text) {
+		return new FrequencyCounter().add(text).toTable();
+	}
+
+	/** Encoding and decoding on the flat tree match the code map */
+	@Test
+	public void encodeDecodeTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		FlatHuffmanTree tree = FlatHuffmanTree.create(table(text));
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		assertEquals(code, tree.toCode());
+		StringOfBits bits = tree.encode(text);
+		assertEquals(HuffmanCode.encode(text, code), bits);
+		assertEquals(text, tree.decode(bits));
+		assertEquals(text.length(), tree.weight(0));
+		assertEquals(-1, tree.parent(0));
+		assertEquals(1, tree.left(0));
+	}
+
+	/** Converting to a linked tree and back keeps shape, symbols and weights */
+	@Test
+	public void huffmanTreeConversionTest() {
+		String text = "Today trever has been working on his program";
+		FlatHuffmanTree tree = FlatHuffmanTree.create(table(text));
+		HuffmanTree linked = tree.toHuffmanTree();
+		assertEquals(HuffmanCode.codeLengths(linked).size(), tree.toCode().size());
+		assertEquals(text.length(), linked.getFrequency(), 0.0);
+		FlatHuffmanTree back = FlatHuffmanTree.fromHuffmanTree(linked);
+		assertEquals(tree.size(), back.size());
+		for(int i=0; i<tree.size(); i++) {
+			assertEquals(tree.left(i), back.left(i));
+			assertEquals(tree.right(i), back.right(i));
+			assertEquals(tree.symbol(i), back.symbol(i));
+			assertEquals(tree.weight(i), back.weight(i));
+		}
+		assertEquals(tree.toCode(), back.toCode());
+		HuffmanTree built = HuffmanCode.createHuffmanTree(table(text));
+		FlatHuffmanTree flat = FlatHuffmanTree.fromHuffmanTree(built);
+		assertEquals(text, flat.decode(flat.encode(text)));
+		assertEquals(HuffmanCode.codeLengths(built).get('o').intValue(), flat.toCode().get('o').length());
+	}
+
+	/** A single symbol gets the code 0 and deep codes are encoded in chunks */
+	@Test
+	public void singleSymbolAndDeepCodeTest() {
+		FlatHuffmanTree single = FlatHuffmanTree.create(table("aaaa"));
+		assertEquals(new StringOfBits("0000"), single.encode("aaaa"));
+		assertEquals("aaaa", single.decode(new StringOfBits("0000")));
+		FlatHuffmanTree leaf = FlatHuffmanTree.fromHuffmanTree(new HuffmanTree('z', 3.0, null));
+		assertEquals("zz", leaf.decode(leaf.encode("zz")));
+		Map<Character,Double> skewed = new HashMap<Character,Double>();
+		double weight = 1;
+		for(int i=0; i<80; i++) {
+			skewed.put((char) ('0' + i), weight);
+			weight *= 2;
+		}
+		FlatHuffmanTree deep = FlatHuffmanTree.create(skewed);
+		String text = "01" + (char) ('0' + 79) + "2";
+		StringOfBits bits = deep.encode(text);
+		assertEquals(79 + 79 + 1 + 78, bits.length());
+		assertEquals(text, deep.decode(bits));
+	}
+
+	/** Exception test for bits that stop in the middle of a code */
+	@Test (expected = IllegalArgumentException.class)
+	public void truncatedCodeTest() {
+		FlatHuffmanTree tree = FlatHuffmanTree.create(table("Mississippi"));
+		StringOfBits bits = tree.encode("iM");
+		tree.decode(new StringOfBits(bits.toString().substring(0, bits.length() - 1)));
+	}
+
+	/** Exception test for a code that is not prefix-free */
+	@Test (expected = IllegalArgumentException.class)
+	public void notPrefixFreeTest() {
+		HashMap<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		code.put('a', new StringOfBits("0"));
+		code.put('b', new StringOfBits("01"));
+		FlatHuffmanTree.fromCode(code);
+	}
+}
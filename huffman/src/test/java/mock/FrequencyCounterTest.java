@@ -0,0 +1,93 @@
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FrequencyCounter class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class FrequencyCounterTest {
+
+	/** Basic test of counts, total and the frequency table */
+	@Test
+	public void simpleCountTest() {
+		FrequencyCounter counter = new FrequencyCounter().add("Mississippi");
+		assertEquals(4, counter.count('s'));
+		assertEquals(4, counter.count('i'));
+		assertEquals(2, counter.count('p'));
+		assertEquals(1, counter.count('M'));
+		assertEquals(0, counter.count('x'));
+		assertEquals(0, counter.count(-1));
+		assertEquals(11, counter.total());
+		assertArrayEquals(new int[] {'M', 'i', 'p', 's'}, counter.symbols());
+		Map<Character,Double> table = counter.toTable();
+		assertEquals(4, table.size());
+		assertEquals(4.0, table.get('s'), 0.0);
+	}
+
+	/** Characters past Latin-1 grow the dense table without losing counts */
+	@Test
+	public void growTest() {
+		FrequencyCounter counter = new FrequencyCounter().add("aaaaaaaab");
+		counter.add("xyz" + (char) 1000 + "a" + (char) 65535);
+		assertEquals(9, counter.count('a'));
+		assertEquals(1, counter.count(1000));
+		assertEquals(1, counter.count(65535));
+		assertEquals(15, counter.total());
+	}
+
+	/** Supplementary code points are counted in the overflow table */
+	@Test
+	public void codePointTest() {
+		String clef = new String(Character.toChars(0x1D11E));
+		String emoji = new String(Character.toChars(0x1F600));
+		FrequencyCounter counter = new FrequencyCounter();
+		for(int i=0; i<40; i++) {
+			counter.addCodePoints("a" + clef + new String(Character.toChars(0x10000 + i)) + emoji + emoji);
+		}
+		counter.addCodePoints("" + (char) 0xD800);
+		assertEquals(40, counter.count('a'));
+		assertEquals(40, counter.count(0x1D11E));
+		assertEquals(80, counter.count(0x1F600));
+		assertEquals(1, counter.count(0x10027));
+		assertEquals(1, counter.count(0xD800));
+		assertEquals(0, counter.count(0x10FFFF));
+		assertEquals(201, counter.total());
+		assertEquals(44, counter.symbols().length);
+	}
+
+	/** Merging counters adds their counts */
+	@Test
+	public void mergeTest() {
+		FrequencyCounter a = new FrequencyCounter().add("abc");
+		FrequencyCounter b = new FrequencyCounter().add("cd" + (char) 300);
+		b.addCodePoints(new String(Character.toChars(0x10400)));
+		a.merge(b);
+		assertEquals(2, a.count('c'));
+		assertEquals(1, a.count(300));
+		assertEquals(1, a.count(0x10400));
+		assertEquals(7, a.total());
+	}
+
+	/** Parallel counting of a long string matches sequential counting */
+	@Test
+	public void parallelCountTest() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; text.length()<FrequencyCounter.PARALLEL_THRESHOLD*2+3; i++) {
+			text.append((char) ((i * 7 + i / 5) % 300));
+		}
+		FrequencyCounter parallel = FrequencyCounter.count(text);
+		FrequencyCounter sequential = new FrequencyCounter().add(text);
+		assertEquals(text.length(), parallel.total());
+		assertEquals(sequential.toTable(), parallel.toTable());
+	}
+
+	/** Exception test for a table with a code point that is not a char */
+	@Test (expected = IllegalArgumentException.class)
+	public void supplementaryTableTest() {
+		new FrequencyCounter().addCodePoints(new String(Character.toChars(0x1F600))).toTable();
+	}
+}
@@ -0,0 +1,162 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanBufferDecoder class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanBufferDecoderTest {
+	
+	/** Encodes bytes through a HuffmanOutputStream.
+	 * @param data - the bytes to encode
+	 * @param code - the Huffman code map
+	 * @return the encoded bytes, including the trailer
+	 */
+	private byte[] encode(byte[] data, Map<Character,StringOfBits> code) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(bytes, code);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+	
+	/** Decodes bytes by feeding them to a decoder a few at a time through
+	 * direct buffers.
+	 * @param decoder - the decoder
+	 * @param encoded - the encoded bytes
+	 * @param chunk - the number of bytes added to the input per call
+	 * @param out - the size of the output buffer
+	 * @return the decoded bytes
+	 */
+	private byte[] decode(HuffmanBufferDecoder decoder, byte[] encoded, int chunk, int out) {
+		ByteBuffer src = ByteBuffer.allocateDirect(chunk + 16);
+		ByteBuffer dst = ByteBuffer.allocateDirect(out);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int fed = 0;
+		while(!decoder.isDone()) {
+			int n = Math.min(chunk, encoded.length - fed);
+			src.put(encoded, fed, n);
+			fed += n;
+			src.flip();
+			CoderResult result;
+			do {
+				result = decoder.decode(src, dst, fed == encoded.length);
+				assertFalse(decoder.error(), result.isError());
+				dst.flip();
+				while(dst.hasRemaining()) {
+					bytes.write(dst.get());
+				}
+				dst.clear();
+			} while(result.isOverflow());
+			src.compact();
+		}
+		return bytes.toByteArray();
+	}
+	
+	/** Round trip of a short message in one call */
+	@Test
+	public void simpleRoundTripTest() throws IOException {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		byte[] encoded = encode(text.getBytes("ISO-8859-1"), code);
+		HuffmanBufferDecoder decoder = new HuffmanBufferDecoder(code);
+		ByteBuffer src = ByteBuffer.wrap(encoded);
+		ByteBuffer dst = ByteBuffer.allocate(100);
+		assertTrue(decoder.decode(src, dst, true).isUnderflow());
+		assertTrue(decoder.isDone());
+		assertFalse(src.hasRemaining());
+		assertEquals(text, new String(dst.array(), 0, dst.position(), "ISO-8859-1"));
+	}
+	
+	/** Round trip of larger data fed a few bytes at a time into a tiny output buffer */
+	@Test
+	public void trickleTest() throws IOException {
+		byte[] data = new byte[20000];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) ((i * 31 + (i >> 7)) % 7 == 0 ? i : i % 5);
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(new String(data, "ISO-8859-1"));
+		byte[] encoded = encode(data, code);
+		assertTrue(Arrays.equals(data, decode(new HuffmanBufferDecoder(code), encoded, 5, 1)));
+		assertTrue(Arrays.equals(data, decode(new HuffmanBufferDecoder(code), encoded, 1000, 777)));
+	}
+	
+	/** Round trip with codes that span several secondary tables and are
+	 * longer than the bit window */
+	@Test
+	public void longCodeTest() throws IOException {
+		Map<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		StringOfBits zeros = new StringOfBits();
+		for(int i=0; i<99; i++) {
+			code.put((char) i, new StringOfBits(zeros).append(1));
+			zeros.append(0);
+		}
+		code.put((char) 99, zeros);
+		byte[] data = {0, 99, 98, 1, 70, 99, 0, 0, 65, 2};
+		byte[] encoded = encode(data, code);
+		assertArrayEquals(data, decode(new HuffmanBufferDecoder(code), encoded, 3, 2));
+	}
+	
+	/** Round trip with an incomplete codebook, whose unused bit patterns
+	 * must not be reported as invalid while a code is split across chunks */
+	@Test
+	public void incompleteCodebookTest() throws IOException {
+		Map<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		code.put('a', new StringOfBits("1"));
+		code.put('b', new StringOfBits("01"));
+		byte[] data = "abbabbbaabbbbbab".getBytes("ISO-8859-1");
+		byte[] encoded = encode(data, code);
+		for(int chunk=1; chunk<=4; chunk++) {
+			assertArrayEquals(data, decode(new HuffmanBufferDecoder(code), encoded, chunk, 1));
+		}
+	}
+	
+	/** Round trip of empty data */
+	@Test
+	public void emptyTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("ab");
+		assertEquals(0, decode(new HuffmanBufferDecoder(code), encode(new byte[0], code), 4, 4).length);
+	}
+	
+	/** Data whose trailer has been cut off is malformed, and the decoder
+	 * stays in error until reset */
+	@Test
+	public void missingTrailerTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("abcabc");
+		byte[] encoded = encode("abcabcabc".getBytes("ISO-8859-1"), code);
+		HuffmanBufferDecoder decoder = new HuffmanBufferDecoder(code);
+		ByteBuffer cut = ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 3));
+		assertTrue(decoder.decode(cut, ByteBuffer.allocate(100), true).isMalformed());
+		assertNotNull(decoder.error());
+		assertTrue(decoder.decode(ByteBuffer.wrap(encoded), ByteBuffer.allocate(100), true).isMalformed());
+		decoder.reset();
+		ByteBuffer dst = ByteBuffer.allocate(100);
+		assertTrue(decoder.decode(ByteBuffer.wrap(encoded), dst, true).isUnderflow());
+		assertEquals(9, dst.position());
+	}
+	
+	/** A code cut short by the trailer's bit count is malformed */
+	@Test
+	public void truncatedCodeTest() throws IOException {
+		HashMap<Character,StringOfBits> code = new HashMap<Character,StringOfBits>();
+		code.put('a', new StringOfBits("0"));
+		code.put('b', new StringOfBits("111"));
+		code.put('c', new StringOfBits("110"));
+		code.put('d', new StringOfBits("10"));
+		byte[] encoded = encode("bbbb".getBytes("ISO-8859-1"), code);
+		encoded[encoded.length - 1] = 11;
+		HuffmanBufferDecoder decoder = new HuffmanBufferDecoder(code);
+		assertTrue(decoder.decode(ByteBuffer.wrap(encoded), ByteBuffer.allocate(10), true).isMalformed());
+		assertTrue(decoder.error().startsWith("Truncated code"));
+	}
+}
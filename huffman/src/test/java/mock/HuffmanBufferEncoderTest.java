@@ -0,0 +1,122 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanBufferEncoder class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanBufferEncoderTest {
+	
+	/** Encodes bytes through a HuffmanOutputStream.
+	 * @param data - the bytes to encode
+	 * @param code - the Huffman code map
+	 * @return the encoded bytes, including the trailer
+	 */
+	private byte[] streamEncode(byte[] data, Map<Character,StringOfBits> code) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(bytes, code);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+	
+	/** Encodes bytes through an encoder, emptying a small output buffer
+	 * whenever it overflows.
+	 * @param encoder - the encoder
+	 * @param src - the bytes to encode
+	 * @param dst - the output buffer
+	 * @return the encoded bytes, including the trailer
+	 */
+	private byte[] bufferEncode(HuffmanBufferEncoder encoder, ByteBuffer src, ByteBuffer dst) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CoderResult result;
+		while((result = encoder.encode(src, dst)).isOverflow()) {
+			drain(dst, bytes);
+		}
+		assertTrue(result.isUnderflow());
+		while(encoder.flush(dst).isOverflow()) {
+			drain(dst, bytes);
+		}
+		drain(dst, bytes);
+		return bytes.toByteArray();
+	}
+	
+	/** Moves the contents of a buffer to a byte stream.
+	 * @param buffer - the buffer, in write mode
+	 * @param bytes - the stream to copy to
+	 */
+	private void drain(ByteBuffer buffer, ByteArrayOutputStream bytes) {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			bytes.write(buffer.get());
+		}
+		buffer.clear();
+	}
+	
+	/** Produces the same bytes as HuffmanOutputStream through heap buffers */
+	@Test
+	public void sameAsStreamTest() throws IOException {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		byte[] data = text.getBytes("ISO-8859-1");
+		HuffmanBufferEncoder encoder = new HuffmanBufferEncoder(code);
+		byte[] encoded = bufferEncode(encoder, ByteBuffer.wrap(data), ByteBuffer.allocate(64));
+		assertArrayEquals(streamEncode(data, code), encoded);
+		assertEquals(8L * (encoded.length - 8), (encoder.bitsWritten() + 7) / 8 * 8);
+	}
+	
+	/** Produces the same bytes through direct buffers and an output buffer
+	 * that overflows on nearly every call */
+	@Test
+	public void smallDirectBufferTest() throws IOException {
+		byte[] data = new byte[5000];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) (i % 13 == 0 ? i : i % 3);
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(new String(data, "ISO-8859-1"));
+		ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+		src.put(data).flip();
+		byte[] encoded = bufferEncode(new HuffmanBufferEncoder(code), src, ByteBuffer.allocateDirect(3));
+		assertArrayEquals(streamEncode(data, code), encoded);
+	}
+	
+	/** A byte without a code stops the encoder at that byte */
+	@Test
+	public void unmappableTest() throws IOException {
+		HuffmanBufferEncoder encoder = new HuffmanBufferEncoder(HuffmanCode.createHuffmanCode("ab"));
+		ByteBuffer src = ByteBuffer.wrap("abcab".getBytes("ISO-8859-1"));
+		CoderResult result = encoder.encode(src, ByteBuffer.allocate(16));
+		assertTrue(result.isUnmappable());
+		assertEquals(1, result.length());
+		assertEquals(2, src.position());
+	}
+	
+	/** An encoder can be reused after a reset */
+	@Test
+	public void resetTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("abcabcd");
+		byte[] data = "abcd".getBytes("ISO-8859-1");
+		HuffmanBufferEncoder encoder = new HuffmanBufferEncoder(code);
+		byte[] first = bufferEncode(encoder, ByteBuffer.wrap(data), ByteBuffer.allocate(16));
+		encoder.reset();
+		byte[] second = bufferEncode(encoder, ByteBuffer.wrap(data), ByteBuffer.allocate(16));
+		assertTrue(Arrays.equals(first, second));
+	}
+	
+	/** Exception test for encoding after flushing */
+	@Test (expected = IllegalStateException.class)
+	public void encodeAfterFlushTest() throws IOException {
+		HuffmanBufferEncoder encoder = new HuffmanBufferEncoder(HuffmanCode.createHuffmanCode("ab"));
+		encoder.flush(ByteBuffer.allocate(16));
+		encoder.encode(ByteBuffer.wrap("a".getBytes("ISO-8859-1")), ByteBuffer.allocate(16));
+	}
+}
@@ -0,0 +1,56 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanChannels class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanChannelsTest {
+	
+	/** Round trip of data larger than the transfer buffers, checking the
+	 * encoded bytes against HuffmanOutputStream */
+	@Test
+	public void roundTripTest() throws IOException {
+		byte[] data = new byte[3 * HuffmanChannels.BUFFER_SIZE + 12345];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) ((i * 31 + (i >> 7)) % 7 == 0 ? i : i % 5);
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(new String(data, "ISO-8859-1"));
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		long written = HuffmanChannels.encode(Channels.newChannel(new ByteArrayInputStream(data)),
+				Channels.newChannel(encoded), code);
+		assertEquals(encoded.size(), written);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(expected, code);
+		out.write(data);
+		out.close();
+		assertTrue(Arrays.equals(expected.toByteArray(), encoded.toByteArray()));
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		assertEquals(data.length, HuffmanChannels.decode(Channels.newChannel(new ByteArrayInputStream(encoded.toByteArray())),
+				Channels.newChannel(decoded), code));
+		assertTrue(Arrays.equals(data, decoded.toByteArray()));
+	}
+	
+	/** Exception test for encoding a byte without a code */
+	@Test (expected = IllegalArgumentException.class)
+	public void unmappableTest() throws IOException {
+		HuffmanChannels.encode(Channels.newChannel(new ByteArrayInputStream("abc".getBytes("ISO-8859-1"))),
+				Channels.newChannel(new ByteArrayOutputStream()), HuffmanCode.createHuffmanCode("ab"));
+	}
+	
+	/** Exception test for decoding data whose trailer has been cut off */
+	@Test (expected = IOException.class)
+	public void corruptTest() throws IOException {
+		HuffmanChannels.decode(Channels.newChannel(new ByteArrayInputStream(new byte[5])),
+				Channels.newChannel(new ByteArrayOutputStream()), HuffmanCode.createHuffmanCode("ab"));
+	}
+}
@@ -205,4 +205,111 @@ public class HuffmanCodeTest {
 		StringOfBits code = HuffmanCode.encode("Today trever has been working on his program sense we woke up. He has been running test after test, shifting through his brain to try to find the right answers", map);
 		assertEquals(HuffmanCode.decode(code, map), "Today trever has been working on his program sense we woke up. He has been running test after test, shifting through his brain to try to find the right answers");
 	}
+	
+	/** Verifies that codes created from a table are canonical and deterministic */
+	@Test
+	public void canonicalCodeTest() {
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		table.put('M', new Double(1));
+		table.put('i', new Double(4));
+		table.put('s', new Double(4));
+		table.put('p', new Double(2));
+		table.put('.', new Double(1));
+		Map<Character,StringOfBits> first = HuffmanCode.createHuffmanCode(table);
+		Map<Character,StringOfBits> second = HuffmanCode.createHuffmanCode(table);
+		for(Character c : table.keySet()) {
+			assertTrue(compareStringOfBits(first.get(c), second.get(c)));
+		}
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		for(Map.Entry<Character,StringOfBits> entry : first.entrySet()) {
+			lengths.put(entry.getKey(), entry.getValue().length());
+		}
+		Map<Character,StringOfBits> rebuilt = HuffmanCode.createCanonicalCode(lengths);
+		for(Character c : table.keySet()) {
+			assertTrue(compareStringOfBits(first.get(c), rebuilt.get(c)));
+		}
+		assertEquals("Mississippi.", HuffmanCode.decode(HuffmanCode.encode("Mississippi.", first), first));
+	}
+	
+	/** Verifies the codes assigned to a known set of code lengths */
+	@Test
+	public void canonicalFromLengthsTest() {
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		lengths.put('a', 2);
+		lengths.put('b', 1);
+		lengths.put('c', 3);
+		lengths.put('d', 3);
+		Map<Character,StringOfBits> code = HuffmanCode.createCanonicalCode(lengths);
+		assertTrue(compareStringOfBits(new StringOfBits("0"), code.get('b')));
+		assertTrue(compareStringOfBits(new StringOfBits("10"), code.get('a')));
+		assertTrue(compareStringOfBits(new StringOfBits("110"), code.get('c')));
+		assertTrue(compareStringOfBits(new StringOfBits("111"), code.get('d')));
+	}
+	
+	/** Exception test for code lengths that cannot form a prefix code */
+	@Test (expected = IllegalArgumentException.class)
+	public void overSubscribedLengthsTest() {
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		lengths.put('a', 1);
+		lengths.put('b', 1);
+		lengths.put('c', 1);
+		HuffmanCode.createCanonicalCode(lengths);
+	}
+	
+	/** Verifies the code lengths found in a Huffman tree */
+	@Test
+	public void codeLengthsTest() {
+		HuffmanTree leaf = new HuffmanTree('x', new Double(3), new StringOfBits());
+		assertEquals(Integer.valueOf(1), HuffmanCode.codeLengths(leaf).get('x'));
+		HuffmanTree tree = new HuffmanTree(new Double(6), leaf,
+				new HuffmanTree(new Double(3), new HuffmanTree('y', new Double(1), new StringOfBits()),
+						new HuffmanTree('z', new Double(2), new StringOfBits())));
+		Map<Character,Integer> lengths = HuffmanCode.codeLengths(tree);
+		assertEquals(Integer.valueOf(1), lengths.get('x'));
+		assertEquals(Integer.valueOf(2), lengths.get('y'));
+		assertEquals(Integer.valueOf(2), lengths.get('z'));
+	}
+	
+	/** Creates a code for a large alphabet with skewed frequencies */
+	@Test
+	public void largeAlphabetTest() {
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		for(int i=0; i<65000; i++) {
+			table.put((char) i, new Double(1 + (i % 97) * (i % 13)));
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(table);
+		assertEquals(65000, code.size());
+		String text = "\u0000\u1234\u7fffabc";
+		assertEquals(text, HuffmanCode.decode(HuffmanCode.encode(text, code), code));
+	}
+	
+	/** Verifies that a single symbol gets a one bit code */
+	@Test
+	public void singleSymbolTest() {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("aaaa");
+		assertEquals(1, code.get('a').length());
+		assertEquals("aaaa", HuffmanCode.decode(HuffmanCode.encode("aaaa", code), code));
+	}
+	
+	/** Verifies a length-limited code and the reported cost of the limit */
+	@Test
+	public void lengthLimitedCodeTest() {
+		Map<Character,Double> table = new HashMap<Character,Double>();
+		double weight = 1;
+		for(char c='a'; c<='t'; c++) {
+			table.put(c, weight);
+			weight *= 2;
+		}
+		Map<Character,StringOfBits> limited = HuffmanCode.createHuffmanCode(table, 8);
+		for(StringOfBits code : limited.values()) {
+			assertTrue(code.length() <= 8);
+		}
+		String text = "abcdefghijklmnopqrst";
+		assertEquals(text, HuffmanCode.decode(HuffmanCode.encode(text, limited), limited));
+		assertEquals(19, HuffmanCode.createHuffmanCode(table).get('a').length());
+		assertEquals(0.0, HuffmanCode.lengthLimitCost(table, 19), 0.0);
+		double cost = HuffmanCode.lengthLimitCost(table, 8);
+		assertTrue(cost > 0);
+		assertTrue(HuffmanCode.lengthLimitCost(table, 5) > cost);
+	}
 }
@@ -0,0 +1,103 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanDecoder class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanDecoderTest {
+
+	/** Builds a code map in which symbol 'a' + i has the code 0^i 1, and the
+	 * last symbol has the code of all zeros. Every code is longer than the
+	 * one before it, so long codes need secondary tables.
+	 * @param symbols - the number of symbols in the code
+	 * @return the code map
+	 */
+	private Map<Character,StringOfBits> skewedCode(int symbols) {
+		Map<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		StringOfBits zeros = new StringOfBits();
+		for(int i=0; i<symbols-1; i++) {
+			map.put((char) ('a' + i), new StringOfBits(zeros).append(1));
+			zeros.append(0);
+		}
+		map.put((char) ('a' + symbols - 1), zeros);
+		return map;
+	}
+
+	/** Basic test that decodes a short string with a small root table */
+	@Test
+	public void simpleDecodeTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('s', new StringOfBits("00"));
+		map.put('i', new StringOfBits("01"));
+		map.put('p', new StringOfBits("10"));
+		map.put('M', new StringOfBits("11"));
+		HuffmanDecoder decoder = new HuffmanDecoder(map);
+		assertEquals(2, decoder.rootBits());
+		assertEquals("Mississippi", decoder.decode(new StringOfBits("1101000001000001101001")));
+		assertEquals("", decoder.decode(new StringOfBits()));
+	}
+
+	/** Decodes codes that are longer than the root table width */
+	@Test
+	public void longCodeTest() {
+		Map<Character,StringOfBits> map = skewedCode(40);
+		HuffmanDecoder decoder = new HuffmanDecoder(map, 4);
+		String text = "abcdefghijklmnopqrstuvwxyz{|}~\u007f\u0080\u0081\u0082\u0083\u0084\u0085\u0086\u0087aab";
+		StringOfBits bits = HuffmanCode.encode(text, map);
+		assertEquals(text, decoder.decode(bits));
+	}
+
+	/** Verifies that every root width gives the same result */
+	@Test
+	public void rootWidthTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text);
+		StringOfBits bits = HuffmanCode.encode(text, map);
+		for(int width=1; width<=16; width++) {
+			assertEquals(text, new HuffmanDecoder(map, width).decode(bits));
+		}
+	}
+
+	/** Decodes an input long enough to overflow a recursive decoder */
+	@Test
+	public void longInputTest() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<200000; i++) {
+			text.append((char) ('a' + (i * 7 + i / 3) % 9));
+		}
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text.toString());
+		StringOfBits bits = HuffmanCode.encode(text.toString(), map);
+		assertEquals(text.toString(), HuffmanCode.decode(bits, map));
+	}
+
+	/** Exception test for bits that end in the middle of a code */
+	@Test (expected = IllegalArgumentException.class)
+	public void truncatedCodeTest() {
+		Map<Character,StringOfBits> map = skewedCode(20);
+		new HuffmanDecoder(map).decode(new StringOfBits("0100000"));
+	}
+
+	/** Exception test for bits that are not the prefix of any code */
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidCodeTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('a', new StringOfBits("0"));
+		map.put('b', new StringOfBits("10"));
+		new HuffmanDecoder(map).decode(new StringOfBits("01011"));
+	}
+
+	/** Exception test for a code that is not prefix-free */
+	@Test (expected = IllegalArgumentException.class)
+	public void notPrefixFreeTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('a', new StringOfBits("0"));
+		map.put('b', new StringOfBits("01"));
+		new HuffmanDecoder(map);
+	}
+}
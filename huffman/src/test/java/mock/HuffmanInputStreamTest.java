@@ -0,0 +1,94 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanInputStream class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanInputStreamTest {
+	
+	/** Encodes bytes through a HuffmanOutputStream.
+	 * @param data - the bytes to encode
+	 * @param code - the Huffman code map
+	 * @return the encoded bytes, including the trailer
+	 */
+	private byte[] encode(byte[] data, Map<Character,StringOfBits> code) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(bytes, code);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+	
+	/** Decodes bytes through a HuffmanInputStream.
+	 * @param in - the stream of encoded bytes
+	 * @param code - the Huffman code map
+	 * @return the decoded bytes
+	 */
+	private byte[] decode(InputStream in, Map<Character,StringOfBits> code) throws IOException {
+		HuffmanInputStream huffman = new HuffmanInputStream(in, code);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] chunk = new byte[333];
+		int n;
+		while((n = huffman.read(chunk, 0, chunk.length)) > 0) {
+			bytes.write(chunk, 0, n);
+		}
+		huffman.close();
+		return bytes.toByteArray();
+	}
+	
+	/** Round trip of a short message */
+	@Test
+	public void simpleRoundTripTest() throws IOException {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(text);
+		byte[] data = text.getBytes("ISO-8859-1");
+		byte[] decoded = decode(new ByteArrayInputStream(encode(data, code)), code);
+		assertEquals(text, new String(decoded, "ISO-8859-1"));
+	}
+	
+	/** Round trip of data much larger than the internal buffers, read back
+	 * through a stream that returns a few bytes at a time. */
+	@Test
+	public void largeRoundTripTest() throws IOException {
+		byte[] data = new byte[300000];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) ((i * 31 + (i >> 7)) % 7 == 0 ? i : i % 5);
+		}
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode(new String(data, "ISO-8859-1"));
+		InputStream trickle = new FilterInputStream(new ByteArrayInputStream(encode(data, code))) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 3));
+			}
+		};
+		assertTrue(Arrays.equals(data, decode(trickle, code)));
+	}
+	
+	/** Round trip of empty data */
+	@Test
+	public void emptyTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("ab");
+		byte[] encoded = encode(new byte[0], code);
+		assertEquals(8, encoded.length);
+		assertEquals(0, decode(new ByteArrayInputStream(encoded), code).length);
+	}
+	
+	/** Exception test for data whose trailer has been cut off */
+	@Test (expected = IOException.class)
+	public void missingTrailerTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("abcabc");
+		byte[] encoded = encode("abcabcabc".getBytes("ISO-8859-1"), code);
+		decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 3)), code);
+	}
+}
@@ -0,0 +1,66 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanOutputStream class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanOutputStreamTest {
+	
+	/** Verifies the packed bits, padding and trailer of a short message */
+	@Test
+	public void formatTest() throws IOException {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('s', new StringOfBits("00"));
+		map.put('i', new StringOfBits("01"));
+		map.put('p', new StringOfBits("10"));
+		map.put('M', new StringOfBits("11"));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(bytes, map);
+		out.write("Mississippi".getBytes("ISO-8859-1"));
+		assertEquals(22, out.bitsWritten());
+		out.close();
+		byte[] expected = {(byte) 0xD0, (byte) 0x41, (byte) 0xA4, 0, 0, 0, 0, 0, 0, 0, 22};
+		assertArrayEquals(expected, bytes.toByteArray());
+	}
+	
+	/** Verifies that codes longer than one accumulator update are written */
+	@Test
+	public void longCodeTest() throws IOException {
+		Map<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		StringOfBits zeros = new StringOfBits();
+		for(int i=0; i<70; i++) {
+			map.put((char) i, new StringOfBits(zeros).append(1));
+			zeros.append(0);
+		}
+		map.put((char) 70, zeros);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HuffmanOutputStream out = new HuffmanOutputStream(bytes, map);
+		out.write(new byte[] {69, 70, 0});
+		out.close();
+		assertEquals(70 + 70 + 1, out.bitsWritten());
+		assertEquals(141, HuffmanCode.encode("EF\u0000", map).length());
+		assertEquals(18 + 8, bytes.size());
+	}
+	
+	/** Exception test for a byte that has no code */
+	@Test (expected = IllegalArgumentException.class)
+	public void unknownByteTest() throws IOException {
+		HuffmanOutputStream out = new HuffmanOutputStream(new ByteArrayOutputStream(),
+				HuffmanCode.createHuffmanCode("ab"));
+		out.write('c');
+	}
+	
+	/** Exception test for a codebook with symbols that are not bytes */
+	@Test (expected = IllegalArgumentException.class)
+	public void wideSymbolTest() {
+		new HuffmanOutputStream(new ByteArrayOutputStream(), HuffmanCode.createHuffmanCode("a" + (char) 256));
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the HuffmanServer and HuffmanClient classes
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class HuffmanServerTest {
+	
+	/** The server under test */
+	private HuffmanServer server;
+	
+	/** Starts a server on a free port */
+	@Before
+	public void setUp() throws IOException {
+		server = new HuffmanServer(0).start();
+	}
+	
+	/** Stops the server */
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+	
+	/** Round trip through a code negotiated from seed text */
+	@Test
+	public void negotiateTest() throws IOException {
+		try(HuffmanClient client = new HuffmanClient(server.port())) {
+			Map<Character,StringOfBits> code = client.negotiate("mississippi river");
+			StringOfBits bits = client.encode("mississippi");
+			assertEquals(HuffmanCode.encode("mississippi", code), bits);
+			assertEquals("mississippi", client.decode(bits));
+		}
+	}
+	
+	/** Round trip through a code chosen by the client */
+	@Test
+	public void useCodebookTest() throws IOException {
+		Map<Character,StringOfBits> code = HuffmanCode.createHuffmanCode("abracadabra");
+		try(HuffmanClient client = new HuffmanClient(server.port())) {
+			client.useCodebook(code);
+			StringOfBits bits = client.encode("cabbad");
+			assertEquals(HuffmanCode.encode("cabbad", code), bits);
+			assertEquals("cabbad", client.decode(bits));
+		}
+	}
+	
+	/** Text with lone surrogates survives the trip to the server and back */
+	@Test
+	public void loneSurrogateTest() throws IOException {
+		String text = "a\uD800b\uDC00\uDC00a";
+		try(HuffmanClient client = new HuffmanClient(server.port())) {
+			Map<Character,StringOfBits> code = client.negotiate(text);
+			assertEquals(4, code.size());
+			StringOfBits bits = client.encode(text);
+			assertEquals(HuffmanCode.encode(text, code), bits);
+			assertEquals(text, client.decode(bits));
+		}
+		assertEquals(text, HuffmanServer.bytesToChars(HuffmanServer.charsToBytes(text)));
+	}
+	
+	/** Each connection keeps its own code */
+	@Test
+	public void perConnectionTest() throws IOException {
+		try(HuffmanClient first = new HuffmanClient(server.port());
+				HuffmanClient second = new HuffmanClient(server.port())) {
+			Map<Character,StringOfBits> firstCode = first.negotiate("aaaaaaab");
+			Map<Character,StringOfBits> secondCode = second.negotiate("abbbbbbb");
+			assertEquals(HuffmanCode.encode("aab", firstCode), first.encode("aab"));
+			assertEquals(HuffmanCode.encode("aab", secondCode), second.encode("aab"));
+			assertEquals(2, server.connectionCount());
+		}
+	}
+	
+	/** Exception test for encoding before a code is chosen */
+	@Test (expected = IOException.class)
+	public void noCodebookTest() throws IOException {
+		try(HuffmanClient client = new HuffmanClient(server.port())) {
+			client.encode("abc");
+		}
+	}
+	
+	/** A refused request leaves the connection usable */
+	@Test
+	public void errorRecoveryTest() throws IOException {
+		try(HuffmanClient client = new HuffmanClient(server.port())) {
+			client.negotiate("ab");
+			try {
+				client.encode("abc");
+				fail("encoded a character without a code");
+			} catch(IOException ex) {
+				assertTrue(ex.getMessage().startsWith("Server error: "));
+			}
+			assertEquals("ba", client.decode(client.encode("ba")));
+		}
+	}
+	
+	/** Tests the conversion of bits to and from frame payloads */
+	@Test
+	public void bitsToBytesTest() throws IOException {
+		StringOfBits bits = new StringOfBits("1011001110");
+		byte[] bytes = HuffmanServer.bitsToBytes(bits);
+		assertEquals(6, bytes.length);
+		assertEquals(bits, HuffmanServer.bytesToBits(bytes));
+	}
+	
+	/** Exception test for a bit count larger than the payload */
+	@Test (expected = IOException.class)
+	public void bytesToBitsTest() throws IOException {
+		HuffmanServer.bytesToBits(new byte[] {0, 0, 0, 9, 0});
+	}
+	
+	/** A small load run completes every request */
+	@Test
+	public void loadGeneratorTest() throws InterruptedException {
+		LoadGenerator.Result result = LoadGenerator.run(server.port(), 20, 5, "load generator");
+		assertEquals(0, result.failedConnections());
+		assertEquals(100, result.requests());
+		assertTrue(result.latencyMicros(0.99) <= result.latencyMicros(1.0));
+	}
+}
@@ -0,0 +1,129 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the InterleavedCode class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class InterleavedCodeTest {
+
+	/** Round trips every prefix of a string, covering each remainder of four */
+	@Test
+	public void shortInputTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text);
+		HuffmanDecoder decoder = new HuffmanDecoder(map);
+		for(int i=0; i<=text.length(); i++) {
+			String prefix = text.substring(0, i);
+			assertEquals(prefix, InterleavedCode.decode(InterleavedCode.encode(prefix, map), decoder));
+		}
+	}
+
+	/** Checks the header and that each stream is the code of every fourth character */
+	@Test
+	public void layoutTest() {
+		HashMap<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		map.put('s', new StringOfBits("00"));
+		map.put('i', new StringOfBits("01"));
+		map.put('p', new StringOfBits("10"));
+		map.put('M', new StringOfBits("11"));
+		byte[] block = InterleavedCode.encode("Mississippi", map);
+		// Streams "Mip" = 110110, "isp" = 010010, "ssi" = 000001, "si" = 0001.
+		byte[] expected = {0, 0, 0, 11, 0, 0, 0, 6, 0, 0, 0, 6, 0, 0, 0, 6, 0, 0, 0, 4,
+				(byte) 0xD8, 0x48, 0x04, 0x10};
+		assertArrayEquals(expected, block);
+		assertEquals("Mississippi", InterleavedCode.decode(block, map));
+	}
+
+	/** Decodes codes that are longer than the root table */
+	@Test
+	public void longCodeTest() {
+		Map<Character,StringOfBits> map = new HashMap<Character,StringOfBits>();
+		StringOfBits zeros = new StringOfBits();
+		for(int i=0; i<69; i++) {
+			map.put((char) ('0' + i), new StringOfBits(zeros).append(1));
+			zeros.append(0);
+		}
+		map.put('u', zeros);
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<500; i++) {
+			text.append((char) ('0' + (i * 7) % 70));
+		}
+		HuffmanDecoder decoder = new HuffmanDecoder(map, 4);
+		byte[] block = InterleavedCode.encode(text.toString(), map);
+		assertEquals(text.toString(), InterleavedCode.decode(block, decoder));
+	}
+
+	/** Round trips a long input and checks it is no more than the header larger than one stream */
+	@Test
+	public void longInputTest() {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<20000; i++) {
+			text.append((char) ('a' + Integer.numberOfTrailingZeros(i + 1) % 20));
+		}
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode(text.toString());
+		byte[] block = InterleavedCode.encode(text.toString(), map);
+		int single = (HuffmanCode.encode(text.toString(), map).length() + 7) / 8;
+		assertTrue(block.length <= single + InterleavedCode.HEADER_SIZE + InterleavedCode.STREAMS);
+		assertEquals(text.toString(), InterleavedCode.decode(block, map));
+	}
+
+	/** Round trips a string with a single distinct character */
+	@Test
+	public void singleSymbolTest() {
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode("zzzzzzz");
+		assertEquals("zzzzzzz", InterleavedCode.decode(InterleavedCode.encode("zzzzzzz", map), map));
+	}
+
+	/** Encoding a character with no code fails */
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownCharacterTest() {
+		InterleavedCode.encode("abc", HuffmanCode.createHuffmanCode("ab"));
+	}
+
+	/** Decoding a block missing its last byte fails */
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedTest() {
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode("Mississippi");
+		byte[] block = InterleavedCode.encode("Mississippi", map);
+		InterleavedCode.decode(java.util.Arrays.copyOf(block, block.length - 1), map);
+	}
+
+	/** Decoding a block whose symbol count disagrees with its streams fails */
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongCountTest() {
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode("Mississippi");
+		byte[] block = InterleavedCode.encode("Mississippi", map);
+		block[3]--;
+		InterleavedCode.decode(block, map);
+	}
+
+	/** Decoding a block whose symbol count exceeds its bits fails before allocating */
+	@Test(expected = IllegalArgumentException.class)
+	public void hugeCountTest() {
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode("Mississippi");
+		byte[] block = InterleavedCode.encode("Mississippi", map);
+		block[0] = 0x7F;
+		InterleavedCode.decode(block, map);
+	}
+
+	/** Decoding a block with a negative symbol count fails */
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeCountTest() {
+		Map<Character,StringOfBits> map = HuffmanCode.createHuffmanCode("Mississippi");
+		byte[] block = InterleavedCode.encode("Mississippi", map);
+		block[0] = (byte) 0x80;
+		InterleavedCode.decode(block, map);
+	}
+
+	/** Decoding a block shorter than its header fails */
+	@Test(expected = IllegalArgumentException.class)
+	public void shortHeaderTest() {
+		InterleavedCode.decode(new byte[7], HuffmanCode.createHuffmanCode("ab"));
+	}
+}
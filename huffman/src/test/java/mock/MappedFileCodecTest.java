@@ -0,0 +1,93 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the MappedFileCodec class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class MappedFileCodecTest {
+	
+	/** Temporary directory for the files under test */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/** Compresses and decompresses the given data.
+	 * @param data - the original file contents
+	 * @return the contents of the decompressed file
+	 */
+	private byte[] roundTrip(byte[] data) throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		File restored = folder.newFile();
+		Files.write(original.toPath(), data);
+		MappedFileCodec.compress(original.toPath(), compressed.toPath());
+		MappedFileCodec.decompress(compressed.toPath(), restored.toPath());
+		return Files.readAllBytes(restored.toPath());
+	}
+	
+	/** Round trip of a text file */
+	@Test
+	public void textRoundTripTest() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for(int i=0; i<5000; i++) {
+			text.append("Sally Sells Seashells by the Seashore. ").append(i).append('\n');
+		}
+		byte[] data = text.toString().getBytes("UTF-8");
+		assertArrayEquals(data, roundTrip(data));
+	}
+	
+	/** Round trip of files using every byte value and a single byte value */
+	@Test
+	public void binaryRoundTripTest() throws IOException {
+		byte[] data = new byte[100000];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) (i * i + (i >> 9));
+		}
+		assertArrayEquals(data, roundTrip(data));
+		byte[] same = new byte[777];
+		assertArrayEquals(same, roundTrip(same));
+	}
+	
+	/** Round trip of an empty file */
+	@Test
+	public void emptyFileTest() throws IOException {
+		assertArrayEquals(new byte[0], roundTrip(new byte[0]));
+	}
+	
+	/** Verifies that a compressed text file is smaller than the original */
+	@Test
+	public void compressionTest() throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		byte[] data = new byte[50000];
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) ("aaaabbc".charAt(i % 7));
+		}
+		Files.write(original.toPath(), data);
+		long size = MappedFileCodec.compress(original.toPath(), compressed.toPath());
+		assertEquals(compressed.length(), size);
+		assertTrue(size < data.length / 4);
+	}
+	
+	/** Exception test for a compressed file that has been cut short */
+	@Test (expected = IOException.class)
+	public void truncatedFileTest() throws IOException {
+		File original = folder.newFile();
+		File compressed = folder.newFile();
+		Files.write(original.toPath(), "Mississippi Mississippi".getBytes("UTF-8"));
+		MappedFileCodec.compress(original.toPath(), compressed.toPath());
+		RandomAccessFile file = new RandomAccessFile(compressed, "rw");
+		file.setLength(file.length() - 1);
+		file.close();
+		MappedFileCodec.decompress(compressed.toPath(), folder.newFile().toPath());
+	}
+}
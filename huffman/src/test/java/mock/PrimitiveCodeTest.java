@@ -0,0 +1,137 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the PrimitiveCode class
+ * @version Fall 2015 (1)
+ * @author Trever
+ */
+public class PrimitiveCodeTest {
+
+	/** Round trip of binary data with every byte value */
+	@Test
+	public void bytesRoundTripTest() {
+		byte[] data = new byte[20000];
+		Random random = new Random(5);
+		for(int i=0; i<data.length; i++) {
+			data[i] = (byte) (random.nextInt(3) == 0 ? random.nextInt(256) : random.nextInt(8));
+		}
+		PrimitiveCode code = HuffmanCode.createHuffmanCode(data);
+		assertEquals(256, code.size());
+		StringOfBits bits = HuffmanCode.encode(data, code);
+		assertTrue(bits.length() < 8 * data.length);
+		assertTrue(Arrays.equals(data, HuffmanCode.decodeBytes(bits, code)));
+	}
+
+	/** A supplementary character gets a single code */
+	@Test
+	public void codePointTest() {
+		String text = "a\uD83D\uDE00b\uD83D\uDE00\uD83D\uDE00a\u00E9";
+		PrimitiveCode code = HuffmanCode.createCodePointCode(text);
+		assertEquals(4, code.size());
+		assertTrue(Arrays.equals(new int[] {'a', 'b', 0xE9, 0x1F600}, code.symbols()));
+		assertEquals(0, code.codeLength(0xD83D));
+		StringOfBits bits = HuffmanCode.encodeCodePoints(text, code);
+		assertEquals(text, HuffmanCode.decodeCodePoints(bits, code));
+		assertTrue(Arrays.equals(text.codePoints().toArray(), code.decode(bits)));
+	}
+
+	/** The code matches createCanonicalCode for the same lengths */
+	@Test
+	public void canonicalTest() {
+		String text = "Sally Sells Seashells by the Seashore";
+		PrimitiveCode code = HuffmanCode.createCodePointCode(text);
+		Map<Character,StringOfBits> map = code.toCode();
+		Map<Character,Integer> lengths = new HashMap<Character,Integer>();
+		for(Map.Entry<Character,StringOfBits> entry : map.entrySet()) {
+			lengths.put(entry.getKey(), entry.getValue().length());
+			assertEquals(entry.getValue().length(), code.codeLength(entry.getKey()));
+		}
+		assertEquals(HuffmanCode.createCanonicalCode(lengths), map);
+		assertEquals(HuffmanCode.encode(text, map), code.encodeCodePoints(text));
+	}
+
+	/** Codes longer than the decoding table and sparse symbols round trip */
+	@Test
+	public void longCodeTest() {
+		int n = 40;
+		int[] symbols = new int[n];
+		int[] lengths = new int[n];
+		for(int i=0; i<n; i++) {
+			symbols[i] = 0x10000 + 977 * i;
+			lengths[i] = Math.min(i + 1, n - 1);
+		}
+		PrimitiveCode code = PrimitiveCode.fromLengths(symbols, lengths);
+		int[] data = new int[500];
+		for(int i=0; i<data.length; i++) {
+			data[i] = symbols[(i * 7) % n];
+		}
+		assertEquals(n - 1, code.codeLength(symbols[n - 1]));
+		assertTrue(Arrays.equals(data, code.decode(code.encode(data))));
+	}
+
+	/** Codes are limited to MAX_CODE_LENGTH bits */
+	@Test
+	public void lengthLimitTest() {
+		long[] counts = new long[80];
+		long a = 1;
+		long b = 1;
+		for(int i=0; i<counts.length; i++) {
+			counts[i] = a;
+			long c = a + b;
+			a = b;
+			b = Math.min(c, 1L << 58);
+		}
+		PrimitiveCode code = PrimitiveCode.fromCounts(counts);
+		for(int s=0; s<counts.length; s++) {
+			assertTrue(code.codeLength(s) <= PrimitiveCode.MAX_CODE_LENGTH);
+		}
+		int[] data = {0, 79, 1, 40, 0};
+		assertTrue(Arrays.equals(data, code.decode(code.encode(data))));
+	}
+
+	/** Serialization round trip through the codebook format */
+	@Test
+	public void bytesFormatTest() throws IOException {
+		PrimitiveCode code = PrimitiveCode.forCodePoints("x\uD83D\uDE00yyzzzz");
+		PrimitiveCode copy = PrimitiveCode.fromBytes(code.toBytes());
+		assertTrue(Arrays.equals(code.symbols(), copy.symbols()));
+		for(int s : code.symbols()) {
+			assertEquals(code.codeLength(s), copy.codeLength(s));
+		}
+	}
+
+	/** An empty seed gives an empty code */
+	@Test
+	public void emptyTest() {
+		PrimitiveCode code = PrimitiveCode.forBytes(new byte[0]);
+		assertEquals(0, code.size());
+		assertEquals(0, code.decodeBytes(code.encode(new byte[0])).length);
+	}
+
+	/** Exception test for a symbol without a code */
+	@Test (expected = IllegalArgumentException.class)
+	public void missingSymbolTest() {
+		PrimitiveCode.forBytes(new byte[] {1, 2}).encode(new byte[] {3});
+	}
+
+	/** Exception test for over-subscribed code lengths */
+	@Test (expected = IllegalArgumentException.class)
+	public void overSubscribedTest() {
+		PrimitiveCode.fromLengths(new int[] {1, 2, 3}, new int[] {1, 1, 2});
+	}
+
+	/** Exception test for bits that end inside a code */
+	@Test (expected = IllegalArgumentException.class)
+	public void truncatedTest() {
+		PrimitiveCode code = PrimitiveCode.fromLengths(new int[] {1, 2, 3}, new int[] {1, 2, 2});
+		code.decode(new StringOfBits("01"));
+	}
+}
@@ -234,4 +234,160 @@ public class StringOfBitsTest {
 		assertEquals(b.intAt(0), 0);
 		assertEquals(a.booleanAt(0), true);
 	}
+	
+	/** Tests appending StringOfBits objects whose lengths straddle word boundaries. */
+	@Test
+	public void appendAcrossWordsTest() {
+		StringBuilder expected = new StringBuilder();
+		StringOfBits sb = new StringOfBits();
+		for(int n=1; n<200; n+=7) {
+			StringBuilder piece = new StringBuilder();
+			for(int i=0; i<n; i++) {
+				piece.append((i * 31 + n) % 3 == 0 ? '1' : '0');
+			}
+			sb.append(new StringOfBits(piece.toString()));
+			expected.append(piece);
+		}
+		assertEquals(expected.length(), sb.length());
+		assertEquals(expected.toString(), sb.toString());
+		sb.append(sb);
+		expected.append(expected.toString());
+		assertEquals(expected.toString(), sb.toString());
+	}
+	
+	/** Tests random access and setting bits in a long bit string. */
+	@Test
+	public void longStringAccessTest() {
+		StringOfBits sb = new StringOfBits();
+		for(int i=0; i<100000; i++) {
+			sb.append(i % 5 == 0);
+		}
+		assertEquals(100000, sb.length());
+		for(int i=0; i<100000; i+=997) {
+			assertEquals(i % 5 == 0, sb.booleanAt(i));
+		}
+		sb.setBitAt(64, false);
+		sb.setBitAt(99999, true);
+		assertEquals(0, sb.intAt(64));
+		assertEquals(1, sb.intAt(99999));
+		StringOfBits copy = new StringOfBits(sb);
+		copy.setBitAt(66, true);
+		assertEquals(0, sb.intAt(66));
+		assertTrue(compareStringOfBits(sb, new StringOfBits(sb.toString())));
+	}
+	
+	/** Exception test for a negative index */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void negativeIndexExceptionTest() {
+		StringOfBits sb = new StringOfBits("1010");
+		sb.intAt(-1);
+	}
+	
+	/** Exception test for 'setBitAt' past the end of the bit string */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void setBitAtExceptionTest() {
+		StringOfBits sb = new StringOfBits("1010");
+		sb.setBitAt(4, true);
+	}
+	
+	/** Test of equals and hashCode */
+	@Test
+	public void equalsTest() {
+		StringOfBits a = new StringOfBits("1011001110001111000011111000001111110000001111111");
+		StringOfBits b = new StringOfBits("1011001110001111000011111000001111110000001111111");
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertFalse(a.equals(b.append(0)));
+		assertFalse(new StringOfBits("0").equals(new StringOfBits("00")));
+		assertFalse(a.equals("1011"));
+		assertEquals(new StringOfBits(), new StringOfBits());
+	}
+	
+	/** Slices share bits with the original, and compare and hash like copies */
+	@Test
+	public void sliceTest() {
+		String bits = "1011001110001111000011111000001111110000001111111000000001111111110000000000111";
+		StringOfBits sb = new StringOfBits(bits);
+		StringOfBits slice = sb.slice(5, 70);
+		assertEquals(65, slice.length());
+		assertEquals(bits.substring(5, 70), slice.toString());
+		assertEquals(new StringOfBits(bits.substring(5, 70)), slice);
+		assertEquals(new StringOfBits(bits.substring(5, 70)).hashCode(), slice.hashCode());
+		assertEquals(bits.substring(3), sb.slice(3).toString());
+		assertEquals(bits.substring(7, 9), slice.slice(2, 4).toString());
+		assertEquals(0, sb.slice(10, 10).length());
+		for(int i=0; i<slice.length(); i++) {
+			assertEquals(bits.charAt(5 + i), slice.charAt(i));
+		}
+		assertEquals(bits.substring(5, 70) + bits.substring(5, 70), new StringOfBits(slice).append(slice).toString());
+	}
+	
+	/** Changing a slice or its original does not change the other */
+	@Test
+	public void copyOnWriteTest() {
+		StringOfBits sb = new StringOfBits("1111000011110000");
+		StringOfBits slice = sb.slice(2, 6);
+		slice.setBitAt(0, false);
+		slice.append(1);
+		assertEquals("01001", slice.toString());
+		assertEquals("1111000011110000", sb.toString());
+		StringOfBits prefix = sb.slice(0, 8);
+		sb.setBitAt(0, false);
+		sb.append(1);
+		assertEquals("11110000", prefix.toString());
+		prefix.append(1);
+		assertEquals("111100001", prefix.toString());
+		assertEquals("01110000111100001", sb.toString());
+	}
+	
+	/** Appending to a slice that starts past the first word keeps the slice's bits */
+	@Test
+	public void appendToSliceTest() {
+		StringBuilder bits = new StringBuilder();
+		for(int i=0; i<128; i++) {
+			bits.append(i % 3 == 1 ? '1' : '0');
+		}
+		StringOfBits sb = new StringOfBits(bits.toString());
+		StringOfBits slice = sb.slice(100);
+		StringBuilder ones = new StringBuilder();
+		for(int i=0; i<200; i++) {
+			ones.append('1');
+		}
+		slice.append(ones.toString());
+		assertEquals(bits.substring(100) + ones, slice.toString());
+		assertEquals(bits.toString(), sb.toString());
+	}
+	
+	/** Reads runs of bits, including across words and past the end of a slice */
+	@Test
+	public void readBitsTest() {
+		StringOfBits sb = new StringOfBits();
+		for(int i=0; i<200; i++) {
+			sb.append(i % 3 == 0);
+		}
+		assertEquals(0x9L, sb.readBits(0, 4));
+		assertEquals(sb.readBits(61, 10), new StringOfBits(sb.toString().substring(61, 71)).readBits(0, 10));
+		StringOfBits slice = sb.slice(10, 20);
+		assertEquals(sb.readBits(10, 10) << 54, slice.readBits(0, 64));
+		assertEquals(0L, slice.readBits(10, 5));
+		assertEquals(200L, sb.bitLength());
+	}
+	
+	/** Exception test for a slice past the end of the bit string */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void sliceExceptionTest() {
+		new StringOfBits("1010").slice(2, 5);
+	}
+	
+	/** Exception test for reading bits at a negative index */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void readBitsIndexExceptionTest() {
+		new StringOfBits("1010").readBits(-1, 2);
+	}
+	
+	/** Exception test for reading more than a word of bits */
+	@Test (expected = IllegalArgumentException.class)
+	public void readBitsCountExceptionTest() {
+		new StringOfBits("1010").readBits(0, 65);
+	}
 }